@@ -2,20 +2,64 @@ import com.sun.net.httpserver.HttpServer;
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpExchange;
 
+import communication.FeedbackService;
+import communication.FileSink;
+import communication.NotificationDispatcher;
+import communication.NotificationSink;
+import communication.SocketSink;
+import communication.WebhookSink;
 import core.EthicsEngine;
 import core.EthicsContext;
 import core.EthicsResult;
-import config.EthicsPolicy;
+import config.PolicyWatcher;
+import core.EthicsDecision;
+import core.Pillar;
+import data.AuditLog;
+import data.DecisionRecordLog;
+import data.DecisionRollups;
+import data.Histogram;
+import data.HistoryPage;
+import data.HistoryQuery;
+import data.HistoryRow;
+import data.TieredHistory;
 import governance.ApprovalWorkflow;
+import governance.ReviewGroup;
+import governance.ReviewItem;
+import governance.ReviewQueue;
 import governance.RoleManager;
 import governance.Role;
 import model.AIDecision;
 import model.UserData;
+import server.BinaryProtocol;
+import server.BinaryServer;
+import server.Compression;
+import server.EventBroadcaster;
+import server.EvaluationRequest;
+import server.HistoryExport;
+import server.JsonReader;
+import server.JsonResponse;
+import server.Metrics;
+import server.NioHttpServer;
+import server.StaticAsset;
+import server.StreamingEvaluator;
+import server.Utf8Writer;
+import server.WorkerExecutor;
 
 import java.io.*;
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.UnixDomainSocketAddress;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
 
 /**
  * Main - A lightweight HTTP server to showcase the RAIG framework
@@ -26,25 +70,258 @@ public class Main {
 
     private static EthicsEngine engine;
     private static ApprovalWorkflow workflow;
+    private static RoleManager roleManager;
+    private static DecisionRollups rollups;
+    private static TieredHistory history;
+    private static EventBroadcaster events;
+    private static WorkerExecutor workers;
+    private static StreamingEvaluator<Evaluation> batch;
+    private static Compression compression;
+    private static NioHttpServer nioServer;
+    private static BinaryServer<Evaluation> binary;
+    private static final Metrics metrics = new Metrics();
+    private static final Histogram historyQueryStats = new Histogram();
 
     public static void main(String[] args) throws IOException, InterruptedException {
         // Initialize RAIG framework
-        EthicsPolicy policy = EthicsPolicy.defaultPolicy();
-        RoleManager roleManager = new RoleManager();
+        Path policyFile = Paths.get(System.getProperty("raig.policy", "config/ethics-policy.yaml"));
+        if (Files.exists(policyFile)) {
+            PolicyWatcher.start(policyFile);
+            System.out.println("Loaded ethics policy from " + policyFile + " (watching for changes)");
+        }
+        roleManager = new RoleManager();
+        String rolesFile = System.getProperty("raig.roles");
+        if (rolesFile != null) {
+            // Replaces the built-in test users with the exported directory
+            int principals = roleManager.importFile(Paths.get(rolesFile));
+            System.out.println("Loaded " + principals + " principals from " + rolesFile);
+        }
         engine = new EthicsEngine();
-        workflow = new ApprovalWorkflow();
+        
+        // Escalations wait in a persistent queue for a reviewer with the right role
+        ReviewQueue reviewQueue = new ReviewQueue(
+            Paths.get(System.getProperty("raig.reviews.journal", "logs/reviews.journal")),
+            TimeUnit.MINUTES.toMillis(Long.getLong("raig.reviews.leaseMinutes", 15)),
+            ReviewQueue.DEFAULT_SLA_MILLIS, ReviewQueue.DEFAULT_URGENT_SLA_MILLIS);
+        workflow = new ApprovalWorkflow(reviewQueue);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                reviewQueue.close();
+            } catch (IOException ignored) {
+                // Nothing left to do at shutdown
+            }
+        }));
+        
+        // Persistent audit trail of every decision
+        AuditLog auditLog = new AuditLog(
+            Paths.get(System.getProperty("raig.audit.dir", "logs/audit")),
+            AuditLog.DEFAULT_SEGMENT_SIZE,
+            AuditLog.Durability.valueOf(System.getProperty("raig.audit.durability", "GROUP")),
+            Long.getLong("raig.audit.flushMillis", 10));
+        engine.addListener(auditLog);
+        metrics.counter("raig_audit_failures_total", "Decisions that could not be appended to the audit log",
+            auditLog::getFailedCount);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                auditLog.close();
+            } catch (IOException ignored) {
+                // Nothing left to do at shutdown
+            }
+        }));
+        
+        // Decision history: recent days in memory, older chunks compressed on disk
+        history = new TieredHistory(
+            Paths.get(System.getProperty("raig.history.dir", "logs/history")),
+            new TieredHistory.Retention(
+                Duration.ofHours(Long.getLong("raig.history.hotHours", 72)),
+                Integer.getInteger("raig.history.maxHotChunks", 64),
+                Duration.ofDays(Long.getLong("raig.history.retainDays", 7 * 366))),
+            10_000);
+        engine.addListener(history);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                history.close();
+            } catch (IOException ignored) {
+                // Nothing left to do at shutdown
+            }
+        }));
+        
+        // Time-bucketed analytics for dashboards; entities past the limit share one series
+        rollups = new DecisionRollups(
+            Integer.getInteger("raig.rollups.maxEntities", DecisionRollups.DEFAULT_MAX_ENTITIES));
+        engine.addListener(rollups);
+        
+        // Per-user notifications, optionally pushed to external sinks off the request thread
+        List<NotificationSink> sinks = new ArrayList<>();
+        String webhook = System.getProperty("raig.notify.webhook");
+        if (webhook != null) {
+            sinks.add(new WebhookSink(URI.create(webhook)));
+        }
+        String notifyFile = System.getProperty("raig.notify.file");
+        if (notifyFile != null) {
+            sinks.add(new FileSink(Paths.get(notifyFile)));
+        }
+        String notifySocket = System.getProperty("raig.notify.socket");
+        if (notifySocket != null) {
+            sinks.add(SocketSink.parse(notifySocket));
+        }
+        NotificationDispatcher dispatcher = null;
+        if (!sinks.isEmpty()) {
+            dispatcher = new NotificationDispatcher(sinks,
+                Paths.get(System.getProperty("raig.notify.deadLetter", "logs/notifications.dead")));
+            NotificationDispatcher closing = dispatcher;
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    closing.close();
+                } catch (IOException ignored) {
+                    // Nothing left to do at shutdown
+                }
+            }));
+        }
+        FeedbackService feedback = new FeedbackService(dispatcher);
+        engine.addListener(feedback);
+        
+        // Live decisions and notifications for dashboards over Server-Sent Events
+        events = new EventBroadcaster();
+        engine.addListener(events);
+        feedback.addListener(events);
+        
+        // Optionally capture full decision inputs for offline policy replay
+        String capturePath = System.getProperty("raig.capture");
+        if (capturePath != null) {
+            DecisionRecordLog capture = new DecisionRecordLog(Paths.get(capturePath));
+            engine.addListener(capture);
+            metrics.counter("raig_capture_failures_total", "Decisions that could not be written to the capture file",
+                capture::getFailedCount);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    capture.close();
+                } catch (IOException ignored) {
+                    // Nothing left to do at shutdown
+                }
+            }));
+        }
 
-        // Create HTTP server on port 8080
-        HttpServer server = HttpServer.create(new InetSocketAddress(8080), 0);
+        // Prometheus metrics for /metrics; recording never waits on a scrape
+        Metrics.Histograms pillarSeconds = metrics.histogram("raig_pillar_evaluation_seconds",
+            "Time spent in each pillar check", Histogram.DEFAULT_BOUNDS, "pillar");
+        Histogram[] byPillar = new Histogram[Pillar.values().length];
+        for (Pillar pillar : Pillar.values()) {
+            if (pillar != Pillar.OTHER) {
+                byPillar[pillar.ordinal()] = pillarSeconds.labels(pillar.name());
+            }
+        }
+        engine.setPillarTimer((pillar, nanos) -> byPillar[pillar.ordinal()].record(nanos));
+        Metrics.Counters decisions = metrics.counter("raig_decisions_total", "Decisions by final state", "state");
+        Metrics.Counters violations = metrics.counter("raig_violations_total", "Violations by pillar", "pillar");
+        LongAdder[] byState = new LongAdder[EthicsDecision.values().length];
+        for (EthicsDecision state : EthicsDecision.values()) {
+            byState[state.ordinal()] = decisions.labels(state.name());
+        }
+        LongAdder[] violationsByPillar = new LongAdder[Pillar.values().length];
+        for (Pillar pillar : Pillar.values()) {
+            violationsByPillar[pillar.ordinal()] = violations.labels(pillar.name());
+        }
+        engine.addListener((context, result) -> {
+            byState[result.getFinalDecision().ordinal()].increment();
+            for (String violation : result.getViolations()) {
+                violationsByPillar[Pillar.fromMessage(violation).ordinal()].increment();
+            }
+        });
+        metrics.gauge("raig_review_queue_items", "Escalations waiting for or claimed by a reviewer", reviewQueue::size);
+        metrics.gauge("raig_event_subscribers", "Connected Server-Sent Events clients", events::getSubscriberCount);
+        metrics.counter("raig_events_published_total", "Events published to subscribers", events::getPublishedCount);
+        metrics.histogram("raig_history_query_seconds", "Time to answer a history query", historyQueryStats);
+        metrics.registerJvmMetrics();
+
+        // gzip/deflate for large responses; a negative threshold turns it off
+        compression = new Compression(
+            Integer.getInteger("raig.compression.threshold", Compression.DEFAULT_THRESHOLD),
+            Integer.getInteger("raig.compression.level", Deflater.DEFAULT_COMPRESSION),
+            Runtime.getRuntime().availableProcessors() * 2);
+
+        // Bounded-parallel NDJSON batch evaluation for /api/evaluate/stream
+        batch = new StreamingEvaluator<>(Main::evaluate, Main::writeStreamResult,
+            Integer.getInteger("raig.stream.threads", Runtime.getRuntime().availableProcessors()),
+            Integer.getInteger("raig.stream.window", StreamingEvaluator.DEFAULT_WINDOW));
+
+        // Without TCP_NODELAY a response's headers and body, written separately,
+        // stall on delayed ACKs and cap each connection at ~25 requests/s
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
         
-        // API endpoints
-        server.createContext("/api/pillars", new PillarsHandler());
-        server.createContext("/api/evaluate", new EvaluateHandler());
-        server.createContext("/api/scenarios", new ScenariosHandler());
-        server.createContext("/", new StaticFileHandler());
+        // Create HTTP server on port 8080; a backlog of 0 uses the system default.
+        // The nio transport runs the same handlers on selector event loops
+        boolean nio = "nio".equalsIgnoreCase(System.getProperty("raig.server.transport", "jdk"));
+        int backlog = Integer.getInteger("raig.server.backlog", 0);
+        HttpServer server;
+        if (nio) {
+            nioServer = NioHttpServer.create(new InetSocketAddress(8080), backlog,
+                Integer.getInteger("raig.server.loops", Runtime.getRuntime().availableProcessors()));
+            nioServer.setRequestTimeoutMillis(
+                Long.getLong("raig.server.requestTimeoutMillis", NioHttpServer.DEFAULT_REQUEST_TIMEOUT_MILLIS));
+            server = nioServer;
+        } else {
+            server = HttpServer.create(new InetSocketAddress(8080), backlog);
+        }
+        
+        // API endpoints, counted and timed per path; event streams stay open
+        // for minutes, so they are tracked by the subscriber gauge instead
+        server.createContext("/api/pillars", metrics.timed("/api/pillars", new PillarsHandler()));
+        server.createContext("/api/evaluate", metrics.timed("/api/evaluate", new EvaluateHandler()));
+        server.createContext("/api/evaluate/stream", metrics.timed("/api/evaluate/stream", new EvaluateStreamHandler()));
+        server.createContext("/api/scenarios", metrics.timed("/api/scenarios", new ScenariosHandler()));
+        server.createContext("/api/reviews", metrics.timed("/api/reviews", new ReviewsHandler()));
+        server.createContext("/api/history/rollups", metrics.timed("/api/history/rollups", new RollupsHandler()));
+        server.createContext("/api/history", metrics.timed("/api/history", new HistoryHandler()));
+        server.createContext("/api/history/export", metrics.timed("/api/history/export", new ExportHandler()));
+        server.createContext("/api/events", new EventsHandler());
+        server.createContext("/api/server/stats", metrics.timed("/api/server/stats", new ServerStatsHandler()));
+        server.createContext("/metrics", metrics.timed("/metrics", new MetricsHandler()));
+        server.createContext("/", metrics.timed("/", new StaticFileHandler()));
         
-        server.setExecutor(null);
+        // Worker threads for exchanges: dispatcher, fixed, work-stealing or virtual
+        // Event loops must never run handlers, so nio has no dispatcher mode
+        WorkerExecutor.Mode mode = WorkerExecutor.Mode.parse(System.getProperty("raig.server.executor", "fixed"));
+        if (nio && mode == WorkerExecutor.Mode.DISPATCHER) {
+            mode = WorkerExecutor.Mode.FIXED;
+        }
+        workers = new WorkerExecutor(
+            mode,
+            Integer.getInteger("raig.server.threads", Runtime.getRuntime().availableProcessors() * 2),
+            Integer.getInteger("raig.server.queue", WorkerExecutor.DEFAULT_QUEUE_CAPACITY));
+        server.setExecutor(workers);
         server.start();
+        metrics.gauge("raig_worker_queue_depth", "Exchanges waiting for a worker thread", workers::getQueueDepth);
+        metrics.gauge("raig_worker_active_threads", "Worker threads running a handler", workers::getActiveCount);
+        metrics.counter("raig_worker_overflow_total", "Exchanges run outside the worker pool because its queue was full",
+            workers::getOverflowCount);
+        metrics.histogram("raig_worker_queue_wait_seconds", "Time from hand-off until a worker starts the exchange",
+            workers.getQueueWait());
+        if (nioServer != null) {
+            metrics.gauge("raig_http_open_connections", "Open HTTP connections", nioServer::getOpenConnections);
+        }
+        
+        // Binary protocol for same-host sidecars, on a Unix socket and/or loopback TCP
+        String binarySocket = System.getProperty("raig.binary.socket");
+        Integer binaryPort = Integer.getInteger("raig.binary.port");
+        if (binarySocket != null || binaryPort != null) {
+            binary = new BinaryServer<>(Main::evaluate,
+                (out, evaluation) -> BinaryProtocol.writeResult(out, evaluation.result, evaluation.approved),
+                Integer.getInteger("raig.binary.threads", 0));
+            if (binarySocket != null) {
+                System.out.println("Binary protocol on unix:" + binary.bind(UnixDomainSocketAddress.of(binarySocket)));
+            }
+            if (binaryPort != null) {
+                System.out.println("Binary protocol on tcp:"
+                    + binary.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), binaryPort)));
+            }
+            metrics.gauge("raig_binary_connections", "Open binary protocol connections", binary::getConnectionCount);
+            metrics.counter("raig_binary_requests_total", "Binary protocol evaluation requests", binary::getRequestCount);
+            metrics.counter("raig_binary_errors_total", "Binary protocol requests answered with an error",
+                binary::getErrorCount);
+        }
         
         System.out.println("==============================================");
         System.out. println("RAIG Framework Web Interface Started");
@@ -53,7 +330,17 @@ public class Main {
         System.out.println("API endpoints available:");
         System.out.println("  - GET  /api/pillars    - List all framework pillars");
         System.out.println("  - POST /api/evaluate   - Evaluate an AI decision");
+        System.out.println("  - POST /api/evaluate/stream - Evaluate NDJSON decisions, streaming NDJSON results");
         System.out.println("  - GET  /api/scenarios  - Get demo scenarios");
+        System.out.println("  - GET  /api/reviews    - Pending escalations for a role");
+        System.out.println("  - POST /api/reviews/claim|renew|complete - Work the review queue");
+        System.out.println("  - GET  /api/history    - Query decisions by state, entity, violation and time");
+        System.out.println("  - GET  /api/history/stats - History query latency");
+        System.out.println("  - GET  /api/history/export - Stream history as CSV or NDJSON");
+        System.out.println("  - GET  /api/history/rollups - Time-bucketed outcome counts");
+        System.out.println("  - GET  /api/events     - Live decisions and notifications (Server-Sent Events)");
+        System.out.println("  - GET  /api/server/stats - Request queue and worker metrics (" + workers.getMode() + ")");
+        System.out.println("  - GET  /metrics        - Prometheus metrics");
         System.out. println("==============================================");
         
         // Keep server running indefinitely
@@ -67,11 +354,13 @@ public class Main {
      * Handler for /api/pillars - Returns information about the seven pillars
      */
     static class PillarsHandler implements HttpHandler {
+        // Constant, so encoded, compressed and tagged once
+        private final StaticAsset pillars = new StaticAsset("application/json", getPillarsJSON(), "max-age=300");
+
         @Override
         public void handle(HttpExchange exchange) throws IOException {
-            if ("GET".equals(exchange.getRequestMethod())) {
-                String response = getPillarsJSON();
-                sendResponse(exchange, 200, response);
+            if (isGetOrHead(exchange)) {
+                pillars.send(exchange);
             } else {
                 sendResponse(exchange, 405, "{\"error\": \"Method not allowed\"}");
             }
@@ -150,100 +439,162 @@ public class Main {
         @Override
         public void handle(HttpExchange exchange) throws IOException {
             if ("POST".equals(exchange.getRequestMethod())) {
-                String requestBody = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
-                String response = evaluateDecision(requestBody);
-                sendResponse(exchange, 200, response);
-            } else {
-                sendResponse(exchange, 405, "{\"error\": \"Method not allowed\"}");
-            }
-        }
-
-        private String evaluateDecision(String jsonInput) {
-            try {
-                // Parse simple JSON manually (in production, use a JSON library)
-                Map<String, String> data = parseSimpleJSON(jsonInput);
-                
-                AIDecision decision = new AIDecision(
-                    data.getOrDefault("decisionLabel", "Unknown"),
-                    Double.parseDouble(data.getOrDefault("confidence", "0.5"))
-                );
-                
-                decision.setResponsibleEntity(data.get("responsibleEntity"));
-                decision.setExplanation(data.get("explanation"));
-                
-                if (data.containsKey("biasScore")) {
-                    decision.setBiasScore(Double. parseDouble(data.get("biasScore")));
+                InputStream requestBody;
+                try {
+                    requestBody = Compression.requestBody(exchange);
+                } catch (IllegalArgumentException e) {
+                    Compression.drainRequestBody(exchange);
+                    sendResponse(exchange, 415, "{\"error\": \"" + escapeJSON(e.getMessage()) + "\"}");
+                    return;
+                } catch (Compression.MalformedBodyException e) {
+                    Compression.drainRequestBody(exchange);
+                    sendResponse(exchange, 400, "{\"error\": \"" + escapeJSON(e.getMessage()) + "\"}");
+                    return;
                 }
-                
-                if (data.containsKey("negativeSocialImpact")) {
-                    decision.setNegativeSocialImpact(Boolean.parseBoolean(data.get("negativeSocialImpact")));
+                EthicsContext context;
+                try {
+                    context = EvaluationRequest.read(new JsonReader(requestBody));
+                } catch (IllegalArgumentException | Compression.MalformedBodyException e) {
+                    Compression.drainRequestBody(exchange);
+                    sendResponse(exchange, 400, "{\"error\": \"" + escapeJSON(e.getMessage()) + "\"}");
+                    return;
                 }
-                
-                UserData userData = new UserData(
-                    data.getOrDefault("userName", "User"),
-                    data.getOrDefault("userEmail", "user@example.com"),
-                    Boolean.parseBoolean(data.getOrDefault("hasSensitiveData", "false")),
-                    Boolean.parseBoolean(data.getOrDefault("hasConsent", "true"))
-                );
-                
-                EthicsContext context = new EthicsContext(decision, userData);
-                EthicsResult result = engine.intercept(context);
-                boolean approved = workflow.approve(result, Role.ETHICS_OFFICER);
-                
-                return formatEvaluationResult(result, approved, decision);
-                
-            } catch (Exception e) {
-                return "{\"error\": \"" + e.getMessage() + "\"}";
+                Evaluation evaluation;
+                try {
+                    evaluation = evaluate(context);
+                } catch (Exception e) {
+                    JsonResponse.send(exchange, 200, json -> json.write("{\"error\": ")
+                        .writeJsonString(String.valueOf(e.getMessage())).write('}'));
+                    return;
+                }
+                JsonResponse.send(exchange, 200, compression,
+                    json -> writeEvaluationResult(json, evaluation.result, evaluation.approved, context.decision));
+            } else {
+                sendResponse(exchange, 405, "{\"error\": \"Method not allowed\"}");
             }
         }
 
-        private String formatEvaluationResult(EthicsResult result, boolean approved, AIDecision decision) {
-            StringBuilder json = new StringBuilder();
-            json.append("{\n");
-            json.append("  \"approved\": ").append(approved).append(",\n");
-            json.append("  \"decisionState\": \"").append(result.getFinalDecision()).append("\",\n");
-            json.append("  \"hasViolations\": ").append(result.hasViolations()).append(",\n");
-            json.append("  \"requiresEscalation\": ").append(result.requiresEscalation()).append(",\n");
+        private void writeEvaluationResult(Utf8Writer json, EthicsResult result, boolean approved,
+                                           AIDecision decision) throws IOException {
+            json.write("{\n");
+            json.write("  \"approved\": ").write(approved).write(",\n");
+            json.write("  \"decisionState\": \"").write(result.getFinalDecision().name()).write("\",\n");
+            json.write("  \"hasViolations\": ").write(result.hasViolations()).write(",\n");
+            json.write("  \"requiresEscalation\": ").write(result.requiresEscalation()).write(",\n");
+            json.write("  \"policy\": ").writeJsonString(orEmpty(result.getPolicyName())).write(",\n");
+            json.write("  \"policyVersion\": ").write(result.getPolicyVersion()).write(",\n");
             
             // Violations
-            json.append("  \"violations\": [");
+            json.write("  \"violations\": [");
             List<String> violations = result.getViolations();
             for (int i = 0; i < violations.size(); i++) {
-                json.append("\"").append(escapeJSON(violations.get(i))).append("\"");
-                if (i < violations.size() - 1) json.append(", ");
+                if (i > 0) json.write(", ");
+                json.writeJsonString(orEmpty(violations.get(i)));
             }
-            json.append("],\n");
+            json.write("],\n");
             
             // Warnings
-            json.append("  \"warnings\": [");
+            json.write("  \"warnings\": [");
             List<String> warnings = result.getWarnings();
             for (int i = 0; i < warnings.size(); i++) {
-                json.append("\"").append(escapeJSON(warnings.get(i))).append("\"");
-                if (i < warnings.size() - 1) json.append(", ");
+                if (i > 0) json.write(", ");
+                json.writeJsonString(orEmpty(warnings.get(i)));
             }
-            json.append("],\n");
+            json.write("],\n");
             
             // Escalation reason
-            String escalationReason = result.getEscalationReason();
-            json.append("  \"escalationReason\": ");
-            if (escalationReason != null) {
-                json.append("\"").append(escapeJSON(escalationReason)).append("\"");
-            } else {
-                json.append("null");
-            }
-            json.append(",\n");
+            json.write("  \"escalationReason\": ").writeJsonString(result.getEscalationReason()).write(",\n");
             
-            // Decision details
-            json.append("  \"decision\": {\n");
-            json.append("    \"label\": \"").append(escapeJSON(decision.getDecisionLabel())).append("\",\n");
-            json.append("    \"confidence\": ").append(decision.getConfidence()).append(",\n");
-            json.append("    \"biasScore\": ").append(decision.getBiasScore()).append(",\n");
-            json.append("    \"explanation\": \"").append(escapeJSON(decision.getExplanation())).append("\",\n");
-            json.append("    \"responsibleEntity\": \"").append(escapeJSON(decision.getResponsibleEntity())).append("\"\n");
-            json.append("  }\n");
-            json.append("}");
+            // Pending human review, if queued
+            ReviewItem review = workflow.getReviewQueue().get(result.getDecisionId());
+            json.write("  \"review\": ").write(review != null ? formatReviewItem(review) : "null").write(",\n");
             
-            return json.toString();
+            // Decision details
+            json.write("  \"decision\": {\n");
+            json.write("    \"label\": ").writeJsonString(orEmpty(decision.getDecisionLabel())).write(",\n");
+            json.write("    \"confidence\": ").write(decision.getConfidence()).write(",\n");
+            json.write("    \"biasScore\": ").write(decision.getBiasScore()).write(",\n");
+            json.write("    \"explanation\": ").writeJsonString(orEmpty(decision.getExplanation())).write(",\n");
+            json.write("    \"responsibleEntity\": ").writeJsonString(orEmpty(decision.getResponsibleEntity()));
+            json.write("\n  }\n}");
+        }
+
+        private static String orEmpty(String value) {
+            return value != null ? value : "";
+        }
+    }
+
+    /**
+     * A decision's result and whether the workflow approved it
+     */
+    static class Evaluation {
+        final EthicsContext context;
+        final EthicsResult result;
+        final boolean approved;
+
+        Evaluation(EthicsContext context, EthicsResult result, boolean approved) {
+            this.context = context;
+            this.result = result;
+            this.approved = approved;
+        }
+    }
+
+    private static Evaluation evaluate(EthicsContext context) {
+        EthicsResult result = engine.intercept(context);
+        return new Evaluation(context, result, workflow.approve(context, result, Role.ETHICS_OFFICER));
+    }
+
+    private static void writeStreamResult(Utf8Writer json, long line, Evaluation evaluation) throws IOException {
+        EthicsResult result = evaluation.result;
+        json.write("{\"line\":").write(line);
+        json.write(",\"decisionId\":").write(result.getDecisionId());
+        json.write(",\"label\":").writeJsonString(evaluation.context.decision.getDecisionLabel());
+        json.write(",\"decisionState\":\"").write(result.getFinalDecision().name());
+        json.write("\",\"approved\":").write(evaluation.approved);
+        json.write(",\"violations\":[");
+        List<String> violations = result.getViolations();
+        for (int i = 0; i < violations.size(); i++) {
+            if (i > 0) json.write(',');
+            json.writeJsonString(violations.get(i));
+        }
+        json.write("],\"warnings\":[");
+        List<String> warnings = result.getWarnings();
+        for (int i = 0; i < warnings.size(); i++) {
+            if (i > 0) json.write(',');
+            json.writeJsonString(warnings.get(i));
+        }
+        json.write("],\"escalationReason\":").writeJsonString(result.getEscalationReason()).write('}');
+    }
+
+    /**
+     * Handler for /api/evaluate/stream - Evaluates newline-delimited JSON decisions
+     * Each body line is an /api/evaluate request; each response line is its result
+     * or error, in input order, with the 1-based input line number
+     */
+    static class EvaluateStreamHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                sendResponse(exchange, 405, "{\"error\": \"Method not allowed\"}");
+                return;
+            }
+            InputStream requests;
+            try {
+                requests = Compression.requestBody(exchange);
+            } catch (IllegalArgumentException e) {
+                Compression.drainRequestBody(exchange);
+                sendResponse(exchange, 415, "{\"error\": \"" + escapeJSON(e.getMessage()) + "\"}");
+                return;
+            } catch (Compression.MalformedBodyException e) {
+                Compression.drainRequestBody(exchange);
+                sendResponse(exchange, 400, "{\"error\": \"" + escapeJSON(e.getMessage()) + "\"}");
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+            // A body that breaks after this point can only end the 200 response early
+            try (OutputStream body = compression.begin(exchange, 200, -1)) {
+                batch.evaluate(requests, body);
+            }
         }
     }
 
@@ -251,11 +602,12 @@ public class Main {
      * Handler for /api/scenarios - Returns pre-defined demo scenarios
      */
     static class ScenariosHandler implements HttpHandler {
+        private final StaticAsset scenarios = new StaticAsset("application/json", getScenariosJSON(), "max-age=300");
+
         @Override
         public void handle(HttpExchange exchange) throws IOException {
-            if ("GET".equals(exchange. getRequestMethod())) {
-                String response = getScenariosJSON();
-                sendResponse(exchange, 200, response);
+            if (isGetOrHead(exchange)) {
+                scenarios.send(exchange);
             } else {
                 sendResponse(exchange, 405, "{\"error\":\"Method not allowed\"}");
             }
@@ -352,10 +704,407 @@ public class Main {
         }
     }
 
+    /**
+     * Handler for /api/history/rollups - Returns time-bucketed decision counts
+     * Query parameters: entity (default all), resolution (minute, hour, day),
+     * from and to (epoch millis, default the last 24 buckets)
+     */
+    static class RollupsHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendResponse(exchange, 405, "{\"error\": \"Method not allowed\"}");
+                return;
+            }
+            try {
+                Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+                String entity = params.getOrDefault("entity", DecisionRollups.ALL);
+                DecisionRollups.Resolution resolution = DecisionRollups.Resolution.valueOf(
+                    params.getOrDefault("resolution", "hour").toUpperCase());
+                long to = Long.parseLong(params.getOrDefault("to", String.valueOf(System.currentTimeMillis())));
+                long from = Long.parseLong(params.getOrDefault("from",
+                    String.valueOf(to - 24 * resolution.widthMillis)));
+                
+                List<DecisionRollups.Bucket> buckets = rollups.query(entity, resolution, from, to);
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                sendResponse(exchange, 200, formatBuckets(entity, resolution, buckets));
+            } catch (IllegalArgumentException e) {
+                sendResponse(exchange, 400, "{\"error\": \"" + escapeJSON(e.getMessage()) + "\"}");
+            }
+        }
+        
+        private String formatBuckets(String entity, DecisionRollups.Resolution resolution,
+                                     List<DecisionRollups.Bucket> buckets) {
+            StringBuilder json = new StringBuilder();
+            json.append("{\n  \"entity\": \"").append(escapeJSON(entity)).append("\",\n");
+            json.append("  \"resolution\": \"").append(resolution).append("\",\n");
+            json.append("  \"buckets\": [");
+            for (int i = 0; i < buckets.size(); i++) {
+                DecisionRollups.Bucket bucket = buckets.get(i);
+                json.append(i == 0 ? "\n" : ",\n");
+                json.append("    {\"start\": ").append(bucket.startMillis);
+                json.append(", \"total\": ").append(bucket.getTotal());
+                for (EthicsDecision decision : EthicsDecision.values()) {
+                    json.append(", \"").append(decision).append("\": ").append(bucket.getCount(decision));
+                }
+                json.append(", \"blockRate\": ").append(bucket.getBlockRate());
+                appendPillarCounts(json, "violations", bucket, true);
+                appendPillarCounts(json, "warnings", bucket, false);
+                json.append("}");
+            }
+            json.append("\n  ]\n}");
+            return json.toString();
+        }
+        
+        private void appendPillarCounts(StringBuilder json, String name, DecisionRollups.Bucket bucket,
+                                        boolean violations) {
+            json.append(", \"").append(name).append("\": {");
+            boolean first = true;
+            for (Pillar pillar : Pillar.values()) {
+                long count = violations ? bucket.getViolationCount(pillar) : bucket.getWarningCount(pillar);
+                if (count > 0) {
+                    json.append(first ? "" : ", ").append("\"").append(pillar).append("\": ").append(count);
+                    first = false;
+                }
+            }
+            json.append("}");
+        }
+    }
+
+    /**
+     * Handler for /api/reviews - Human review queue for escalated decisions
+     * GET  /api/reviews?role=&limit=               most urgent pending items
+     * POST /api/reviews/claim?role=&reviewer=      lease the most urgent item
+     * POST /api/reviews/renew?id=&reviewer=        extend a lease
+     * POST /api/reviews/complete?id=&reviewer=&approved=
+     * GET  /api/reviews/groups?role=&limit=        near-identical escalations, largest first
+     * POST /api/reviews/groups/complete?role=&group=&reviewer=&approved=
+     */
+    static class ReviewsHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+            ReviewQueue queue = workflow.getReviewQueue();
+            long now = System.currentTimeMillis();
+            try {
+                Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+                if (path.equals("/api/reviews") && "GET".equals(method)) {
+                    Role role = Role.valueOf(params.getOrDefault("role", "ETHICS_OFFICER").toUpperCase());
+                    int limit = Integer.parseInt(params.getOrDefault("limit", "50"));
+                    StringBuilder json = new StringBuilder();
+                    json.append("{\n  \"role\": \"").append(role).append("\",\n");
+                    json.append("  \"pending\": ").append(queue.getPendingCount(role)).append(",\n");
+                    json.append("  \"leased\": ").append(queue.getLeasedCount(role)).append(",\n");
+                    json.append("  \"items\": [");
+                    List<ReviewItem> items = queue.peek(role, limit, now);
+                    for (int i = 0; i < items.size(); i++) {
+                        json.append(i == 0 ? "\n    " : ",\n    ").append(formatReviewItem(items.get(i)));
+                    }
+                    json.append("\n  ]\n}");
+                    sendResponse(exchange, 200, json.toString());
+                    return;
+                }
+                if (path.equals("/api/reviews/groups") && "GET".equals(method)) {
+                    Role role = Role.valueOf(params.getOrDefault("role", "ETHICS_OFFICER").toUpperCase());
+                    int limit = Integer.parseInt(params.getOrDefault("limit", "50"));
+                    StringBuilder json = new StringBuilder();
+                    json.append("{\n  \"role\": \"").append(role).append("\",\n  \"groups\": [");
+                    List<ReviewGroup> groups = queue.getGroups(role, limit);
+                    for (int i = 0; i < groups.size(); i++) {
+                        ReviewGroup group = groups.get(i);
+                        json.append(i == 0 ? "\n    " : ",\n    ");
+                        json.append("{\"group\": ").append(group.id);
+                        json.append(", \"size\": ").append(group.size());
+                        json.append(", \"label\": \"").append(escapeJSON(group.signature.labelClass)).append("\"");
+                        json.append(", \"entity\": \"").append(escapeJSON(group.signature.entity)).append("\"");
+                        json.append(", \"reason\": \"").append(escapeJSON(group.signature.reason)).append("\"}");
+                    }
+                    json.append("\n  ]\n}");
+                    sendResponse(exchange, 200, json.toString());
+                    return;
+                }
+                if (!"POST".equals(method)) {
+                    sendResponse(exchange, 405, "{\"error\": \"Method not allowed\"}");
+                    return;
+                }
+                String reviewer = params.get("reviewer");
+                if (reviewer == null) {
+                    throw new IllegalArgumentException("reviewer is required");
+                }
+                if (path.equals("/api/reviews/claim")) {
+                    Role role = Role.valueOf(params.getOrDefault("role", "").toUpperCase());
+                    if (!roleManager.hasRole(reviewer, role)) {
+                        sendResponse(exchange, 403, "{\"error\": \"Reviewer does not hold role " + role + "\"}");
+                        return;
+                    }
+                    ReviewItem item = queue.claim(role, reviewer, now);
+                    sendResponse(exchange, item != null ? 200 : 404,
+                        item != null ? formatReviewItem(item) : "{\"error\": \"No pending reviews\"}");
+                    return;
+                }
+                if (path.equals("/api/reviews/groups/complete")) {
+                    Role role = Role.valueOf(params.getOrDefault("role", "").toUpperCase());
+                    if (!roleManager.hasRole(reviewer, role)) {
+                        sendResponse(exchange, 403, "{\"error\": \"Reviewer does not hold role " + role + "\"}");
+                        return;
+                    }
+                    long groupId = Long.parseLong(params.getOrDefault("group", ""));
+                    boolean approved = Boolean.parseBoolean(params.getOrDefault("approved", "false"));
+                    List<ReviewItem> completed = queue.completeGroup(role, groupId, reviewer, approved, now);
+                    sendResponse(exchange, 200, "{\"group\": " + groupId + ", \"completed\": " + completed.size()
+                        + ", \"approved\": " + approved + ", \"reviewer\": \"" + escapeJSON(reviewer) + "\"}");
+                    return;
+                }
+                
+                long id = Long.parseLong(params.getOrDefault("id", ""));
+                ReviewItem item = queue.get(id);
+                if (item == null) {
+                    sendResponse(exchange, 404, "{\"error\": \"No open review for decision " + id + "\"}");
+                    return;
+                }
+                if (!roleManager.hasRole(reviewer, item.requiredRole)) {
+                    sendResponse(exchange, 403, "{\"error\": \"Reviewer does not hold role "
+                        + item.requiredRole + "\"}");
+                    return;
+                }
+                if (path.equals("/api/reviews/renew")) {
+                    boolean renewed = queue.renew(id, reviewer, now);
+                    sendResponse(exchange, renewed ? 200 : 409,
+                        renewed ? formatReviewItem(item) : "{\"error\": \"Lease not held\"}");
+                } else if (path.equals("/api/reviews/complete")) {
+                    boolean approved = Boolean.parseBoolean(params.getOrDefault("approved", "false"));
+                    queue.complete(id, reviewer, approved, now);
+                    sendResponse(exchange, 200, "{\"decisionId\": " + id + ", \"approved\": " + approved
+                        + ", \"reviewer\": \"" + escapeJSON(reviewer) + "\"}");
+                } else {
+                    sendResponse(exchange, 404, "{\"error\": \"Not found\"}");
+                }
+            } catch (IllegalStateException e) {
+                sendResponse(exchange, 409, "{\"error\": \"" + escapeJSON(e.getMessage()) + "\"}");
+            } catch (IllegalArgumentException e) {
+                sendResponse(exchange, 400, "{\"error\": \"" + escapeJSON(e.getMessage()) + "\"}");
+            } catch (UncheckedIOException e) {
+                // The journal write failed; the item stays open for another try
+                sendResponse(exchange, 503, "{\"error\": \"Review journal unavailable: "
+                    + escapeJSON(String.valueOf(e.getCause().getMessage())) + "\"}");
+            }
+        }
+    }
+
+    private static String formatReviewItem(ReviewItem item) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"decisionId\": ").append(item.decisionId);
+        json.append(", \"role\": \"").append(item.requiredRole).append("\"");
+        json.append(", \"priority\": ").append(item.priority);
+        json.append(", \"group\": ").append(item.getGroupId());
+        json.append(", \"createdAt\": ").append(item.createdAt);
+        json.append(", \"deadline\": ").append(item.deadline);
+        json.append(", \"entity\": \"").append(escapeJSON(item.responsibleEntity)).append("\"");
+        json.append(", \"reason\": \"").append(escapeJSON(item.reason)).append("\"");
+        String reviewer = item.getReviewer();
+        if (reviewer != null) {
+            json.append(", \"reviewer\": \"").append(escapeJSON(reviewer)).append("\"");
+            json.append(", \"leaseExpiresAt\": ").append(item.getLeaseExpiry());
+        }
+        json.append("}");
+        return json.toString();
+    }
+
+    /**
+     * Handler for /api/history - Indexed, cursor-paginated decision queries
+     * Parameters: state, entity, violation (comma-separated pillars), from, to, cursor, limit
+     */
+    static class HistoryHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendResponse(exchange, 405, "{\"error\": \"Method not allowed\"}");
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            String path = exchange.getRequestURI().getPath();
+            if (path.equals("/api/history/stats")) {
+                sendResponse(exchange, 200, formatStats());
+                return;
+            }
+            if (!path.equals("/api/history") && !path.equals("/api/history/")) {
+                sendResponse(exchange, 404, "{\"error\": \"Not found\"}");
+                return;
+            }
+            try {
+                HistoryQuery query = parseHistoryQuery(parseQuery(exchange.getRequestURI().getRawQuery()));
+                long start = System.nanoTime();
+                HistoryPage page = history.query(query);
+                long took = System.nanoTime() - start;
+                historyQueryStats.record(took);
+                sendResponse(exchange, 200, formatPage(page, took / 1_000));
+            } catch (IllegalArgumentException e) {
+                sendResponse(exchange, 400, "{\"error\": \"" + escapeJSON(e.getMessage()) + "\"}");
+            }
+        }
+        
+        private String formatPage(HistoryPage page, long tookMicros) {
+            StringBuilder json = new StringBuilder();
+            json.append("{\n  \"tookMicros\": ").append(tookMicros).append(",\n");
+            json.append("  \"count\": ").append(page.getRows().size()).append(",\n");
+            json.append("  \"nextCursor\": ").append(page.hasMore() ? String.valueOf(page.getNextCursor()) : "null");
+            json.append(",\n  \"decisions\": [");
+            List<HistoryRow> rows = page.getRows();
+            for (int i = 0; i < rows.size(); i++) {
+                HistoryRow row = rows.get(i);
+                json.append(i == 0 ? "\n" : ",\n");
+                json.append("    {\"ordinal\": ").append(row.ordinal);
+                json.append(", \"decisionId\": ").append(row.decisionId);
+                json.append(", \"timestamp\": ").append(row.timestamp);
+                json.append(", \"decision\": \"").append(row.decision).append("\"");
+                json.append(", \"entity\": \"").append(escapeJSON(row.responsibleEntity)).append("\"");
+                json.append(", \"violations\": ").append(row.violationCount);
+                json.append(", \"warnings\": ").append(row.warningCount);
+                json.append(", \"violatedPillars\": [");
+                boolean first = true;
+                for (Pillar pillar : row.getViolatedPillars()) {
+                    json.append(first ? "\"" : ", \"").append(pillar).append("\"");
+                    first = false;
+                }
+                json.append("]}");
+            }
+            json.append("\n  ]\n}");
+            return json.toString();
+        }
+        
+        private String formatStats() {
+            return String.format(Locale.ROOT,
+                "{\"queries\": %d, \"avgMicros\": %.1f, \"p50Micros\": %d, \"p99Micros\": %d, "
+                    + "\"maxMicros\": %.1f, \"hotRows\": %d, \"hotBytes\": %d, \"coldRows\": %d, "
+                    + "\"coldBytes\": %d, \"segments\": %d}",
+                historyQueryStats.getCount(), historyQueryStats.getMeanSeconds() * 1e6,
+                micros(historyQueryStats.getPercentileSeconds(50)), micros(historyQueryStats.getPercentileSeconds(99)),
+                historyQueryStats.getMaxSeconds() * 1e6, history.getHotRowCount(), history.getHotBytes(),
+                history.getColdRowCount(), history.getColdBytes(), history.getSegmentCount());
+        }
+    }
+
+    /**
+     * Handler for /api/server/stats - Request queue depth, wait times and engine counters
+     */
+    static class ServerStatsHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            Histogram wait = workers.getQueueWait();
+            sendResponse(exchange, 200, String.format(Locale.ROOT,
+                "{\"executor\": \"%s\", \"threads\": %d, \"submitted\": %d, \"completed\": %d, "
+                    + "\"active\": %d, \"queueDepth\": %d, \"overflow\": %d, \"queueWaitAvgMicros\": %.1f, "
+                    + "\"queueWaitP99Micros\": %d, \"queueWaitMaxMicros\": %.1f, \"evaluations\": %d, "
+                    + "\"blocked\": %d, \"escalated\": %d, \"compressedResponses\": %d, "
+                    + "\"compressionBytesIn\": %d, \"compressionBytesOut\": %d, \"compressionMicros\": %d, "
+                    + "\"transport\": \"%s\"%s%s}",
+                workers.getMode(), workers.getThreads(), workers.getSubmittedCount(), workers.getCompletedCount(),
+                workers.getActiveCount(), workers.getQueueDepth(), workers.getOverflowCount(),
+                wait.getMeanSeconds() * 1e6, micros(wait.getPercentileSeconds(99)), wait.getMaxSeconds() * 1e6,
+                engine.getEvaluationCount(), engine.getBlockedCount(), engine.getEscalatedCount(),
+                compression.getCompressedCount(), compression.getBytesIn(), compression.getBytesOut(),
+                compression.getCompressionMicros(), nioServer != null ? "nio" : "jdk",
+                nioServer == null ? "" : String.format(Locale.ROOT,
+                    ", \"loops\": %d, \"reusePort\": %b, \"openConnections\": %d, \"accepted\": %d, "
+                        + "\"requests\": %d", nioServer.getLoopCount(), nioServer.isReusePort(),
+                    nioServer.getOpenConnections(), nioServer.getAcceptedCount(), nioServer.getRequestCount()),
+                binary == null ? "" : String.format(Locale.ROOT,
+                    ", \"binaryConnections\": %d, \"binaryRequests\": %d, \"binaryErrors\": %d",
+                    binary.getConnectionCount(), binary.getRequestCount(), binary.getErrorCount())));
+        }
+    }
+
+    /**
+     * Handler for /metrics - Prometheus text exposition of request, evaluation, queue and JVM metrics
+     */
+    static class MetricsHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!isGetOrHead(exchange)) {
+                sendResponse(exchange, 405, "{\"error\": \"Method not allowed\"}");
+                return;
+            }
+            metrics.send(exchange, compression);
+        }
+    }
+
+    /**
+     * Handler for /api/history/export - Streams matching history as CSV or NDJSON
+     * Takes the /api/history filters plus format=csv|ndjson; the body uses chunked encoding
+     */
+    static class ExportHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendResponse(exchange, 405, "{\"error\": \"Method not allowed\"}");
+                return;
+            }
+            HistoryQuery query;
+            HistoryExport.Format format;
+            try {
+                Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+                params.remove("limit");
+                format = HistoryExport.Format.valueOf(params.getOrDefault("format", "csv").toUpperCase());
+                query = parseHistoryQuery(params);
+            } catch (IllegalArgumentException e) {
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                sendResponse(exchange, 400, "{\"error\": \"" + escapeJSON(e.getMessage()) + "\"}");
+                return;
+            }
+            
+            exchange.getResponseHeaders().set("Content-Type", format.contentType);
+            exchange.getResponseHeaders().set("Content-Disposition",
+                "attachment; filename=\"decision-history" + format.extension + "\"");
+            // Streamed chunked, compressed if the client accepts it
+            try (OutputStream body = compression.begin(exchange, 200, -1)) {
+                HistoryExport.write(history::query, query, format, new Utf8Writer(body));
+            }
+        }
+    }
+
+    /**
+     * Handler for the live event stream (Server-Sent Events)
+     * Filters: ?user=a@x.com,b@x.com&state=BLOCK,ESCALATE&type=decision,notification
+     */
+    static class EventsHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendResponse(exchange, 405, "{\"error\": \"Method not allowed\"}");
+                return;
+            }
+            EventBroadcaster.Subscriber subscriber;
+            try {
+                subscriber = events.subscribe(
+                    EventBroadcaster.Filter.parse(parseQuery(exchange.getRequestURI().getRawQuery())));
+            } catch (IllegalArgumentException e) {
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                sendResponse(exchange, 400, "{\"error\": \"" + escapeJSON(e.getMessage()) + "\"}");
+                return;
+            } catch (IllegalStateException e) {
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                sendResponse(exchange, 503, "{\"error\": \"" + escapeJSON(e.getMessage()) + "\"}");
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+            exchange.sendResponseHeaders(200, 0);
+            // Streams on its own thread so the server's dispatcher is free for other requests
+            events.start(subscriber, exchange.getResponseBody(), exchange::close);
+        }
+    }
+
     /**
      * Handler for static files (HTML, CSS, JS)
      */
     static class StaticFileHandler implements HttpHandler {
+        // Embedded pages, built once; browsers revalidate them by ETag
+        private final Map<String, StaticAsset> assets = Map.of(
+            "/index.html", new StaticAsset(getContentType("/index.html"), getIndexHTML(), StaticAsset.NO_CACHE));
+
         @Override
         public void handle(HttpExchange exchange) throws IOException {
             String path = exchange.getRequestURI().getPath();
@@ -363,24 +1112,16 @@ public class Main {
                 path = "/index.html";
             }
             
-            String content = getStaticContent(path);
-            if (content != null) {
-                String contentType = getContentType(path);
-                exchange.getResponseHeaders().set("Content-Type", contentType);
-                sendResponse(exchange, 200, content);
-            } else {
+            StaticAsset asset = assets.get(path);
+            if (asset == null) {
                 sendResponse(exchange, 404, "<h1>404 Not Found</h1>");
+            } else if (isGetOrHead(exchange)) {
+                asset.send(exchange);
+            } else {
+                sendResponse(exchange, 405, "<h1>405 Method Not Allowed</h1>");
             }
         }
 
-        private String getStaticContent(String path) {
-            // Serve embedded HTML content
-            if (path.equals("/index.html")) {
-                return getIndexHTML();
-            }
-            return null;
-        }
-
         private String getContentType(String path) {
             if (path.endsWith(".html")) return "text/html; charset=UTF-8";
             if (path.endsWith(".css")) return "text/css; charset=UTF-8";
@@ -1350,36 +2091,95 @@ public class Main {
     }
 
     // Utility methods
+    private static boolean isGetOrHead(HttpExchange exchange) {
+        String method = exchange.getRequestMethod();
+        return "GET".equals(method) || "HEAD".equals(method);
+    }
+
     private static void sendResponse(HttpExchange exchange, int statusCode, String response) throws IOException {
         byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
-        exchange.sendResponseHeaders(statusCode, bytes.length);
-        OutputStream os = exchange.getResponseBody();
+        OutputStream os = compression.begin(exchange, statusCode, bytes.length);
         os.write(bytes);
         os.close();
     }
 
-    private static Map<String, String> parseSimpleJSON(String json) {
-        Map<String, String> map = new HashMap<>();
-        json = json.trim().replaceAll("[{}]", "");
-        String[] pairs = json.split(",");
-        
-        for (String pair : pairs) {
-            String[] keyValue = pair.split(":", 2);
-            if (keyValue.length == 2) {
-                String key = keyValue[0].trim().replaceAll("\"", "");
-                String value = keyValue[1].trim().replaceAll("\"", "");
-                map.put(key, value);
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static HistoryQuery parseHistoryQuery(Map<String, String> params) {
+        HistoryQuery query = new HistoryQuery();
+        if (params.containsKey("state")) {
+            query.state(EthicsDecision.valueOf(params.get("state").toUpperCase()));
+        }
+        if (params.containsKey("entity")) {
+            query.entity(params.get("entity"));
+        }
+        if (params.containsKey("violation")) {
+            for (String pillar : params.get("violation").split(",")) {
+                query.violation(Pillar.valueOf(pillar.trim().toUpperCase()));
             }
         }
-        
-        return map;
+        query.between(Long.parseLong(params.getOrDefault("from", String.valueOf(Long.MIN_VALUE))),
+            Long.parseLong(params.getOrDefault("to", String.valueOf(Long.MAX_VALUE))));
+        if (params.containsKey("cursor")) {
+            long cursor = Long.parseLong(params.get("cursor"));
+            if (cursor < 0) {
+                throw new IllegalArgumentException("cursor must not be negative");
+            }
+            query.after(cursor);
+        }
+        if (params.containsKey("limit")) {
+            query.limit(Integer.parseInt(params.get("limit")));
+        }
+        return query;
+    }
+
+    /**
+     * Seconds as whole microseconds, rounded up
+     */
+    private static long micros(double seconds) {
+        return (long) Math.ceil(seconds * 1e6);
     }
 
     private static String escapeJSON(String str) {
         if (str == null) return "";
-        return str.replace("\\", "\\\\")
-                  .replace("\"", "\\\"")
-                  .replace("\n", "\\n")
-                  .replace("\r", "\\r");
+        int i = 0;
+        while (i < str.length()) {
+            char c = str.charAt(i);
+            if (c == '"' || c == '\\' || c < 0x20) break;
+            i++;
+        }
+        if (i == str.length()) return str;
+        // Copy the clean prefix once, then escape the rest in the same pass
+        StringBuilder escaped = new StringBuilder(str.length() + 16).append(str, 0, i);
+        for (; i < str.length(); i++) {
+            char c = str.charAt(i);
+            switch (c) {
+                case '"' -> escaped.append("\\\"");
+                case '\\' -> escaped.append("\\\\");
+                case '\n' -> escaped.append("\\n");
+                case '\r' -> escaped.append("\\r");
+                case '\t' -> escaped.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        escaped.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        escaped.append(c);
+                    }
+                }
+            }
+        }
+        return escaped.toString();
     }
 }
\ No newline at end of file
@@ -1,59 +1,302 @@
 package communication;
 
+import core.DecisionListener;
+import core.EthicsContext;
+import core.EthicsDecision;
 import core.EthicsResult;
+import server.Utf8Writer;
+
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Manages user feedback and notifications about ethics decisions
+ *
+ * Each user has a mailbox holding a bounded ring of their most recent
+ * notifications, so reading a user's notifications touches only that
+ * mailbox. When the total number of notifications or mailboxes passes the
+ * global cap, whole mailboxes are evicted oldest first by a clock
+ * (second-chance) sweep: a mailbox whose owner has read it since the sweep
+ * last passed is spared once. Eviction is O(1) amortized and never scans
+ * every user, and mailboxes nobody reads go before ones that are read.
+ *
+ * With a {@link NotificationDispatcher} attached, each notification is also
+ * queued for delivery to external sinks. Sending never waits on a sink, and
+ * message text is only built when a reader or sink asks for it.
  */
-public class FeedbackService {
-    private List<Notification> notifications;
+public class FeedbackService implements DecisionListener {
+    public static final int DEFAULT_MAILBOX_CAPACITY = 100;
+    public static final long DEFAULT_MAX_NOTIFICATIONS = 1_000_000;
+    public static final int DEFAULT_MAX_MAILBOXES = 100_000;
+    
+    private final ConcurrentHashMap<String, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    // Eviction clock; every live mailbox is in it once
+    private final ConcurrentLinkedQueue<Mailbox> clock = new ConcurrentLinkedQueue<>();
+    private final int mailboxCapacity;
+    private final long maxNotifications;
+    private final int maxMailboxes;
+    
+    private final AtomicLong notificationCount = new AtomicLong();
+    private final AtomicLong evictedMailboxes = new AtomicLong();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final NotificationDispatcher dispatcher;
+    private final List<NotificationListener> listeners = new CopyOnWriteArrayList<>();
     
     public FeedbackService() {
-        this.notifications = new ArrayList<>();
+        this(DEFAULT_MAILBOX_CAPACITY, DEFAULT_MAX_NOTIFICATIONS, DEFAULT_MAX_MAILBOXES, null);
+    }
+    
+    public FeedbackService(NotificationDispatcher dispatcher) {
+        this(DEFAULT_MAILBOX_CAPACITY, DEFAULT_MAX_NOTIFICATIONS, DEFAULT_MAX_MAILBOXES, dispatcher);
+    }
+    
+    public FeedbackService(int mailboxCapacity, long maxNotifications, int maxMailboxes) {
+        this(mailboxCapacity, maxNotifications, maxMailboxes, null);
+    }
+    
+    /**
+     * @param mailboxCapacity notifications kept per user; older ones are overwritten
+     * @param maxNotifications notifications kept across all users
+     * @param maxMailboxes users with a mailbox
+     * @param dispatcher external delivery, or null to keep notifications local
+     */
+    public FeedbackService(int mailboxCapacity, long maxNotifications, int maxMailboxes,
+                           NotificationDispatcher dispatcher) {
+        if (mailboxCapacity < 1 || maxNotifications < mailboxCapacity || maxMailboxes < 1) {
+            throw new IllegalArgumentException("Caps must hold at least one full mailbox");
+        }
+        this.mailboxCapacity = mailboxCapacity;
+        this.maxNotifications = maxNotifications;
+        this.maxMailboxes = maxMailboxes;
+        this.dispatcher = dispatcher;
+    }
+    
+    /**
+     * Notifies the decision's data subject, identified by email or name
+     */
+    @Override
+    public void onDecision(EthicsContext context, EthicsResult result) {
+        if (context.userData == null) {
+            return;
+        }
+        String userId = context.userData.getEmail() != null ? context.userData.getEmail() : context.userData.getName();
+        if (userId != null) {
+            sendNotification(userId, result);
+        }
     }
     
     /**
      * Sends notification about a decision
      */
     public void sendNotification(String userId, EthicsResult result) {
-        Notification notification = new Notification(
-            userId,
-            result.getFinalDecision().toString(),
-            generateMessage(result),
-            System.currentTimeMillis()
-        );
-        notifications.add(notification);
+        Notification notification = new Notification(userId, result, System.currentTimeMillis());
+        deliver(notification);
+        if (dispatcher != null) {
+            dispatcher.offer(notification);
+        }
+        for (NotificationListener listener : listeners) {
+            listener.onNotification(notification);
+        }
+    }
+    
+    public void addListener(NotificationListener listener) {
+        listeners.add(listener);
     }
     
-    private String generateMessage(EthicsResult result) {
-        if (result.isBlocked()) {
-            return "Decision blocked due to ethics violations: " + 
-                   String.join(", ", result.getViolations());
-        } else if (result.requiresEscalation()) {
-            return "Decision escalated for human review: " + result.getEscalationReason();
-        } else {
-            return "Decision approved by ethics framework";
+    public void removeListener(NotificationListener listener) {
+        listeners.remove(listener);
+    }
+    
+    private void deliver(Notification notification) {
+        while (true) {
+            Mailbox mailbox = mailboxes.computeIfAbsent(notification.userId, id -> {
+                Mailbox created = new Mailbox(id, mailboxCapacity);
+                clock.add(created);
+                return created;
+            });
+            int added = mailbox.add(notification);
+            if (added >= 0) {
+                if (notificationCount.addAndGet(added) > maxNotifications || mailboxes.size() > maxMailboxes) {
+                    evict();
+                }
+                return;
+            }
+            // Evicted between lookup and add; the next lookup creates a fresh mailbox
         }
     }
     
+    /**
+     * The user's retained notifications, oldest first
+     */
     public List<Notification> getNotifications(String userId) {
-        return notifications.stream()
-            .filter(n -> n.userId.equals(userId))
-            .toList();
+        Mailbox mailbox = mailboxes.get(userId);
+        return mailbox != null ? mailbox.snapshot() : List.of();
     }
     
+    /**
+     * Notifications held across all mailboxes
+     */
+    public long getNotificationCount() {
+        return notificationCount.get();
+    }
+    
+    public int getMailboxCount() {
+        return mailboxes.size();
+    }
+    
+    /**
+     * Mailboxes dropped to stay under the global caps
+     */
+    public long getEvictedMailboxCount() {
+        return evictedMailboxes.get();
+    }
+    
+    /**
+     * Evicts least recently used mailboxes until both caps hold. Only one
+     * sender evicts at a time; others carry on, since the evicting thread
+     * will bring the totals back under the caps.
+     */
+    private void evict() {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            while (notificationCount.get() > maxNotifications || mailboxes.size() > maxMailboxes) {
+                Mailbox candidate = clock.poll();
+                if (candidate == null) {
+                    return;
+                }
+                if (candidate.referenced) {
+                    candidate.referenced = false;
+                    clock.add(candidate);
+                    continue;
+                }
+                mailboxes.remove(candidate.userId, candidate);
+                notificationCount.addAndGet(-candidate.retire());
+                evictedMailboxes.incrementAndGet();
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+    
+    /**
+     * One user's most recent notifications in a ring buffer
+     */
+    private static final class Mailbox {
+        final String userId;
+        private final Notification[] ring;
+        // Guarded by this
+        private int head;
+        private int size;
+        private boolean retired;
+        
+        // Set on read, cleared as the eviction clock passes
+        volatile boolean referenced;
+        
+        Mailbox(String userId, int capacity) {
+            this.userId = userId;
+            this.ring = new Notification[capacity];
+        }
+        
+        /**
+         * @return how much the mailbox grew (0 when the oldest notification
+         *         was overwritten), or -1 if the mailbox has been evicted
+         */
+        synchronized int add(Notification notification) {
+            if (retired) {
+                return -1;
+            }
+            ring[(head + size) % ring.length] = notification;
+            if (size < ring.length) {
+                size++;
+                return 1;
+            }
+            head = (head + 1) % ring.length;
+            return 0;
+        }
+        
+        synchronized List<Notification> snapshot() {
+            referenced = true;
+            List<Notification> copy = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                copy.add(ring[(head + i) % ring.length]);
+            }
+            return Collections.unmodifiableList(copy);
+        }
+        
+        /**
+         * Stops further adds and returns how many notifications were held
+         */
+        synchronized int retire() {
+            retired = true;
+            return size;
+        }
+    }
+    
+    /**
+     * A notification for one user about one decision
+     *
+     * The text is read with {@link #getMessage()}; it replaced the public
+     * {@code message} field so the text is only built when needed.
+     */
     public static class Notification {
         public final String userId;
+        public final long decisionId;
         public final String decisionType;
-        public final String message;
         public final long timestamp;
         
-        Notification(String userId, String decisionType, String message, long timestamp) {
+        // Inputs to the message, which is built on first use
+        private final EthicsDecision decision;
+        private final List<String> violations;
+        private final String escalationReason;
+        private volatile String message;
+        
+        Notification(String userId, EthicsResult result, long timestamp) {
             this.userId = userId;
-            this.decisionType = decisionType;
-            this.message = message;
+            this.decisionId = result.getDecisionId();
+            this.decision = result.getFinalDecision();
+            this.decisionType = decision.toString();
+            this.violations = result.getViolations();
+            this.escalationReason = result.getEscalationReason();
             this.timestamp = timestamp;
         }
+        
+        public EthicsDecision getDecision() {
+            return decision;
+        }
+        
+        public String getMessage() {
+            String built = message;
+            if (built == null) {
+                built = generateMessage();
+                message = built;
+            }
+            return built;
+        }
+        
+        private String generateMessage() {
+            if (decision == EthicsDecision.BLOCK) {
+                return "Decision blocked due to ethics violations: " +
+                       String.join(", ", violations);
+            } else if (decision == EthicsDecision.ESCALATE) {
+                return "Decision escalated for human review: " + escalationReason;
+            } else {
+                return "Decision approved by ethics framework";
+            }
+        }
+        
+        void writeJson(Utf8Writer out) throws IOException {
+            out.write("{\"userId\":").writeJsonString(userId)
+                .write(",\"decisionId\":").write(decisionId)
+                .write(",\"decision\":\"").write(decisionType)
+                .write("\",\"message\":").writeJsonString(getMessage())
+                .write(",\"timestamp\":").write(timestamp).write('}');
+        }
     }
 }
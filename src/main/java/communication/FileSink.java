@@ -0,0 +1,53 @@
+package communication;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends each batch to a newline-delimited JSON file
+ */
+public class FileSink implements NotificationSink {
+    private final Path file;
+    private OutputStream out;
+    
+    public FileSink(Path file) {
+        this.file = file;
+    }
+    
+    @Override
+    public String name() {
+        return "file";
+    }
+    
+    @Override
+    public void deliver(List<FeedbackService.Notification> batch) throws IOException {
+        if (out == null) {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            out = Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+        try {
+            out.write(NotificationSink.encode(batch));
+            out.flush();
+        } catch (IOException e) {
+            // Reopen on the retry
+            close();
+            throw e;
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        if (out != null) {
+            OutputStream closing = out;
+            out = null;
+            closing.close();
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package communication;
+
+import server.Utf8Writer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivers notifications to external sinks off the evaluating thread
+ *
+ * Each sink has its own bounded queue and delivery thread, so a sink that
+ * hangs or keeps failing only delays its own notifications. {@link #offer}
+ * puts a notification on every sink's queue and returns at once; when a
+ * queue is full the notification is dropped for that sink and counted
+ * rather than making the caller wait. Each thread drains its queue in
+ * batches. A failed delivery is retried with exponential backoff; once the
+ * attempts run out the batch is appended to the dead-letter file for that
+ * sink and the thread moves on.
+ */
+public class NotificationDispatcher implements Closeable {
+    public static final int DEFAULT_QUEUE_CAPACITY = 10_000;
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    
+    /**
+     * How failed deliveries are retried
+     */
+    public static class Retry {
+        public static final Retry DEFAULT = new Retry(5, 100, 10_000);
+        
+        public final int maxAttempts;
+        public final long initialBackoffMillis;
+        public final long maxBackoffMillis;
+        
+        public Retry(int maxAttempts, long initialBackoffMillis, long maxBackoffMillis) {
+            if (maxAttempts < 1 || initialBackoffMillis < 0 || maxBackoffMillis < initialBackoffMillis) {
+                throw new IllegalArgumentException("Invalid retry settings");
+            }
+            this.maxAttempts = maxAttempts;
+            this.initialBackoffMillis = initialBackoffMillis;
+            this.maxBackoffMillis = maxBackoffMillis;
+        }
+        
+        /**
+         * Pause before the given retry (1 for the first retry)
+         */
+        long backoffMillis(int retry) {
+            long backoff = initialBackoffMillis << Math.min(retry - 1, 30);
+            return backoff < 0 ? maxBackoffMillis : Math.min(backoff, maxBackoffMillis);
+        }
+    }
+    
+    // How long close() waits for the queue to drain before abandoning retries
+    private static final long CLOSE_TIMEOUT_MILLIS = 5_000;
+    
+    private final List<Lane> lanes;
+    private final int batchSize;
+    private final Retry retry;
+    private final Path deadLetterFile;
+    
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong deadLettered = new AtomicLong();
+    private volatile boolean closing;
+    
+    public NotificationDispatcher(List<NotificationSink> sinks, Path deadLetterFile) {
+        this(sinks, DEFAULT_QUEUE_CAPACITY, DEFAULT_BATCH_SIZE, Retry.DEFAULT, deadLetterFile);
+    }
+    
+    /**
+     * @param queueCapacity notifications each sink's queue holds
+     * @param deadLetterFile where undeliverable batches are appended, or
+     *        null to only count them
+     */
+    public NotificationDispatcher(List<NotificationSink> sinks, int queueCapacity, int batchSize, Retry retry,
+                                  Path deadLetterFile) {
+        this.batchSize = batchSize;
+        this.retry = retry;
+        this.deadLetterFile = deadLetterFile;
+        List<Lane> created = new ArrayList<>(sinks.size());
+        for (NotificationSink sink : sinks) {
+            created.add(new Lane(sink, queueCapacity));
+        }
+        this.lanes = List.copyOf(created);
+        for (Lane lane : lanes) {
+            lane.thread.start();
+        }
+    }
+    
+    /**
+     * Queues a notification for delivery to every sink without blocking
+     *
+     * @return false if any sink's queue was full or the dispatcher is closed
+     */
+    public boolean offer(FeedbackService.Notification notification) {
+        if (closing) {
+            dropped.addAndGet(lanes.size());
+            return false;
+        }
+        boolean queued = true;
+        for (Lane lane : lanes) {
+            if (!lane.queue.offer(notification)) {
+                dropped.incrementAndGet();
+                queued = false;
+            }
+        }
+        return queued;
+    }
+    
+    /**
+     * Notifications waiting to be delivered, counted once per sink
+     */
+    public int getQueueDepth() {
+        int depth = 0;
+        for (Lane lane : lanes) {
+            depth += lane.queue.size();
+        }
+        return depth;
+    }
+    
+    /**
+     * Notifications delivered, counted once per sink
+     */
+    public long getDeliveredCount() {
+        return delivered.get();
+    }
+    
+    /**
+     * Notifications turned away because a sink's queue was full, counted
+     * once per sink
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+    
+    /**
+     * Batch deliveries retried after a failure
+     */
+    public long getRetryCount() {
+        return retries.get();
+    }
+    
+    /**
+     * Notifications written to the dead-letter file, counted once per sink
+     */
+    public long getDeadLetterCount() {
+        return deadLettered.get();
+    }
+    
+    /**
+     * Stops accepting notifications, delivers what is queued and closes
+     * the sinks. Batches still being retried when the timeout runs out go
+     * to the dead-letter file.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closing) {
+            return;
+        }
+        closing = true;
+        // One deadline for all sinks, so close waits no longer than with one
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CLOSE_TIMEOUT_MILLIS);
+        try {
+            for (Lane lane : lanes) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining > 0) {
+                    lane.thread.join(remaining);
+                }
+            }
+            for (Lane lane : lanes) {
+                lane.thread.interrupt();
+            }
+            for (Lane lane : lanes) {
+                lane.thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        IOException failure = null;
+        for (Lane lane : lanes) {
+            try {
+                lane.sink.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+    
+    /**
+     * One sink with its own queue and delivery thread
+     */
+    private final class Lane implements Runnable {
+        final NotificationSink sink;
+        final BlockingQueue<FeedbackService.Notification> queue;
+        final Thread thread;
+        
+        Lane(NotificationSink sink, int queueCapacity) {
+            this.sink = sink;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            this.thread = new Thread(this, "notification-dispatcher-" + sink.name());
+            this.thread.setDaemon(true);
+        }
+        
+        @Override
+        public void run() {
+            List<FeedbackService.Notification> batch = new ArrayList<>(batchSize);
+            boolean interrupted = false;
+            while (!closing || !queue.isEmpty()) {
+                if (!interrupted) {
+                    try {
+                        FeedbackService.Notification first = queue.poll(100, TimeUnit.MILLISECONDS);
+                        if (first == null) {
+                            continue;
+                        }
+                        batch.add(first);
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                queue.drainTo(batch, batchSize - batch.size());
+                if (batch.isEmpty()) {
+                    continue;
+                }
+                interrupted = !deliver(sink, batch, interrupted);
+                batch.clear();
+            }
+        }
+    }
+    
+    /**
+     * Delivers one batch to one sink, retrying with backoff
+     *
+     * @return false if the thread was interrupted, so later batches should
+     *         skip straight to the dead-letter file
+     */
+    private boolean deliver(NotificationSink sink, List<FeedbackService.Notification> batch, boolean interrupted) {
+        IOException failure = null;
+        int attempts = 0;
+        while (!interrupted && attempts < retry.maxAttempts) {
+            if (attempts > 0) {
+                retries.incrementAndGet();
+                try {
+                    Thread.sleep(retry.backoffMillis(attempts));
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    break;
+                }
+            }
+            attempts++;
+            try {
+                sink.deliver(batch);
+                delivered.addAndGet(batch.size());
+                return true;
+            } catch (IOException | RuntimeException e) {
+                failure = e instanceof IOException ? (IOException) e : new IOException(e);
+            }
+        }
+        deadLetter(sink, batch, attempts, failure != null ? failure.getMessage() : "dispatcher closed");
+        return !interrupted;
+    }
+    
+    private void deadLetter(NotificationSink sink, List<FeedbackService.Notification> batch, int attempts,
+                            String error) {
+        deadLettered.addAndGet(batch.size());
+        if (deadLetterFile == null) {
+            return;
+        }
+        try {
+            Path parent = deadLetterFile.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            try (OutputStream file = Files.newOutputStream(deadLetterFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                Utf8Writer out = new Utf8Writer(file);
+                for (FeedbackService.Notification notification : batch) {
+                    out.write("{\"sink\":").writeJsonString(sink.name())
+                        .write(",\"attempts\":").write(attempts)
+                        .write(",\"error\":").writeJsonString(error)
+                        .write(",\"notification\":");
+                    notification.writeJson(out);
+                    out.write("}\n");
+                }
+                out.flush();
+            }
+        } catch (IOException ignored) {
+            // Counted above; nothing else can be done with the batch
+        }
+    }
+}
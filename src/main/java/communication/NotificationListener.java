@@ -0,0 +1,11 @@
+package communication;
+
+/**
+ * Receives every notification sent by a {@link FeedbackService}
+ * Listeners run on the sending thread, so implementations must be
+ * thread-safe and should return quickly
+ */
+public interface NotificationListener {
+    
+    void onNotification(FeedbackService.Notification notification);
+}
@@ -0,0 +1,43 @@
+package communication;
+
+import server.Utf8Writer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * An external system that receives notifications in batches
+ *
+ * Each sink is called from its own {@link NotificationDispatcher} thread
+ * only, one batch at a time. Throwing makes the dispatcher retry the whole batch,
+ * so deliveries should be idempotent on the receiving side.
+ */
+public interface NotificationSink extends Closeable {
+    
+    /**
+     * Short name used in counters and dead-letter records
+     */
+    String name();
+    
+    void deliver(List<FeedbackService.Notification> batch) throws IOException;
+    
+    @Override
+    default void close() throws IOException {
+    }
+    
+    /**
+     * A batch as newline-delimited JSON, one notification per line
+     */
+    static byte[] encode(List<FeedbackService.Notification> batch) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(batch.size() * 160);
+        Utf8Writer out = new Utf8Writer(bytes);
+        for (FeedbackService.Notification notification : batch) {
+            notification.writeJson(out);
+            out.write('\n');
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+}
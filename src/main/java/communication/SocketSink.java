@@ -0,0 +1,66 @@
+package communication;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+
+/**
+ * Streams batches as newline-delimited JSON over a local socket, either a
+ * Unix domain socket or TCP. The connection is kept open between batches
+ * and re-established after a failure.
+ */
+public class SocketSink implements NotificationSink {
+    private final SocketAddress address;
+    private SocketChannel channel;
+    
+    public SocketSink(SocketAddress address) {
+        this.address = address;
+    }
+    
+    /**
+     * @param target {@code host:port} for TCP, anything else is a Unix
+     *        domain socket path
+     */
+    public static SocketSink parse(String target) {
+        int colon = target.lastIndexOf(':');
+        if (colon > 0 && target.indexOf('/') < 0 && target.substring(colon + 1).matches("\\d+")) {
+            return new SocketSink(new InetSocketAddress(target.substring(0, colon),
+                Integer.parseInt(target.substring(colon + 1))));
+        }
+        return new SocketSink(UnixDomainSocketAddress.of(target));
+    }
+    
+    @Override
+    public String name() {
+        return "socket";
+    }
+    
+    @Override
+    public void deliver(List<FeedbackService.Notification> batch) throws IOException {
+        try {
+            if (channel == null) {
+                channel = SocketChannel.open(address);
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(NotificationSink.encode(batch));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            SocketChannel closing = channel;
+            channel = null;
+            closing.close();
+        }
+    }
+}
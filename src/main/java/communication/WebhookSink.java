@@ -0,0 +1,53 @@
+package communication;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * POSTs each batch to a URL as newline-delimited JSON; any status other
+ * than 2xx counts as a failed delivery
+ */
+public class WebhookSink implements NotificationSink {
+    private final URI uri;
+    private final Duration timeout;
+    private final HttpClient client;
+    
+    public WebhookSink(URI uri) {
+        this(uri, Duration.ofSeconds(5));
+    }
+    
+    public WebhookSink(URI uri, Duration timeout) {
+        this.uri = uri;
+        this.timeout = timeout;
+        this.client = HttpClient.newBuilder().connectTimeout(timeout).build();
+    }
+    
+    @Override
+    public String name() {
+        return "webhook";
+    }
+    
+    @Override
+    public void deliver(List<FeedbackService.Notification> batch) throws IOException {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+            .timeout(timeout)
+            .header("Content-Type", "application/x-ndjson")
+            .POST(HttpRequest.BodyPublishers.ofByteArray(NotificationSink.encode(batch)))
+            .build();
+        HttpResponse<Void> response;
+        try {
+            response = client.send(request, HttpResponse.BodyHandlers.discarding());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while posting to " + uri, e);
+        }
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("Webhook " + uri + " returned HTTP " + response.statusCode());
+        }
+    }
+}
@@ -1,5 +1,9 @@
 package config;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
 /**
  * Configuration for ethics policy thresholds
  * As described in paper Section IV.B
@@ -53,4 +57,85 @@ public class EthicsPolicy {
         policy.requireExplanation = false;
         return policy;
     }
+    
+    /**
+     * Returns an independent copy of this policy
+     */
+    public EthicsPolicy copy() {
+        EthicsPolicy copy = new EthicsPolicy();
+        copy.maxBias = maxBias;
+        copy.minConfidence = minConfidence;
+        copy.warningConfidenceThreshold = warningConfidenceThreshold;
+        copy.escalationConfidenceThreshold = escalationConfidenceThreshold;
+        copy.requireConsent = requireConsent;
+        copy.enforceDataMinimization = enforceDataMinimization;
+        copy.requireExplanation = requireExplanation;
+        copy.minExplanationQuality = minExplanationQuality;
+        copy.warningExplanationQuality = warningExplanationQuality;
+        copy.requireResponsibleEntity = requireResponsibleEntity;
+        return copy;
+    }
+    
+    /**
+     * A hash of every setting, the same for equal policies in any process
+     * 
+     * Unlike a snapshot version, which counts publications since startup,
+     * this identifies the thresholds themselves across restarts
+     */
+    public long fingerprint() {
+        String canonical = "maxBias=" + maxBias
+            + ";minConfidence=" + minConfidence
+            + ";warningConfidenceThreshold=" + warningConfidenceThreshold
+            + ";escalationConfidenceThreshold=" + escalationConfidenceThreshold
+            + ";requireConsent=" + requireConsent
+            + ";enforceDataMinimization=" + enforceDataMinimization
+            + ";requireExplanation=" + requireExplanation
+            + ";minExplanationQuality=" + minExplanationQuality
+            + ";warningExplanationQuality=" + warningExplanationQuality
+            + ";requireResponsibleEntity=" + requireResponsibleEntity;
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonical.getBytes(StandardCharsets.UTF_8));
+            long fingerprint = 0;
+            for (int i = 0; i < 8; i++) {
+                fingerprint = fingerprint << 8 | (digest[i] & 0xFF);
+            }
+            return fingerprint;
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to provide SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    /**
+     * Checks that all thresholds are in range and consistently ordered
+     * 
+     * @throws IllegalArgumentException describing the first invalid setting
+     */
+    public void validate() {
+        requireUnitRange("maxBias", maxBias);
+        requireUnitRange("minConfidence", minConfidence);
+        requireUnitRange("warningConfidenceThreshold", warningConfidenceThreshold);
+        requireUnitRange("escalationConfidenceThreshold", escalationConfidenceThreshold);
+        requireUnitRange("minExplanationQuality", minExplanationQuality);
+        requireUnitRange("warningExplanationQuality", warningExplanationQuality);
+        
+        if (minConfidence > escalationConfidenceThreshold) {
+            throw new IllegalArgumentException(
+                "minConfidence must not exceed escalationConfidenceThreshold");
+        }
+        if (warningConfidenceThreshold > escalationConfidenceThreshold) {
+            throw new IllegalArgumentException(
+                "warningConfidenceThreshold must not exceed escalationConfidenceThreshold");
+        }
+        if (minExplanationQuality > warningExplanationQuality) {
+            throw new IllegalArgumentException(
+                "minExplanationQuality must not exceed warningExplanationQuality");
+        }
+    }
+    
+    private static void requireUnitRange(String name, double value) {
+        if (!(value >= 0.0 && value <= 1.0)) {
+            throw new IllegalArgumentException(name + " must be between 0.0 and 1.0 (was " + value + ")");
+        }
+    }
 }
@@ -0,0 +1,180 @@
+package config;
+
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Reads ethics policies from YAML files such as config/ethics-policy.yaml
+ * 
+ * Expected layout (every key is optional and falls back to the default policy):
+ * <pre>
+ * ethics_engine:
+ *   thresholds:
+ *     max_bias: 0.3
+ *     min_confidence: 0.5
+ *     warning_confidence: 0.6
+ *     escalation_confidence: 0.7
+ *     min_explanation_quality: 0.5
+ *     warning_explanation_quality: 0.7
+ *   privacy:
+ *     require_consent: true
+ *     enforce_data_minimization: true
+ *   transparency:
+ *     require_explanation: true
+ *   accountability:
+ *     require_responsible_entity: true
+ *
+ * policies:              # named alternatives, same layout as ethics_engine
+ *   medical_strict:
+ *     thresholds:
+ *       max_bias: 0.1
+ *
+ * routing:               # purpose/domain to policy name
+ *   purposes:
+ *     LOAN_APPROVAL: strict
+ *   domains:
+ *     medical: medical_strict
+ * </pre>
+ * The built-in "strict" and "lenient" policies are always available unless
+ * redefined under policies.
+ * Unknown keys inside these sections are rejected so that typos do not
+ * silently fall back to defaults.
+ */
+public class PolicyLoader {
+    
+    public static EthicsPolicy load(Path file) throws IOException {
+        return loadSet(file).defaultPolicy;
+    }
+    
+    public static EthicsPolicy parse(String yaml) {
+        return parseSet(yaml).defaultPolicy;
+    }
+    
+    public static PolicySet loadSet(Path file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file)) {
+            return parseSet(reader);
+        }
+    }
+    
+    public static PolicySet parseSet(String yaml) {
+        return parseSet(new StringReader(yaml));
+    }
+    
+    static PolicySet parseSet(Reader reader) {
+        Object document;
+        try {
+            document = new Yaml(new SafeConstructor(new LoaderOptions())).load(reader);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Malformed YAML: " + e.getMessage(), e);
+        }
+        Map<String, Object> root = asMap(document, "document");
+        PolicySet set = new PolicySet(parsePolicy(asMap(root.get("ethics_engine"), "ethics_engine")));
+        
+        for (Map.Entry<String, Object> entry : asMap(root.get("policies"), "policies").entrySet()) {
+            if (PolicySet.DEFAULT.equals(entry.getKey())) {
+                throw new IllegalArgumentException("Define the default policy under ethics_engine");
+            }
+            set.define(entry.getKey(), parsePolicy(asMap(entry.getValue(), entry.getKey())));
+        }
+        
+        Map<String, Object> routing = asMap(root.get("routing"), "routing");
+        for (Map.Entry<String, Object> entry : asMap(routing.get("purposes"), "purposes").entrySet()) {
+            set.routePurpose(entry.getKey(), asString(entry.getValue(), entry.getKey()));
+        }
+        for (Map.Entry<String, Object> entry : asMap(routing.get("domains"), "domains").entrySet()) {
+            set.routeDomain(entry.getKey(), asString(entry.getValue(), entry.getKey()));
+        }
+        
+        set.validate();
+        return set;
+    }
+    
+    /**
+     * Builds a policy from an ethics_engine-style section
+     */
+    static EthicsPolicy parsePolicy(Map<String, Object> section) {
+        EthicsPolicy policy = EthicsPolicy.defaultPolicy();
+        
+        for (Map.Entry<String, Object> entry : asMap(section.get("thresholds"), "thresholds").entrySet()) {
+            double value = asDouble(entry.getValue(), entry.getKey());
+            switch (entry.getKey()) {
+                case "max_bias" -> policy.maxBias = value;
+                case "min_confidence" -> policy.minConfidence = value;
+                case "warning_confidence" -> policy.warningConfidenceThreshold = value;
+                case "escalation_confidence" -> policy.escalationConfidenceThreshold = value;
+                case "min_explanation_quality" -> policy.minExplanationQuality = value;
+                case "warning_explanation_quality" -> policy.warningExplanationQuality = value;
+                default -> throw unknownKey("thresholds", entry.getKey());
+            }
+        }
+        
+        for (Map.Entry<String, Object> entry : asMap(section.get("privacy"), "privacy").entrySet()) {
+            boolean value = asBoolean(entry.getValue(), entry.getKey());
+            switch (entry.getKey()) {
+                case "require_consent" -> policy.requireConsent = value;
+                case "enforce_data_minimization" -> policy.enforceDataMinimization = value;
+                default -> throw unknownKey("privacy", entry.getKey());
+            }
+        }
+        
+        for (Map.Entry<String, Object> entry : asMap(section.get("transparency"), "transparency").entrySet()) {
+            if (!"require_explanation".equals(entry.getKey())) {
+                throw unknownKey("transparency", entry.getKey());
+            }
+            policy.requireExplanation = asBoolean(entry.getValue(), entry.getKey());
+        }
+        
+        for (Map.Entry<String, Object> entry : asMap(section.get("accountability"), "accountability").entrySet()) {
+            if (!"require_responsible_entity".equals(entry.getKey())) {
+                throw unknownKey("accountability", entry.getKey());
+            }
+            policy.requireResponsibleEntity = asBoolean(entry.getValue(), entry.getKey());
+        }
+        
+        return policy;
+    }
+    
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> asMap(Object value, String name) {
+        if (value == null) {
+            return Map.of();
+        }
+        if (!(value instanceof Map)) {
+            throw new IllegalArgumentException("'" + name + "' must be a mapping");
+        }
+        return (Map<String, Object>) value;
+    }
+    
+    private static String asString(Object value, String name) {
+        if (!(value instanceof String)) {
+            throw new IllegalArgumentException("'" + name + "' must name a policy");
+        }
+        return (String) value;
+    }
+    
+    private static double asDouble(Object value, String name) {
+        if (!(value instanceof Number)) {
+            throw new IllegalArgumentException("'" + name + "' must be a number");
+        }
+        return ((Number) value).doubleValue();
+    }
+    
+    private static boolean asBoolean(Object value, String name) {
+        if (!(value instanceof Boolean)) {
+            throw new IllegalArgumentException("'" + name + "' must be true or false");
+        }
+        return (Boolean) value;
+    }
+    
+    private static IllegalArgumentException unknownKey(String section, String key) {
+        return new IllegalArgumentException("Unknown key '" + key + "' in " + section);
+    }
+}
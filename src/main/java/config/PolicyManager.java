@@ -1,20 +1,85 @@
 package config;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 /**
  * Manages the active ethics policy configuration
+ * Policies are published as immutable {@link PolicySnapshot}s through the
+ * shared {@link PolicyRegistry}; swapping them is a single volatile write,
+ * so readers never block
  */
 public class PolicyManager {
-    private static EthicsPolicy activePolicy = EthicsPolicy.defaultPolicy();
+    private static final PolicyRegistry registry = new PolicyRegistry();
+    private static volatile String lastReloadError;
     
+    /**
+     * Returns a copy of the default policy; use {@link #setPolicy} to change it
+     */
     public static EthicsPolicy getPolicy() {
-        return activePolicy;
+        return registry.getDefault().getPolicy().copy();
+    }
+    
+    public static PolicySnapshot getSnapshot() {
+        return registry.getDefault();
+    }
+    
+    /**
+     * Returns the registry used to select policies per request
+     */
+    public static PolicyRegistry getRegistry() {
+        return registry;
     }
     
     public static void setPolicy(EthicsPolicy policy) {
-        activePolicy = policy;
+        registry.publishDefault("programmatic", policy);
     }
     
     public static void reset() {
-        activePolicy = EthicsPolicy.defaultPolicy();
+        registry.publish("default", new PolicySet(EthicsPolicy.defaultPolicy()));
+    }
+    
+    /**
+     * Parses, validates and activates the policy file
+     * 
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file is malformed or invalid;
+     *         the previously active policy stays in place
+     */
+    public static PolicySnapshot loadFrom(Path file) throws IOException {
+        return registry.publish(file.toString(), PolicyLoader.loadSet(file));
+    }
+    
+    /**
+     * Reloads the policy file, keeping the current policy if it is bad
+     * 
+     * @return true if a new snapshot was activated
+     */
+    public static boolean reload(Path file) {
+        try {
+            return reload(file.toString(), Files.readString(file));
+        } catch (IOException e) {
+            lastReloadError = file + ": " + e.getMessage();
+            return false;
+        }
+    }
+    
+    static boolean reload(String source, String yaml) {
+        try {
+            registry.publish(source, PolicyLoader.parseSet(yaml));
+            lastReloadError = null;
+            return true;
+        } catch (RuntimeException e) {
+            lastReloadError = source + ": " + e.getMessage();
+            return false;
+        }
+    }
+    
+    /**
+     * Describes why the last reload was rejected, or null if it succeeded
+     */
+    public static String getLastReloadError() {
+        return lastReloadError;
     }
 }
@@ -0,0 +1,132 @@
+package config;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Selects the ethics policy for each request by explicit override, purpose
+ * or domain, falling back to the default policy
+ * 
+ * All snapshots are built when a {@link PolicySet} is published and stored
+ * in immutable maps behind one volatile reference. Selection is therefore
+ * lock-free and allocation-free: one volatile read plus at most three hash
+ * probes. Publishing swaps the whole table at once, so a request never sees
+ * routes from one version and policies from another.
+ */
+public class PolicyRegistry {
+    private final AtomicLong versions = new AtomicLong();
+    private volatile Routes routes;
+    
+    public PolicyRegistry() {
+        publish("default", new PolicySet(EthicsPolicy.defaultPolicy()));
+    }
+    
+    /**
+     * Picks the policy for a request
+     * 
+     * @param override explicit policy name, or null
+     * @param purpose decision purpose such as LOAN_APPROVAL, or null
+     * @param domain business domain such as medical, or null
+     * @throws IllegalArgumentException if the override names an unknown policy
+     */
+    public PolicySnapshot select(String override, String purpose, String domain) {
+        Routes current = routes;
+        PolicySnapshot snapshot;
+        
+        if (override != null) {
+            snapshot = current.named.get(override);
+            if (snapshot == null) {
+                throw new IllegalArgumentException("Unknown policy: " + override);
+            }
+            return snapshot;
+        }
+        if (purpose != null && (snapshot = current.byPurpose.get(purpose)) != null) {
+            return snapshot;
+        }
+        if (domain != null && (snapshot = current.byDomain.get(domain)) != null) {
+            return snapshot;
+        }
+        return current.defaultSnapshot;
+    }
+    
+    public PolicySnapshot getDefault() {
+        return routes.defaultSnapshot;
+    }
+    
+    /**
+     * Returns the named snapshot, or null if no such policy is registered
+     */
+    public PolicySnapshot get(String name) {
+        return routes.named.get(name);
+    }
+    
+    public long getVersion() {
+        return routes.defaultSnapshot.getVersion();
+    }
+    
+    /**
+     * Validates the set, builds its snapshots and activates them atomically
+     * 
+     * @throws IllegalArgumentException if the set is invalid; the current
+     *         routes stay active
+     */
+    public synchronized PolicySnapshot publish(String source, PolicySet set) {
+        set.validate();
+        Routes next = new Routes(versions.incrementAndGet(), source, set);
+        routes = next;
+        return next.defaultSnapshot;
+    }
+    
+    /**
+     * Replaces only the default policy, keeping named policies and routes
+     */
+    public synchronized PolicySnapshot publishDefault(String source, EthicsPolicy policy) {
+        PolicySet set = routes.toSet(policy);
+        return publish(source, set);
+    }
+    
+    private static final class Routes {
+        final PolicySnapshot defaultSnapshot;
+        final Map<String, PolicySnapshot> named;
+        final Map<String, PolicySnapshot> byPurpose;
+        final Map<String, PolicySnapshot> byDomain;
+        final Map<String, String> purposeRoutes;
+        final Map<String, String> domainRoutes;
+        
+        Routes(long version, String source, PolicySet set) {
+            this.defaultSnapshot = new PolicySnapshot(PolicySet.DEFAULT, version, source, set.defaultPolicy);
+            
+            Map<String, PolicySnapshot> snapshots = new HashMap<>();
+            snapshots.put(PolicySet.DEFAULT, defaultSnapshot);
+            for (Map.Entry<String, EthicsPolicy> entry : set.named.entrySet()) {
+                snapshots.put(entry.getKey(), new PolicySnapshot(entry.getKey(), version, source, entry.getValue()));
+            }
+            this.named = Map.copyOf(snapshots);
+            this.byPurpose = resolve(set.purposeRoutes);
+            this.byDomain = resolve(set.domainRoutes);
+            this.purposeRoutes = Map.copyOf(set.purposeRoutes);
+            this.domainRoutes = Map.copyOf(set.domainRoutes);
+        }
+        
+        private Map<String, PolicySnapshot> resolve(Map<String, String> routeNames) {
+            Map<String, PolicySnapshot> resolved = new HashMap<>();
+            for (Map.Entry<String, String> route : routeNames.entrySet()) {
+                resolved.put(route.getKey(), named.get(route.getValue()));
+            }
+            return Map.copyOf(resolved);
+        }
+        
+        PolicySet toSet(EthicsPolicy newDefault) {
+            PolicySet set = new PolicySet(newDefault);
+            for (PolicySnapshot snapshot : named.values()) {
+                if (!PolicySet.DEFAULT.equals(snapshot.getName())) {
+                    set.define(snapshot.getName(), snapshot.getPolicy());
+                }
+            }
+            purposeRoutes.forEach(set::routePurpose);
+            domainRoutes.forEach(set::routeDomain);
+            return set;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package config;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Mutable description of a complete policy configuration: the default
+ * policy, named alternatives and the purpose/domain routes between them
+ * Published to a {@link PolicyRegistry} as one immutable, versioned unit
+ */
+public class PolicySet {
+    public static final String DEFAULT = "default";
+    
+    final EthicsPolicy defaultPolicy;
+    final Map<String, EthicsPolicy> named = new LinkedHashMap<>();
+    final Map<String, String> purposeRoutes = new LinkedHashMap<>();
+    final Map<String, String> domainRoutes = new LinkedHashMap<>();
+    
+    public PolicySet(EthicsPolicy defaultPolicy) {
+        this.defaultPolicy = defaultPolicy;
+        named.put("strict", EthicsPolicy.strictPolicy());
+        named.put("lenient", EthicsPolicy.lenientPolicy());
+    }
+    
+    public PolicySet define(String name, EthicsPolicy policy) {
+        named.put(name, policy);
+        return this;
+    }
+    
+    /**
+     * Routes decisions with the given purpose (e.g. LOAN_APPROVAL) to a named policy
+     */
+    public PolicySet routePurpose(String purpose, String policyName) {
+        purposeRoutes.put(purpose, policyName);
+        return this;
+    }
+    
+    /**
+     * Routes decisions from the given domain (e.g. medical) to a named policy
+     */
+    public PolicySet routeDomain(String domain, String policyName) {
+        domainRoutes.put(domain, policyName);
+        return this;
+    }
+    
+    /**
+     * Checks every policy and that every route points at a known policy
+     * 
+     * @throws IllegalArgumentException describing the first problem found
+     */
+    public void validate() {
+        defaultPolicy.validate();
+        for (Map.Entry<String, EthicsPolicy> entry : named.entrySet()) {
+            try {
+                entry.getValue().validate();
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Policy '" + entry.getKey() + "': " + e.getMessage(), e);
+            }
+        }
+        validateRoutes("purpose", purposeRoutes);
+        validateRoutes("domain", domainRoutes);
+    }
+    
+    private void validateRoutes(String kind, Map<String, String> routes) {
+        for (Map.Entry<String, String> route : routes.entrySet()) {
+            String target = route.getValue();
+            if (!DEFAULT.equals(target) && !named.containsKey(target)) {
+                throw new IllegalArgumentException(
+                    "Route for " + kind + " '" + route.getKey() + "' targets unknown policy '" + target + "'");
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package config;
+
+/**
+ * Immutable, versioned view of an ethics policy
+ * An evaluation reads the snapshot once and keeps using it until it finishes,
+ * even if a newer version is published in the meantime
+ */
+public final class PolicySnapshot {
+    private final String name;
+    private final long version;
+    private final String source;
+    private final long loadedAt;
+    private final long fingerprint;
+    private final EthicsPolicy policy;
+    
+    PolicySnapshot(String name, long version, String source, EthicsPolicy policy) {
+        this.name = name;
+        this.version = version;
+        this.source = source;
+        this.loadedAt = System.currentTimeMillis();
+        // Private copy so later changes to the caller's object cannot leak in
+        this.policy = policy.copy();
+        this.fingerprint = this.policy.fingerprint();
+    }
+    
+    /**
+     * Registry name of the policy, e.g. "default" or "strict"
+     */
+    public String getName() {
+        return name;
+    }
+    
+    public long getVersion() {
+        return version;
+    }
+    
+    /**
+     * Where the policy came from, e.g. a file path or "default"
+     */
+    public String getSource() {
+        return source;
+    }
+    
+    public long getLoadedAt() {
+        return loadedAt;
+    }
+    
+    /**
+     * Content hash of the policy's settings; see {@link EthicsPolicy#fingerprint()}
+     */
+    public long getFingerprint() {
+        return fingerprint;
+    }
+    
+    /**
+     * Returns the snapshot's own policy, shared by every evaluation that uses
+     * it. It must be treated as read-only; call {@link EthicsPolicy#copy()}
+     * to derive a changed policy.
+     */
+    public EthicsPolicy getPolicy() {
+        return policy;
+    }
+}
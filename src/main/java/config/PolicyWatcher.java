@@ -0,0 +1,116 @@
+package config;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+
+/**
+ * Watches a policy file and hot-reloads it through {@link PolicyManager}
+ * Reloads run on a background daemon thread, so request processing never
+ * waits for parsing; a file that fails to parse or validate is ignored and
+ * the previous snapshot stays active.
+ */
+public class PolicyWatcher implements AutoCloseable {
+    // Editors often emit several events per save; let the writes settle first
+    private static final long SETTLE_MILLIS = 100;
+    
+    private final Path file;
+    private final WatchService watchService;
+    private final Thread thread;
+    private byte[] lastContent;
+    private volatile boolean running = true;
+    
+    private PolicyWatcher(Path file) throws IOException {
+        this.file = file.toAbsolutePath();
+        this.watchService = FileSystems.getDefault().newWatchService();
+        try {
+            this.file.getParent().register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException | RuntimeException e) {
+            watchService.close();
+            throw e;
+        }
+        this.thread = new Thread(this::run, "policy-watcher");
+        this.thread.setDaemon(true);
+    }
+    
+    /**
+     * Loads the policy file now and starts watching it for changes
+     * 
+     * @throws IOException if the file cannot be read or watched
+     * @throws IllegalArgumentException if the initial file is invalid
+     */
+    public static PolicyWatcher start(Path file) throws IOException {
+        PolicyWatcher watcher = new PolicyWatcher(file);
+        try {
+            watcher.lastContent = Files.readAllBytes(watcher.file);
+            PolicyManager.loadFrom(watcher.file);
+        } catch (IOException | RuntimeException e) {
+            watcher.close();
+            throw e;
+        }
+        watcher.thread.start();
+        return watcher;
+    }
+    
+    private void run() {
+        while (running) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            
+            boolean changed = false;
+            for (WatchEvent<?> event : key.pollEvents()) {
+                Object context = event.context();
+                if (context instanceof Path && file.getFileName().equals(context)) {
+                    changed = true;
+                }
+            }
+            key.reset();
+            
+            if (changed) {
+                try {
+                    Thread.sleep(SETTLE_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                reloadIfChanged();
+            }
+        }
+    }
+    
+    private void reloadIfChanged() {
+        byte[] content;
+        try {
+            content = Files.readAllBytes(file);
+        } catch (IOException e) {
+            // File is mid-replace; the CREATE event for the new one will follow
+            return;
+        }
+        if (Arrays.equals(content, lastContent)) {
+            return;
+        }
+        if (PolicyManager.reload(file.toString(), new String(content, StandardCharsets.UTF_8))) {
+            lastContent = content;
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        running = false;
+        watchService.close();
+        thread.interrupt();
+    }
+}
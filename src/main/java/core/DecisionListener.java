@@ -0,0 +1,11 @@
+package core;
+
+/**
+ * Receives every decision evaluated by an {@link EthicsEngine}
+ * Listeners run on the evaluating thread after the result is final, so
+ * implementations must be thread-safe and should return quickly
+ */
+public interface DecisionListener {
+    
+    void onDecision(EthicsContext context, EthicsResult result);
+}
@@ -11,6 +11,11 @@ public class EthicsContext {
     public final AIDecision decision;
     public UserData userData;
     
+    /**
+     * Explicit policy name that bypasses purpose/domain routing, or null
+     */
+    public String policyOverride;
+    
     public EthicsContext(AIDecision decision, UserData userData) {
         this.decision = decision;
         this.userData = userData;
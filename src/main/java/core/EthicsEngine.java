@@ -2,6 +2,8 @@ package core;
 
 import config.EthicsPolicy;
 import config.PolicyManager;
+import config.PolicyRegistry;
+import config.PolicySnapshot;
 import pillars.accountability.AccountabilityModule;
 import pillars.fairness.FairnessModule;
 import pillars.human.HumanOversightModule;
@@ -10,11 +12,20 @@ import pillars.robustness.RobustnessSafetyModule;
 import pillars.transparency.TransparencyModule;
 import pillars.wellbeing.WellBeingModule;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
 /**
  * Core ethics engine implementing the RAIG framework
  * Orchestrates all seven pillar modules as described in paper Section IV
  */
 public class EthicsEngine {
+    // Seeded from the clock so IDs keep increasing across restarts, leaving
+    // room for 65536 decisions per millisecond of uptime
+    private static final AtomicLong decisionIds = new AtomicLong(System.currentTimeMillis() << 16);
+    
     private AccountabilityModule accountabilityModule;
     private FairnessModule fairnessModule;
     private HumanOversightModule humanOversightModule;
@@ -22,13 +33,24 @@ public class EthicsEngine {
     private RobustnessSafetyModule robustnessModule;
     private TransparencyModule transparencyModule;
     private WellBeingModule wellBeingModule;
+    private final PolicyRegistry policyRegistry;
+    private final List<DecisionListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile PillarTimer pillarTimer;
     
-    // Statistics tracking
-    private int evaluationCount = 0;
-    private int blockedCount = 0;
-    private int escalatedCount = 0;
+    // Statistics tracking; intercept runs on many request threads at once
+    private final LongAdder evaluationCount = new LongAdder();
+    private final LongAdder blockedCount = new LongAdder();
+    private final LongAdder escalatedCount = new LongAdder();
     
     public EthicsEngine() {
+        this(PolicyManager.getRegistry());
+    }
+    
+    /**
+     * Creates an engine that selects policies from the given registry
+     */
+    public EthicsEngine(PolicyRegistry policyRegistry) {
+        this.policyRegistry = policyRegistry;
         this.accountabilityModule = new AccountabilityModule();
         this.fairnessModule = new FairnessModule();
         this.humanOversightModule = new HumanOversightModule();
@@ -43,66 +65,132 @@ public class EthicsEngine {
      * Evaluates decision against all seven ethics pillars
      */
     public EthicsResult intercept(EthicsContext context) {
-        evaluationCount++;
+        evaluationCount.increment();
+        
+        // Select the snapshot once so a concurrent reload cannot change
+        // thresholds halfway through this evaluation. Routing uses the same
+        // purpose the privacy pillar infers, so an undeclared loan decision
+        // still gets the loan policy.
+        PolicySnapshot snapshot = policyRegistry.select(
+            context.policyOverride,
+            PrivacyGovernanceModule.determinePurpose(context.decision),
+            context.decision.getDomain());
+        EthicsResult result = evaluate(context, snapshot.getPolicy(), pillarTimer);
+        result.setDecisionId(decisionIds.incrementAndGet());
+        result.setPolicy(snapshot.getName(), snapshot.getVersion(), snapshot.getFingerprint());
+        
+        // Update statistics
+        if (result.isBlocked()) {
+            blockedCount.increment();
+        } else if (result.requiresEscalation()) {
+            escalatedCount.increment();
+        }
+        
+        for (DecisionListener listener : listeners) {
+            listener.onDecision(context, result);
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Runs the pillar checks against an explicit policy
+     * Does not update statistics or notify listeners, which makes it
+     * suitable for what-if evaluation such as replaying recorded traffic
+     */
+    public EthicsResult evaluate(EthicsContext context, EthicsPolicy policy) {
+        return evaluate(context, policy, null);
+    }
+    
+    private EthicsResult evaluate(EthicsContext context, EthicsPolicy policy, PillarTimer timer) {
         EthicsResult result = new EthicsResult();
-        EthicsPolicy policy = PolicyManager.getPolicy();
+        long start = timer != null ? System.nanoTime() : 0;
         
         // Execute all pillar checks
         // Order matters: fail-fast on critical violations
         
         // 1. Privacy - critical, must pass first
         privacyModule.check(context, result);
+        start = lap(timer, Pillar.PRIVACY, start);
         if (result.isBlocked()) {
-            blockedCount++;
             return result;
         }
         
         // 2. Accountability - required for all decisions
         accountabilityModule.check(context, result, policy);
+        start = lap(timer, Pillar.ACCOUNTABILITY, start);
         
         // 3. Fairness - check for bias
         fairnessModule.check(context, result, policy);
+        start = lap(timer, Pillar.FAIRNESS, start);
         
         // 4. Robustness - validate technical quality
         robustnessModule.check(context, result, policy);
+        start = lap(timer, Pillar.ROBUSTNESS, start);
         
         // 5. Transparency - ensure explainability
         transparencyModule.check(context, result, policy);
+        start = lap(timer, Pillar.TRANSPARENCY, start);
         
         // 6. Human Oversight - flag for review if needed
         humanOversightModule.check(context, result, policy);
+        start = lap(timer, Pillar.HUMAN_OVERSIGHT, start);
         
         // 7. Well-being - assess societal impact
         wellBeingModule.check(context, result, policy);
-        
-        // Update statistics
-        if (result.isBlocked()) {
-            blockedCount++;
-        } else if (result.requiresEscalation()) {
-            escalatedCount++;
-        }
+        lap(timer, Pillar.WELL_BEING, start);
         
         return result;
     }
     
+    /**
+     * Reports the time since {@code start} for a pillar and returns now
+     */
+    private static long lap(PillarTimer timer, Pillar pillar, long start) {
+        if (timer == null) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        timer.record(pillar, now - start);
+        return now;
+    }
+    
+    public void addListener(DecisionListener listener) {
+        listeners.add(listener);
+    }
+    
+    public void removeListener(DecisionListener listener) {
+        listeners.remove(listener);
+    }
+    
+    /**
+     * Times each pillar check of every intercepted decision, or stops
+     * timing if null; what-if evaluations are never timed
+     */
+    public void setPillarTimer(PillarTimer timer) {
+        this.pillarTimer = timer;
+    }
+    
     // Statistics methods
     public int getEvaluationCount() {
-        return evaluationCount;
+        return (int) evaluationCount.sum();
     }
     
     public int getBlockedCount() {
-        return blockedCount;
+        return (int) blockedCount.sum();
     }
     
     public int getEscalatedCount() {
-        return escalatedCount;
+        return (int) escalatedCount.sum();
     }
     
     public double getBlockRate() {
-        return evaluationCount > 0 ? (double) blockedCount / evaluationCount : 0.0;
+        long evaluations = evaluationCount.sum();
+        return evaluations > 0 ? (double) blockedCount.sum() / evaluations : 0.0;
     }
     
     public double getEscalationRate() {
-        return evaluationCount > 0 ? (double) escalatedCount / evaluationCount : 0.0;
+        long evaluations = evaluationCount.sum();
+        return evaluations > 0 ? (double) escalatedCount.sum() / evaluations : 0.0;
     }
 }
@@ -12,6 +12,10 @@ public class EthicsResult {
     private List<String> violations;
     private List<String> warnings;
     private String escalationReason;
+    private long decisionId;
+    private String policyName;
+    private long policyVersion;
+    private long policyFingerprint;
     
     public EthicsResult() {
         this.finalDecision = EthicsDecision.APPROVE;
@@ -66,4 +70,47 @@ public class EthicsResult {
     public String getEscalationReason() {
         return escalationReason;
     }
+    
+    /**
+     * Unique identifier assigned by the engine, or 0 if never intercepted
+     */
+    public long getDecisionId() {
+        return decisionId;
+    }
+    
+    public void setDecisionId(long decisionId) {
+        this.decisionId = decisionId;
+    }
+    
+    /**
+     * Name of the policy this result was evaluated against
+     */
+    public String getPolicyName() {
+        return policyName;
+    }
+    
+    /**
+     * Version of the policy snapshot this result was evaluated against
+     */
+    public long getPolicyVersion() {
+        return policyVersion;
+    }
+    
+    /**
+     * Content hash of the policy this result was evaluated against, which
+     * unlike the version means the same thing after a restart
+     */
+    public long getPolicyFingerprint() {
+        return policyFingerprint;
+    }
+    
+    public void setPolicy(String policyName, long policyVersion) {
+        setPolicy(policyName, policyVersion, 0);
+    }
+    
+    public void setPolicy(String policyName, long policyVersion, long policyFingerprint) {
+        this.policyName = policyName;
+        this.policyVersion = policyVersion;
+        this.policyFingerprint = policyFingerprint;
+    }
 }
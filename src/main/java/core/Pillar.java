@@ -0,0 +1,66 @@
+package core;
+
+/**
+ * The seven ethics pillars, used to classify violations and warnings
+ * Each pillar has a stable one-byte code for compact persistence; codes
+ * must never be reused or renumbered
+ */
+public enum Pillar {
+    ACCOUNTABILITY(1, "ACCOUNTABILITY"),
+    FAIRNESS(2, "FAIRNESS"),
+    HUMAN_OVERSIGHT(3, "HUMAN_OVERSIGHT"),
+    PRIVACY(4, "PRIVACY"),
+    ROBUSTNESS(5, "ROBUSTNESS"),
+    TRANSPARENCY(6, "TRANSPARENCY"),
+    WELL_BEING(7, "WELL_BEING"),
+    
+    /**
+     * Message without a recognised pillar prefix
+     */
+    OTHER(0, "");
+    
+    private static final Pillar[] VALUES = values();
+    private static final Pillar[] BY_CODE = new Pillar[8];
+    
+    static {
+        for (Pillar pillar : VALUES) {
+            BY_CODE[pillar.code] = pillar;
+        }
+    }
+    
+    private final byte code;
+    private final String prefix;
+    
+    Pillar(int code, String prefix) {
+        this.code = (byte) code;
+        this.prefix = prefix;
+    }
+    
+    public byte getCode() {
+        return code;
+    }
+    
+    public static Pillar fromCode(int code) {
+        return code >= 0 && code < BY_CODE.length && BY_CODE[code] != null ? BY_CODE[code] : OTHER;
+    }
+    
+    /**
+     * Classifies a violation or warning by its "PILLAR: ..." prefix
+     * Matches in place, without allocating
+     */
+    public static Pillar fromMessage(String message) {
+        if (message == null) {
+            return OTHER;
+        }
+        for (Pillar pillar : VALUES) {
+            String prefix = pillar.prefix;
+            if (!prefix.isEmpty()
+                    && message.length() > prefix.length()
+                    && message.charAt(prefix.length()) == ':'
+                    && message.startsWith(prefix)) {
+                return pillar;
+            }
+        }
+        return OTHER;
+    }
+}
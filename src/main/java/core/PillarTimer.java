@@ -0,0 +1,11 @@
+package core;
+
+/**
+ * Receives how long each pillar check took during {@link EthicsEngine#intercept}
+ * Called on the evaluating thread once per pillar that ran, so
+ * implementations must be thread-safe and cheap
+ */
+public interface PillarTimer {
+    
+    void record(Pillar pillar, long nanos);
+}
@@ -0,0 +1,481 @@
+package data;
+
+import core.DecisionListener;
+import core.EthicsContext;
+import core.EthicsDecision;
+import core.EthicsResult;
+import core.Pillar;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Crash-safe, append-only audit trail of every decision
+ * 
+ * Records are binary-encoded into fixed-size, memory-mapped segment files:
+ * <pre>
+ * [int bodyLength][int crc32(body)]
+ * body: [long decisionId][long timestamp][long policyVersion][long policyFingerprint]
+ *       [byte outcome][byte violationCount][byte pillarCode]...
+ * </pre>
+ * The policy version counts publications since the process started; the
+ * fingerprint is a hash of the policy's settings and so still identifies
+ * it after a restart.
+ * A zero length marks the end of the written data. Appending is a copy into
+ * the mapping; making it durable is a separate fsync that, in GROUP and
+ * SYNC mode, a background thread issues once for every batch of appends
+ * (group commit). On open, the newest segment is scanned and anything after
+ * the last record with a valid checksum is discarded as a torn write.
+ * Auditing never fails a decision: a record that cannot be appended or made
+ * durable is counted, and SYNC appends stop waiting once an fsync fails.
+ */
+public class AuditLog implements DecisionListener, Closeable {
+    
+    /**
+     * How long an append may remain only in the OS page cache
+     */
+    public enum Durability {
+        /** Flushed by the OS, on segment roll and on close */
+        NONE,
+        /** Flushed in batches every flush interval; append does not wait */
+        GROUP,
+        /** Append returns once a batch flush covering it has completed */
+        SYNC
+    }
+    
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    
+    private static final int MAGIC = 0x52414731; // "RAG1"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int FIXED_BODY_SIZE = 8 + 8 + 8 + 8 + 1 + 1;
+    private static final int MAX_VIOLATIONS = 255;
+    private static final String SEGMENT_PREFIX = "audit-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    
+    private final Path directory;
+    private final int segmentSize;
+    private final Durability durability;
+    private final long flushIntervalMillis;
+    private final CRC32 crc = new CRC32();
+    private final byte[] scratch = new byte[FIXED_BODY_SIZE + MAX_VIOLATIONS];
+    private final LongAdder failedCount = new LongAdder();
+    private volatile IOException lastError;
+    
+    // Guarded by this
+    private long segmentIndex;
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private final List<MappedByteBuffer> unflushed = new ArrayList<>();
+    private long appendedCount;
+    private boolean closed;
+    
+    // Guarded by commitLock
+    private final Object commitLock = new Object();
+    private long durableCount;
+    private boolean flushRequested;
+    private long failedSyncs;
+    
+    private final Thread flusher;
+    
+    public AuditLog(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE, Durability.GROUP, 10);
+    }
+    
+    /**
+     * Opens or creates an audit log, recovering from any torn write
+     * 
+     * @param segmentSize size of each pre-allocated segment file in bytes
+     * @param flushIntervalMillis longest time a batch waits before fsync
+     */
+    public AuditLog(Path directory, int segmentSize, Durability durability, long flushIntervalMillis)
+            throws IOException {
+        if (segmentSize < HEADER_SIZE + RECORD_HEADER_SIZE + FIXED_BODY_SIZE + MAX_VIOLATIONS + 4) {
+            throw new IllegalArgumentException("Segment size too small: " + segmentSize);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.durability = durability;
+        this.flushIntervalMillis = flushIntervalMillis;
+        
+        Files.createDirectories(directory);
+        List<Path> segments = listSegments(directory);
+        if (segments.isEmpty()) {
+            openSegment(0);
+        } else {
+            Path last = segments.get(segments.size() - 1);
+            openSegment(parseIndex(last));
+            recover();
+        }
+        
+        if (durability == Durability.NONE) {
+            this.flusher = null;
+        } else {
+            this.flusher = new Thread(this::flushLoop, "audit-log-flusher");
+            this.flusher.setDaemon(true);
+            this.flusher.start();
+        }
+    }
+    
+    @Override
+    public void onDecision(EthicsContext context, EthicsResult result) {
+        List<String> violations = result.getViolations();
+        int count = Math.min(violations.size(), MAX_VIOLATIONS);
+        byte[] codes = new byte[count];
+        for (int i = 0; i < count; i++) {
+            codes[i] = Pillar.fromMessage(violations.get(i)).getCode();
+        }
+        try {
+            append(result.getDecisionId(), System.currentTimeMillis(), result.getPolicyVersion(),
+                result.getPolicyFingerprint(), result.getFinalDecision(), codes);
+        } catch (UncheckedIOException e) {
+            failedCount.increment();
+            lastError = e.getCause();
+            return;
+        } catch (IllegalStateException e) {
+            // Closed during shutdown while requests were still in flight
+            failedCount.increment();
+        }
+    }
+    
+    /**
+     * Number of decisions that could not be appended or, in SYNC mode, made durable
+     */
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+    
+    /**
+     * The most recent append or fsync error, or null once a later fsync succeeds
+     */
+    public IOException getLastError() {
+        return lastError;
+    }
+    
+    /**
+     * Appends one record without a policy fingerprint
+     */
+    public void append(long decisionId, long timestamp, long policyVersion,
+                       EthicsDecision outcome, byte[] violationCodes) {
+        append(decisionId, timestamp, policyVersion, 0, outcome, violationCodes);
+    }
+    
+    /**
+     * Appends one record; in SYNC mode, waits until it is on disk
+     * 
+     * @throws UncheckedIOException if a segment cannot be rolled or, in SYNC
+     *         mode, an fsync fails before the record is durable
+     */
+    public void append(long decisionId, long timestamp, long policyVersion, long policyFingerprint,
+                       EthicsDecision outcome, byte[] violationCodes) {
+        long sequence;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("Audit log is closed");
+            }
+            int codeCount = Math.min(violationCodes.length, MAX_VIOLATIONS);
+            int bodyLength = FIXED_BODY_SIZE + codeCount;
+            
+            ByteBuffer body = ByteBuffer.wrap(scratch);
+            body.putLong(decisionId).putLong(timestamp).putLong(policyVersion).putLong(policyFingerprint)
+                .put((byte) outcome.ordinal()).put((byte) codeCount)
+                .put(violationCodes, 0, codeCount);
+            crc.reset();
+            crc.update(scratch, 0, bodyLength);
+            
+            // Keep room for the zero length that terminates the segment
+            if (segment.remaining() < RECORD_HEADER_SIZE + bodyLength + 4) {
+                roll();
+            }
+            segment.putInt(bodyLength).putInt((int) crc.getValue()).put(scratch, 0, bodyLength);
+            sequence = ++appendedCount;
+        }
+        
+        if (durability == Durability.SYNC) {
+            awaitDurable(sequence);
+        }
+    }
+    
+    /**
+     * Forces all appended records to disk now
+     */
+    public void sync() throws IOException {
+        long target;
+        List<MappedByteBuffer> toFlush;
+        synchronized (this) {
+            target = appendedCount;
+            toFlush = new ArrayList<>(unflushed);
+            unflushed.clear();
+            toFlush.add(segment);
+        }
+        try {
+            for (MappedByteBuffer buffer : toFlush) {
+                buffer.force();
+            }
+        } catch (UncheckedIOException e) {
+            // Leave rolled segments for the next attempt
+            synchronized (this) {
+                unflushed.addAll(0, toFlush.subList(0, toFlush.size() - 1));
+            }
+            throw e.getCause();
+        }
+        markDurable(target);
+    }
+    
+    /**
+     * Number of records appended since this log was opened
+     */
+    public synchronized long getAppendedCount() {
+        return appendedCount;
+    }
+    
+    /**
+     * Number of appended records known to be on disk
+     */
+    public long getDurableCount() {
+        synchronized (commitLock) {
+            return durableCount;
+        }
+    }
+    
+    /**
+     * Reads every valid record in every segment, oldest first
+     * 
+     * @return the number of records read
+     */
+    public long scan(Consumer<AuditRecord> consumer) throws IOException {
+        // Our own appends are visible through a second mapping of the same file
+        long count = 0;
+        for (Path file : listSegments(directory)) {
+            try (FileChannel readChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+                ByteBuffer buffer = readChannel.map(FileChannel.MapMode.READ_ONLY, 0, readChannel.size());
+                if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC
+                        || buffer.getInt(4) != FORMAT_VERSION) {
+                    continue;
+                }
+                buffer.position(HEADER_SIZE);
+                AuditRecord record;
+                while ((record = readRecord(buffer)) != null) {
+                    consumer.accept(record);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        if (flusher != null) {
+            flusher.interrupt();
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        sync();
+        synchronized (this) {
+            channel.close();
+        }
+    }
+    
+    private void flushLoop() {
+        while (true) {
+            synchronized (commitLock) {
+                if (!flushRequested) {
+                    try {
+                        commitLock.wait(flushIntervalMillis);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                flushRequested = false;
+            }
+            try {
+                if (getDurableCount() < getAppendedCount()) {
+                    sync();
+                    lastError = null;
+                }
+            } catch (IOException e) {
+                // Fail the current waiters; later appends retry on the next round
+                synchronized (commitLock) {
+                    lastError = e;
+                    failedSyncs++;
+                    commitLock.notifyAll();
+                }
+            }
+        }
+    }
+    
+    private void awaitDurable(long sequence) {
+        synchronized (commitLock) {
+            long failures = failedSyncs;
+            flushRequested = true;
+            commitLock.notifyAll();
+            while (durableCount < sequence) {
+                if (failedSyncs != failures) {
+                    throw new UncheckedIOException("Audit fsync failed", lastError);
+                }
+                try {
+                    commitLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new UncheckedIOException(new InterruptedIOException("Interrupted awaiting audit fsync"));
+                }
+            }
+        }
+    }
+    
+    private void markDurable(long target) {
+        synchronized (commitLock) {
+            if (target > durableCount) {
+                durableCount = target;
+                commitLock.notifyAll();
+            }
+        }
+    }
+    
+    // Guarded by this
+    private void roll() {
+        try {
+            unflushed.add(segment);
+            channel.close();
+            openSegment(segmentIndex + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private void openSegment(long index) throws IOException {
+        Path file = directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+        boolean isNew = !Files.exists(file);
+        FileChannel newChannel = FileChannel.open(file,
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer mapped = newChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+            isNew ? segmentSize : Math.max(newChannel.size(), HEADER_SIZE));
+        if (isNew) {
+            writeHeader(mapped);
+        }
+        mapped.position(HEADER_SIZE);
+        this.segmentIndex = index;
+        this.channel = newChannel;
+        this.segment = mapped;
+    }
+    
+    private static void writeHeader(MappedByteBuffer mapped) {
+        mapped.putInt(0, MAGIC);
+        mapped.putInt(4, FORMAT_VERSION);
+        mapped.force(0, HEADER_SIZE);
+    }
+    
+    /**
+     * Positions the active segment after its last valid record and zeroes
+     * whatever follows, so a torn write can never be mistaken for data
+     */
+    private void recover() throws IOException {
+        if (segment.getInt(0) == 0 && segment.getInt(4) == 0) {
+            // Created by a roll just before a crash, before its header reached the disk
+            writeHeader(segment);
+        }
+        if (segment.getInt(0) != MAGIC || segment.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("Corrupt audit segment header in " + directory);
+        }
+        segment.position(HEADER_SIZE);
+        while (readRecord(segment) != null) {
+            // Advance past every valid record
+        }
+        int end = segment.position();
+        for (int i = end; i < segment.limit(); i++) {
+            if (segment.get(i) != 0) {
+                for (int j = i; j < segment.limit(); j++) {
+                    segment.put(j, (byte) 0);
+                }
+                segment.force();
+                break;
+            }
+        }
+        segment.position(end);
+    }
+    
+    /**
+     * Reads the record at the buffer's position, or returns null (leaving the
+     * position unchanged) at the end of data or at a torn record
+     */
+    private static AuditRecord readRecord(ByteBuffer buffer) {
+        int start = buffer.position();
+        if (buffer.remaining() < RECORD_HEADER_SIZE) {
+            return null;
+        }
+        int bodyLength = buffer.getInt(start);
+        if (bodyLength < FIXED_BODY_SIZE || bodyLength > FIXED_BODY_SIZE + MAX_VIOLATIONS
+                || bodyLength > buffer.remaining() - RECORD_HEADER_SIZE) {
+            return null;
+        }
+        int storedCrc = buffer.getInt(start + 4);
+        byte[] body = new byte[bodyLength];
+        buffer.get(start + RECORD_HEADER_SIZE, body);
+        CRC32 check = new CRC32();
+        check.update(body);
+        if ((int) check.getValue() != storedCrc) {
+            return null;
+        }
+        
+        ByteBuffer in = ByteBuffer.wrap(body);
+        long decisionId = in.getLong();
+        long timestamp = in.getLong();
+        long policyVersion = in.getLong();
+        long policyFingerprint = in.getLong();
+        int outcome = in.get();
+        int codeCount = in.get() & 0xFF;
+        if (outcome < 0 || outcome >= EthicsDecision.values().length
+                || codeCount != bodyLength - FIXED_BODY_SIZE) {
+            return null;
+        }
+        byte[] codes = new byte[codeCount];
+        in.get(codes);
+        
+        buffer.position(start + RECORD_HEADER_SIZE + bodyLength);
+        return new AuditRecord(decisionId, timestamp, policyVersion, policyFingerprint,
+            EthicsDecision.values()[outcome], codes);
+    }
+    
+    private static List<Path> listSegments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                .filter(p -> {
+                    String name = p.getFileName().toString();
+                    return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                })
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+    
+    private static long parseIndex(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,38 @@
+package data;
+
+import core.EthicsDecision;
+import core.Pillar;
+
+/**
+ * One decision as stored in the persistent {@link AuditLog}
+ */
+public class AuditRecord {
+    public final long decisionId;
+    public final long timestamp;
+    public final long policyVersion;
+    /** Content hash of the policy, or 0 if the record predates it */
+    public final long policyFingerprint;
+    public final EthicsDecision outcome;
+    private final byte[] violationCodes;
+    
+    AuditRecord(long decisionId, long timestamp, long policyVersion, long policyFingerprint,
+                EthicsDecision outcome, byte[] violationCodes) {
+        this.decisionId = decisionId;
+        this.timestamp = timestamp;
+        this.policyVersion = policyVersion;
+        this.policyFingerprint = policyFingerprint;
+        this.outcome = outcome;
+        this.violationCodes = violationCodes;
+    }
+    
+    public int getViolationCount() {
+        return violationCodes.length;
+    }
+    
+    /**
+     * Pillar of the i-th violation, in the order they were raised
+     */
+    public Pillar getViolation(int i) {
+        return Pillar.fromCode(violationCodes[i]);
+    }
+}
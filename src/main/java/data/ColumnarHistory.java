@@ -0,0 +1,659 @@
+package data;
+
+import core.DecisionListener;
+import core.EthicsContext;
+import core.EthicsDecision;
+import core.EthicsResult;
+import core.Pillar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Compact, column-oriented decision history for tens of millions of entries
+ * 
+ * Rows are appended into fixed-size chunks of primitive arrays, one array
+ * per column:
+ * <ul>
+ *   <li>timestamp - int offset from the chunk's first timestamp</li>
+ *   <li>decision ID - int offset from the chunk's first ID</li>
+ *   <li>decision - 2 bits, 32 rows per long</li>
+ *   <li>responsible entity - 16-bit code into the chunk's own dictionary</li>
+ *   <li>violations - bitmask of violated pillars, one byte</li>
+ *   <li>violation and warning counts - two saturating 4-bit nibbles</li>
+ * </ul>
+ * That is about 12 bytes per row, with no per-row objects for the GC to
+ * trace. Scans walk the columns directly and hand primitive values to a
+ * {@link RowVisitor}, so filtering never materializes entries.
+ * 
+ * Rows are time-ordered, so the timestamp column doubles as the primary
+ * index. Each chunk also keeps inverted bitmaps (one bit per row) per
+ * decision state, per violated pillar and per frequent responsible entity;
+ * {@link #query} intersects them a word at a time and only touches rows
+ * that match every criterion. Bitmaps are allocated on first use, so a
+ * pillar costs 8KB in the chunks where it appears. An entity only gets one
+ * once it has {@link #ENTITY_BITMAP_ROWS} rows in the chunk; rarer ones are
+ * matched by reading the entity column for the words that survive the
+ * other filters, so a chunk of distinct client-chosen entities costs no
+ * more than one of a single entity.
+ * 
+ * Every row has a stable ordinal; chunk {@code c} covers ordinals starting
+ * at {@code c * CHUNK_SIZE}. A chunk is sealed early if an offset would not
+ * fit in an int or its entity dictionary is full, leaving a gap in the
+ * ordinals. Dictionaries are per chunk, so evicting a chunk frees its codes
+ * and no entity is ever collapsed into another.
+ * 
+ * One writer at a time appends (record is synchronized); any number of
+ * readers scan concurrently without locking, seeing each chunk's rows up to
+ * its published row count. The chunk list itself is swapped with CAS, so a
+ * {@link TieredHistory} compactor can evict sealed chunks without taking
+ * the writer's lock.
+ */
+public class ColumnarHistory implements DecisionListener {
+    static final int CHUNK_SHIFT = 16;
+    public static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    
+    /** Entity code for missing entities */
+    static final int UNKNOWN_ENTITY = 0;
+    static final String UNASSIGNED = "(unassigned)";
+    private static final int MAX_ENTITIES = 1 << 16;
+    // Below about one row per 64-row word a bitmap skips nothing a column read would not
+    static final int ENTITY_BITMAP_ROWS = CHUNK_SIZE / 64;
+    private static final int MAX_NIBBLE = 15;
+    private static final EthicsDecision[] DECISIONS = EthicsDecision.values();
+    
+    private final AtomicReference<Chunk[]> chunks = new AtomicReference<>(new Chunk[0]);
+    private long nextChunkIndex;
+    private long lastTimestamp = Long.MIN_VALUE;
+    private volatile long rowCount;
+    
+    @Override
+    public void onDecision(EthicsContext context, EthicsResult result) {
+        record(System.currentTimeMillis(), context.decision.getResponsibleEntity(), result);
+    }
+    
+    public void record(long timestamp, String entity, EthicsResult result) {
+        List<String> violations = result.getViolations();
+        int violationMask = 0;
+        for (String violation : violations) {
+            violationMask |= 1 << Pillar.fromMessage(violation).ordinal();
+        }
+        append(timestamp, result.getDecisionId(), result.getFinalDecision(), entity,
+            violationMask, violations.size(), result.getWarnings().size());
+    }
+    
+    /**
+     * Appends one row
+     * 
+     * @return the row's ordinal
+     */
+    public synchronized long append(long timestamp, long decisionId, EthicsDecision decision, String entity,
+                                    int violationMask, int violationCount, int warningCount) {
+        // Keep rows time-ordered even if concurrent callers race on the clock
+        timestamp = Math.max(timestamp, lastTimestamp);
+        lastTimestamp = timestamp;
+        
+        Chunk chunk = activeChunk(timestamp, decisionId, entity);
+        int row = chunk.rows;
+        chunk.timestampOffsets[row] = (int) (timestamp - chunk.baseTimestamp);
+        chunk.idOffsets[row] = (int) (decisionId - chunk.baseId);
+        chunk.decisions[row >>> 5] |= (long) decision.ordinal() << ((row & 31) << 1);
+        chunk.entities[row] = (char) chunk.encodeEntity(entity);
+        chunk.violationMasks[row] = (byte) violationMask;
+        chunk.counters[row] = (byte) ((Math.min(violationCount, MAX_NIBBLE) << 4) | Math.min(warningCount, MAX_NIBBLE));
+        chunk.index(row, decision.ordinal(), chunk.entities[row], violationMask & 0xFF);
+        
+        // Publishing the row count makes the column writes above visible to readers
+        chunk.rows = row + 1;
+        rowCount++;
+        return chunk.firstOrdinal + row;
+    }
+    
+    /**
+     * Visits every row matching the filter in ordinal (and therefore time) order
+     */
+    public void scan(RowFilter filter, RowVisitor visitor) {
+        for (Chunk chunk : chunks.get()) {
+            if (!chunk.scan(filter, Long.MIN_VALUE, visitor)) {
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Counts rows matching the filter without materializing them
+     */
+    public long count(RowFilter filter) {
+        long[] count = new long[1];
+        scan(filter, (ordinal, timestamp, id, decision, entity, mask, violations, warnings) -> {
+            count[0]++;
+            return true;
+        });
+        return count[0];
+    }
+    
+    /**
+     * Returns one page of rows matching the query, in ordinal order
+     */
+    public HistoryPage query(HistoryQuery query) {
+        return query(query, chunks.get(), new ArrayList<>(Math.min(query.limit, 256)));
+    }
+    
+    /**
+     * Continues a page already partly filled from other sources
+     */
+    HistoryPage query(HistoryQuery query, Chunk[] current, List<HistoryRow> rows) {
+        if (rows.size() >= query.limit) {
+            return new HistoryPage(rows, rows.get(rows.size() - 1).ordinal + 1);
+        }
+        int decision = query.state != null ? query.state.ordinal() : -1;
+        
+        for (int i = firstChunk(current, query.cursor, query.fromTimestamp); i < current.length; i++) {
+            Chunk chunk = current[i];
+            if (chunk.rows > 0 && chunk.timestamp(0) >= query.toTimestamp) {
+                break;
+            }
+            long last = chunk.query(query, decision, rows);
+            if (rows.size() == query.limit) {
+                return new HistoryPage(rows, last + 1);
+            }
+        }
+        return new HistoryPage(rows, HistoryPage.END);
+    }
+    
+    /**
+     * Binary search for the first chunk that may hold rows at or after both
+     * the cursor ordinal and the timestamp
+     */
+    private static int firstChunk(Chunk[] current, long cursor, long fromTimestamp) {
+        int low = 0;
+        int high = current.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            Chunk chunk = current[mid];
+            int rows = chunk.rows;
+            boolean before = rows == 0
+                || chunk.firstOrdinal + rows <= cursor
+                || chunk.timestamp(rows - 1) < fromTimestamp;
+            if (before && mid < current.length - 1) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    public long getRowCount() {
+        return rowCount;
+    }
+    
+    /**
+     * Approximate heap used by the column arrays of all chunks
+     */
+    public long estimateBytes() {
+        long bytes = 0;
+        for (Chunk chunk : chunks.get()) {
+            bytes += Chunk.BYTES + chunk.indexBytes();
+        }
+        return bytes;
+    }
+    
+    /**
+     * Current chunks, oldest first; only the last may be unsealed
+     */
+    Chunk[] snapshot() {
+        return chunks.get();
+    }
+    
+    /**
+     * Stops appending to the current chunk so it can be compacted
+     */
+    public synchronized void seal() {
+        Chunk[] current = chunks.get();
+        if (current.length > 0) {
+            current[current.length - 1].seal();
+        }
+    }
+    
+    /**
+     * Seals the open chunk if its newest row is older than the given time,
+     * so a quiet server does not keep it open, and only in memory, forever
+     * 
+     * @return true if a chunk was sealed
+     */
+    synchronized boolean sealIdle(long before) {
+        Chunk[] current = chunks.get();
+        if (current.length == 0) {
+            return false;
+        }
+        Chunk last = current[current.length - 1];
+        int rows = last.rows;
+        if (last.sealed || rows == 0 || last.timestamp(rows - 1) >= before) {
+            return false;
+        }
+        last.seal();
+        return true;
+    }
+    
+    /**
+     * Removes the oldest chunk once it has been copied elsewhere
+     * 
+     * @return false if the chunk is not the oldest or is still being appended to
+     */
+    boolean evict(Chunk chunk) {
+        while (true) {
+            Chunk[] current = chunks.get();
+            if (current.length == 0 || current[0] != chunk || !chunk.sealed) {
+                return false;
+            }
+            if (chunks.compareAndSet(current, Arrays.copyOfRange(current, 1, current.length))) {
+                return true;
+            }
+        }
+    }
+    
+    /**
+     * Continues ordinals and timestamps after rows restored from elsewhere
+     */
+    synchronized void resumeAfter(long lastOrdinal, long lastTimestamp) {
+        if (chunks.get().length > 0) {
+            throw new IllegalStateException("History already has rows");
+        }
+        nextChunkIndex = (lastOrdinal >>> CHUNK_SHIFT) + 1;
+        this.lastTimestamp = Math.max(this.lastTimestamp, lastTimestamp);
+    }
+    
+    // Guarded by this
+    private Chunk activeChunk(long timestamp, long decisionId, String entity) {
+        Chunk[] current = chunks.get();
+        if (current.length > 0) {
+            Chunk last = current[current.length - 1];
+            if (!last.sealed
+                    && last.rows < CHUNK_SIZE
+                    && timestamp - last.baseTimestamp <= Integer.MAX_VALUE
+                    && fitsInt(decisionId - last.baseId)
+                    && last.canEncode(entity)) {
+                return last;
+            }
+            last.seal();
+        }
+        Chunk chunk = new Chunk(nextChunkIndex++ << CHUNK_SHIFT, timestamp, decisionId);
+        // Only the compactor races with us, and it only ever removes from the front
+        while (true) {
+            current = chunks.get();
+            Chunk[] grown = Arrays.copyOf(current, current.length + 1);
+            grown[current.length] = chunk;
+            if (chunks.compareAndSet(current, grown)) {
+                return chunk;
+            }
+        }
+    }
+    
+    private static boolean fitsInt(long value) {
+        return value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE;
+    }
+    
+    /**
+     * Receives matching rows as primitive column values
+     */
+    @FunctionalInterface
+    public interface RowVisitor {
+        /**
+         * @param violationMask bit {@code p} is set if pillar ordinal {@code p} was violated
+         * @return false to stop the scan
+         */
+        boolean visit(long ordinal, long timestamp, long decisionId, EthicsDecision decision,
+                      String entity, int violationMask, int violationCount, int warningCount);
+    }
+    
+    /**
+     * Column predicates applied during a scan; null or -1 fields match everything
+     */
+    public static class RowFilter {
+        public static final RowFilter ALL = new RowFilter(null, null, 0, Long.MIN_VALUE, Long.MAX_VALUE);
+        
+        final EthicsDecision decision;
+        final String entity;
+        final int violationMask;
+        final long fromTimestamp;
+        final long toTimestamp;
+        
+        /**
+         * @param decision required decision, or null for any
+         * @param entity required responsible entity, or null for any
+         * @param violationMask pillars that must all be violated, or 0
+         * @param fromTimestamp inclusive lower time bound
+         * @param toTimestamp exclusive upper time bound
+         */
+        public RowFilter(EthicsDecision decision, String entity, int violationMask,
+                         long fromTimestamp, long toTimestamp) {
+            this.decision = decision;
+            this.entity = entity;
+            this.violationMask = violationMask;
+            this.fromTimestamp = fromTimestamp;
+            this.toTimestamp = toTimestamp;
+        }
+    }
+    
+    static final class Chunk {
+        static final long BYTES = CHUNK_SIZE * (4L + 4L + 2L + 1L + 1L) + CHUNK_SIZE / 4;
+        static final int WORDS = CHUNK_SIZE / 64;
+        static final long BITMAP_BYTES = WORDS * 8L;
+        private static final int PILLARS = Pillar.values().length;
+        private static final long[] NO_ROWS = new long[WORDS];
+        
+        final long firstOrdinal;
+        final long baseTimestamp;
+        final long baseId;
+        final int[] timestampOffsets = new int[CHUNK_SIZE];
+        final int[] idOffsets = new int[CHUNK_SIZE];
+        final long[] decisions = new long[CHUNK_SIZE / 32];
+        final char[] entities = new char[CHUNK_SIZE];
+        final byte[] violationMasks = new byte[CHUNK_SIZE];
+        final byte[] counters = new byte[CHUNK_SIZE];
+        
+        // Inverted indexes; only rows below the published count are meaningful
+        final long[][] decisionBitmaps = new long[DECISIONS.length][WORDS];
+        final long[][] violationBitmaps = new long[PILLARS][];
+        final Map<Integer, long[]> entityBitmaps = new ConcurrentHashMap<>();
+        // Rows per entity code until it earns a bitmap; only the writer uses it, and only until sealed
+        private char[] entityRows;
+        // Chunk-local dictionary; names are written before the rows that use them are published
+        private final Map<String, Integer> entityCodes = new ConcurrentHashMap<>();
+        private volatile String[] entityNames = initialNames();
+        private int entityCount = 1;
+        volatile int rows;
+        volatile boolean sealed;
+        
+        Chunk(long firstOrdinal, long baseTimestamp, long baseId) {
+            this.firstOrdinal = firstOrdinal;
+            this.baseTimestamp = baseTimestamp;
+            this.baseId = baseId;
+        }
+        
+        long decisionId(int row) {
+            return baseId + idOffsets[row];
+        }
+        
+        int entity(int row) {
+            return entities[row];
+        }
+        
+        String entityName(int code) {
+            return entityNames[code];
+        }
+        
+        /**
+         * Returns the dictionary code for an entity, or -1 if no row here has it
+         */
+        int lookupEntity(String entity) {
+            Integer code = entityCodes.get(entity);
+            return code != null ? code : -1;
+        }
+        
+        // Called by the writer
+        boolean canEncode(String entity) {
+            return entityCount < MAX_ENTITIES || entity == null || entity.isBlank()
+                || entityCodes.containsKey(entity);
+        }
+        
+        // Called by the writer before the row is published
+        int encodeEntity(String entity) {
+            if (entity == null || entity.isBlank()) {
+                return UNKNOWN_ENTITY;
+            }
+            Integer code = entityCodes.get(entity);
+            if (code != null) {
+                return code;
+            }
+            String[] names = entityNames;
+            if (entityCount == names.length) {
+                names = Arrays.copyOf(names, Math.min(names.length * 2, MAX_ENTITIES));
+            }
+            names[entityCount] = entity;
+            entityNames = names;
+            entityCodes.put(entity, entityCount);
+            return entityCount++;
+        }
+        
+        private static String[] initialNames() {
+            String[] names = new String[16];
+            names[UNKNOWN_ENTITY] = UNASSIGNED;
+            return names;
+        }
+        
+        int violationMask(int row) {
+            return violationMasks[row] & 0xFF;
+        }
+        
+        int counters(int row) {
+            return counters[row] & 0xFF;
+        }
+        
+        long timestamp(int row) {
+            return baseTimestamp + timestampOffsets[row];
+        }
+        
+        int decision(int row) {
+            return (int) (decisions[row >>> 5] >>> ((row & 31) << 1)) & 3;
+        }
+        
+        // Called by the writer before the row is published
+        void index(int row, int decision, int entityCode, int violationMask) {
+            int word = row >>> 6;
+            long bit = 1L << row;
+            decisionBitmaps[decision][word] |= bit;
+            for (int mask = violationMask; mask != 0; mask &= mask - 1) {
+                int pillar = Integer.numberOfTrailingZeros(mask);
+                long[] bitmap = violationBitmaps[pillar];
+                if (bitmap == null) {
+                    bitmap = new long[WORDS];
+                    violationBitmaps[pillar] = bitmap;
+                }
+                bitmap[word] |= bit;
+            }
+            long[] entityBitmap = entityBitmaps.get(entityCode);
+            if (entityBitmap != null) {
+                entityBitmap[word] |= bit;
+                return;
+            }
+            if (entityRows == null) {
+                entityRows = new char[MAX_ENTITIES];
+            }
+            if (++entityRows[entityCode] == ENTITY_BITMAP_ROWS) {
+                // Fill in the earlier rows before readers can see the bitmap
+                entityBitmap = new long[WORDS];
+                for (int earlier = 0; earlier <= row; earlier++) {
+                    if (entities[earlier] == entityCode) {
+                        entityBitmap[earlier >>> 6] |= 1L << earlier;
+                    }
+                }
+                entityBitmaps.put(entityCode, entityBitmap);
+            }
+        }
+        
+        // Called by the writer
+        void seal() {
+            sealed = true;
+            entityRows = null;
+        }
+        
+        long indexBytes() {
+            long bitmaps = DECISIONS.length + entityBitmaps.size();
+            for (long[] bitmap : violationBitmaps) {
+                if (bitmap != null) {
+                    bitmaps++;
+                }
+            }
+            char[] counting = entityRows;
+            return bitmaps * BITMAP_BYTES + (counting != null ? counting.length * 2L : 0);
+        }
+        
+        /**
+         * Rows in the word whose entity is the given code
+         */
+        private long entityWord(int word, int entityCode) {
+            long bits = 0;
+            int first = word << 6;
+            for (int i = 0; i < 64; i++) {
+                if (entities[first + i] == entityCode) {
+                    bits |= 1L << i;
+                }
+            }
+            return bits;
+        }
+        
+        /**
+         * Appends matching rows at or after the query cursor to the page
+         * until it holds query.limit rows
+         * 
+         * @return the ordinal of the last row added, or -1 if none were
+         */
+        long query(HistoryQuery query, int decision, List<HistoryRow> page) {
+            int rowLimit = rows;
+            if (rowLimit == 0) {
+                return -1;
+            }
+            int entityCode = -1;
+            if (query.entity != null) {
+                entityCode = lookupEntity(query.entity);
+                if (entityCode < 0) {
+                    return -1;
+                }
+            }
+            int start = query.cursor <= firstOrdinal ? 0 : (int) Math.min(rowLimit, query.cursor - firstOrdinal);
+            start = Math.max(start, firstRowAtOrAfter(query.fromTimestamp, rowLimit));
+            int end = firstRowAtOrAfter(query.toTimestamp, rowLimit);
+            if (start >= end) {
+                return -1;
+            }
+            
+            long[][] required = new long[2 + Integer.bitCount(query.violationMask)][];
+            int count = 0;
+            if (decision >= 0) {
+                required[count++] = decisionBitmaps[decision];
+            }
+            boolean readEntities = false;
+            if (entityCode >= 0) {
+                long[] entityBitmap = entityBitmaps.get(entityCode);
+                if (entityBitmap != null) {
+                    required[count++] = entityBitmap;
+                } else {
+                    readEntities = true;
+                }
+            }
+            for (int mask = query.violationMask; mask != 0; mask &= mask - 1) {
+                long[] bitmap = violationBitmaps[Integer.numberOfTrailingZeros(mask)];
+                required[count++] = bitmap != null ? bitmap : NO_ROWS;
+            }
+            
+            long last = -1;
+            int lastWord = (end - 1) >>> 6;
+            for (int word = start >>> 6; word <= lastWord; word++) {
+                long bits = -1L;
+                if (word == start >>> 6) {
+                    bits &= -1L << start;
+                }
+                if (word == lastWord && (end & 63) != 0) {
+                    bits &= -1L >>> (64 - (end & 63));
+                }
+                for (int i = 0; i < count && bits != 0; i++) {
+                    bits &= required[i][word];
+                }
+                if (readEntities && bits != 0) {
+                    bits &= entityWord(word, entityCode);
+                }
+                while (bits != 0) {
+                    int row = (word << 6) + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    page.add(materialize(row));
+                    last = firstOrdinal + row;
+                    if (page.size() == query.limit) {
+                        return last;
+                    }
+                }
+            }
+            return last;
+        }
+        
+        private HistoryRow materialize(int row) {
+            int packed = counters[row] & 0xFF;
+            return new HistoryRow(firstOrdinal + row, timestamp(row), baseId + idOffsets[row],
+                DECISIONS[decision(row)], entityNames[entities[row]],
+                violationMasks[row] & 0xFF, packed >>> 4, packed & MAX_NIBBLE);
+        }
+        
+        /**
+         * Scans rows with ordinal >= fromOrdinal
+         * 
+         * @return false if the visitor stopped the scan
+         */
+        boolean scan(RowFilter filter, long fromOrdinal, RowVisitor visitor) {
+            int rowLimit = rows;
+            if (rowLimit == 0 || timestamp(rowLimit - 1) < filter.fromTimestamp) {
+                return true;
+            }
+            if (timestamp(0) >= filter.toTimestamp) {
+                return false;
+            }
+            int start = fromOrdinal <= firstOrdinal ? 0 : (int) Math.min(rowLimit, fromOrdinal - firstOrdinal);
+            start = Math.max(start, firstRowAtOrAfter(filter.fromTimestamp, rowLimit));
+            int wantedEntity = -1;
+            if (filter.entity != null) {
+                wantedEntity = lookupEntity(filter.entity);
+                if (wantedEntity < 0) {
+                    return true;
+                }
+            }
+            // Read after the row count, so it holds every name those rows use
+            String[] names = entityNames;
+            
+            int wantedDecision = filter.decision != null ? filter.decision.ordinal() : -1;
+            for (int row = start; row < rowLimit; row++) {
+                long timestamp = timestamp(row);
+                if (timestamp >= filter.toTimestamp) {
+                    return false;
+                }
+                int decision = decision(row);
+                if (wantedDecision >= 0 && decision != wantedDecision) {
+                    continue;
+                }
+                if (wantedEntity >= 0 && entities[row] != wantedEntity) {
+                    continue;
+                }
+                int mask = violationMasks[row] & 0xFF;
+                if ((mask & filter.violationMask) != filter.violationMask) {
+                    continue;
+                }
+                int packed = counters[row] & 0xFF;
+                if (!visitor.visit(firstOrdinal + row, timestamp, baseId + idOffsets[row], DECISIONS[decision],
+                        names[entities[row]], mask, packed >>> 4, packed & MAX_NIBBLE)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        /**
+         * Binary search over the time-ordered timestamp column
+         */
+        int firstRowAtOrAfter(long timestamp, int rowLimit) {
+            int low = 0;
+            int high = rowLimit;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (timestamp(mid) < timestamp) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -3,45 +3,108 @@ package data;
 import core.EthicsResult;
 import core.EthicsDecision;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Records decision history for audit trail and analytics
+ * 
+ * Keeps the most recent entries in a fixed-capacity, lock-free ring that
+ * any number of threads may record into concurrently. Per-decision counters
+ * are adjusted on insert and eviction, so every count query is O(1) and
+ * describes the retained window.
  */
 public class DecisionHistory {
-    private List<HistoryEntry> entries;
+    public static final int DEFAULT_CAPACITY = 16_384;
+    
+    private final AtomicReferenceArray<HistoryEntry> slots;
+    private final int mask;
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLongArray counts = new AtomicLongArray(EthicsDecision.values().length);
     
     public DecisionHistory() {
-        this.entries = new ArrayList<>();
+        this(DEFAULT_CAPACITY);
+    }
+    
+    /**
+     * @param capacity number of recent entries to retain, rounded up to a
+     *        power of two
+     */
+    public DecisionHistory(int capacity) {
+        if (capacity <= 0 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
     }
     
     public void record(EthicsResult result) {
-        entries.add(new HistoryEntry(result, System.currentTimeMillis()));
+        long seq = sequence.getAndIncrement();
+        HistoryEntry entry = new HistoryEntry(result, System.currentTimeMillis(), seq);
+        int index = (int) (seq & mask);
+        
+        while (true) {
+            HistoryEntry current = slots.get(index);
+            if (current != null && current.sequence > seq) {
+                // A producer a full lap ahead already took this slot, so our
+                // entry counts as inserted and immediately evicted
+                return;
+            }
+            if (slots.compareAndSet(index, current, entry)) {
+                counts.incrementAndGet(entry.decision.ordinal());
+                if (current != null) {
+                    counts.decrementAndGet(current.decision.ordinal());
+                }
+                return;
+            }
+        }
     }
     
+    /**
+     * Returns a snapshot of the retained entries, oldest first
+     */
     public List<HistoryEntry> getEntries() {
-        return Collections.unmodifiableList(entries);
+        List<HistoryEntry> snapshot = new ArrayList<>(getTotalCount());
+        for (int i = 0; i < slots.length(); i++) {
+            HistoryEntry entry = slots.get(i);
+            if (entry != null) {
+                snapshot.add(entry);
+            }
+        }
+        snapshot.sort(Comparator.comparingLong(e -> e.sequence));
+        return Collections.unmodifiableList(snapshot);
+    }
+    
+    public int getCapacity() {
+        return slots.length();
+    }
+    
+    /**
+     * Number of entries recorded since creation, including evicted ones
+     */
+    public long getRecordedCount() {
+        return sequence.get();
     }
     
     public int getTotalCount() {
-        return entries.size();
+        return getApprovedCount() + getBlockedCount() + getEscalatedCount();
     }
     
     public int getApprovedCount() {
-        return (int) entries.stream()
-            .filter(e -> e.decision == EthicsDecision.APPROVE)
-            .count();
+        return (int) counts.get(EthicsDecision.APPROVE.ordinal());
     }
     
     public int getBlockedCount() {
-        return (int) entries.stream()
-            .filter(e -> e.decision == EthicsDecision.BLOCK)
-            .count();
+        return (int) counts.get(EthicsDecision.BLOCK.ordinal());
     }
     
     public int getEscalatedCount() {
-        return (int) entries.stream()
-            .filter(e -> e.decision == EthicsDecision.ESCALATE)
-            .count();
+        return (int) counts.get(EthicsDecision.ESCALATE.ordinal());
     }
     
     public static class HistoryEntry {
@@ -49,12 +112,14 @@ public class DecisionHistory {
         public final long timestamp;
         public final int violationCount;
         public final int warningCount;
+        public final long sequence;
         
-        HistoryEntry(EthicsResult result, long timestamp) {
+        HistoryEntry(EthicsResult result, long timestamp, long sequence) {
             this.decision = result.getFinalDecision();
             this.timestamp = timestamp;
             this.violationCount = result.getViolations().size();
             this.warningCount = result.getWarnings().size();
+            this.sequence = sequence;
         }
     }
 }
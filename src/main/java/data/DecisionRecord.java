@@ -0,0 +1,102 @@
+package data;
+
+import core.EthicsContext;
+import core.EthicsDecision;
+import core.EthicsResult;
+import model.AIDecision;
+import model.UserData;
+import pillars.fairness.FairnessModule;
+
+/**
+ * Full, replayable inputs of one evaluated decision plus its recorded outcome
+ * 
+ * The bias score is captured after evaluation, so a score computed by the
+ * fairness module is replayed as-is instead of being re-sampled. A decision
+ * blocked before the fairness check records a fixed estimate instead, so
+ * replaying it never draws a new random score. User names
+ * and e-mail addresses are deliberately not captured; only the privacy flags
+ * influence the evaluation.
+ */
+public final class DecisionRecord {
+    public final long timestamp;
+    public final String decisionLabel;
+    public final double confidence;
+    public final String responsibleEntity;
+    public final String explanation;
+    public final double biasScore;
+    public final boolean negativeSocialImpact;
+    public final boolean containsSensitiveData;
+    public final boolean consentGiven;
+    public final String purpose;
+    public final String domain;
+    public final String policyOverride;
+    public final String policyName;
+    public final long policyVersion;
+    public final EthicsDecision outcome;
+    
+    public DecisionRecord(long timestamp, String decisionLabel, double confidence,
+                          String responsibleEntity, String explanation, double biasScore,
+                          boolean negativeSocialImpact, boolean containsSensitiveData,
+                          boolean consentGiven, String purpose, String domain,
+                          String policyOverride, String policyName, long policyVersion,
+                          EthicsDecision outcome) {
+        this.timestamp = timestamp;
+        this.decisionLabel = decisionLabel;
+        this.confidence = confidence;
+        this.responsibleEntity = responsibleEntity;
+        this.explanation = explanation;
+        this.biasScore = biasScore;
+        this.negativeSocialImpact = negativeSocialImpact;
+        this.containsSensitiveData = containsSensitiveData;
+        this.consentGiven = consentGiven;
+        this.purpose = purpose;
+        this.domain = domain;
+        this.policyOverride = policyOverride;
+        this.policyName = policyName;
+        this.policyVersion = policyVersion;
+        this.outcome = outcome;
+    }
+    
+    /**
+     * Captures an evaluated decision
+     */
+    public static DecisionRecord capture(EthicsContext context, EthicsResult result) {
+        AIDecision decision = context.decision;
+        return new DecisionRecord(
+            System.currentTimeMillis(),
+            decision.getDecisionLabel(),
+            decision.getConfidence(),
+            decision.getResponsibleEntity(),
+            decision.getExplanation(),
+            decision.getBiasScore() >= 0 ? decision.getBiasScore() : FairnessModule.estimateBiasScore(decision),
+            decision.hasNegativeSocialImpact(),
+            context.userData.containsSensitiveData(),
+            context.userData.isConsentGiven(),
+            decision.getPurpose(),
+            decision.getDomain(),
+            context.policyOverride,
+            result.getPolicyName(),
+            result.getPolicyVersion(),
+            result.getFinalDecision()
+        );
+    }
+    
+    /**
+     * Rebuilds a fresh context for re-evaluation
+     * A new context is needed each time because pillar modules mutate it
+     */
+    public EthicsContext toContext() {
+        AIDecision decision = new AIDecision(decisionLabel, confidence);
+        decision.setResponsibleEntity(responsibleEntity);
+        decision.setExplanation(explanation);
+        decision.setBiasScore(biasScore);
+        decision.setNegativeSocialImpact(negativeSocialImpact);
+        decision.setPurpose(purpose);
+        decision.setDomain(domain);
+        
+        UserData userData = new UserData("replay", "replay@raig.local", containsSensitiveData, consentGiven);
+        EthicsContext context = new EthicsContext(decision, userData);
+        context.policyOverride = policyOverride;
+        return context;
+    }
+}
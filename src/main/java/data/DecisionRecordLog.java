@@ -0,0 +1,196 @@
+package data;
+
+import core.DecisionListener;
+import core.EthicsContext;
+import core.EthicsDecision;
+import core.EthicsResult;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Binary capture file of {@link DecisionRecord}s for historical replay
+ * 
+ * Attach an instance to an engine with {@code engine.addListener(log)} to
+ * record live traffic; read it back with {@link #forEach(Path, Consumer)}.
+ * A record cut short by a crash is ignored when reading. Capture never fails
+ * a decision: a record that cannot be written is counted and dropped.
+ */
+public class DecisionRecordLog implements DecisionListener, Closeable {
+    private static final int MAGIC = 0x52414947; // "RAIG"
+    private static final short FORMAT_VERSION = 1;
+    
+    private static final int FLAG_NEGATIVE_IMPACT = 1;
+    private static final int FLAG_SENSITIVE_DATA = 2;
+    private static final int FLAG_CONSENT = 4;
+    
+    private final DataOutputStream out;
+    private final LongAdder failedCount = new LongAdder();
+    private volatile IOException lastError;
+    
+    /**
+     * Opens a capture file for appending, writing the header if it is new
+     */
+    public DecisionRecordLog(Path file) throws IOException {
+        boolean isNew = !Files.exists(file) || Files.size(file) == 0;
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND), 64 * 1024));
+        if (isNew) {
+            out.writeInt(MAGIC);
+            out.writeShort(FORMAT_VERSION);
+        }
+    }
+    
+    @Override
+    public void onDecision(EthicsContext context, EthicsResult result) {
+        try {
+            append(DecisionRecord.capture(context, result));
+        } catch (UncheckedIOException e) {
+            failedCount.increment();
+            lastError = e.getCause();
+            return;
+        }
+        lastError = null;
+    }
+    
+    /**
+     * Number of decisions that could not be written
+     */
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+    
+    /**
+     * The error from the most recent failed write, or null once a write succeeds
+     */
+    public IOException getLastError() {
+        return lastError;
+    }
+    
+    public synchronized void append(DecisionRecord record) {
+        try {
+            out.writeLong(record.timestamp);
+            writeString(record.decisionLabel);
+            out.writeDouble(record.confidence);
+            writeString(record.responsibleEntity);
+            writeString(record.explanation);
+            out.writeDouble(record.biasScore);
+            int flags = (record.negativeSocialImpact ? FLAG_NEGATIVE_IMPACT : 0)
+                | (record.containsSensitiveData ? FLAG_SENSITIVE_DATA : 0)
+                | (record.consentGiven ? FLAG_CONSENT : 0);
+            out.writeByte(flags);
+            writeString(record.purpose);
+            writeString(record.domain);
+            writeString(record.policyOverride);
+            writeString(record.policyName);
+            out.writeLong(record.policyVersion);
+            out.writeByte(record.outcome.ordinal());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    public synchronized void flush() throws IOException {
+        out.flush();
+    }
+    
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+    
+    /**
+     * Reads every complete record in the file
+     */
+    public static List<DecisionRecord> readAll(Path file) throws IOException {
+        List<DecisionRecord> records = new ArrayList<>();
+        forEach(file, records::add);
+        return records;
+    }
+    
+    /**
+     * Streams every complete record in the file to the consumer
+     * 
+     * @return the number of records read
+     */
+    public static long forEach(Path file, Consumer<DecisionRecord> consumer) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file), 64 * 1024))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a decision record file: " + file);
+            }
+            short version = in.readShort();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported record format version " + version);
+            }
+            
+            long count = 0;
+            while (true) {
+                DecisionRecord record;
+                try {
+                    record = read(in);
+                } catch (EOFException e) {
+                    return count;
+                }
+                consumer.accept(record);
+                count++;
+            }
+        }
+    }
+    
+    private static DecisionRecord read(DataInputStream in) throws IOException {
+        long timestamp = in.readLong();
+        String label = readString(in);
+        double confidence = in.readDouble();
+        String entity = readString(in);
+        String explanation = readString(in);
+        double biasScore = in.readDouble();
+        int flags = in.readUnsignedByte();
+        String purpose = readString(in);
+        String domain = readString(in);
+        String override = readString(in);
+        String policyName = readString(in);
+        long policyVersion = in.readLong();
+        EthicsDecision outcome = EthicsDecision.values()[in.readUnsignedByte()];
+        
+        return new DecisionRecord(timestamp, label, confidence, entity, explanation, biasScore,
+            (flags & FLAG_NEGATIVE_IMPACT) != 0,
+            (flags & FLAG_SENSITIVE_DATA) != 0,
+            (flags & FLAG_CONSENT) != 0,
+            purpose, domain, override, policyName, policyVersion, outcome);
+    }
+    
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+    
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
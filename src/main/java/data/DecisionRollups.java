@@ -0,0 +1,275 @@
+package data;
+
+import core.DecisionListener;
+import core.EthicsContext;
+import core.EthicsDecision;
+import core.EthicsResult;
+import core.Pillar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Incrementally maintained per-minute, per-hour and per-day decision counts
+ * 
+ * Each responsible entity (plus an aggregate over all entities) owns one
+ * ring of buckets per resolution. A bucket is a row in a primitive long
+ * array holding outcome counts and violation and warning counts per pillar;
+ * slots are reused as time moves on. Recording touches one row per ring and
+ * a range query reads one row per bucket, regardless of decision volume.
+ * A series takes about 400 KB, so only the first {@code maxEntities}
+ * entities get their own; decisions of later ones are counted under
+ * {@link #OTHER}.
+ */
+public class DecisionRollups implements DecisionListener {
+    
+    /**
+     * Bucket width and how many buckets are retained
+     */
+    public enum Resolution {
+        MINUTE(60_000L, 24 * 60),
+        HOUR(3_600_000L, 35 * 24),
+        DAY(86_400_000L, 400);
+        
+        public final long widthMillis;
+        public final int retainedBuckets;
+        
+        Resolution(long widthMillis, int retainedBuckets) {
+            this.widthMillis = widthMillis;
+            this.retainedBuckets = retainedBuckets;
+        }
+    }
+    
+    /** Series key aggregating every entity */
+    public static final String ALL = "*";
+    /** Series key for decisions without a responsible entity */
+    public static final String UNASSIGNED = "(unassigned)";
+    /** Series key for entities seen after the entity limit was reached */
+    public static final String OTHER = "(other)";
+    public static final int DEFAULT_MAX_ENTITIES = 128;
+    
+    private static final EthicsDecision[] DECISIONS = EthicsDecision.values();
+    private static final Pillar[] PILLARS = Pillar.values();
+    private static final int VIOLATION_BASE = DECISIONS.length;
+    private static final int WARNING_BASE = VIOLATION_BASE + PILLARS.length;
+    static final int COLUMNS = WARNING_BASE + PILLARS.length;
+    
+    private final Map<String, Series> series = new ConcurrentHashMap<>();
+    private final Series all = new Series();
+    private final Series other = new Series();
+    private final int maxEntities;
+    private final AtomicInteger entityCount = new AtomicInteger();
+    
+    public DecisionRollups() {
+        this(DEFAULT_MAX_ENTITIES);
+    }
+    
+    /**
+     * @param maxEntities entities tracked separately; the rest share {@link #OTHER}
+     */
+    public DecisionRollups(int maxEntities) {
+        if (maxEntities < 0) {
+            throw new IllegalArgumentException("maxEntities cannot be negative");
+        }
+        this.maxEntities = maxEntities;
+        series.put(ALL, all);
+        series.put(OTHER, other);
+    }
+    
+    @Override
+    public void onDecision(EthicsContext context, EthicsResult result) {
+        record(System.currentTimeMillis(), context.decision.getResponsibleEntity(), result);
+    }
+    
+    public void record(long timestamp, String entity, EthicsResult result) {
+        List<String> violations = result.getViolations();
+        List<String> warnings = result.getWarnings();
+        
+        // Classify once, then apply the same columns to every ring
+        int[] columns = new int[1 + violations.size() + warnings.size()];
+        int n = 0;
+        columns[n++] = result.getFinalDecision().ordinal();
+        for (String violation : violations) {
+            columns[n++] = VIOLATION_BASE + Pillar.fromMessage(violation).ordinal();
+        }
+        for (String warning : warnings) {
+            columns[n++] = WARNING_BASE + Pillar.fromMessage(warning).ordinal();
+        }
+        
+        String key = entity == null || entity.isBlank() ? UNASSIGNED : entity;
+        seriesFor(key).add(timestamp, columns);
+        all.add(timestamp, columns);
+    }
+    
+    private Series seriesFor(String key) {
+        Series existing = series.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        if (entityCount.get() >= maxEntities) {
+            return other;
+        }
+        Series created = series.computeIfAbsent(key, k -> {
+            // Claim a slot first so concurrent new entities cannot overshoot the limit
+            if (entityCount.incrementAndGet() > maxEntities) {
+                entityCount.decrementAndGet();
+                return null;
+            }
+            return new Series();
+        });
+        return created != null ? created : other;
+    }
+    
+    /**
+     * Returns every bucket of the given entity that overlaps [from, to),
+     * oldest first, including empty ones; buckets older than the retention
+     * window are omitted
+     * 
+     * @param entity responsible entity, or {@link #ALL}
+     */
+    public List<Bucket> query(String entity, Resolution resolution, long fromMillis, long toMillis) {
+        Series target = series.get(entity);
+        List<Bucket> buckets = new ArrayList<>();
+        if (target == null || toMillis <= fromMillis) {
+            return buckets;
+        }
+        target.rings[resolution.ordinal()].read(fromMillis, toMillis, buckets);
+        return buckets;
+    }
+    
+    /**
+     * Sums every bucket of the given entity that overlaps [from, to)
+     */
+    public Bucket total(String entity, Resolution resolution, long fromMillis, long toMillis) {
+        long[] sum = new long[COLUMNS];
+        for (Bucket bucket : query(entity, resolution, fromMillis, toMillis)) {
+            for (int i = 0; i < COLUMNS; i++) {
+                sum[i] += bucket.counts[i];
+            }
+        }
+        return new Bucket(fromMillis, sum);
+    }
+    
+    /**
+     * Entities that have their own series, plus {@link #ALL} and {@link #OTHER}
+     */
+    public Set<String> getEntities() {
+        return series.keySet();
+    }
+    
+    /**
+     * Counts for one time bucket
+     */
+    public static class Bucket {
+        public final long startMillis;
+        private final long[] counts;
+        
+        Bucket(long startMillis, long[] counts) {
+            this.startMillis = startMillis;
+            this.counts = counts;
+        }
+        
+        public long getCount(EthicsDecision decision) {
+            return counts[decision.ordinal()];
+        }
+        
+        public long getTotal() {
+            long total = 0;
+            for (int i = 0; i < VIOLATION_BASE; i++) {
+                total += counts[i];
+            }
+            return total;
+        }
+        
+        public double getBlockRate() {
+            long total = getTotal();
+            return total > 0 ? (double) getCount(EthicsDecision.BLOCK) / total : 0.0;
+        }
+        
+        public long getViolationCount(Pillar pillar) {
+            return counts[VIOLATION_BASE + pillar.ordinal()];
+        }
+        
+        public long getWarningCount(Pillar pillar) {
+            return counts[WARNING_BASE + pillar.ordinal()];
+        }
+    }
+    
+    private static final class Series {
+        final BucketRing[] rings;
+        
+        Series() {
+            Resolution[] resolutions = Resolution.values();
+            rings = new BucketRing[resolutions.length];
+            for (int i = 0; i < resolutions.length; i++) {
+                rings[i] = new BucketRing(resolutions[i]);
+            }
+        }
+        
+        void add(long timestamp, int[] columns) {
+            for (BucketRing ring : rings) {
+                ring.add(timestamp, columns);
+            }
+        }
+    }
+    
+    /**
+     * Fixed ring of buckets stored as rows of one long array
+     */
+    private static final class BucketRing {
+        private final long width;
+        private final int size;
+        private final long[] epochs;
+        private final long[] counts;
+        private long latestEpoch = Long.MIN_VALUE;
+        
+        BucketRing(Resolution resolution) {
+            this.width = resolution.widthMillis;
+            this.size = resolution.retainedBuckets;
+            this.epochs = new long[size];
+            this.counts = new long[size * COLUMNS];
+            Arrays.fill(epochs, Long.MIN_VALUE);
+        }
+        
+        synchronized void add(long timestamp, int[] columns) {
+            long epoch = Math.floorDiv(timestamp, width);
+            if (latestEpoch != Long.MIN_VALUE && epoch <= latestEpoch - size) {
+                // Older than the retained window
+                return;
+            }
+            int slot = (int) Math.floorMod(epoch, (long) size);
+            int row = slot * COLUMNS;
+            if (epochs[slot] != epoch) {
+                // Roll over: the slot still holds a bucket one lap older
+                epochs[slot] = epoch;
+                Arrays.fill(counts, row, row + COLUMNS, 0L);
+            }
+            for (int column : columns) {
+                counts[row + column]++;
+            }
+            latestEpoch = Math.max(latestEpoch, epoch);
+        }
+        
+        synchronized void read(long fromMillis, long toMillis, List<Bucket> out) {
+            if (latestEpoch == Long.MIN_VALUE) {
+                return;
+            }
+            // Only the retained window can hold data; nothing is newer than latestEpoch
+            long first = Math.max(Math.floorDiv(fromMillis, width), latestEpoch - size + 1);
+            long last = Math.min(Math.floorDiv(toMillis - 1, width), latestEpoch);
+            for (long epoch = first; epoch <= last; epoch++) {
+                int slot = (int) Math.floorMod(epoch, (long) size);
+                long[] bucket = new long[COLUMNS];
+                if (epochs[slot] == epoch) {
+                    System.arraycopy(counts, slot * COLUMNS, bucket, 0, COLUMNS);
+                }
+                out.add(new Bucket(epoch * width, bucket));
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package data;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free duration histogram with fixed bucket bounds
+ *
+ * Each bucket is its own {@link LongAdder}, so recording threads never
+ * contend on a shared cell and a reader summing the buckets never blocks
+ * them. A snapshot taken while recording continues may be off by the few
+ * samples in flight, which monitoring tolerates; the count is derived
+ * from the buckets so the two always agree. Percentiles are reported as
+ * the upper bound of their bucket.
+ */
+public class Histogram {
+    // Seconds, roughly 2.5x apart from 10 microseconds to 10 seconds
+    public static final double[] DEFAULT_BOUNDS = {
+        0.00001, 0.000025, 0.00005, 0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005,
+        0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+    
+    private final double[] bounds;
+    private final long[] boundNanos;
+    // One per bound plus the overflow bucket
+    private final LongAdder[] buckets;
+    private final LongAdder sumNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    
+    public Histogram() {
+        this(DEFAULT_BOUNDS);
+    }
+    
+    /**
+     * @param bounds bucket upper bounds in seconds, ascending
+     */
+    public Histogram(double[] bounds) {
+        for (int i = 1; i < bounds.length; i++) {
+            if (bounds[i] <= bounds[i - 1]) {
+                throw new IllegalArgumentException("Bucket bounds must ascend");
+            }
+        }
+        this.bounds = bounds.clone();
+        this.boundNanos = new long[bounds.length];
+        for (int i = 0; i < bounds.length; i++) {
+            boundNanos[i] = (long) (bounds[i] * 1e9);
+        }
+        this.buckets = new LongAdder[bounds.length + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+    
+    public void record(long nanos) {
+        int i = 0;
+        while (i < boundNanos.length && nanos > boundNanos[i]) {
+            i++;
+        }
+        buckets[i].increment();
+        sumNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+    
+    /**
+     * Bucket upper bounds in seconds, without the implicit +Inf
+     */
+    public double[] getBounds() {
+        return bounds.clone();
+    }
+    
+    /**
+     * Samples at or below each bound, with the total last
+     */
+    public long[] getCumulativeCounts() {
+        long[] counts = new long[buckets.length];
+        long running = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            running += buckets[i].sum();
+            counts[i] = running;
+        }
+        return counts;
+    }
+    
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+    
+    public double getSumSeconds() {
+        return sumNanos.sum() / 1e9;
+    }
+    
+    public double getMeanSeconds() {
+        long count = getCount();
+        return count > 0 ? getSumSeconds() / count : 0.0;
+    }
+    
+    public double getMaxSeconds() {
+        return maxNanos.get() / 1e9;
+    }
+    
+    /**
+     * Upper bound, in seconds, of the bucket holding the given percentile,
+     * never more than the largest sample
+     */
+    public double getPercentileSeconds(double percentile) {
+        long[] counts = getCumulativeCounts();
+        long total = counts[counts.length - 1];
+        if (total == 0) {
+            return 0.0;
+        }
+        long target = (long) Math.ceil(total * percentile / 100.0);
+        double max = getMaxSeconds();
+        for (int i = 0; i < bounds.length; i++) {
+            if (counts[i] >= target) {
+                return Math.min(bounds[i], max);
+            }
+        }
+        return max;
+    }
+}
@@ -0,0 +1,35 @@
+package data;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of query results plus the cursor for the next page
+ */
+public class HistoryPage {
+    /** Cursor value meaning there are no further results */
+    public static final long END = -1;
+    
+    private final List<HistoryRow> rows;
+    private final long nextCursor;
+    
+    HistoryPage(List<HistoryRow> rows, long nextCursor) {
+        this.rows = Collections.unmodifiableList(rows);
+        this.nextCursor = nextCursor;
+    }
+    
+    public List<HistoryRow> getRows() {
+        return rows;
+    }
+    
+    /**
+     * Cursor to pass to {@link HistoryQuery#after(long)}, or {@link #END}
+     */
+    public long getNextCursor() {
+        return nextCursor;
+    }
+    
+    public boolean hasMore() {
+        return nextCursor != END;
+    }
+}
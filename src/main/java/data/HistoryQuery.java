@@ -0,0 +1,64 @@
+package data;
+
+import core.EthicsDecision;
+import core.Pillar;
+
+/**
+ * Criteria and page position for a {@link ColumnarHistory#query} call
+ * Unset criteria match everything
+ */
+public class HistoryQuery {
+    public static final int DEFAULT_LIMIT = 100;
+    public static final int MAX_LIMIT = 10_000;
+    
+    EthicsDecision state;
+    String entity;
+    int violationMask;
+    long fromTimestamp = Long.MIN_VALUE;
+    long toTimestamp = Long.MAX_VALUE;
+    long cursor;
+    int limit = DEFAULT_LIMIT;
+    
+    public HistoryQuery state(EthicsDecision state) {
+        this.state = state;
+        return this;
+    }
+    
+    public HistoryQuery entity(String entity) {
+        this.entity = entity;
+        return this;
+    }
+    
+    /**
+     * Requires the pillar to be among the violations; may be called repeatedly
+     */
+    public HistoryQuery violation(Pillar pillar) {
+        this.violationMask |= 1 << pillar.ordinal();
+        return this;
+    }
+    
+    /**
+     * Restricts to decisions recorded in [from, to)
+     */
+    public HistoryQuery between(long fromTimestamp, long toTimestamp) {
+        this.fromTimestamp = fromTimestamp;
+        this.toTimestamp = toTimestamp;
+        return this;
+    }
+    
+    /**
+     * Resumes from the cursor returned with a previous page
+     */
+    public HistoryQuery after(long cursor) {
+        this.cursor = cursor;
+        return this;
+    }
+    
+    public HistoryQuery limit(int limit) {
+        if (limit <= 0 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_LIMIT);
+        }
+        this.limit = limit;
+        return this;
+    }
+}
@@ -0,0 +1,46 @@
+package data;
+
+import core.EthicsDecision;
+import core.Pillar;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * One decision materialized from the history store for a query result
+ */
+public class HistoryRow {
+    public final long ordinal;
+    public final long timestamp;
+    public final long decisionId;
+    public final EthicsDecision decision;
+    public final String responsibleEntity;
+    public final int violationMask;
+    public final int violationCount;
+    public final int warningCount;
+    
+    HistoryRow(long ordinal, long timestamp, long decisionId, EthicsDecision decision,
+               String responsibleEntity, int violationMask, int violationCount, int warningCount) {
+        this.ordinal = ordinal;
+        this.timestamp = timestamp;
+        this.decisionId = decisionId;
+        this.decision = decision;
+        this.responsibleEntity = responsibleEntity;
+        this.violationMask = violationMask;
+        this.violationCount = violationCount;
+        this.warningCount = warningCount;
+    }
+    
+    /**
+     * Pillars with at least one violation
+     */
+    public Set<Pillar> getViolatedPillars() {
+        Set<Pillar> pillars = EnumSet.noneOf(Pillar.class);
+        for (Pillar pillar : Pillar.values()) {
+            if ((violationMask & (1 << pillar.ordinal())) != 0) {
+                pillars.add(pillar);
+            }
+        }
+        return pillars;
+    }
+}
@@ -0,0 +1,466 @@
+package data;
+
+import core.EthicsDecision;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Immutable, compressed on-disk copy of one sealed {@link ColumnarHistory} chunk
+ *
+ * File layout:
+ * <pre>
+ * [int magic][int version][long firstOrdinal][int rows][long minTimestamp][long maxTimestamp]
+ * [int entityCount]([int length][UTF-8 entityName])...
+ * [int blockCount]
+ *   per block: [int firstRow][int rows][long firstTimestamp][long lastTimestamp]
+ *              [long offset][int length][int crc32]
+ * [deflated block]...
+ * </pre>
+ * A block holds up to {@link #BLOCK_ROWS} rows stored column by column:
+ * varint timestamp deltas, zigzag varint decision ID deltas, then one
+ * column each of decisions, segment-local entity codes, violation masks and
+ * counters. The block table is a sparse time index kept in memory; queries
+ * inflate only the blocks overlapping their time range and cursor.
+ */
+final class HistorySegment {
+    static final int BLOCK_ROWS = 4096;
+    
+    private static final int MAGIC = 0x52414948; // "RAIH"
+    private static final int VERSION = 1;
+    private static final EthicsDecision[] DECISIONS = EthicsDecision.values();
+    private static final int MAX_NIBBLE = 15;
+    
+    final Path file;
+    final long firstOrdinal;
+    final int rows;
+    final long minTimestamp;
+    final long maxTimestamp;
+    final long bytes;
+    private final String[] entities;
+    private final Map<String, Integer> entityCodes = new HashMap<>();
+    private final Block[] blocks;
+    
+    private HistorySegment(Path file, long firstOrdinal, int rows, long minTimestamp, long maxTimestamp,
+                           long bytes, String[] entities, Block[] blocks) {
+        this.file = file;
+        this.firstOrdinal = firstOrdinal;
+        this.rows = rows;
+        this.minTimestamp = minTimestamp;
+        this.maxTimestamp = maxTimestamp;
+        this.bytes = bytes;
+        this.entities = entities;
+        this.blocks = blocks;
+        for (int i = 0; i < entities.length; i++) {
+            entityCodes.put(entities[i], i);
+        }
+    }
+    
+    long lastOrdinal() {
+        return firstOrdinal + rows - 1;
+    }
+    
+    /**
+     * Writes a sealed chunk to a new segment file, atomically
+     */
+    static HistorySegment write(Path file, ColumnarHistory.Chunk chunk) throws IOException {
+        int rowCount = chunk.rows;
+        if (rowCount == 0) {
+            throw new IllegalArgumentException("Cannot write an empty chunk");
+        }
+        
+        // Segment-local entity dictionary, so the file stands alone
+        Map<Integer, Integer> localCodes = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        char[] localEntities = new char[rowCount];
+        for (int row = 0; row < rowCount; row++) {
+            int global = chunk.entity(row);
+            Integer local = localCodes.get(global);
+            if (local == null) {
+                local = names.size();
+                localCodes.put(global, local);
+                names.add(chunk.entityName(global));
+            }
+            localEntities[row] = (char) (int) local;
+        }
+        
+        int blockCount = (rowCount + BLOCK_ROWS - 1) / BLOCK_ROWS;
+        Block[] blocks = new Block[blockCount];
+        byte[][] payloads = new byte[blockCount][];
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            ByteArrayOutputStream raw = new ByteArrayOutputStream(BLOCK_ROWS * 16);
+            for (int b = 0; b < blockCount; b++) {
+                int first = b * BLOCK_ROWS;
+                int count = Math.min(BLOCK_ROWS, rowCount - first);
+                raw.reset();
+                encodeBlock(chunk, localEntities, first, count, raw);
+                payloads[b] = deflate(deflater, raw.toByteArray());
+                CRC32 crc = new CRC32();
+                crc.update(payloads[b]);
+                blocks[b] = new Block(first, count, chunk.timestamp(first), chunk.timestamp(first + count - 1),
+                    0, payloads[b].length, (int) crc.getValue());
+            }
+        } finally {
+            deflater.end();
+        }
+        
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(header);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(chunk.firstOrdinal);
+        out.writeInt(rowCount);
+        out.writeLong(chunk.timestamp(0));
+        out.writeLong(chunk.timestamp(rowCount - 1));
+        out.writeInt(names.size());
+        for (String name : names) {
+            byte[] utf8 = name.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(utf8.length);
+            out.write(utf8);
+        }
+        out.writeInt(blockCount);
+        long offset = header.size() + (long) blockCount * Block.BYTES;
+        for (int b = 0; b < blockCount; b++) {
+            Block block = blocks[b];
+            blocks[b] = new Block(block.firstRow, block.rows, block.firstTimestamp, block.lastTimestamp,
+                offset, block.length, block.crc);
+            blocks[b].writeTo(out);
+            offset += block.length;
+        }
+        out.flush();
+        
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(channel, ByteBuffer.wrap(header.toByteArray()));
+            for (byte[] payload : payloads) {
+                writeFully(channel, ByteBuffer.wrap(payload));
+            }
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        
+        return new HistorySegment(file, chunk.firstOrdinal, rowCount, chunk.timestamp(0),
+            chunk.timestamp(rowCount - 1), offset, names.toArray(new String[0]), blocks);
+    }
+    
+    /**
+     * Reads a segment's header and block index; blocks stay on disk
+     */
+    static HistorySegment open(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+            if (data.readInt() != MAGIC) {
+                throw new IOException("Not a history segment: " + file);
+            }
+            int version = data.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported history segment version " + version + ": " + file);
+            }
+            long firstOrdinal = data.readLong();
+            int rows = data.readInt();
+            long minTimestamp = data.readLong();
+            long maxTimestamp = data.readLong();
+            String[] entities = new String[data.readInt()];
+            for (int i = 0; i < entities.length; i++) {
+                entities[i] = readName(data, file);
+            }
+            Block[] blocks = new Block[data.readInt()];
+            for (int b = 0; b < blocks.length; b++) {
+                blocks[b] = Block.readFrom(data);
+            }
+            return new HistorySegment(file, firstOrdinal, rows, minTimestamp, maxTimestamp,
+                Files.size(file), entities, blocks);
+        }
+    }
+    
+    private static String readName(DataInputStream data, Path file) throws IOException {
+        int length = data.readInt();
+        if (length < 0 || length > Files.size(file)) {
+            throw new IOException("Corrupt entity name length " + length + ": " + file);
+        }
+        byte[] utf8 = new byte[length];
+        data.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Appends matching rows at or after the query cursor to the page until
+     * it holds query.limit rows
+     *
+     * @return the ordinal of the last row added, or -1 if none were
+     */
+    long query(HistoryQuery query, List<HistoryRow> page) throws IOException {
+        int entityCode = -1;
+        if (query.entity != null) {
+            Integer code = entityCodes.get(query.entity);
+            if (code == null) {
+                return -1;
+            }
+            entityCode = code;
+        }
+        int decision = query.state != null ? query.state.ordinal() : -1;
+        
+        long last = -1;
+        int first = firstBlock(query.cursor, query.fromTimestamp);
+        if (first == blocks.length) {
+            return -1;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Inflater inflater = new Inflater();
+            try {
+                byte[] raw = new byte[BLOCK_ROWS * 26];
+                DecodedBlock decoded = new DecodedBlock();
+                for (int b = first; b < blocks.length; b++) {
+                    Block block = blocks[b];
+                    if (block.firstTimestamp >= query.toTimestamp) {
+                        break;
+                    }
+                    decoded.decode(readBlock(channel, block, inflater, raw), block);
+                    for (int i = 0; i < block.rows; i++) {
+                        long ordinal = firstOrdinal + block.firstRow + i;
+                        long timestamp = decoded.timestamps[i];
+                        if (ordinal < query.cursor || timestamp < query.fromTimestamp) {
+                            continue;
+                        }
+                        if (timestamp >= query.toTimestamp) {
+                            return last;
+                        }
+                        int mask = decoded.masks[i] & 0xFF;
+                        if ((decision >= 0 && decoded.decisions[i] != decision)
+                                || (entityCode >= 0 && decoded.entities[i] != entityCode)
+                                || (mask & query.violationMask) != query.violationMask) {
+                            continue;
+                        }
+                        int packed = decoded.counters[i] & 0xFF;
+                        page.add(new HistoryRow(ordinal, timestamp, decoded.ids[i], DECISIONS[decoded.decisions[i]],
+                            entities[decoded.entities[i]], mask, packed >>> 4, packed & MAX_NIBBLE));
+                        last = ordinal;
+                        if (page.size() == query.limit) {
+                            return last;
+                        }
+                    }
+                }
+            } finally {
+                inflater.end();
+            }
+        }
+        return last;
+    }
+    
+    /**
+     * Binary search of the sparse index for the first block that ends at or
+     * after both the cursor and the timestamp
+     */
+    private int firstBlock(long cursor, long fromTimestamp) {
+        int low = 0;
+        int high = blocks.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            Block block = blocks[mid];
+            if (firstOrdinal + block.firstRow + block.rows <= cursor || block.lastTimestamp < fromTimestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    private ByteBuffer readBlock(FileChannel channel, Block block, Inflater inflater, byte[] raw)
+            throws IOException {
+        ByteBuffer compressed = ByteBuffer.allocate(block.length);
+        long position = block.offset;
+        while (compressed.hasRemaining()) {
+            int read = channel.read(compressed, position);
+            if (read < 0) {
+                throw new IOException("Truncated history segment: " + file);
+            }
+            position += read;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(compressed.array());
+        if ((int) crc.getValue() != block.crc) {
+            throw new IOException("Corrupt block at offset " + block.offset + " in " + file);
+        }
+        inflater.reset();
+        inflater.setInput(compressed.array());
+        try {
+            int length = 0;
+            while (!inflater.finished() && length < raw.length) {
+                int n = inflater.inflate(raw, length, raw.length - length);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += n;
+            }
+            return ByteBuffer.wrap(raw, 0, length);
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt block at offset " + block.offset + " in " + file, e);
+        }
+    }
+    
+    private static void encodeBlock(ColumnarHistory.Chunk chunk, char[] localEntities, int first, int count,
+                                    ByteArrayOutputStream out) {
+        long previous = chunk.timestamp(first);
+        for (int row = first; row < first + count; row++) {
+            long timestamp = chunk.timestamp(row);
+            writeVarLong(out, timestamp - previous);
+            previous = timestamp;
+        }
+        previous = 0;
+        for (int row = first; row < first + count; row++) {
+            long id = chunk.decisionId(row);
+            long delta = id - previous;
+            writeVarLong(out, (delta << 1) ^ (delta >> 63));
+            previous = id;
+        }
+        for (int row = first; row < first + count; row++) {
+            out.write(chunk.decision(row));
+        }
+        for (int row = first; row < first + count; row++) {
+            out.write(localEntities[row] >>> 8);
+            out.write(localEntities[row]);
+        }
+        for (int row = first; row < first + count; row++) {
+            out.write(chunk.violationMask(row));
+        }
+        for (int row = first; row < first + count; row++) {
+            out.write(chunk.counters(row));
+        }
+    }
+    
+    private static void writeVarLong(OutputStream out, long value) {
+        try {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+    
+    private static byte[] deflate(Deflater deflater, byte[] raw) {
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 4 + 64);
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+            out.write(buffer, 0, deflater.deflate(buffer));
+        }
+        return out.toByteArray();
+    }
+    
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+    
+    /**
+     * Sparse index entry for one compressed block
+     */
+    private static final class Block {
+        static final int BYTES = 4 + 4 + 8 + 8 + 8 + 4 + 4;
+        
+        final int firstRow;
+        final int rows;
+        final long firstTimestamp;
+        final long lastTimestamp;
+        final long offset;
+        final int length;
+        final int crc;
+        
+        Block(int firstRow, int rows, long firstTimestamp, long lastTimestamp, long offset, int length, int crc) {
+            this.firstRow = firstRow;
+            this.rows = rows;
+            this.firstTimestamp = firstTimestamp;
+            this.lastTimestamp = lastTimestamp;
+            this.offset = offset;
+            this.length = length;
+            this.crc = crc;
+        }
+        
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeInt(firstRow);
+            out.writeInt(rows);
+            out.writeLong(firstTimestamp);
+            out.writeLong(lastTimestamp);
+            out.writeLong(offset);
+            out.writeInt(length);
+            out.writeInt(crc);
+        }
+        
+        static Block readFrom(DataInputStream in) throws IOException {
+            return new Block(in.readInt(), in.readInt(), in.readLong(), in.readLong(),
+                in.readLong(), in.readInt(), in.readInt());
+        }
+    }
+    
+    /**
+     * Reusable column arrays for one inflated block
+     */
+    private static final class DecodedBlock {
+        final long[] timestamps = new long[BLOCK_ROWS];
+        final long[] ids = new long[BLOCK_ROWS];
+        final byte[] decisions = new byte[BLOCK_ROWS];
+        final char[] entities = new char[BLOCK_ROWS];
+        final byte[] masks = new byte[BLOCK_ROWS];
+        final byte[] counters = new byte[BLOCK_ROWS];
+        
+        void decode(ByteBuffer in, Block block) {
+            long timestamp = block.firstTimestamp;
+            for (int i = 0; i < block.rows; i++) {
+                timestamp += readVarLong(in);
+                timestamps[i] = timestamp;
+            }
+            long id = 0;
+            for (int i = 0; i < block.rows; i++) {
+                long zigzag = readVarLong(in);
+                id += (zigzag >>> 1) ^ -(zigzag & 1);
+                ids[i] = id;
+            }
+            in.get(decisions, 0, block.rows);
+            for (int i = 0; i < block.rows; i++) {
+                entities[i] = in.getChar();
+            }
+            in.get(masks, 0, block.rows);
+            in.get(counters, 0, block.rows);
+        }
+    }
+}
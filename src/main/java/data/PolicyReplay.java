@@ -0,0 +1,221 @@
+package data;
+
+import config.EthicsPolicy;
+import config.PolicyLoader;
+import core.EthicsDecision;
+import core.EthicsEngine;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Re-evaluates recorded decisions against candidate policies in parallel
+ * 
+ * The record array is split recursively across a fork-join pool; each leaf
+ * evaluates its slice against every candidate and the partial transition
+ * counts are summed on the way back up. A capture file is read in batches
+ * of {@value #BATCH_SIZE} records, so memory stays bounded however long the
+ * capture is. Used to tune thresholds such as maxBias against real traffic
+ * before rolling them out.
+ */
+public class PolicyReplay {
+    private static final int DECISION_COUNT = EthicsDecision.values().length;
+    // Large enough to amortize task overhead, small enough to balance load
+    private static final int LEAF_SIZE = 2048;
+    // Records held in memory at once when replaying a capture file
+    static final int BATCH_SIZE = 64 * 1024;
+    
+    private final EthicsEngine engine;
+    private final ForkJoinPool pool;
+    private final int maxExamples;
+    
+    public PolicyReplay() {
+        this(new EthicsEngine(), ForkJoinPool.commonPool(), 20);
+    }
+    
+    /**
+     * @param engine engine whose pillar modules are used; its statistics and
+     *        listeners are not touched
+     * @param pool pool to run the replay on
+     * @param maxExamples flipped decisions to keep per candidate
+     */
+    public PolicyReplay(EthicsEngine engine, ForkJoinPool pool, int maxExamples) {
+        this.engine = engine;
+        this.pool = pool;
+        this.maxExamples = maxExamples;
+    }
+    
+    /**
+     * Replays every record against each candidate policy
+     * 
+     * @param candidates policies keyed by display name, in report order
+     */
+    public ReplayReport replay(List<DecisionRecord> records, Map<String, EthicsPolicy> candidates) {
+        EthicsPolicy[] policies = candidates.values().toArray(new EthicsPolicy[0]);
+        
+        long start = System.nanoTime();
+        Partial total = replayBatch(records.toArray(new DecisionRecord[0]), 0, policies);
+        return report(candidates, total, records.size(), System.nanoTime() - start);
+    }
+    
+    /**
+     * Replays every record in a capture file against each candidate policy,
+     * reading it in bounded batches
+     * 
+     * @param candidates policies keyed by display name, in report order
+     */
+    public ReplayReport replay(Path captureFile, Map<String, EthicsPolicy> candidates) throws IOException {
+        EthicsPolicy[] policies = candidates.values().toArray(new EthicsPolicy[0]);
+        Partial total = new Partial(policies.length);
+        List<DecisionRecord> batch = new ArrayList<>();
+        long[] replayed = new long[1];
+        
+        long start = System.nanoTime();
+        long count = DecisionRecordLog.forEach(captureFile, record -> {
+            batch.add(record);
+            if (batch.size() == BATCH_SIZE) {
+                total.merge(replayBatch(batch.toArray(new DecisionRecord[0]), replayed[0], policies));
+                replayed[0] += batch.size();
+                batch.clear();
+            }
+        });
+        total.merge(replayBatch(batch.toArray(new DecisionRecord[0]), replayed[0], policies));
+        return report(candidates, total, count, System.nanoTime() - start);
+    }
+    
+    /**
+     * @param firstIndex position of the first record in the whole replay,
+     *        used to number flip examples
+     */
+    private Partial replayBatch(DecisionRecord[] records, long firstIndex, EthicsPolicy[] policies) {
+        return records.length == 0
+            ? new Partial(policies.length)
+            : pool.invoke(new ReplayTask(records, firstIndex, policies, 0, records.length));
+    }
+    
+    private static ReplayReport report(Map<String, EthicsPolicy> candidates, Partial total, long recordCount,
+                                       long elapsedNanos) {
+        List<ReplayReport.CandidateResult> results = new ArrayList<>();
+        int i = 0;
+        for (String name : candidates.keySet()) {
+            results.add(new ReplayReport.CandidateResult(name, total.transitions[i], total.examples.get(i)));
+            i++;
+        }
+        return new ReplayReport(recordCount, elapsedNanos, results);
+    }
+    
+    /**
+     * Command line entry point
+     * Usage: PolicyReplay &lt;capture file&gt; &lt;candidate.yaml&gt;...
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: PolicyReplay <capture file> <candidate-policy.yaml>...");
+            System.exit(2);
+        }
+        
+        Map<String, EthicsPolicy> candidates = new LinkedHashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            Path file = Paths.get(args[i]);
+            candidates.put(file.getFileName().toString(), PolicyLoader.load(file));
+        }
+        
+        System.out.print(new PolicyReplay().replay(Paths.get(args[0]), candidates).summary());
+    }
+    
+    /**
+     * Per-slice accumulator: transition counts and flip examples per candidate
+     */
+    private final class Partial {
+        final long[][][] transitions;
+        final List<List<ReplayReport.Flip>> examples;
+        
+        Partial(int candidateCount) {
+            transitions = new long[candidateCount][DECISION_COUNT][DECISION_COUNT];
+            examples = new ArrayList<>(candidateCount);
+            for (int i = 0; i < candidateCount; i++) {
+                examples.add(new ArrayList<>());
+            }
+        }
+        
+        /**
+         * Adds the right-hand slice; examples stay in record order
+         */
+        Partial merge(Partial other) {
+            for (int c = 0; c < transitions.length; c++) {
+                for (int from = 0; from < DECISION_COUNT; from++) {
+                    for (int to = 0; to < DECISION_COUNT; to++) {
+                        transitions[c][from][to] += other.transitions[c][from][to];
+                    }
+                }
+                List<ReplayReport.Flip> mine = examples.get(c);
+                for (ReplayReport.Flip flip : other.examples.get(c)) {
+                    if (mine.size() >= maxExamples) {
+                        break;
+                    }
+                    mine.add(flip);
+                }
+            }
+            return this;
+        }
+    }
+    
+    private final class ReplayTask extends RecursiveTask<Partial> {
+        // Tasks run in one pool and are never serialized
+        private static final long serialVersionUID = 1L;
+        
+        private final DecisionRecord[] records;
+        private final long firstIndex;
+        private final EthicsPolicy[] policies;
+        private final int from;
+        private final int to;
+        
+        ReplayTask(DecisionRecord[] records, long firstIndex, EthicsPolicy[] policies, int from, int to) {
+            this.records = records;
+            this.firstIndex = firstIndex;
+            this.policies = policies;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected Partial compute() {
+            if (to - from <= LEAF_SIZE) {
+                return replaySlice();
+            }
+            int mid = (from + to) >>> 1;
+            ReplayTask left = new ReplayTask(records, firstIndex, policies, from, mid);
+            ReplayTask right = new ReplayTask(records, firstIndex, policies, mid, to);
+            left.fork();
+            Partial rightResult = right.compute();
+            return left.join().merge(rightResult);
+        }
+        
+        private Partial replaySlice() {
+            Partial partial = new Partial(policies.length);
+            for (int i = from; i < to; i++) {
+                DecisionRecord record = records[i];
+                int recorded = record.outcome.ordinal();
+                
+                for (int c = 0; c < policies.length; c++) {
+                    // Fresh context per evaluation: the pillar modules mutate it
+                    EthicsDecision replayed = engine.evaluate(record.toContext(), policies[c]).getFinalDecision();
+                    partial.transitions[c][recorded][replayed.ordinal()]++;
+                    
+                    List<ReplayReport.Flip> examples = partial.examples.get(c);
+                    if (replayed != record.outcome && examples.size() < maxExamples) {
+                        examples.add(new ReplayReport.Flip(firstIndex + i, record, record.outcome, replayed));
+                    }
+                }
+            }
+            return partial;
+        }
+    }
+}
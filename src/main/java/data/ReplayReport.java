@@ -0,0 +1,145 @@
+package data;
+
+import core.EthicsDecision;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Aggregate outcome deltas of replaying recorded decisions against
+ * candidate policies, with a sample of decisions whose outcome flipped
+ */
+public class ReplayReport {
+    private static final EthicsDecision[] DECISIONS = EthicsDecision.values();
+    
+    private final long recordCount;
+    private final long elapsedNanos;
+    private final List<CandidateResult> candidates;
+    
+    ReplayReport(long recordCount, long elapsedNanos, List<CandidateResult> candidates) {
+        this.recordCount = recordCount;
+        this.elapsedNanos = elapsedNanos;
+        this.candidates = Collections.unmodifiableList(candidates);
+    }
+    
+    public long getRecordCount() {
+        return recordCount;
+    }
+    
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+    
+    public List<CandidateResult> getCandidates() {
+        return candidates;
+    }
+    
+    public CandidateResult getCandidate(String name) {
+        for (CandidateResult candidate : candidates) {
+            if (candidate.name.equals(name)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Human-readable summary suitable for printing
+     */
+    public String summary() {
+        StringBuilder text = new StringBuilder();
+        double seconds = elapsedNanos / 1_000_000_000.0;
+        text.append(String.format("Replayed %,d decisions in %.2f s (%,.0f evaluations/s)%n",
+            recordCount, seconds, seconds > 0 ? recordCount * candidates.size() / seconds : 0.0));
+        
+        for (CandidateResult candidate : candidates) {
+            text.append(String.format("%nCandidate '%s': %,d flips%n", candidate.name, candidate.getFlipCount()));
+            for (EthicsDecision decision : DECISIONS) {
+                text.append(String.format("  %-8s recorded %,12d  replayed %,12d  delta %+,d%n",
+                    decision, candidate.getRecordedCount(decision),
+                    candidate.getReplayedCount(decision), candidate.getDelta(decision)));
+            }
+            for (Flip flip : candidate.examples) {
+                text.append(String.format("  #%d %s -> %s: '%s' (%s)%n", flip.recordIndex, flip.from, flip.to,
+                    flip.record.decisionLabel, flip.record.responsibleEntity));
+            }
+        }
+        return text.toString();
+    }
+    
+    /**
+     * Replay outcome for one candidate policy
+     */
+    public static class CandidateResult {
+        public final String name;
+        private final long[][] transitions;
+        private final List<Flip> examples;
+        
+        CandidateResult(String name, long[][] transitions, List<Flip> examples) {
+            this.name = name;
+            this.transitions = transitions;
+            this.examples = Collections.unmodifiableList(new ArrayList<>(examples));
+        }
+        
+        /**
+         * Number of decisions recorded as {@code from} that replayed as {@code to}
+         */
+        public long getTransitionCount(EthicsDecision from, EthicsDecision to) {
+            return transitions[from.ordinal()][to.ordinal()];
+        }
+        
+        public long getRecordedCount(EthicsDecision decision) {
+            long count = 0;
+            for (long value : transitions[decision.ordinal()]) {
+                count += value;
+            }
+            return count;
+        }
+        
+        public long getReplayedCount(EthicsDecision decision) {
+            long count = 0;
+            for (long[] row : transitions) {
+                count += row[decision.ordinal()];
+            }
+            return count;
+        }
+        
+        public long getDelta(EthicsDecision decision) {
+            return getReplayedCount(decision) - getRecordedCount(decision);
+        }
+        
+        public long getFlipCount() {
+            long flips = 0;
+            for (int from = 0; from < transitions.length; from++) {
+                for (int to = 0; to < transitions[from].length; to++) {
+                    if (from != to) {
+                        flips += transitions[from][to];
+                    }
+                }
+            }
+            return flips;
+        }
+        
+        public List<Flip> getExamples() {
+            return examples;
+        }
+    }
+    
+    /**
+     * A recorded decision whose outcome changed under a candidate policy
+     */
+    public static class Flip {
+        public final long recordIndex;
+        public final DecisionRecord record;
+        public final EthicsDecision from;
+        public final EthicsDecision to;
+        
+        Flip(long recordIndex, DecisionRecord record, EthicsDecision from, EthicsDecision to) {
+            this.recordIndex = recordIndex;
+            this.record = record;
+            this.from = from;
+            this.to = to;
+        }
+    }
+}
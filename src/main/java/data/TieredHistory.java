@@ -0,0 +1,366 @@
+package data;
+
+import core.DecisionListener;
+import core.EthicsContext;
+import core.EthicsDecision;
+import core.EthicsResult;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Decision history split into a hot in-memory tier and a cold on-disk tier
+ *
+ * New decisions go to a {@link ColumnarHistory}. A background compactor
+ * writes each sealed chunk that has aged out of the hot window to an
+ * immutable, compressed {@link HistorySegment} file, publishes it, and only
+ * then evicts the chunk from memory; segments older than the retention
+ * period are deleted. The compactor swaps chunk and segment lists with
+ * CAS and never takes the writer's lock, so {@link #record} is not blocked
+ * by compression or disk I/O.
+ *
+ * Queries read the hot chunk list before the segment list. Because a
+ * segment is published before its chunk is evicted, every row is found in
+ * exactly one of the two snapshots.
+ */
+public class TieredHistory implements DecisionListener, Closeable {
+    
+    /**
+     * How long decisions stay in memory and on disk
+     */
+    public static class Retention {
+        /** Seven years, the compliance minimum for decision records */
+        public static final Retention DEFAULT = new Retention(Duration.ofDays(3), 64, Duration.ofDays(7 * 366));
+        
+        public final long hotMillis;
+        public final int maxHotChunks;
+        public final long retainMillis;
+        
+        /**
+         * @param hot age after which a sealed chunk moves to disk
+         * @param maxHotChunks sealed chunks kept in memory regardless of age
+         * @param retain age after which a segment is deleted
+         */
+        public Retention(Duration hot, int maxHotChunks, Duration retain) {
+            if (hot.isNegative() || retain.compareTo(hot) < 0 || maxHotChunks < 0) {
+                throw new IllegalArgumentException("Retention must outlast the hot window");
+            }
+            this.hotMillis = hot.toMillis();
+            this.maxHotChunks = maxHotChunks;
+            this.retainMillis = retain.toMillis();
+        }
+    }
+    
+    private static final String SEGMENT_PREFIX = "history-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    
+    private final ColumnarHistory hot = new ColumnarHistory();
+    private final Path directory;
+    private final Retention retention;
+    private final long compactIntervalMillis;
+    
+    // Written only under compactLock; read without locking
+    private final Object compactLock = new Object();
+    private volatile HistorySegment[] segments;
+    private volatile IOException lastError;
+    private volatile boolean closed;
+    
+    private final Thread compactor;
+    
+    public TieredHistory(Path directory) throws IOException {
+        this(directory, Retention.DEFAULT, 10_000);
+    }
+    
+    /**
+     * Opens or creates a tiered history, reloading existing segments
+     *
+     * @param compactIntervalMillis pause between compaction passes, or 0
+     *        to compact only when {@link #compact(long)} is called
+     */
+    public TieredHistory(Path directory, Retention retention, long compactIntervalMillis) throws IOException {
+        this.directory = directory;
+        this.retention = retention;
+        this.compactIntervalMillis = compactIntervalMillis;
+        
+        Files.createDirectories(directory);
+        List<HistorySegment> loaded = new ArrayList<>();
+        for (Path file : listFiles(directory)) {
+            if (file.getFileName().toString().endsWith(".tmp")) {
+                // Left behind by a compaction that did not finish
+                Files.deleteIfExists(file);
+            } else {
+                loaded.add(HistorySegment.open(file));
+            }
+        }
+        segments = loaded.toArray(new HistorySegment[0]);
+        if (!loaded.isEmpty()) {
+            HistorySegment last = loaded.get(loaded.size() - 1);
+            hot.resumeAfter(last.lastOrdinal(), last.maxTimestamp);
+        }
+        
+        if (compactIntervalMillis > 0) {
+            this.compactor = new Thread(this::compactLoop, "history-compactor");
+            this.compactor.setDaemon(true);
+            this.compactor.start();
+        } else {
+            this.compactor = null;
+        }
+    }
+    
+    @Override
+    public void onDecision(EthicsContext context, EthicsResult result) {
+        hot.onDecision(context, result);
+    }
+    
+    public void record(long timestamp, String entity, EthicsResult result) {
+        hot.record(timestamp, entity, result);
+    }
+    
+    /**
+     * @see ColumnarHistory#append
+     */
+    public long append(long timestamp, long decisionId, EthicsDecision decision, String entity,
+                       int violationMask, int violationCount, int warningCount) {
+        return hot.append(timestamp, decisionId, decision, entity, violationMask, violationCount, warningCount);
+    }
+    
+    /**
+     * Returns one page of rows matching the query from both tiers, in ordinal order
+     */
+    public HistoryPage query(HistoryQuery query) {
+        ColumnarHistory.Chunk[] hotChunks = hot.snapshot();
+        HistorySegment[] cold = segments;
+        long hotFirst = hotChunks.length > 0 ? hotChunks[0].firstOrdinal : Long.MAX_VALUE;
+        
+        List<HistoryRow> rows = new ArrayList<>(Math.min(query.limit, 256));
+        for (int i = firstSegment(cold, query.cursor, query.fromTimestamp); i < cold.length; i++) {
+            HistorySegment segment = cold[i];
+            if (segment.firstOrdinal >= hotFirst || segment.minTimestamp >= query.toTimestamp) {
+                break;
+            }
+            long last;
+            try {
+                last = segment.query(query, rows);
+            } catch (NoSuchFileException e) {
+                // Expired while we were reading
+                continue;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (rows.size() == query.limit) {
+                return new HistoryPage(rows, last + 1);
+            }
+        }
+        return hot.query(query, hotChunks, rows);
+    }
+    
+    /**
+     * Binary search for the first segment that may hold rows at or after
+     * both the cursor ordinal and the timestamp
+     */
+    private static int firstSegment(HistorySegment[] cold, long cursor, long fromTimestamp) {
+        int low = 0;
+        int high = cold.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cold[mid].lastOrdinal() < cursor || cold[mid].maxTimestamp < fromTimestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    /**
+     * Moves aged-out chunks to disk and deletes expired segments; the open
+     * chunk is sealed first if nothing has been appended to it within the
+     * hot window
+     *
+     * @return the number of chunks moved to disk
+     */
+    public int compact(long now) throws IOException {
+        return compact(now, false);
+    }
+    
+    private int compact(long now, boolean everything) throws IOException {
+        synchronized (compactLock) {
+            int moved = 0;
+            hot.sealIdle(now - retention.hotMillis);
+            ColumnarHistory.Chunk[] current = hot.snapshot();
+            int sealed = 0;
+            for (ColumnarHistory.Chunk chunk : current) {
+                if (chunk.sealed) {
+                    sealed++;
+                }
+            }
+            for (ColumnarHistory.Chunk chunk : current) {
+                if (!chunk.sealed) {
+                    break;
+                }
+                int rows = chunk.rows;
+                boolean aged = rows > 0 && chunk.timestamp(rows - 1) < now - retention.hotMillis;
+                if (!everything && !aged && sealed - moved <= retention.maxHotChunks) {
+                    break;
+                }
+                if (rows > 0) {
+                    Path file = directory.resolve(String.format("%s%016d%s",
+                        SEGMENT_PREFIX, chunk.firstOrdinal, SEGMENT_SUFFIX));
+                    HistorySegment segment = HistorySegment.write(file, chunk);
+                    HistorySegment[] published = Arrays.copyOf(segments, segments.length + 1);
+                    published[segments.length] = segment;
+                    segments = published;
+                }
+                hot.evict(chunk);
+                moved++;
+            }
+            expire(now);
+            return moved;
+        }
+    }
+    
+    // Guarded by compactLock
+    private void expire(long now) throws IOException {
+        HistorySegment[] current = segments;
+        int expired = 0;
+        while (expired < current.length && current[expired].maxTimestamp < now - retention.retainMillis) {
+            expired++;
+        }
+        if (expired == 0) {
+            return;
+        }
+        segments = Arrays.copyOfRange(current, expired, current.length);
+        for (int i = 0; i < expired; i++) {
+            Files.deleteIfExists(current[i].file);
+        }
+    }
+    
+    /**
+     * Rows held in memory
+     */
+    public long getHotRowCount() {
+        long rows = 0;
+        for (ColumnarHistory.Chunk chunk : hot.snapshot()) {
+            rows += chunk.rows;
+        }
+        return rows;
+    }
+    
+    /**
+     * Rows held in on-disk segments
+     */
+    public long getColdRowCount() {
+        long rows = 0;
+        for (HistorySegment segment : segments) {
+            rows += segment.rows;
+        }
+        return rows;
+    }
+    
+    public long getRowCount() {
+        // Same ordering as query, so a chunk mid-compaction is counted once
+        ColumnarHistory.Chunk[] hotChunks = hot.snapshot();
+        long hotFirst = hotChunks.length > 0 ? hotChunks[0].firstOrdinal : Long.MAX_VALUE;
+        long rows = 0;
+        for (ColumnarHistory.Chunk chunk : hotChunks) {
+            rows += chunk.rows;
+        }
+        for (HistorySegment segment : segments) {
+            if (segment.firstOrdinal < hotFirst) {
+                rows += segment.rows;
+            }
+        }
+        return rows;
+    }
+    
+    public int getSegmentCount() {
+        return segments.length;
+    }
+    
+    /**
+     * Approximate heap used by the hot tier
+     */
+    public long getHotBytes() {
+        return hot.estimateBytes();
+    }
+    
+    /**
+     * Bytes on disk used by the cold tier
+     */
+    public long getColdBytes() {
+        long bytes = 0;
+        for (HistorySegment segment : segments) {
+            bytes += segment.bytes;
+        }
+        return bytes;
+    }
+    
+    /**
+     * The error from the most recent failed background compaction, if any
+     */
+    public IOException getLastError() {
+        return lastError;
+    }
+    
+    /**
+     * Stops the compactor and writes every hot row, including the open
+     * chunk, to disk
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (compactor != null) {
+            compactor.interrupt();
+            try {
+                compactor.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        hot.seal();
+        compact(System.currentTimeMillis(), true);
+    }
+    
+    private void compactLoop() {
+        while (!closed) {
+            try {
+                Thread.sleep(compactIntervalMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                compact(System.currentTimeMillis());
+                lastError = null;
+            } catch (IOException e) {
+                // Chunks stay hot; retry on the next pass
+                lastError = e;
+            }
+        }
+    }
+    
+    private static List<Path> listFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                .filter(file -> {
+                    String name = file.getFileName().toString();
+                    return name.startsWith(SEGMENT_PREFIX)
+                        && (name.endsWith(SEGMENT_SUFFIX) || name.endsWith(SEGMENT_SUFFIX + ".tmp"));
+                })
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package governance;
 
+import core.EthicsContext;
 import core.EthicsResult;
 import core.EthicsDecision;
 import data.DecisionHistory;
@@ -10,9 +11,33 @@ import data.DecisionHistory;
  */
 public class ApprovalWorkflow {
     private DecisionHistory history;
+    private final ReviewQueue reviewQueue;
     
     public ApprovalWorkflow() {
+        this(null);
+    }
+    
+    /**
+     * @param reviewQueue queue for escalated decisions, or null to decide
+     *        them immediately from the approver's role
+     */
+    public ApprovalWorkflow(ReviewQueue reviewQueue) {
         this.history = new DecisionHistory();
+        this.reviewQueue = reviewQueue;
+    }
+    
+    /**
+     * Like {@link #approve(EthicsResult, Role)}, except that with a review
+     * queue an escalated decision is queued for a human reviewer and stays
+     * unapproved until the review completes
+     */
+    public boolean approve(EthicsContext context, EthicsResult result, Role approverRole) {
+        if (reviewQueue == null || !result.requiresEscalation()) {
+            return approve(result, approverRole);
+        }
+        history.record(result);
+        reviewQueue.submit(context, result, System.currentTimeMillis());
+        return false;
     }
     
     /**
@@ -45,4 +70,8 @@ public class ApprovalWorkflow {
     public DecisionHistory getHistory() {
         return history;
     }
+    
+    public ReviewQueue getReviewQueue() {
+        return reviewQueue;
+    }
 }
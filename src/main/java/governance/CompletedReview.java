@@ -0,0 +1,21 @@
+package governance;
+
+/**
+ * A reviewer's decision on an escalated item, as kept in the review history
+ */
+public class CompletedReview {
+    public final long decisionId;
+    /** Role the item was queued for */
+    public final Role role;
+    public final String reviewer;
+    public final boolean approved;
+    public final long completedAt;
+    
+    CompletedReview(long decisionId, Role role, String reviewer, boolean approved, long completedAt) {
+        this.decisionId = decisionId;
+        this.role = role;
+        this.reviewer = reviewer;
+        this.approved = approved;
+        this.completedAt = completedAt;
+    }
+}
@@ -0,0 +1,210 @@
+package governance;
+
+import core.EthicsResult;
+import core.Pillar;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Open escalations that look alike closely enough to review together
+ *
+ * Members share a {@link Signature} and a required role; the group's ID is
+ * the signature's 64-bit hash, so finding an escalation's group is one hash
+ * lookup in its role's shard.
+ */
+public class ReviewGroup {
+    public final long id;
+    public final Role role;
+    public final Signature signature;
+    
+    private final Set<Long> members = ConcurrentHashMap.newKeySet();
+    
+    // Guarded by this; a retired group has been removed from the index
+    private boolean retired;
+    
+    ReviewGroup(long id, Role role, Signature signature) {
+        this.id = id;
+        this.role = role;
+        this.signature = signature;
+    }
+    
+    public int size() {
+        return members.size();
+    }
+    
+    /**
+     * Decision IDs of the current members
+     */
+    public List<Long> getMembers() {
+        return new ArrayList<>(members);
+    }
+    
+    /**
+     * @return false if the group was retired and a new one must be created
+     */
+    synchronized boolean add(long decisionId) {
+        if (retired) {
+            return false;
+        }
+        members.add(decisionId);
+        return true;
+    }
+    
+    /**
+     * Removes a member, retiring the group when it empties
+     *
+     * @return true if the group is now retired
+     */
+    synchronized boolean remove(long decisionId) {
+        members.remove(decisionId);
+        if (members.isEmpty()) {
+            retired = true;
+        }
+        return retired;
+    }
+    
+    /**
+     * What makes two escalations near-identical: the same label class,
+     * responsible entity, escalation reason, violated and warned pillars,
+     * and confidence within the same 0.05 bucket
+     */
+    public static final class Signature {
+        public static final int NO_CONFIDENCE = -1;
+        private static final double BUCKET_WIDTH = 0.05;
+        
+        public final String labelClass;
+        public final String entity;
+        public final String reason;
+        /** Bit {@code c} set for pillar code {@code c} */
+        public final int violationCodes;
+        public final int warningCodes;
+        public final int confidenceBucket;
+        private final long hash;
+        
+        public Signature(String labelClass, String entity, String reason, int violationCodes, int warningCodes,
+                         int confidenceBucket) {
+            this.labelClass = labelClass != null ? labelClass : "";
+            this.entity = entity != null ? entity : "";
+            this.reason = reason != null ? reason : "";
+            this.violationCodes = violationCodes;
+            this.warningCodes = warningCodes;
+            this.confidenceBucket = confidenceBucket;
+            this.hash = computeHash();
+        }
+        
+        static Signature of(String label, String entity, EthicsResult result, double confidence) {
+            return new Signature(labelClass(label), entity, result.getEscalationReason(),
+                pillarCodes(result.getViolations()), pillarCodes(result.getWarnings()),
+                (int) Math.floor(confidence / BUCKET_WIDTH));
+        }
+        
+        /**
+         * Normalizes a decision label so labels differing only in case,
+         * spacing or embedded numbers (IDs, amounts) fall in one class
+         */
+        static String labelClass(String label) {
+            if (label == null) {
+                return "";
+            }
+            StringBuilder normalized = new StringBuilder(label.length());
+            boolean lastWasSpace = true;
+            boolean lastWasDigit = false;
+            for (int i = 0; i < label.length(); i++) {
+                char c = label.charAt(i);
+                if (Character.isDigit(c)) {
+                    if (!lastWasDigit) {
+                        normalized.append('#');
+                    }
+                    lastWasDigit = true;
+                    lastWasSpace = false;
+                } else if (Character.isWhitespace(c) || c == '_' || c == '-') {
+                    if (!lastWasSpace) {
+                        normalized.append(' ');
+                    }
+                    lastWasSpace = true;
+                    lastWasDigit = false;
+                } else {
+                    normalized.append(Character.toLowerCase(c));
+                    lastWasSpace = false;
+                    lastWasDigit = false;
+                }
+            }
+            int end = normalized.length();
+            while (end > 0 && normalized.charAt(end - 1) == ' ') {
+                end--;
+            }
+            return normalized.substring(0, end);
+        }
+        
+        private static int pillarCodes(List<String> messages) {
+            int codes = 0;
+            for (String message : messages) {
+                codes |= 1 << Pillar.fromMessage(message).getCode();
+            }
+            return codes;
+        }
+        
+        /**
+         * 64-bit FNV-1a over every field
+         */
+        private long computeHash() {
+            long h = 0xcbf29ce484222325L;
+            h = mix(h, labelClass);
+            h = mix(h, entity);
+            h = mix(h, reason);
+            h = mix(h, violationCodes);
+            h = mix(h, warningCodes);
+            return mix(h, confidenceBucket);
+        }
+        
+        private static long mix(long h, String s) {
+            for (int i = 0; i < s.length(); i++) {
+                h = (h ^ s.charAt(i)) * 0x100000001b3L;
+            }
+            // Separator, so ("ab", "c") and ("a", "bc") differ
+            return (h ^ 0xFFFF) * 0x100000001b3L;
+        }
+        
+        private static long mix(long h, int value) {
+            for (int shift = 0; shift < 32; shift += 8) {
+                h = (h ^ ((value >>> shift) & 0xFF)) * 0x100000001b3L;
+            }
+            return h;
+        }
+        
+        public long hash() {
+            return hash;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Signature)) {
+                return false;
+            }
+            Signature other = (Signature) o;
+            return hash == other.hash
+                && violationCodes == other.violationCodes
+                && warningCodes == other.warningCodes
+                && confidenceBucket == other.confidenceBucket
+                && labelClass.equals(other.labelClass)
+                && entity.equals(other.entity)
+                && reason.equals(other.reason);
+        }
+        
+        @Override
+        public int hashCode() {
+            return Long.hashCode(hash);
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("%s / %s / %s", labelClass, entity, reason);
+        }
+    }
+}
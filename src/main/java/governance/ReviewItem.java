@@ -0,0 +1,122 @@
+package governance;
+
+import java.util.Comparator;
+
+/**
+ * An escalated decision waiting for, or under, human review
+ */
+public class ReviewItem {
+    /** Most urgent first: higher priority, then earlier deadline, then older ID */
+    static final Comparator<ReviewItem> URGENCY = Comparator
+        .comparingInt((ReviewItem item) -> -item.priority)
+        .thenComparingLong(item -> item.deadline)
+        .thenComparingLong(item -> item.decisionId);
+    
+    public final long decisionId;
+    public final Role requiredRole;
+    public final int priority;
+    public final long createdAt;
+    public final long deadline;
+    public final String responsibleEntity;
+    public final String reason;
+    public final ReviewGroup.Signature signature;
+    
+    // Set once when the item joins its group
+    volatile ReviewGroup group;
+    
+    // Set while claimed; guarded by this
+    private Lease lease;
+    private int attempts;
+    
+    ReviewItem(long decisionId, Role requiredRole, int priority, long createdAt, long deadline,
+               String responsibleEntity, String reason, ReviewGroup.Signature signature) {
+        this.decisionId = decisionId;
+        this.requiredRole = requiredRole;
+        this.priority = priority;
+        this.createdAt = createdAt;
+        this.deadline = deadline;
+        this.responsibleEntity = responsibleEntity;
+        this.reason = reason;
+        this.signature = signature;
+    }
+    
+    /**
+     * ID of the group of near-identical escalations this item belongs to
+     */
+    public long getGroupId() {
+        ReviewGroup current = group;
+        return current != null ? current.id : 0;
+    }
+    
+    public synchronized String getReviewer() {
+        return lease != null ? lease.reviewer : null;
+    }
+    
+    public synchronized long getLeaseExpiry() {
+        return lease != null ? lease.expiresAt : 0;
+    }
+    
+    /**
+     * Number of times the item was claimed
+     */
+    public synchronized int getAttempts() {
+        return attempts;
+    }
+    
+    public boolean isOverdue(long now) {
+        return now > deadline;
+    }
+    
+    synchronized Lease getLease() {
+        return lease;
+    }
+    
+    synchronized Lease claim(String reviewer, long expiresAt) {
+        attempts++;
+        lease = new Lease(this, reviewer, expiresAt);
+        return lease;
+    }
+    
+    /**
+     * Replaces the lease if it is still the given one
+     * 
+     * @return the new lease, or null if the given one was already released
+     */
+    synchronized Lease renew(Lease expected, long expiresAt) {
+        if (lease != expected) {
+            return null;
+        }
+        lease = new Lease(this, expected.reviewer, expiresAt);
+        return lease;
+    }
+    
+    /**
+     * Drops the lease if it is still the given one
+     */
+    synchronized boolean release(Lease expected) {
+        if (lease != expected) {
+            return false;
+        }
+        lease = null;
+        return true;
+    }
+    
+    /**
+     * A reviewer's time-bounded claim on an item
+     */
+    static final class Lease {
+        static final Comparator<Lease> EXPIRY = Comparator
+            .comparingLong((Lease lease) -> lease.expiresAt)
+            .thenComparingLong(lease -> lease.item.decisionId);
+        
+        final ReviewItem item;
+        final String reviewer;
+        final long expiresAt;
+        
+        Lease(ReviewItem item, String reviewer, long expiresAt) {
+            this.item = item;
+            this.reviewer = reviewer;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
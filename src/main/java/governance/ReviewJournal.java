@@ -0,0 +1,326 @@
+package governance;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only file of review queue changes
+ *
+ * Each record is {@code [int length][int crc32][byte type][long decisionId]...};
+ * an enqueue carries the item's fields and similarity signature, a
+ * completion the role, reviewer and outcome. Strings are an int length and
+ * UTF-8 bytes.
+ *
+ * An append returns once it is on disk. Appends that arrive while an fsync
+ * is running wait for the next one, which covers all of them (group commit).
+ *
+ * On open the journal is replayed and a torn final record is dropped. Its
+ * completions are appended to a history file next to it, which is never
+ * compacted, and the journal is rewritten with only the items still open. A
+ * crash between the two steps copies those completions again on the next
+ * open; the copies are identical. Leases are not journaled: after a restart
+ * every open item is pending again.
+ */
+class ReviewJournal implements Closeable {
+    /** Largest record replay accepts; anything longer is treated as corruption */
+    static final int MAX_RECORD_BYTES = 16 << 20;
+    
+    private static final byte ENQUEUE = 1;
+    private static final byte COMPLETE = 2;
+    private static final String HISTORY_SUFFIX = ".completed";
+    
+    private final Path file;
+    private final FileOutputStream fileOut;
+    private final DataOutputStream out;
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream(256);
+    private final DataOutputStream recordOut = new DataOutputStream(record);
+    private final CRC32 crc = new CRC32();
+    
+    // Guarded by this
+    private long appendedCount;
+    
+    // Guarded by commitLock
+    private final Object commitLock = new Object();
+    private long durableCount;
+    private boolean syncing;
+    
+    private ReviewJournal(Path file, FileOutputStream fileOut) {
+        this.file = file;
+        this.fileOut = fileOut;
+        this.out = new DataOutputStream(new BufferedOutputStream(fileOut));
+    }
+    
+    /**
+     * Replays the journal into the returned map, moves its completions to
+     * the history file, then compacts it
+     */
+    static ReviewJournal open(Path file, Map<Long, ReviewItem> open) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Map<Long, ReviewItem> items = new LinkedHashMap<>();
+        List<CompletedReview> completed = new ArrayList<>();
+        if (Files.exists(file)) {
+            replay(file, items, completed::add);
+        }
+        
+        if (!completed.isEmpty()) {
+            Path historyFile = historyFile(file);
+            if (Files.exists(historyFile)) {
+                // Cut off a torn tail so the new records stay readable
+                long valid = replay(historyFile, new LinkedHashMap<>(), review -> { });
+                try (FileChannel channel = FileChannel.open(historyFile, StandardOpenOption.WRITE)) {
+                    channel.truncate(valid);
+                }
+            }
+            try (ReviewJournal history = new ReviewJournal(historyFile,
+                    new FileOutputStream(historyFile.toFile(), true))) {
+                for (CompletedReview review : completed) {
+                    history.writeComplete(review);
+                }
+            }
+        }
+        
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (ReviewJournal compacted = new ReviewJournal(temp, new FileOutputStream(temp.toFile()))) {
+            compacted.writeAll(items.values());
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        
+        open.putAll(items);
+        return new ReviewJournal(file, new FileOutputStream(file.toFile(), true));
+    }
+    
+    void appendEnqueue(ReviewItem item) throws IOException {
+        long sequence;
+        synchronized (this) {
+            writeEnqueue(item);
+            sequence = ++appendedCount;
+        }
+        commit(sequence);
+    }
+    
+    void appendComplete(long decisionId, Role role, String reviewer, boolean approved, long completedAt)
+            throws IOException {
+        long sequence;
+        synchronized (this) {
+            writeComplete(new CompletedReview(decisionId, role, reviewer, approved, completedAt));
+            sequence = ++appendedCount;
+        }
+        commit(sequence);
+    }
+    
+    /**
+     * Reads every completion, oldest first: those in the history file, then
+     * those appended since the journal was opened
+     *
+     * @return the number of completions read
+     */
+    long scanCompleted(Consumer<CompletedReview> consumer) throws IOException {
+        synchronized (this) {
+            out.flush();
+        }
+        long[] count = new long[1];
+        Consumer<CompletedReview> counting = review -> {
+            count[0]++;
+            consumer.accept(review);
+        };
+        Path history = historyFile(file);
+        if (Files.exists(history)) {
+            replay(history, new LinkedHashMap<>(), counting);
+        }
+        replay(file, new LinkedHashMap<>(), counting);
+        return count[0];
+    }
+    
+    // Guarded by this
+    private void writeAll(Collection<ReviewItem> items) throws IOException {
+        for (ReviewItem item : items) {
+            writeEnqueue(item);
+        }
+        out.flush();
+    }
+    
+    // Guarded by this
+    private void writeEnqueue(ReviewItem item) throws IOException {
+        record.reset();
+        recordOut.writeByte(ENQUEUE);
+        recordOut.writeLong(item.decisionId);
+        recordOut.writeByte(item.requiredRole.ordinal());
+        recordOut.writeInt(item.priority);
+        recordOut.writeLong(item.createdAt);
+        recordOut.writeLong(item.deadline);
+        writeString(item.responsibleEntity != null ? item.responsibleEntity : "");
+        writeString(item.reason != null ? item.reason : "");
+        writeString(item.signature.labelClass);
+        recordOut.writeInt(item.signature.violationCodes);
+        recordOut.writeInt(item.signature.warningCodes);
+        recordOut.writeInt(item.signature.confidenceBucket);
+        writeRecord();
+    }
+    
+    // Guarded by this
+    private void writeComplete(CompletedReview review) throws IOException {
+        record.reset();
+        recordOut.writeByte(COMPLETE);
+        recordOut.writeLong(review.decisionId);
+        recordOut.writeByte(review.role.ordinal());
+        writeString(review.reviewer);
+        recordOut.writeBoolean(review.approved);
+        recordOut.writeLong(review.completedAt);
+        writeRecord();
+    }
+    
+    // Guarded by this
+    private void writeString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        recordOut.writeInt(bytes.length);
+        recordOut.write(bytes);
+    }
+    
+    // Guarded by this
+    private void writeRecord() throws IOException {
+        recordOut.flush();
+        if (record.size() > MAX_RECORD_BYTES) {
+            throw new IllegalArgumentException("Review record of " + record.size() + " bytes exceeds "
+                + MAX_RECORD_BYTES);
+        }
+        crc.reset();
+        crc.update(record.toByteArray(), 0, record.size());
+        out.writeInt(record.size());
+        out.writeInt((int) crc.getValue());
+        record.writeTo(out);
+    }
+    
+    /**
+     * Waits until the given append is on disk. Whoever finds no fsync running
+     * issues one for everything appended so far; the others wait for it.
+     */
+    private void commit(long sequence) throws IOException {
+        synchronized (commitLock) {
+            while (durableCount < sequence && syncing) {
+                try {
+                    commitLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted awaiting review journal fsync");
+                }
+            }
+            if (durableCount >= sequence) {
+                return;
+            }
+            syncing = true;
+        }
+        long synced = 0;
+        try {
+            long target;
+            synchronized (this) {
+                out.flush();
+                target = appendedCount;
+            }
+            fileOut.getFD().sync();
+            synced = target;
+        } finally {
+            synchronized (commitLock) {
+                syncing = false;
+                durableCount = Math.max(durableCount, synced);
+                commitLock.notifyAll();
+            }
+        }
+    }
+    
+    /**
+     * @return the length of the file up to the end of its last valid record
+     */
+    private static long replay(Path file, Map<Long, ReviewItem> items, Consumer<CompletedReview> completed)
+            throws IOException {
+        Role[] roles = Role.values();
+        CRC32 crc = new CRC32();
+        long valid = 0;
+        try (InputStream stream = Files.newInputStream(file)) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+            while (true) {
+                byte[] body;
+                try {
+                    int length = in.readInt();
+                    int checksum = in.readInt();
+                    if (length <= 0 || length > MAX_RECORD_BYTES) {
+                        return valid;
+                    }
+                    body = new byte[length];
+                    in.readFully(body);
+                    crc.reset();
+                    crc.update(body);
+                    if ((int) crc.getValue() != checksum) {
+                        return valid;
+                    }
+                } catch (EOFException e) {
+                    // Torn write at the tail
+                    return valid;
+                }
+                valid += 8 + body.length;
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(body));
+                byte type = record.readByte();
+                long decisionId = record.readLong();
+                if (type == ENQUEUE) {
+                    Role role = roles[record.readByte()];
+                    int priority = record.readInt();
+                    long createdAt = record.readLong();
+                    long deadline = record.readLong();
+                    String entity = readString(record);
+                    String reason = readString(record);
+                    ReviewGroup.Signature signature = new ReviewGroup.Signature(readString(record),
+                        entity, reason, record.readInt(), record.readInt(), record.readInt());
+                    items.put(decisionId, new ReviewItem(decisionId, role, priority, createdAt, deadline,
+                        entity.isEmpty() ? null : entity, reason.isEmpty() ? null : reason, signature));
+                } else if (type == COMPLETE) {
+                    items.remove(decisionId);
+                    Role role = roles[record.readByte()];
+                    String reviewer = readString(record);
+                    completed.accept(new CompletedReview(decisionId, role, reviewer, record.readBoolean(),
+                        record.readLong()));
+                }
+            }
+        }
+    }
+    
+    private static String readString(DataInputStream record) throws IOException {
+        byte[] bytes = new byte[record.readInt()];
+        record.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    private static Path historyFile(Path file) {
+        return file.resolveSibling(file.getFileName() + HISTORY_SUFFIX);
+    }
+    
+    @Override
+    public synchronized void close() throws IOException {
+        out.flush();
+        fileOut.getFD().sync();
+        out.close();
+    }
+}
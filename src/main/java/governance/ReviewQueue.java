@@ -0,0 +1,418 @@
+package governance;
+
+import core.EthicsContext;
+import core.EthicsResult;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Queue of escalated decisions awaiting human review
+ *
+ * Items are sharded by the role allowed to review them. Within a shard,
+ * pending items sit in a skip list ordered by priority and then SLA
+ * deadline, so submit and claim are O(log n) and never contend on a global
+ * lock. A claim takes the most urgent item under a lease; leases live in a
+ * second skip list ordered by expiry, and any that lapse are put back in
+ * the pending list the next time the shard is touched (or on
+ * {@link #requeueExpired}). Submissions and completions are journaled so
+ * open items survive a restart, and completed reviews are kept in a
+ * history file beside the journal (see {@link #scanCompleted}).
+ *
+ * Each shard also clusters near-identical escalations into
+ * {@link ReviewGroup}s keyed by a hashed {@link ReviewGroup.Signature}, so
+ * joining a group is O(1) and a reviewer can decide a whole group at once
+ * with {@link #completeGroup}.
+ */
+public class ReviewQueue implements Closeable {
+    public static final long DEFAULT_LEASE_MILLIS = TimeUnit.MINUTES.toMillis(15);
+    public static final long DEFAULT_SLA_MILLIS = TimeUnit.HOURS.toMillis(24);
+    public static final long DEFAULT_URGENT_SLA_MILLIS = TimeUnit.HOURS.toMillis(4);
+    
+    /** Items at or above this priority get the urgent SLA */
+    public static final int URGENT_PRIORITY = 5;
+    
+    private final Map<Role, Shard> shards = new EnumMap<>(Role.class);
+    private final Map<Long, ReviewItem> items = new ConcurrentHashMap<>();
+    private final ReviewJournal journal;
+    private final long leaseMillis;
+    private final long slaMillis;
+    private final long urgentSlaMillis;
+    
+    /**
+     * Creates a queue that is not persisted
+     */
+    public ReviewQueue() {
+        this(DEFAULT_LEASE_MILLIS, DEFAULT_SLA_MILLIS, DEFAULT_URGENT_SLA_MILLIS);
+    }
+    
+    public ReviewQueue(long leaseMillis, long slaMillis, long urgentSlaMillis) {
+        this.leaseMillis = leaseMillis;
+        this.slaMillis = slaMillis;
+        this.urgentSlaMillis = urgentSlaMillis;
+        this.journal = null;
+        initShards();
+    }
+    
+    /**
+     * Opens a queue persisted in the given journal file, restoring its open items
+     */
+    public ReviewQueue(Path journalFile) throws IOException {
+        this(journalFile, DEFAULT_LEASE_MILLIS, DEFAULT_SLA_MILLIS, DEFAULT_URGENT_SLA_MILLIS);
+    }
+    
+    public ReviewQueue(Path journalFile, long leaseMillis, long slaMillis, long urgentSlaMillis)
+            throws IOException {
+        this.leaseMillis = leaseMillis;
+        this.slaMillis = slaMillis;
+        this.urgentSlaMillis = urgentSlaMillis;
+        initShards();
+        Map<Long, ReviewItem> restored = new ConcurrentHashMap<>();
+        this.journal = ReviewJournal.open(journalFile, restored);
+        for (ReviewItem item : restored.values()) {
+            items.put(item.decisionId, item);
+            Shard shard = shards.get(item.requiredRole);
+            shard.pending.add(item);
+            shard.join(item);
+        }
+    }
+    
+    private void initShards() {
+        for (Role role : Role.values()) {
+            shards.put(role, new Shard(role));
+        }
+    }
+    
+    /**
+     * Queues an escalated decision, routed and prioritized from its result
+     *
+     * @return the queued item, or the existing one if already queued
+     */
+    public ReviewItem submit(EthicsContext context, EthicsResult result, long now) {
+        if (!result.requiresEscalation()) {
+            throw new IllegalArgumentException("Only escalated decisions are reviewed");
+        }
+        String reason = result.getEscalationReason();
+        int priority = priority(reason, result);
+        String entity = context.decision.getResponsibleEntity();
+        return enqueue(result.getDecisionId(), requiredRole(reason), priority,
+            now + (priority >= URGENT_PRIORITY ? urgentSlaMillis : slaMillis), entity, reason,
+            ReviewGroup.Signature.of(context.decision.getDecisionLabel(), entity, result,
+                context.decision.getConfidence()),
+            now);
+    }
+    
+    /**
+     * Queues an item for the given role
+     *
+     * @param priority higher is more urgent
+     * @param deadline time by which review should be complete
+     * @return the queued item, or the existing one if already queued
+     */
+    public ReviewItem enqueue(long decisionId, Role role, int priority, long deadline,
+                              String responsibleEntity, String reason, long now) {
+        return enqueue(decisionId, role, priority, deadline, responsibleEntity, reason,
+            new ReviewGroup.Signature(null, responsibleEntity, reason, 0, 0, ReviewGroup.Signature.NO_CONFIDENCE),
+            now);
+    }
+    
+    /**
+     * Queues an item, grouping it with open items that share its signature
+     */
+    public ReviewItem enqueue(long decisionId, Role role, int priority, long deadline, String responsibleEntity,
+                              String reason, ReviewGroup.Signature signature, long now) {
+        ReviewItem item = new ReviewItem(decisionId, role, priority, now, deadline, responsibleEntity, reason,
+            signature);
+        ReviewItem existing = items.putIfAbsent(decisionId, item);
+        if (existing != null) {
+            return existing;
+        }
+        if (journal != null) {
+            try {
+                journal.appendEnqueue(item);
+            } catch (IOException e) {
+                items.remove(decisionId);
+                throw new UncheckedIOException(e);
+            } catch (IllegalArgumentException e) {
+                items.remove(decisionId);
+                throw e;
+            }
+        }
+        Shard shard = shards.get(role);
+        shard.join(item);
+        shard.pending.add(item);
+        return item;
+    }
+    
+    /**
+     * Leases the most urgent pending item for the role to a reviewer
+     *
+     * @return the claimed item, or null if none is pending
+     */
+    public ReviewItem claim(Role role, String reviewer, long now) {
+        Shard shard = shards.get(role);
+        shard.requeueExpired(now);
+        ReviewItem item = shard.pending.pollFirst();
+        if (item == null) {
+            return null;
+        }
+        shard.leases.add(item.claim(reviewer, now + leaseMillis));
+        return item;
+    }
+    
+    /**
+     * Extends a reviewer's lease by another lease period
+     *
+     * @return false if the reviewer no longer holds the lease
+     */
+    public boolean renew(long decisionId, String reviewer, long now) {
+        ReviewItem item = items.get(decisionId);
+        if (item == null) {
+            return false;
+        }
+        Shard shard = shards.get(item.requiredRole);
+        ReviewItem.Lease lease = item.getLease();
+        if (lease == null || !lease.reviewer.equals(reviewer) || lease.expiresAt <= now) {
+            return false;
+        }
+        ReviewItem.Lease renewed = item.renew(lease, now + leaseMillis);
+        if (renewed == null) {
+            return false;
+        }
+        shard.leases.remove(lease);
+        shard.leases.add(renewed);
+        return true;
+    }
+    
+    /**
+     * Records the reviewer's decision and removes the item
+     *
+     * @throws IllegalStateException if the reviewer does not hold a live lease
+     */
+    public ReviewItem complete(long decisionId, String reviewer, boolean approved, long now) {
+        ReviewItem item = items.get(decisionId);
+        if (item == null) {
+            throw new IllegalStateException("No open review for decision " + decisionId);
+        }
+        Shard shard = shards.get(item.requiredRole);
+        ReviewItem.Lease lease = item.getLease();
+        if (lease == null || !lease.reviewer.equals(reviewer)) {
+            throw new IllegalStateException("Decision " + decisionId + " is not claimed by " + reviewer);
+        }
+        if (lease.expiresAt <= now) {
+            shard.requeueExpired(now);
+            throw new IllegalStateException("Lease on decision " + decisionId + " has expired");
+        }
+        if (!item.release(lease)) {
+            throw new IllegalStateException("Decision " + decisionId + " is not claimed by " + reviewer);
+        }
+        shard.leases.remove(lease);
+        if (journal != null) {
+            try {
+                journal.appendComplete(decisionId, item.requiredRole, reviewer, approved, now);
+            } catch (IOException e) {
+                // Leave it open so the review is not lost
+                shard.pending.add(item);
+                throw new UncheckedIOException(e);
+            }
+        }
+        items.remove(decisionId);
+        shard.leave(item);
+        return item;
+    }
+    
+    /**
+     * Applies one reviewer's decision to every member of a group that is
+     * pending or already leased to that reviewer; members leased to others
+     * are left alone
+     * 
+     * @return the items completed
+     */
+    public List<ReviewItem> completeGroup(Role role, long groupId, String reviewer, boolean approved, long now) {
+        ReviewGroup group = getGroup(role, groupId);
+        if (group == null) {
+            return Collections.emptyList();
+        }
+        Shard shard = shards.get(role);
+        shard.requeueExpired(now);
+        List<ReviewItem> completed = new ArrayList<>(group.size());
+        for (long decisionId : group.getMembers()) {
+            ReviewItem item = items.get(decisionId);
+            if (item == null) {
+                continue;
+            }
+            // Removing it from the pending list is what claims it for us
+            if (shard.pending.remove(item)) {
+                shard.leases.add(item.claim(reviewer, now + leaseMillis));
+            }
+            ReviewItem.Lease lease = item.getLease();
+            if (lease != null && lease.reviewer.equals(reviewer)) {
+                completed.add(complete(decisionId, reviewer, approved, now));
+            }
+        }
+        return completed;
+    }
+    
+    /**
+     * Open groups for a role, largest first
+     */
+    public List<ReviewGroup> getGroups(Role role, int max) {
+        List<ReviewGroup> groups = new ArrayList<>(shards.get(role).groups.values());
+        groups.sort(Comparator.comparingInt(ReviewGroup::size).reversed());
+        return Collections.unmodifiableList(groups.subList(0, Math.min(max, groups.size())));
+    }
+    
+    public ReviewGroup getGroup(Role role, long groupId) {
+        return shards.get(role).groups.get(groupId);
+    }
+    
+    /**
+     * Returns lapsed leases in every shard to the pending lists
+     *
+     * @return the number of items requeued
+     */
+    public int requeueExpired(long now) {
+        int requeued = 0;
+        for (Shard shard : shards.values()) {
+            requeued += shard.requeueExpired(now);
+        }
+        return requeued;
+    }
+    
+    /**
+     * The most urgent pending items for a role, without claiming them
+     */
+    public List<ReviewItem> peek(Role role, int max, long now) {
+        Shard shard = shards.get(role);
+        shard.requeueExpired(now);
+        List<ReviewItem> result = new ArrayList<>(Math.min(max, 64));
+        Iterator<ReviewItem> it = shard.pending.iterator();
+        while (it.hasNext() && result.size() < max) {
+            result.add(it.next());
+        }
+        return Collections.unmodifiableList(result);
+    }
+    
+    public ReviewItem get(long decisionId) {
+        return items.get(decisionId);
+    }
+    
+    public int getPendingCount(Role role) {
+        return shards.get(role).pending.size();
+    }
+    
+    public int getLeasedCount(Role role) {
+        return shards.get(role).leases.size();
+    }
+    
+    /**
+     * Open items, pending or leased
+     */
+    public int size() {
+        return items.size();
+    }
+    
+    /**
+     * Reads every review completed since the journal was created, oldest
+     * first; a queue that is not persisted keeps no history
+     *
+     * @return the number of completions read
+     */
+    public long scanCompleted(Consumer<CompletedReview> consumer) throws IOException {
+        return journal != null ? journal.scanCompleted(consumer) : 0;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+    
+    /**
+     * Role that reviews an escalation, based on which check raised it
+     */
+    static Role requiredRole(String reason) {
+        String text = reason != null ? reason.toLowerCase() : "";
+        if (text.contains("purpose")) {
+            return Role.LEGAL_REVIEWER;
+        }
+        if (text.contains("confidence") || text.contains("bias") || text.contains("explanation")) {
+            return Role.AI_REVIEWER;
+        }
+        return Role.ETHICS_OFFICER;
+    }
+    
+    /**
+     * Human oversight escalations are urgent; each warning adds urgency
+     */
+    static int priority(String reason, EthicsResult result) {
+        int priority = 1 + Math.min(result.getWarnings().size(), 3);
+        if (reason != null && reason.toLowerCase().contains("oversight")) {
+            priority += URGENT_PRIORITY;
+        }
+        return priority;
+    }
+    
+    private static final class Shard {
+        final Role role;
+        final ConcurrentSkipListSet<ReviewItem> pending = new ConcurrentSkipListSet<>(ReviewItem.URGENCY);
+        final ConcurrentSkipListSet<ReviewItem.Lease> leases =
+            new ConcurrentSkipListSet<>(ReviewItem.Lease.EXPIRY);
+        final Map<Long, ReviewGroup> groups = new ConcurrentHashMap<>();
+        
+        Shard(Role role) {
+            this.role = role;
+        }
+        
+        void join(ReviewItem item) {
+            ReviewGroup.Signature signature = item.signature;
+            long id = signature.hash();
+            while (true) {
+                ReviewGroup group = groups.computeIfAbsent(id, key -> new ReviewGroup(key, role, signature));
+                if (!group.signature.equals(signature)) {
+                    // 64-bit hash collision; probe the next ID
+                    id++;
+                } else if (group.add(item.decisionId)) {
+                    item.group = group;
+                    return;
+                }
+                // Otherwise the group just emptied and is being removed; retry
+            }
+        }
+        
+        void leave(ReviewItem item) {
+            ReviewGroup group = item.group;
+            if (group != null && group.remove(item.decisionId)) {
+                groups.remove(group.id, group);
+            }
+        }
+        
+        int requeueExpired(long now) {
+            int requeued = 0;
+            for (ReviewItem.Lease lease : leases) {
+                if (lease.expiresAt > now) {
+                    break;
+                }
+                if (leases.remove(lease) && lease.item.release(lease)) {
+                    pending.add(lease.item);
+                    requeued++;
+                }
+            }
+            return requeued;
+        }
+    }
+}
@@ -1,15 +1,36 @@
 package governance;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.regex.Pattern;
 
 /**
  * Manages role assignments and permissions
+ *
+ * Principals and their roles live in an open-addressing hash table of
+ * primitive arrays: a hash, an offset into a shared UTF-8 key arena, and a
+ * role bitmask per slot. {@link #hasRole} is one hash probe (linear probing
+ * at a load factor of at most 0.6) plus a bit test, with no locks and no
+ * per-principal objects. Imports build a complete new table and swap it in
+ * with one volatile write, so readers see either the old directory or the
+ * new one, never a mix.
  */
 public class RoleManager {
-    private Map<String, Set<Role>> userRoles;
+    private static final Role[] ROLES = Role.values();
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final VarHandle BYTES = MethodHandles.arrayElementVarHandle(byte[].class);
+    private static final Pattern ROLE_SEPARATOR = Pattern.compile("[,;]");
+    
+    private volatile Directory directory;
     
     public RoleManager() {
-        this.userRoles = new HashMap<>();
+        this.directory = new Directory(16, 1024);
         initializeDefaultRoles();
     }
     
@@ -20,15 +41,396 @@ public class RoleManager {
         assignRole("ai-reviewer@system.com", Role.AI_REVIEWER);
     }
     
-    public void assignRole(String userId, Role role) {
-        userRoles.computeIfAbsent(userId, k -> new HashSet<>()).add(role);
+    public synchronized void assignRole(String userId, Role role) {
+        Directory current = directory;
+        int slot = current.find(userId);
+        if (slot >= 0) {
+            current.setMask(slot, current.mask(slot) | bit(role));
+            return;
+        }
+        if (!current.canInsert(userId)) {
+            current = current.grow(userId);
+            directory = current;
+        }
+        current.insert(userId, bit(role));
+    }
+    
+    public synchronized void revokeRole(String userId, Role role) {
+        Directory current = directory;
+        int slot = current.find(userId);
+        if (slot >= 0) {
+            current.setMask(slot, current.mask(slot) & ~bit(role));
+        }
     }
     
     public boolean hasRole(String userId, Role role) {
-        return userRoles.getOrDefault(userId, Collections.emptySet()).contains(role);
+        Directory current = directory;
+        int slot = current.find(userId);
+        return slot >= 0 && (current.mask(slot) & bit(role)) != 0;
     }
     
     public Set<Role> getRoles(String userId) {
-        return userRoles.getOrDefault(userId, Collections.emptySet());
+        Directory current = directory;
+        int slot = current.find(userId);
+        if (slot < 0) {
+            return Collections.emptySet();
+        }
+        int mask = current.mask(slot);
+        Set<Role> roles = EnumSet.noneOf(Role.class);
+        for (Role role : ROLES) {
+            if ((mask & bit(role)) != 0) {
+                roles.add(role);
+            }
+        }
+        return Collections.unmodifiableSet(roles);
+    }
+    
+    /**
+     * Number of principals in the directory
+     */
+    public int size() {
+        return directory.size;
+    }
+    
+    /**
+     * Heap used by the directory's arrays
+     */
+    public long estimateBytes() {
+        return directory.estimateBytes();
+    }
+    
+    /**
+     * Replaces the whole directory with the contents of a CSV or LDIF file,
+     * chosen by extension ({@code .ldif} or anything else for CSV)
+     *
+     * @return the number of principals loaded
+     */
+    public int importFile(Path file) throws IOException {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".ldif") ? importLdif(file) : importCsv(file);
+    }
+    
+    /**
+     * Replaces the whole directory from CSV lines of
+     * {@code principal,ROLE[;ROLE...]}; blank lines, lines starting with
+     * {@code #}, and a {@code principal,...} header are skipped. Roles may
+     * also be given as further comma-separated columns.
+     *
+     * @throws IllegalArgumentException on an unknown role; the current
+     *         directory is left unchanged
+     */
+    public int importCsv(Path file) throws IOException {
+        Directory loaded = new Directory(1 << 16, 1 << 20);
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                int comma = line.indexOf(',');
+                String principal = (comma < 0 ? line : line.substring(0, comma)).trim();
+                if (lineNumber == 1 && principal.equalsIgnoreCase("principal")) {
+                    continue;
+                }
+                int mask = 0;
+                if (comma >= 0) {
+                    for (String role : ROLE_SEPARATOR.split(line.substring(comma + 1))) {
+                        mask |= parseRole(role, file, lineNumber);
+                    }
+                }
+                loaded = add(loaded, principal, mask);
+            }
+        }
+        publish(loaded);
+        return loaded.size;
+    }
+    
+    /**
+     * Replaces the whole directory from LDIF entries. The principal is the
+     * entry's {@code uid}, else its {@code mail}, else its {@code dn}. Roles
+     * come from {@code raigRole} values and from {@code memberOf} groups
+     * whose {@code cn} names a role (e.g. {@code cn=ethics-officer,ou=groups}).
+     *
+     * @throws IllegalArgumentException on an unknown raigRole; the current
+     *         directory is left unchanged
+     */
+    public int importLdif(Path file) throws IOException {
+        Directory loaded = new Directory(1 << 16, 1 << 20);
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            LdifEntry entry = new LdifEntry();
+            String pending = null;
+            int lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.startsWith(" ") && pending != null) {
+                    // Folded continuation of the previous line
+                    pending += line.substring(1);
+                    continue;
+                }
+                if (pending != null) {
+                    entry.attribute(pending, file, lineNumber - 1);
+                    pending = null;
+                }
+                if (line.isEmpty()) {
+                    loaded = entry.flush(this, loaded);
+                } else if (!line.startsWith("#")) {
+                    pending = line;
+                }
+            }
+            if (pending != null) {
+                entry.attribute(pending, file, lineNumber);
+            }
+            loaded = entry.flush(this, loaded);
+        }
+        publish(loaded);
+        return loaded.size;
+    }
+    
+    /**
+     * Swaps in an imported directory under the lock assignRole and revokeRole
+     * hold, so neither can write to or republish the table being replaced
+     */
+    private synchronized void publish(Directory loaded) {
+        directory = loaded;
+    }
+    
+    private Directory add(Directory target, String principal, int mask) {
+        if (principal.isEmpty()) {
+            return target;
+        }
+        int slot = target.find(principal);
+        if (slot >= 0) {
+            target.setMask(slot, target.mask(slot) | mask);
+            return target;
+        }
+        if (!target.canInsert(principal)) {
+            target = target.grow(principal);
+        }
+        target.insert(principal, mask);
+        return target;
+    }
+    
+    private static int parseRole(String value, Path file, int lineNumber) {
+        String name = value.trim().toUpperCase(Locale.ROOT).replace('-', '_').replace(' ', '_');
+        if (name.isEmpty()) {
+            return 0;
+        }
+        try {
+            return bit(Role.valueOf(name));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(file + ":" + lineNumber + ": unknown role '" + value.trim() + "'");
+        }
+    }
+    
+    private static int bit(Role role) {
+        return 1 << role.ordinal();
+    }
+    
+    /**
+     * Attributes of the LDIF entry being read
+     */
+    private static final class LdifEntry {
+        String dn;
+        String uid;
+        String mail;
+        int mask;
+        
+        void attribute(String line, Path file, int lineNumber) {
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                return;
+            }
+            String name = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value;
+            if (line.startsWith("::", colon)) {
+                value = new String(Base64.getDecoder().decode(line.substring(colon + 2).trim()), StandardCharsets.UTF_8);
+            } else {
+                value = line.substring(colon + 1).trim();
+            }
+            switch (name) {
+                case "dn" -> dn = value;
+                case "uid" -> uid = value;
+                case "mail" -> mail = value;
+                case "raigrole" -> mask |= parseRole(value, file, lineNumber);
+                case "memberof" -> mask |= groupRole(value);
+                default -> { }
+            }
+        }
+        
+        Directory flush(RoleManager owner, Directory target) {
+            String principal = uid != null ? uid : mail != null ? mail : dn;
+            if (principal != null) {
+                target = owner.add(target, principal, mask);
+            }
+            dn = null;
+            uid = null;
+            mail = null;
+            mask = 0;
+            return target;
+        }
+        
+        private static int groupRole(String groupDn) {
+            String first = groupDn.split(",", 2)[0].trim();
+            if (!first.regionMatches(true, 0, "cn=", 0, 3)) {
+                return 0;
+            }
+            String name = first.substring(3).trim().toUpperCase(Locale.ROOT).replace('-', '_').replace(' ', '_');
+            for (Role role : ROLES) {
+                if (role.name().equals(name)) {
+                    return bit(role);
+                }
+            }
+            return 0;
+        }
+    }
+    
+    /**
+     * Open-addressing table: slot {@code i} is empty while hashes[i] is 0.
+     * Keys are stored in the arena as a two-byte length and UTF-8 bytes.
+     * Writers (under the manager's lock) fill a slot's offset and mask
+     * before publishing its hash with release semantics, so lock-free
+     * readers that see the hash also see the rest.
+     */
+    private static final class Directory {
+        private static final float MAX_LOAD = 0.6f;
+        
+        final int[] hashes;
+        final int[] offsets;
+        final byte[] masks;
+        final byte[] arena;
+        final int slotMask;
+        int arenaUsed;
+        int size;
+        
+        Directory(int capacity, int arenaBytes) {
+            int slots = Integer.highestOneBit(Math.max(16, capacity) - 1) << 1;
+            this.hashes = new int[slots];
+            this.offsets = new int[slots];
+            this.masks = new byte[slots];
+            this.arena = new byte[arenaBytes];
+            this.slotMask = slots - 1;
+        }
+        
+        int find(String key) {
+            int hash = hash(key);
+            for (int slot = hash & slotMask; ; slot = (slot + 1) & slotMask) {
+                int stored = (int) INTS.getAcquire(hashes, slot);
+                if (stored == 0) {
+                    return -1;
+                }
+                if (stored == hash && keyEquals(offsets[slot], key)) {
+                    return slot;
+                }
+            }
+        }
+        
+        int mask(int slot) {
+            return (byte) BYTES.getAcquire(masks, slot) & 0xFF;
+        }
+        
+        void setMask(int slot, int value) {
+            BYTES.setRelease(masks, slot, (byte) value);
+        }
+        
+        boolean canInsert(String key) {
+            return size + 1 <= hashes.length * MAX_LOAD && arenaUsed + encodedLength(key) + 2 <= arena.length;
+        }
+        
+        /**
+         * A copy with room for at least one more key
+         */
+        Directory grow(String key) {
+            int slots = size + 1 > hashes.length * MAX_LOAD ? hashes.length * 2 : hashes.length;
+            int needed = arenaUsed + encodedLength(key) + 2;
+            int arenaBytes = needed > arena.length ? (int) Math.min(Integer.MAX_VALUE - 8, Math.max(needed, arena.length * 2L)) : arena.length;
+            Directory grown = new Directory(slots, arenaBytes);
+            System.arraycopy(arena, 0, grown.arena, 0, arenaUsed);
+            grown.arenaUsed = arenaUsed;
+            for (int slot = 0; slot < hashes.length; slot++) {
+                if (hashes[slot] != 0) {
+                    grown.place(hashes[slot], offsets[slot], masks[slot]);
+                }
+            }
+            grown.size = size;
+            return grown;
+        }
+        
+        void insert(String key, int roles) {
+            int offset = arenaUsed;
+            byte[] encoded = key.getBytes(StandardCharsets.UTF_8);
+            if (encoded.length > 0xFFFF) {
+                throw new IllegalArgumentException("Principal name too long: " + encoded.length + " bytes");
+            }
+            arena[offset] = (byte) (encoded.length >>> 8);
+            arena[offset + 1] = (byte) encoded.length;
+            System.arraycopy(encoded, 0, arena, offset + 2, encoded.length);
+            arenaUsed += 2 + encoded.length;
+            place(hash(key), offset, (byte) roles);
+            size++;
+        }
+        
+        private void place(int hash, int offset, byte roles) {
+            int slot = hash & slotMask;
+            while (hashes[slot] != 0) {
+                slot = (slot + 1) & slotMask;
+            }
+            offsets[slot] = offset;
+            masks[slot] = roles;
+            INTS.setRelease(hashes, slot, hash);
+        }
+        
+        /**
+         * Compares the stored UTF-8 key with a String without decoding it
+         */
+        private boolean keyEquals(int offset, String key) {
+            int length = ((arena[offset] & 0xFF) << 8) | (arena[offset + 1] & 0xFF);
+            int pos = offset + 2;
+            int end = pos + length;
+            for (int i = 0; i < key.length(); i++) {
+                int c = key.charAt(i);
+                if (c < 0x80) {
+                    if (pos >= end || arena[pos++] != c) {
+                        return false;
+                    }
+                    continue;
+                }
+                if (Character.isHighSurrogate((char) c) && i + 1 < key.length()) {
+                    c = Character.toCodePoint((char) c, key.charAt(++i));
+                }
+                byte[] encoded = new String(Character.toChars(c)).getBytes(StandardCharsets.UTF_8);
+                for (byte b : encoded) {
+                    if (pos >= end || arena[pos++] != b) {
+                        return false;
+                    }
+                }
+            }
+            return pos == end;
+        }
+        
+        long estimateBytes() {
+            return hashes.length * 9L + arena.length + 4 * 16;
+        }
+        
+        private static int encodedLength(String key) {
+            int length = 0;
+            for (int i = 0; i < key.length(); i++) {
+                char c = key.charAt(i);
+                length += c < 0x80 ? 1 : c < 0x800 ? 2 : Character.isSurrogate(c) ? 2 : 3;
+            }
+            return length;
+        }
+        
+        /**
+         * String hash with extra mixing for linear probing; never 0
+         */
+        private static int hash(String key) {
+            int h = key.hashCode() * 0x9E3779B9;
+            h ^= h >>> 16;
+            return h != 0 ? h : 1;
+        }
     }
 }
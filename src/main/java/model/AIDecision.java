@@ -11,6 +11,8 @@ public class AIDecision {
     private String explanation;
     private double biasScore;
     private boolean negativeSocialImpact;
+    private String purpose;
+    private String domain;
     
     public AIDecision(String decisionLabel, double confidence) {
         this.decisionLabel = decisionLabel;
@@ -44,6 +46,20 @@ public class AIDecision {
         return negativeSocialImpact;
     }
     
+    /**
+     * Declared purpose such as LOAN_APPROVAL, or null if not specified
+     */
+    public String getPurpose() {
+        return purpose;
+    }
+    
+    /**
+     * Business domain such as medical or retail, or null if not specified
+     */
+    public String getDomain() {
+        return domain;
+    }
+    
     // Setters
     public void setResponsibleEntity(String responsibleEntity) {
         this.responsibleEntity = responsibleEntity;
@@ -60,4 +76,12 @@ public class AIDecision {
     public void setNegativeSocialImpact(boolean negativeSocialImpact) {
         this.negativeSocialImpact = negativeSocialImpact;
     }
+    
+    public void setPurpose(String purpose) {
+        this.purpose = purpose;
+    }
+    
+    public void setDomain(String domain) {
+        this.domain = domain;
+    }
 }
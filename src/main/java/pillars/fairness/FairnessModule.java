@@ -3,7 +3,10 @@ package pillars.fairness;
 import core.EthicsContext;
 import core.EthicsResult;
 import config.EthicsPolicy;
+import model.AIDecision;
+import java.util.Objects;
 import java.util.Random;
+import java.util.SplittableRandom;
 
 /**
  * Implements Algorithm 2 from the paper: Bias detection and mitigation
@@ -52,4 +55,18 @@ public class FairnessModule {
         // Returns value between 0.1 and 0.9
         return 0.1 + (random.nextDouble() * 0.8);
     }
+    
+    /**
+     * A simulated score in the same range that depends only on the
+     * decision's inputs, for recording decisions that never reached this
+     * check so that replaying them is repeatable
+     */
+    public static double estimateBiasScore(AIDecision decision) {
+        long seed = 42;
+        seed = seed * 31 + Objects.hashCode(decision.getDecisionLabel());
+        seed = seed * 31 + Objects.hashCode(decision.getResponsibleEntity());
+        seed = seed * 31 + Objects.hashCode(decision.getExplanation());
+        seed = seed * 31 + Double.hashCode(decision.getConfidence());
+        return 0.1 + (new SplittableRandom(seed).nextDouble() * 0.8);
+    }
 }
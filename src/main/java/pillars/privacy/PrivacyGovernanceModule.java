@@ -85,16 +85,37 @@ public class PrivacyGovernanceModule {
         }
     }
     
-    private String determinePurpose(AIDecision decision) {
-        String label = decision.getDecisionLabel().toUpperCase();
+    /**
+     * Returns the declared purpose, or one inferred from the decision label
+     * when the client did not declare it
+     */
+    public static String determinePurpose(AIDecision decision) {
+        if (decision.getPurpose() != null) {
+            return decision.getPurpose();
+        }
+        if (decision.getDecisionLabel() == null) {
+            return "GENERAL";
+        }
         
-        if (label.contains("LOAN")) return "LOAN_APPROVAL";
-        if (label.contains("CREDIT")) return "CREDIT_DECISION";
-        if (label.contains("INSURANCE")) return "INSURANCE_QUOTE";
+        String label = decision.getDecisionLabel();
+        
+        if (containsIgnoreCase(label, "LOAN")) return "LOAN_APPROVAL";
+        if (containsIgnoreCase(label, "CREDIT")) return "CREDIT_DECISION";
+        if (containsIgnoreCase(label, "INSURANCE")) return "INSURANCE_QUOTE";
         
         return "GENERAL";
     }
     
+    // Matches in place rather than upper-casing a copy of the label per request
+    private static boolean containsIgnoreCase(String text, String word) {
+        for (int i = 0; i <= text.length() - word.length(); i++) {
+            if (text.regionMatches(true, i, word, 0, word.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
     private Set<String> extractUsedFeatures(AIDecision decision) {
         // In production, this would analyze the model's feature usage
         // For the loan approval demo, we use appropriate features
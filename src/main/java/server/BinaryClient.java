@@ -0,0 +1,190 @@
+package server;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A {@link BinaryProtocol} client that multiplexes requests over one
+ * connection
+ *
+ * Any number of threads may submit at once; each request gets the next
+ * request ID and a future that a reader thread completes when the matching
+ * RESULT or ERROR frame arrives. Label, entity, user and policy strings are
+ * interned on first use, the free-text explanation is always sent inline.
+ */
+public class BinaryClient implements Closeable {
+    private static final int EXPLANATION = 2;
+    
+    private final SocketChannel channel;
+    private final Map<Integer, CompletableFuture<BinaryProtocol.Result>> pending = new ConcurrentHashMap<>();
+    // Guarded by this
+    private final ByteBuffer out = ByteBuffer.allocate(BinaryProtocol.MAX_FRAME_BYTES + 4);
+    private final Map<String, Integer> interned = new HashMap<>();
+    private final int[] ids = new int[BinaryProtocol.STRING_FIELDS];
+    private int nextRequestId;
+    private volatile IOException failure;
+    
+    private BinaryClient(SocketChannel channel) {
+        this.channel = channel;
+        Thread reader = new Thread(this::read, "binary-client");
+        reader.setDaemon(true);
+        reader.start();
+    }
+    
+    /**
+     * Connects to a {@link UnixDomainSocketAddress} or an
+     * {@link InetSocketAddress}
+     */
+    public static BinaryClient connect(SocketAddress address) throws IOException {
+        SocketChannel channel;
+        if (address instanceof UnixDomainSocketAddress) {
+            channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        } else {
+            channel = SocketChannel.open();
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        }
+        channel.connect(address);
+        return new BinaryClient(channel);
+    }
+    
+    /**
+     * Sends a request without waiting for its result. The future fails with
+     * an IllegalArgumentException if the server could not evaluate it, or
+     * an IOException if the connection is lost.
+     */
+    public CompletableFuture<BinaryProtocol.Result> submit(BinaryProtocol.Request request) throws IOException {
+        CompletableFuture<BinaryProtocol.Result> result = new CompletableFuture<>();
+        int requestId;
+        synchronized (this) {
+            if (failure != null) {
+                throw failure;
+            }
+            out.clear();
+            String[] strings = request.strings();
+            for (int i = 0; i < strings.length; i++) {
+                ids[i] = strings[i] == null ? BinaryProtocol.NONE
+                    : i == EXPLANATION ? BinaryProtocol.INLINE : intern(strings[i]);
+            }
+            requestId = nextRequestId++;
+            int start = BinaryProtocol.beginFrame(out, BinaryProtocol.EVALUATE, requestId);
+            BinaryProtocol.writeRequest(out, request, ids);
+            BinaryProtocol.endFrame(out, start);
+            pending.put(requestId, result);
+            out.flip();
+            try {
+                while (out.hasRemaining()) {
+                    channel.write(out);
+                }
+            } catch (IOException e) {
+                pending.remove(requestId);
+                throw e;
+            }
+        }
+        if (failure != null && pending.remove(requestId) != null) {
+            // The reader failed before it could see this request
+            result.completeExceptionally(failure);
+        }
+        return result;
+    }
+    
+    /**
+     * Sends a request and waits for its result
+     *
+     * @throws IllegalArgumentException if the server could not evaluate it
+     */
+    public BinaryProtocol.Result evaluate(BinaryProtocol.Request request) throws IOException {
+        try {
+            return submit(request).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for a result", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw (RuntimeException) e.getCause();
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+    
+    /**
+     * The string's ID, defining it first if it is new and the table has
+     * room; otherwise the string goes inline
+     */
+    private int intern(String s) {
+        Integer id = interned.get(s);
+        if (id != null) {
+            return id;
+        }
+        if (interned.size() >= BinaryProtocol.MAX_INTERNED) {
+            return BinaryProtocol.INLINE;
+        }
+        id = interned.size();
+        int start = BinaryProtocol.beginFrame(out, BinaryProtocol.DEFINE, 0);
+        out.putInt(id);
+        BinaryProtocol.writeString(out, s);
+        BinaryProtocol.endFrame(out, start);
+        interned.put(s, id);
+        return id;
+    }
+    
+    private void read() {
+        ByteBuffer in = ByteBuffer.allocate((BinaryProtocol.MAX_FRAME_BYTES + 4) * 2);
+        try {
+            while (true) {
+                if (channel.read(in) < 0) {
+                    throw new EOFException("Server closed the connection");
+                }
+                in.flip();
+                while (in.remaining() >= 4) {
+                    int length = in.getInt(in.position());
+                    if (length < BinaryProtocol.HEADER_BYTES || length > BinaryProtocol.MAX_FRAME_BYTES) {
+                        throw new IOException("Bad frame length " + length);
+                    }
+                    if (in.remaining() < 4 + length) {
+                        break;
+                    }
+                    ByteBuffer frame = in.slice(in.position() + 4, length);
+                    in.position(in.position() + 4 + length);
+                    byte type = frame.get();
+                    CompletableFuture<BinaryProtocol.Result> result = pending.remove(frame.getInt());
+                    if (result == null) {
+                        continue;
+                    }
+                    if (type == BinaryProtocol.RESULT) {
+                        result.complete(BinaryProtocol.readResult(frame));
+                    } else {
+                        result.completeExceptionally(new IllegalArgumentException(BinaryProtocol.readString(frame)));
+                    }
+                }
+                in.compact();
+            }
+        } catch (IOException | RuntimeException e) {
+            failure = e instanceof IOException io ? io : new IOException(e);
+            pending.values().forEach(result -> result.completeExceptionally(failure));
+            pending.clear();
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Already closed
+            }
+        }
+    }
+}
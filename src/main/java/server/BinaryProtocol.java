@@ -0,0 +1,277 @@
+package server;
+
+import core.EthicsContext;
+import core.EthicsDecision;
+import core.EthicsResult;
+import model.AIDecision;
+import model.UserData;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Frame layouts for the binary evaluation protocol
+ *
+ * Every frame is a 4-byte big-endian length, counting the bytes after it,
+ * then a type byte and the 4-byte request ID the client chose, then the
+ * payload. Requests carry their numbers at fixed offsets and refer to
+ * strings by IDs the client defined earlier on the same connection, so a
+ * decision from a sidecar that reuses its label, entity and user strings
+ * costs about sixty bytes and no text parsing. A string the client has not
+ * interned is sent inline after the fixed fields instead. Responses carry
+ * the request's ID and may arrive in any order.
+ *
+ * <pre>
+ * DEFINE    id:int  string                         (request ID unused, no reply)
+ * EVALUATE  confidence:double biasScore:double flags:int
+ *           label entity explanation purpose domain userName userEmail policy: int each
+ *           inline strings, in field order, for fields marked {@link #INLINE}
+ * RESULT    decisionId:long state:byte approved:byte
+ *           violations:short string* warnings:short string* escalationReason:string
+ * ERROR     message:string
+ * </pre>
+ *
+ * Strings are a 2-byte length and UTF-8 bytes, with length 0xFFFF for null.
+ * Longer strings are cut at the last whole character that fits.
+ */
+public final class BinaryProtocol {
+    public static final byte DEFINE = 1;
+    public static final byte EVALUATE = 2;
+    public static final byte RESULT = 3;
+    public static final byte ERROR = 4;
+    
+    // Largest frame either side accepts, excluding the length prefix
+    public static final int MAX_FRAME_BYTES = 64 * 1024;
+    // Strings a connection may intern
+    public static final int MAX_INTERNED = 4096;
+    // Type byte and request ID
+    public static final int HEADER_BYTES = 5;
+    
+    // String field left unset
+    public static final int NONE = -1;
+    // String field sent inline after the fixed fields
+    public static final int INLINE = -2;
+    
+    public static final int NEGATIVE_SOCIAL_IMPACT = 1;
+    public static final int SENSITIVE_DATA = 2;
+    public static final int CONSENT = 4;
+    
+    static final int STRING_FIELDS = 8;
+    private static final int NULL_LENGTH = 0xFFFF;
+    private static final EthicsDecision[] STATES = EthicsDecision.values();
+    
+    private BinaryProtocol() {
+    }
+    
+    /**
+     * One decision to evaluate; unset fields take the /api/evaluate defaults
+     */
+    public static final class Request {
+        public double confidence = 0.5;
+        public double biasScore = Double.NaN;
+        public boolean negativeSocialImpact;
+        public boolean sensitiveData;
+        public boolean consent = true;
+        public String label;
+        public String responsibleEntity;
+        public String explanation;
+        public String purpose;
+        public String domain;
+        public String userName;
+        public String userEmail;
+        public String policy;
+        
+        String[] strings() {
+            return new String[] {label, responsibleEntity, explanation, purpose, domain, userName, userEmail, policy};
+        }
+    }
+    
+    /**
+     * An evaluation outcome as the client sees it
+     */
+    public static final class Result {
+        public final long decisionId;
+        public final EthicsDecision state;
+        public final boolean approved;
+        public final List<String> violations;
+        public final List<String> warnings;
+        public final String escalationReason;
+        
+        Result(long decisionId, EthicsDecision state, boolean approved, List<String> violations,
+               List<String> warnings, String escalationReason) {
+            this.decisionId = decisionId;
+            this.state = state;
+            this.approved = approved;
+            this.violations = violations;
+            this.warnings = warnings;
+            this.escalationReason = escalationReason;
+        }
+    }
+    
+    /**
+     * Starts a frame, leaving room for its length
+     *
+     * @return the frame's start, for {@link #endFrame}
+     */
+    static int beginFrame(ByteBuffer out, byte type, int requestId) {
+        int start = out.position();
+        out.putInt(0).put(type).putInt(requestId);
+        return start;
+    }
+    
+    static void endFrame(ByteBuffer out, int start) {
+        out.putInt(start, out.position() - start - 4);
+    }
+    
+    /**
+     * Writes a RESULT payload
+     */
+    public static void writeResult(ByteBuffer out, EthicsResult result, boolean approved) {
+        out.putLong(result.getDecisionId());
+        out.put((byte) result.getFinalDecision().ordinal());
+        out.put((byte) (approved ? 1 : 0));
+        writeStrings(out, result.getViolations());
+        writeStrings(out, result.getWarnings());
+        writeString(out, result.getEscalationReason());
+    }
+    
+    static Result readResult(ByteBuffer in) {
+        long decisionId = in.getLong();
+        int state = in.get();
+        if (state < 0 || state >= STATES.length) {
+            throw new IllegalArgumentException("Unknown decision state " + state);
+        }
+        boolean approved = in.get() != 0;
+        List<String> violations = readStrings(in);
+        List<String> warnings = readStrings(in);
+        return new Result(decisionId, STATES[state], approved, violations, warnings, readString(in));
+    }
+    
+    /**
+     * Writes an EVALUATE payload given each string field's ID, inlining
+     * those marked {@link #INLINE}
+     */
+    static void writeRequest(ByteBuffer out, Request request, int[] ids) {
+        out.putDouble(request.confidence);
+        out.putDouble(request.biasScore);
+        out.putInt((request.negativeSocialImpact ? NEGATIVE_SOCIAL_IMPACT : 0)
+            | (request.sensitiveData ? SENSITIVE_DATA : 0) | (request.consent ? CONSENT : 0));
+        for (int id : ids) {
+            out.putInt(id);
+        }
+        String[] strings = request.strings();
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] == INLINE) {
+                writeString(out, strings[i]);
+            }
+        }
+    }
+    
+    /**
+     * Reads an EVALUATE payload into the same context /api/evaluate builds
+     *
+     * @param interned this connection's defined strings, by ID
+     * @throws IllegalArgumentException for an undefined string ID
+     */
+    static EthicsContext readRequest(ByteBuffer in, String[] interned) {
+        double confidence = in.getDouble();
+        double biasScore = in.getDouble();
+        int flags = in.getInt();
+        int[] ids = new int[STRING_FIELDS];
+        for (int i = 0; i < STRING_FIELDS; i++) {
+            ids[i] = in.getInt();
+        }
+        String[] strings = new String[STRING_FIELDS];
+        for (int i = 0; i < STRING_FIELDS; i++) {
+            int id = ids[i];
+            if (id == INLINE) {
+                strings[i] = readString(in);
+            } else if (id != NONE) {
+                if (id < 0 || id >= interned.length || interned[id] == null) {
+                    throw new IllegalArgumentException("Undefined string " + id);
+                }
+                strings[i] = interned[id];
+            }
+        }
+        
+        AIDecision decision = new AIDecision(strings[0] != null ? strings[0] : "Unknown", confidence);
+        decision.setResponsibleEntity(strings[1]);
+        decision.setExplanation(strings[2]);
+        if (!Double.isNaN(biasScore)) {
+            decision.setBiasScore(biasScore);
+        }
+        decision.setNegativeSocialImpact((flags & NEGATIVE_SOCIAL_IMPACT) != 0);
+        decision.setPurpose(strings[3]);
+        decision.setDomain(strings[4]);
+        
+        EthicsContext context = new EthicsContext(decision, new UserData(
+            strings[5] != null ? strings[5] : "User", strings[6] != null ? strings[6] : "user@example.com",
+            (flags & SENSITIVE_DATA) != 0, (flags & CONSENT) != 0));
+        context.policyOverride = strings[7];
+        return context;
+    }
+    
+    static void writeString(ByteBuffer out, String s) {
+        writeString(out, s, NULL_LENGTH - 1);
+    }
+    
+    /**
+     * Writes a string cut to at most {@code maxBytes} of UTF-8, never in
+     * the middle of a character
+     */
+    static void writeString(ByteBuffer out, String s, int maxBytes) {
+        if (s == null) {
+            out.putShort((short) NULL_LENGTH);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, Math.min(maxBytes, NULL_LENGTH - 1));
+        // Back up over continuation bytes to the start of the cut character
+        while (length < bytes.length && length > 0 && (bytes[length] & 0xC0) == 0x80) {
+            length--;
+        }
+        out.putShort((short) length);
+        out.put(bytes, 0, length);
+    }
+    
+    static String readString(ByteBuffer in) {
+        int length = in.getShort() & 0xFFFF;
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        if (in.hasArray()) {
+            String s = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+            return s;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    private static void writeStrings(ByteBuffer out, List<String> strings) {
+        out.putShort((short) strings.size());
+        for (String s : strings) {
+            writeString(out, s);
+        }
+    }
+    
+    private static List<String> readStrings(ByteBuffer in) {
+        int count = in.getShort() & 0xFFFF;
+        if (count == 0) {
+            return List.of();
+        }
+        List<String> strings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            strings.add(readString(in));
+        }
+        return strings;
+    }
+    
+    static String[] grow(String[] interned, int id) {
+        return Arrays.copyOf(interned, Math.min(MAX_INTERNED, Math.max(id + 1, interned.length * 2)));
+    }
+}
@@ -0,0 +1,323 @@
+package server;
+
+import core.EthicsContext;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Serves {@link BinaryProtocol} evaluations over Unix domain sockets and
+ * loopback TCP, for sidecars on the same host
+ *
+ * Each connection has a thread that reads frames through one buffer. With
+ * no worker threads it evaluates every request itself and writes the
+ * results for a whole read in one go, which keeps a round trip to a single
+ * thread and two system calls. With workers, requests from one connection
+ * are evaluated concurrently and each result goes back as soon as it is
+ * ready, tagged with its request ID. A request that cannot be evaluated
+ * gets an ERROR frame; a malformed frame closes the connection.
+ *
+ * @param <R> what evaluating one decision produces
+ */
+public class BinaryServer<R> {
+    
+    /**
+     * Writes one result as a RESULT payload
+     */
+    @FunctionalInterface
+    public interface Encoder<R> {
+        void write(ByteBuffer out, R result);
+    }
+    
+    private static final int FRAME_CAPACITY = BinaryProtocol.MAX_FRAME_BYTES + 4;
+    
+    private final Function<EthicsContext, R> evaluator;
+    private final Encoder<R> encoder;
+    private final ExecutorService workers;
+    private final int threads;
+    private final List<ServerSocketChannel> listeners = new CopyOnWriteArrayList<>();
+    private final Set<SocketChannel> connections = ConcurrentHashMap.newKeySet();
+    private final ThreadLocal<ByteBuffer> workerBuffers = ThreadLocal.withInitial(() -> ByteBuffer.allocate(FRAME_CAPACITY));
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private volatile boolean closed;
+    
+    /**
+     * @param threads worker threads shared by all connections, or 0 to
+     *        evaluate on each connection's own thread
+     */
+    public BinaryServer(Function<EthicsContext, R> evaluator, Encoder<R> encoder, int threads) {
+        if (threads < 0) {
+            throw new IllegalArgumentException("Threads cannot be negative");
+        }
+        this.evaluator = evaluator;
+        this.encoder = encoder;
+        this.threads = threads;
+        AtomicInteger count = new AtomicInteger();
+        this.workers = threads == 0 ? null : Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "binary-worker-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Listens on a {@link UnixDomainSocketAddress} or an
+     * {@link InetSocketAddress}. A socket file left by an earlier run is
+     * replaced.
+     *
+     * @return the bound address, with the actual port if 0 was asked for
+     */
+    public SocketAddress bind(SocketAddress address) throws IOException {
+        ServerSocketChannel listener;
+        if (address instanceof UnixDomainSocketAddress unix) {
+            Files.deleteIfExists(unix.getPath());
+            listener = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        } else {
+            listener = ServerSocketChannel.open();
+            listener.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        }
+        listener.bind(address);
+        listeners.add(listener);
+        Thread acceptor = new Thread(() -> accept(listener), "binary-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return listener.getLocalAddress();
+    }
+    
+    public void close() {
+        closed = true;
+        for (ServerSocketChannel listener : listeners) {
+            try {
+                listener.close();
+                if (listener.getLocalAddress() instanceof UnixDomainSocketAddress unix) {
+                    Files.deleteIfExists(unix.getPath());
+                }
+            } catch (IOException ignored) {
+                // Already closed
+            }
+        }
+        for (SocketChannel connection : connections) {
+            closeQuietly(connection);
+        }
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+    }
+    
+    public int getThreads() {
+        return threads;
+    }
+    
+    public int getConnectionCount() {
+        return connectionCount.get();
+    }
+    
+    /**
+     * Evaluation requests received across all connections
+     */
+    public long getRequestCount() {
+        return requests.sum();
+    }
+    
+    /**
+     * Requests answered with an ERROR frame
+     */
+    public long getErrorCount() {
+        return errors.sum();
+    }
+    
+    private void accept(ServerSocketChannel listener) {
+        while (!closed) {
+            SocketChannel channel;
+            try {
+                channel = listener.accept();
+            } catch (IOException e) {
+                return;
+            }
+            try {
+                if (channel.getRemoteAddress() instanceof InetSocketAddress) {
+                    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                }
+            } catch (IOException e) {
+                closeQuietly(channel);
+                continue;
+            }
+            connections.add(channel);
+            connectionCount.incrementAndGet();
+            Thread reader = new Thread(() -> serve(channel), "binary-connection");
+            reader.setDaemon(true);
+            reader.start();
+        }
+    }
+    
+    /**
+     * Reads frames until the client disconnects or sends a malformed one
+     */
+    private void serve(SocketChannel channel) {
+        ByteBuffer in = ByteBuffer.allocate(FRAME_CAPACITY * 2);
+        ByteBuffer out = workers == null ? ByteBuffer.allocate(FRAME_CAPACITY * 2) : null;
+        String[] interned = new String[16];
+        try {
+            while (!closed) {
+                if (channel.read(in) < 0) {
+                    break;
+                }
+                in.flip();
+                while (in.remaining() >= 4) {
+                    int length = in.getInt(in.position());
+                    if (length < BinaryProtocol.HEADER_BYTES || length > BinaryProtocol.MAX_FRAME_BYTES) {
+                        throw new EOFException("Bad frame length " + length);
+                    }
+                    if (in.remaining() < 4 + length) {
+                        break;
+                    }
+                    int end = in.position() + 4 + length;
+                    in.position(in.position() + 4);
+                    ByteBuffer frame = in.slice(in.position(), length);
+                    in.position(end);
+                    byte type = frame.get();
+                    int requestId = frame.getInt();
+                    if (type == BinaryProtocol.DEFINE) {
+                        interned = define(frame, interned);
+                    } else if (type == BinaryProtocol.EVALUATE) {
+                        requests.increment();
+                        EthicsContext context;
+                        try {
+                            context = BinaryProtocol.readRequest(frame, interned);
+                        } catch (RuntimeException e) {
+                            respond(channel, out, requestId, null, e);
+                            continue;
+                        }
+                        if (workers == null) {
+                            respond(channel, out, requestId, context, null);
+                        } else {
+                            submit(channel, requestId, context);
+                        }
+                    } else {
+                        throw new EOFException("Unknown frame type " + type);
+                    }
+                }
+                in.compact();
+                if (out != null && out.position() > 0) {
+                    flush(channel, out);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Drop the connection; the client sees it close
+        } finally {
+            connections.remove(channel);
+            connectionCount.decrementAndGet();
+            closeQuietly(channel);
+        }
+    }
+    
+    private String[] define(ByteBuffer frame, String[] interned) throws EOFException {
+        int id = frame.getInt();
+        if (id < 0 || id >= BinaryProtocol.MAX_INTERNED) {
+            throw new EOFException("String ID out of range: " + id);
+        }
+        if (id >= interned.length) {
+            interned = BinaryProtocol.grow(interned, id);
+        }
+        interned[id] = BinaryProtocol.readString(frame);
+        return interned;
+    }
+    
+    private void submit(SocketChannel channel, int requestId, EthicsContext context) {
+        try {
+            workers.execute(() -> {
+                try {
+                    respond(channel, null, requestId, context, null);
+                } catch (IOException e) {
+                    closeQuietly(channel);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            closeQuietly(channel);
+        }
+    }
+    
+    /**
+     * Evaluates and encodes one result, or the error in its place. Without
+     * workers the frame joins {@code out} for the next flush; otherwise it
+     * is written at once from the worker's own buffer.
+     */
+    private void respond(SocketChannel channel, ByteBuffer out, int requestId, EthicsContext context,
+                         RuntimeException failure) throws IOException {
+        ByteBuffer frame = out != null ? out : workerBuffers.get().clear();
+        if (frame.remaining() < FRAME_CAPACITY) {
+            flush(channel, frame);
+        }
+        int start = frame.position();
+        if (failure == null) {
+            try {
+                R result = evaluator.apply(context);
+                BinaryProtocol.beginFrame(frame, BinaryProtocol.RESULT, requestId);
+                encoder.write(frame, result);
+                BinaryProtocol.endFrame(frame, start);
+                // The shared buffer has room past one frame, so overflow alone does not catch it
+                if (frame.position() - start - 4 > BinaryProtocol.MAX_FRAME_BYTES) {
+                    throw new BufferOverflowException();
+                }
+            } catch (RuntimeException e) {
+                frame.position(start);
+                failure = e instanceof BufferOverflowException
+                    ? new IllegalStateException("Result larger than " + BinaryProtocol.MAX_FRAME_BYTES + " bytes") : e;
+            }
+        }
+        if (failure != null) {
+            errors.increment();
+            BinaryProtocol.beginFrame(frame, BinaryProtocol.ERROR, requestId);
+            BinaryProtocol.writeString(frame, String.valueOf(failure.getMessage()),
+                BinaryProtocol.MAX_FRAME_BYTES - BinaryProtocol.HEADER_BYTES - 2);
+            BinaryProtocol.endFrame(frame, start);
+        }
+        if (out == null) {
+            flush(channel, frame);
+        }
+    }
+    
+    /**
+     * Writes buffered frames; workers of one connection take turns
+     */
+    private static void flush(SocketChannel channel, ByteBuffer out) throws IOException {
+        out.flip();
+        synchronized (channel) {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+        }
+        out.clear();
+    }
+    
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // Already closed
+        }
+    }
+}
@@ -0,0 +1,402 @@
+package server;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Negotiates gzip or deflate for response bodies and decodes compressed
+ * request bodies
+ *
+ * A response is compressed when the client accepts an encoding and the
+ * body is at least the threshold, or of unknown length as streamed
+ * responses are; compressed bodies always go out chunked, deflated as they
+ * are written. Deflaters are expensive to create, holding native memory,
+ * so they are kept in a pool and reset between responses. Counters record
+ * bytes before and after compression and the time spent deflating, so the
+ * saving can be weighed against its CPU cost.
+ */
+public class Compression {
+    public static final int DEFAULT_THRESHOLD = 1024;
+    /** Most of an unread request body drained before an early error response */
+    public static final int MAX_DRAIN_BYTES = 1 << 20;
+    
+    public enum Encoding {
+        GZIP("gzip"), DEFLATE("deflate"), IDENTITY("identity");
+        
+        public final String token;
+        
+        Encoding(String token) {
+            this.token = token;
+        }
+    }
+    
+    private final int threshold;
+    private final int level;
+    private final ArrayBlockingQueue<Deflater> gzipPool;
+    private final ArrayBlockingQueue<Deflater> deflatePool;
+    
+    private final LongAdder compressed = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+    
+    public Compression() {
+        this(DEFAULT_THRESHOLD, Deflater.DEFAULT_COMPRESSION, Runtime.getRuntime().availableProcessors() * 2);
+    }
+    
+    /**
+     * @param threshold smallest body compressed, or negative to never compress
+     * @param level deflate level, 1 (fastest) to 9 (smallest), or -1 for the default
+     * @param poolSize deflaters kept for reuse per encoding
+     */
+    public Compression(int threshold, int level, int poolSize) {
+        if (level < -1 || level > 9 || poolSize < 1) {
+            throw new IllegalArgumentException("Invalid compression settings");
+        }
+        this.threshold = threshold;
+        this.level = level;
+        this.gzipPool = new ArrayBlockingQueue<>(poolSize);
+        this.deflatePool = new ArrayBlockingQueue<>(poolSize);
+    }
+    
+    public int getThreshold() {
+        return threshold;
+    }
+    
+    /**
+     * Sends the response headers and returns the stream to write the body
+     * to, compressing it if the client accepts that and it is big enough.
+     * The stream must be closed.
+     *
+     * @param length the body length, or -1 if it is streamed
+     */
+    public OutputStream begin(HttpExchange exchange, int statusCode, long length) throws IOException {
+        Encoding encoding = threshold < 0 || (length >= 0 && length < threshold)
+            ? Encoding.IDENTITY : negotiate(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+        Headers headers = exchange.getResponseHeaders();
+        if (threshold >= 0) {
+            headers.add("Vary", "Accept-Encoding");
+        }
+        if (encoding == Encoding.IDENTITY) {
+            exchange.sendResponseHeaders(statusCode, length < 0 ? 0 : length == 0 ? -1 : length);
+            return exchange.getResponseBody();
+        }
+        headers.set("Content-Encoding", encoding.token);
+        exchange.sendResponseHeaders(statusCode, 0);
+        return open(exchange.getResponseBody(), encoding);
+    }
+    
+    /**
+     * Wraps a stream so everything written to it is compressed
+     */
+    public OutputStream open(OutputStream out, Encoding encoding) throws IOException {
+        if (encoding == Encoding.IDENTITY) {
+            return out;
+        }
+        return new CompressingOutputStream(out, encoding == Encoding.GZIP);
+    }
+    
+    /**
+     * The request body, decompressed according to its Content-Encoding
+     *
+     * Reading a body that does not decode, or that ends early, throws
+     * {@link MalformedBodyException}; gzip headers are checked here already.
+     *
+     * @throws IllegalArgumentException for an encoding other than gzip,
+     *         deflate or identity
+     */
+    public static InputStream requestBody(HttpExchange exchange) throws IOException {
+        String encoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+        InputStream body = exchange.getRequestBody();
+        if (encoding == null) {
+            return body;
+        }
+        switch (encoding.trim().toLowerCase(Locale.ROOT)) {
+            case "gzip", "x-gzip" -> {
+                try {
+                    return new DecodingInputStream(new GZIPInputStream(body, 8192));
+                } catch (ZipException | EOFException e) {
+                    throw new MalformedBodyException(e);
+                }
+            }
+            case "deflate" -> {
+                return new DecodingInputStream(new InflaterInputStream(body));
+            }
+            case "identity", "" -> {
+                return body;
+            }
+            default -> throw new IllegalArgumentException("Unsupported Content-Encoding: " + encoding);
+        }
+    }
+    
+    /**
+     * Reads and drops what is left of the raw request body, up to
+     * {@link #MAX_DRAIN_BYTES}, so an error sent before the body was read
+     * reaches the client instead of a connection reset. The JDK server
+     * closes a connection whose body was not read to the end, so call this
+     * before the response and before closing the decoded body.
+     */
+    public static void drainRequestBody(HttpExchange exchange) throws IOException {
+        InputStream raw = exchange.getRequestBody();
+        byte[] buffer = new byte[8192];
+        long drained = 0;
+        int read;
+        while (drained < MAX_DRAIN_BYTES && (read = raw.read(buffer)) > 0) {
+            drained += read;
+        }
+    }
+    
+    /**
+     * A compressed request body that could not be decoded; the client's
+     * fault, so handlers answer it with 400
+     */
+    public static class MalformedBodyException extends IOException {
+        private static final long serialVersionUID = 1L;
+        
+        MalformedBodyException(IOException cause) {
+            super("Malformed compressed body: " + cause.getMessage(), cause);
+        }
+    }
+    
+    /**
+     * Reports decoder failures as {@link MalformedBodyException}, so they
+     * can be told apart from a failing connection
+     */
+    private static final class DecodingInputStream extends FilterInputStream {
+        DecodingInputStream(InputStream in) {
+            super(in);
+        }
+        
+        @Override
+        public int read() throws IOException {
+            try {
+                return in.read();
+            } catch (ZipException | EOFException e) {
+                throw new MalformedBodyException(e);
+            }
+        }
+        
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            try {
+                return in.read(b, off, len);
+            } catch (ZipException | EOFException e) {
+                throw new MalformedBodyException(e);
+            }
+        }
+    }
+    
+    /**
+     * Picks the encoding the client prefers by q-value, gzip winning ties
+     */
+    public static Encoding negotiate(String acceptEncoding) {
+        double gzip = quality(acceptEncoding, Encoding.GZIP);
+        double deflate = quality(acceptEncoding, Encoding.DEFLATE);
+        if (gzip <= 0 && deflate <= 0) {
+            return Encoding.IDENTITY;
+        }
+        return gzip >= deflate ? Encoding.GZIP : Encoding.DEFLATE;
+    }
+    
+    /**
+     * The q-value an Accept-Encoding header gives an encoding, falling back
+     * to a {@code *} entry, or 0 if neither is listed
+     */
+    static double quality(String acceptEncoding, Encoding encoding) {
+        if (acceptEncoding == null) {
+            return 0;
+        }
+        double wildcard = 0;
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.split(";");
+            String coding = params[0].trim().toLowerCase(Locale.ROOT);
+            double q = 1;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.startsWith("q=") || param.startsWith("Q=")) {
+                    try {
+                        q = Double.parseDouble(param.substring(2));
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if (coding.equals(encoding.token) || (encoding == Encoding.GZIP && coding.equals("x-gzip"))) {
+                return q;
+            }
+            if (coding.equals("*")) {
+                wildcard = q;
+            }
+        }
+        return wildcard;
+    }
+    
+    /**
+     * Responses sent compressed
+     */
+    public long getCompressedCount() {
+        return compressed.sum();
+    }
+    
+    /**
+     * Body bytes before compression
+     */
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+    
+    /**
+     * Body bytes after compression
+     */
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+    
+    /**
+     * Time spent deflating, in microseconds
+     */
+    public long getCompressionMicros() {
+        return nanos.sum() / 1_000;
+    }
+    
+    private Deflater acquire(boolean gzip) {
+        Deflater deflater = (gzip ? gzipPool : deflatePool).poll();
+        if (deflater == null) {
+            // gzip carries raw deflate data inside its own header and trailer
+            deflater = new Deflater(level, gzip);
+        }
+        return deflater;
+    }
+    
+    private void release(Deflater deflater, boolean gzip) {
+        deflater.reset();
+        if (!(gzip ? gzipPool : deflatePool).offer(deflater)) {
+            deflater.end();
+        }
+    }
+    
+    /**
+     * Deflates into the underlying stream as data is written; flush() emits
+     * a sync flush so streamed results reach the client promptly
+     */
+    private final class CompressingOutputStream extends OutputStream {
+        private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+        
+        private final OutputStream out;
+        private final boolean gzip;
+        private final CRC32 crc = new CRC32();
+        private final byte[] buffer = new byte[8192];
+        private Deflater deflater;
+        private long in;
+        private long written;
+        private long elapsed;
+        
+        CompressingOutputStream(OutputStream out, boolean gzip) throws IOException {
+            this.out = out;
+            this.gzip = gzip;
+            this.deflater = acquire(gzip);
+            if (gzip) {
+                out.write(GZIP_HEADER);
+                written += GZIP_HEADER.length;
+            }
+        }
+        
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (deflater == null) {
+                throw new IOException("Stream closed");
+            }
+            if (len == 0) {
+                return;
+            }
+            long start = System.nanoTime();
+            if (gzip) {
+                crc.update(b, off, len);
+            }
+            in += len;
+            deflater.setInput(b, off, len);
+            while (!deflater.needsInput()) {
+                drain(Deflater.NO_FLUSH);
+            }
+            elapsed += System.nanoTime() - start;
+        }
+        
+        @Override
+        public void flush() throws IOException {
+            if (deflater != null) {
+                long start = System.nanoTime();
+                int n;
+                do {
+                    n = drain(Deflater.SYNC_FLUSH);
+                } while (n == buffer.length);
+                elapsed += System.nanoTime() - start;
+            }
+            out.flush();
+        }
+        
+        @Override
+        public void close() throws IOException {
+            if (deflater == null) {
+                return;
+            }
+            try {
+                long start = System.nanoTime();
+                deflater.finish();
+                while (!deflater.finished()) {
+                    drain(Deflater.NO_FLUSH);
+                }
+                elapsed += System.nanoTime() - start;
+                if (gzip) {
+                    byte[] trailer = new byte[8];
+                    writeIntLE(trailer, 0, (int) crc.getValue());
+                    writeIntLE(trailer, 4, (int) in);
+                    out.write(trailer);
+                    written += trailer.length;
+                }
+                compressed.increment();
+                bytesIn.add(in);
+                bytesOut.add(written);
+                nanos.add(elapsed);
+            } finally {
+                release(deflater, gzip);
+                deflater = null;
+                out.close();
+            }
+        }
+        
+        private int drain(int flush) throws IOException {
+            int n = deflater.deflate(buffer, 0, buffer.length, flush);
+            if (n > 0) {
+                out.write(buffer, 0, n);
+                written += n;
+            }
+            return n;
+        }
+        
+        private void writeIntLE(byte[] target, int offset, int value) {
+            target[offset] = (byte) value;
+            target[offset + 1] = (byte) (value >>> 8);
+            target[offset + 2] = (byte) (value >>> 16);
+            target[offset + 3] = (byte) (value >>> 24);
+        }
+    }
+}
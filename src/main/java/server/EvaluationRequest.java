@@ -0,0 +1,88 @@
+package server;
+
+import core.EthicsContext;
+import model.AIDecision;
+import model.UserData;
+
+import java.io.IOException;
+
+/**
+ * Binds an /api/evaluate request body straight into an {@link EthicsContext}
+ *
+ * Fields are matched by name as they stream past, with no intermediate
+ * map. Numbers and booleans may also arrive as strings, as the demo
+ * scenarios send them; unknown fields, including nested objects and
+ * arrays, are skipped. Missing fields take the same defaults as before.
+ */
+public final class EvaluationRequest {
+    private static final JsonReader.Names FIELDS = new JsonReader.Names(
+        "decisionLabel", "confidence", "responsibleEntity", "explanation", "biasScore",
+        "negativeSocialImpact", "purpose", "domain", "userName", "userEmail",
+        "hasSensitiveData", "hasConsent", "policy");
+    
+    private EvaluationRequest() {
+    }
+    
+    /**
+     * Reads one JSON object describing a decision and its data subject
+     *
+     * @throws IllegalArgumentException if the body is not a valid request
+     */
+    public static EthicsContext read(JsonReader json) throws IOException {
+        String label = "Unknown";
+        double confidence = 0.5;
+        String responsibleEntity = null;
+        String explanation = null;
+        double biasScore = Double.NaN;
+        boolean negativeSocialImpact = false;
+        String purpose = null;
+        String domain = null;
+        String userName = "User";
+        String userEmail = "user@example.com";
+        boolean sensitiveData = false;
+        boolean consent = true;
+        String policy = null;
+        
+        json.beginObject();
+        while (json.hasNext()) {
+            int field = json.nextName(FIELDS);
+            if (json.peek() == JsonReader.Token.NULL) {
+                json.nextNull();
+                continue;
+            }
+            switch (field) {
+                case 0 -> label = json.nextString();
+                case 1 -> confidence = json.nextDouble();
+                case 2 -> responsibleEntity = json.nextString();
+                case 3 -> explanation = json.nextString();
+                case 4 -> biasScore = json.nextDouble();
+                case 5 -> negativeSocialImpact = json.nextBoolean();
+                case 6 -> purpose = json.nextString();
+                case 7 -> domain = json.nextString();
+                case 8 -> userName = json.nextString();
+                case 9 -> userEmail = json.nextString();
+                case 10 -> sensitiveData = json.nextBoolean();
+                case 11 -> consent = json.nextBoolean();
+                case 12 -> policy = json.nextString();
+                default -> json.skipValue();
+            }
+        }
+        json.endObject();
+        json.peek();
+        
+        AIDecision decision = new AIDecision(label, confidence);
+        decision.setResponsibleEntity(responsibleEntity);
+        decision.setExplanation(explanation);
+        if (!Double.isNaN(biasScore)) {
+            decision.setBiasScore(biasScore);
+        }
+        decision.setNegativeSocialImpact(negativeSocialImpact);
+        decision.setPurpose(purpose);
+        decision.setDomain(domain);
+        
+        EthicsContext context = new EthicsContext(decision,
+            new UserData(userName, userEmail, sensitiveData, consent));
+        context.policyOverride = policy;
+        return context;
+    }
+}
@@ -0,0 +1,350 @@
+package server;
+
+import communication.FeedbackService;
+import communication.NotificationListener;
+import core.DecisionListener;
+import core.EthicsContext;
+import core.EthicsDecision;
+import core.EthicsResult;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes decisions and notifications to Server-Sent Events subscribers
+ *
+ * Publishing runs on the evaluating thread but never waits on a client:
+ * each event is encoded once, only if some subscriber's filter matches,
+ * and offered to each matching subscriber's bounded buffer. A subscriber
+ * whose buffer is full has fallen behind and is dropped; it can reconnect
+ * and catch up from the history API. Each subscriber's frames are written
+ * by its own thread, so a slow connection never holds up the HTTP server.
+ */
+public class EventBroadcaster implements DecisionListener, NotificationListener {
+    public static final int DEFAULT_BUFFER_SIZE = 256;
+    public static final int DEFAULT_MAX_SUBSCRIBERS = 256;
+    public static final long HEARTBEAT_MILLIS = 15_000;
+    
+    // Wakes a subscriber's writer when it is dropped or closed
+    private static final byte[] END = new byte[0];
+    private static final byte[] HEARTBEAT = ": keepalive\n\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] DROPPED = "event: dropped\ndata: {\"reason\":\"subscriber too slow\"}\n\n"
+        .getBytes(StandardCharsets.US_ASCII);
+    
+    public enum Type {
+        DECISION, NOTIFICATION;
+        
+        final String eventName = name().toLowerCase(Locale.ROOT);
+    }
+    
+    /**
+     * Which events a subscriber receives; an empty set matches everything
+     */
+    public static class Filter {
+        public static final Filter ALL = new Filter(Set.of(), EnumSet.noneOf(EthicsDecision.class),
+            EnumSet.noneOf(Type.class));
+        
+        final Set<String> users;
+        final Set<EthicsDecision> states;
+        final Set<Type> types;
+        
+        public Filter(Set<String> users, Set<EthicsDecision> states, Set<Type> types) {
+            this.users = Set.copyOf(users);
+            this.states = states.isEmpty() ? EnumSet.noneOf(EthicsDecision.class) : EnumSet.copyOf(states);
+            this.types = types.isEmpty() ? EnumSet.noneOf(Type.class) : EnumSet.copyOf(types);
+        }
+        
+        /**
+         * Reads comma-separated {@code user}, {@code state} and {@code type}
+         * query parameters
+         *
+         * @throws IllegalArgumentException on an unknown state or type
+         */
+        public static Filter parse(Map<String, String> params) {
+            Set<String> users = new HashSet<>(split(params.get("user")));
+            Set<EthicsDecision> states = EnumSet.noneOf(EthicsDecision.class);
+            for (String state : split(params.get("state"))) {
+                states.add(EthicsDecision.valueOf(state.toUpperCase(Locale.ROOT)));
+            }
+            Set<Type> types = EnumSet.noneOf(Type.class);
+            for (String type : split(params.get("type"))) {
+                types.add(Type.valueOf(type.toUpperCase(Locale.ROOT)));
+            }
+            return new Filter(users, states, types);
+        }
+        
+        boolean matches(Type type, String user, EthicsDecision state) {
+            return (types.isEmpty() || types.contains(type))
+                && (states.isEmpty() || states.contains(state))
+                && (users.isEmpty() || (user != null && users.contains(user)));
+        }
+        
+        private static List<String> split(String value) {
+            List<String> parts = new ArrayList<>();
+            if (value != null) {
+                for (String part : value.split(",")) {
+                    if (!part.isBlank()) {
+                        parts.add(part.trim());
+                    }
+                }
+            }
+            return parts;
+        }
+    }
+    
+    /**
+     * One connected client and its buffer of encoded frames
+     */
+    public final class Subscriber implements Closeable {
+        public final Filter filter;
+        private final ArrayBlockingQueue<byte[]> buffer;
+        private volatile boolean dropped;
+        private volatile boolean closed;
+        
+        Subscriber(Filter filter, int bufferSize) {
+            this.filter = filter;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+        
+        public boolean isDropped() {
+            return dropped;
+        }
+        
+        public boolean isClosed() {
+            return closed;
+        }
+        
+        void offer(byte[] frame) {
+            if (!buffer.offer(frame)) {
+                dropped = true;
+                droppedSubscribers.incrementAndGet();
+                end();
+            }
+        }
+        
+        /**
+         * Waits for the next frame
+         *
+         * @return the frame, or null if none arrived in time or the
+         *         subscriber has ended
+         */
+        byte[] poll(long timeoutMillis) throws InterruptedException {
+            byte[] frame = buffer.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+            return frame == END ? null : frame;
+        }
+        
+        @Override
+        public void close() {
+            end();
+        }
+        
+        private void end() {
+            if (subscribers.remove(this)) {
+                closed = true;
+                // Make room for the wake-up; undelivered frames are discarded
+                buffer.clear();
+                buffer.offer(END);
+            }
+        }
+    }
+    
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final int bufferSize;
+    private final int maxSubscribers;
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong droppedSubscribers = new AtomicLong();
+    
+    public EventBroadcaster() {
+        this(DEFAULT_BUFFER_SIZE, DEFAULT_MAX_SUBSCRIBERS);
+    }
+    
+    public EventBroadcaster(int bufferSize, int maxSubscribers) {
+        this.bufferSize = bufferSize;
+        this.maxSubscribers = maxSubscribers;
+    }
+    
+    /**
+     * @throws IllegalStateException if the subscriber limit is reached
+     */
+    public synchronized Subscriber subscribe(Filter filter) {
+        if (subscribers.size() >= maxSubscribers) {
+            throw new IllegalStateException("Too many event subscribers");
+        }
+        Subscriber subscriber = new Subscriber(filter, bufferSize);
+        subscribers.add(subscriber);
+        return subscriber;
+    }
+    
+    @Override
+    public void onDecision(EthicsContext context, EthicsResult result) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        String user = null;
+        if (context.userData != null) {
+            user = context.userData.getEmail() != null ? context.userData.getEmail() : context.userData.getName();
+        }
+        EthicsDecision state = result.getFinalDecision();
+        byte[] frame = null;
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.filter.matches(Type.DECISION, user, state)) {
+                if (frame == null) {
+                    frame = encodeDecision(context, result, user);
+                }
+                subscriber.offer(frame);
+            }
+        }
+    }
+    
+    @Override
+    public void onNotification(FeedbackService.Notification notification) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        byte[] frame = null;
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.filter.matches(Type.NOTIFICATION, notification.userId, notification.getDecision())) {
+                if (frame == null) {
+                    frame = encodeNotification(notification);
+                }
+                subscriber.offer(frame);
+            }
+        }
+    }
+    
+    /**
+     * Writes the subscriber's frames to a client until it disconnects, is
+     * dropped or is closed, sending a comment line as a heartbeat when idle
+     */
+    public void stream(Subscriber subscriber, OutputStream out) throws IOException {
+        List<byte[]> frames = new ArrayList<>();
+        try {
+            while (!subscriber.isClosed()) {
+                byte[] frame = subscriber.poll(HEARTBEAT_MILLIS);
+                if (frame == null) {
+                    if (subscriber.isClosed()) {
+                        break;
+                    }
+                    out.write(HEARTBEAT);
+                } else {
+                    // Write everything already buffered before flushing once
+                    frames.add(frame);
+                    subscriber.buffer.drainTo(frames);
+                    for (byte[] queued : frames) {
+                        if (queued != END) {
+                            out.write(queued);
+                        }
+                    }
+                    frames.clear();
+                }
+                out.flush();
+            }
+            if (subscriber.isDropped()) {
+                out.write(DROPPED);
+                out.flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            subscriber.close();
+        }
+    }
+    
+    /**
+     * Streams to the client on a daemon thread of its own, closing the
+     * connection when the stream ends
+     */
+    public Thread start(Subscriber subscriber, OutputStream out, Closeable connection) {
+        Thread writer = new Thread(() -> {
+            try {
+                stream(subscriber, out);
+            } catch (IOException ignored) {
+                // Client went away
+            } finally {
+                try {
+                    connection.close();
+                } catch (IOException ignored) {
+                    // Already closed
+                }
+            }
+        }, "sse-subscriber");
+        writer.setDaemon(true);
+        writer.start();
+        return writer;
+    }
+    
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+    
+    /**
+     * Subscribers disconnected for falling behind
+     */
+    public long getDroppedSubscriberCount() {
+        return droppedSubscribers.get();
+    }
+    
+    /**
+     * Events encoded for at least one subscriber
+     */
+    public long getPublishedCount() {
+        return sequence.get();
+    }
+    
+    private byte[] encodeDecision(EthicsContext context, EthicsResult result, String user) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try {
+            Utf8Writer json = frameStart(bytes, Type.DECISION);
+            json.write("{\"decisionId\":").write(result.getDecisionId());
+            json.write(",\"decision\":\"").write(result.getFinalDecision().name());
+            json.write("\",\"label\":").writeJsonString(context.decision.getDecisionLabel());
+            json.write(",\"entity\":").writeJsonString(context.decision.getResponsibleEntity());
+            json.write(",\"user\":").writeJsonString(user);
+            json.write(",\"violations\":").write(result.getViolations().size());
+            json.write(",\"warnings\":").write(result.getWarnings().size());
+            json.write(",\"reason\":").writeJsonString(result.getEscalationReason());
+            json.write(",\"timestamp\":").write(System.currentTimeMillis());
+            json.write("}\n\n").flush();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+    
+    private byte[] encodeNotification(FeedbackService.Notification notification) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try {
+            Utf8Writer json = frameStart(bytes, Type.NOTIFICATION);
+            json.write("{\"decisionId\":").write(notification.decisionId);
+            json.write(",\"decision\":\"").write(notification.decisionType);
+            json.write("\",\"user\":").writeJsonString(notification.userId);
+            json.write(",\"message\":").writeJsonString(notification.getMessage());
+            json.write(",\"timestamp\":").write(notification.timestamp);
+            json.write("}\n\n").flush();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+    
+    private Utf8Writer frameStart(ByteArrayOutputStream bytes, Type type) throws IOException {
+        Utf8Writer writer = new Utf8Writer(bytes, 256);
+        writer.write("id: ").write(sequence.incrementAndGet());
+        writer.write("\nevent: ").write(type.eventName);
+        return writer.write("\ndata: ");
+    }
+}
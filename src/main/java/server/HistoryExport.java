@@ -0,0 +1,106 @@
+package server;
+
+import core.Pillar;
+import data.HistoryPage;
+import data.HistoryQuery;
+import data.HistoryRow;
+
+import java.io.IOException;
+import java.util.function.Function;
+
+/**
+ * Streams decision history as CSV or NDJSON a page at a time
+ * 
+ * Only one page of rows and the writer's buffer are held at once, so memory
+ * does not grow with the size of the export.
+ */
+public class HistoryExport {
+    public static final int PAGE_SIZE = 1_000;
+    
+    private static final Pillar[] PILLARS = Pillar.values();
+    
+    public enum Format {
+        CSV("text/csv; charset=utf-8", ".csv"),
+        NDJSON("application/x-ndjson", ".ndjson");
+        
+        public final String contentType;
+        public final String extension;
+        
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+    }
+    
+    /**
+     * Writes every row matching the query, starting at its cursor
+     * 
+     * @param source runs one page of the query, e.g. {@code history::query}
+     * @return the number of rows written
+     */
+    public static long write(Function<HistoryQuery, HistoryPage> source, HistoryQuery query, Format format,
+                             Utf8Writer out) throws IOException {
+        if (format == Format.CSV) {
+            out.write("ordinal,decision_id,timestamp,decision,entity,violations,warnings,violated_pillars\n");
+        }
+        query.limit(PAGE_SIZE);
+        long count = 0;
+        while (true) {
+            HistoryPage page = source.apply(query);
+            for (HistoryRow row : page.getRows()) {
+                if (format == Format.CSV) {
+                    writeCsv(row, out);
+                } else {
+                    writeJson(row, out);
+                }
+            }
+            count += page.getRows().size();
+            if (!page.hasMore()) {
+                break;
+            }
+            query.after(page.getNextCursor());
+        }
+        out.flush();
+        return count;
+    }
+    
+    private static void writeCsv(HistoryRow row, Utf8Writer out) throws IOException {
+        out.write(row.ordinal).write(',')
+            .write(row.decisionId).write(',')
+            .write(row.timestamp).write(',')
+            .write(row.decision.name()).write(',')
+            .writeCsvField(row.responsibleEntity).write(',')
+            .write(row.violationCount).write(',')
+            .write(row.warningCount).write(',');
+        boolean first = true;
+        for (Pillar pillar : PILLARS) {
+            if ((row.violationMask & (1 << pillar.ordinal())) != 0) {
+                if (!first) {
+                    out.write(';');
+                }
+                out.write(pillar.name());
+                first = false;
+            }
+        }
+        out.write('\n');
+    }
+    
+    private static void writeJson(HistoryRow row, Utf8Writer out) throws IOException {
+        out.write("{\"ordinal\":").write(row.ordinal)
+            .write(",\"decisionId\":").write(row.decisionId)
+            .write(",\"timestamp\":").write(row.timestamp)
+            .write(",\"decision\":\"").write(row.decision.name())
+            .write("\",\"entity\":").writeJsonString(row.responsibleEntity)
+            .write(",\"violations\":").write(row.violationCount)
+            .write(",\"warnings\":").write(row.warningCount)
+            .write(",\"violatedPillars\":[");
+        boolean first = true;
+        for (Pillar pillar : PILLARS) {
+            if ((row.violationMask & (1 << pillar.ordinal())) != 0) {
+                out.write(first ? "\"" : ",\"").write(pillar.name()).write('"');
+                first = false;
+            }
+        }
+        out.write("]}\n");
+    }
+}
@@ -0,0 +1,591 @@
+package server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Single-pass pull parser for JSON read straight from a byte stream
+ *
+ * The reader decodes UTF-8 as it goes, into one reusable char buffer, so
+ * skipping a value or matching a field name against {@link Names} allocates
+ * nothing, and reading a string allocates only the String itself. Numbers
+ * with up to 15 significant digits are converted without creating any text.
+ * Malformed input fails with an IllegalArgumentException giving the byte
+ * offset; nesting deeper than {@link #MAX_DEPTH} is rejected. Not
+ * thread-safe.
+ */
+public class JsonReader {
+    public static final int MAX_DEPTH = 64;
+    public static final int MAX_STRING_LENGTH = 1 << 20;
+    
+    public enum Token {
+        BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+    }
+    
+    /**
+     * Field names to match without allocating; see {@link #nextName(Names)}
+     */
+    public static final class Names {
+        private final char[][] names;
+        
+        public Names(String... names) {
+            this.names = new char[names.length][];
+            for (int i = 0; i < names.length; i++) {
+                this.names[i] = names[i].toCharArray();
+            }
+        }
+        
+        int find(char[] chars, int length) {
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].length == length && Arrays.equals(names[i], 0, length, chars, 0, length)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+    
+    // Scopes on the nesting stack
+    private static final byte EMPTY_DOCUMENT = 0;
+    private static final byte NONEMPTY_DOCUMENT = 1;
+    private static final byte EMPTY_OBJECT = 2;
+    private static final byte DANGLING_NAME = 3;
+    private static final byte NONEMPTY_OBJECT = 4;
+    private static final byte EMPTY_ARRAY = 5;
+    private static final byte NONEMPTY_ARRAY = 6;
+    
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    
+    private final InputStream in;
+    private final byte[] buffer;
+    private int position;
+    private int limit;
+    // Bytes consumed before the start of the buffer, for error offsets
+    private long offset;
+    
+    private final byte[] stack = new byte[MAX_DEPTH + 1];
+    private int depth;
+    private Token peeked;
+    
+    private char[] chars = new char[128];
+    private int length;
+    
+    public JsonReader(InputStream in) {
+        this(in, 8192);
+    }
+    
+    public JsonReader(InputStream in, int bufferSize) {
+        this.in = in;
+        this.buffer = new byte[bufferSize];
+    }
+    
+    /**
+     * Reads a complete document held in memory
+     */
+    public JsonReader(byte[] json) {
+        this.in = null;
+        this.buffer = json;
+        this.limit = json.length;
+    }
+    
+    public Token peek() throws IOException {
+        if (peeked != null) {
+            return peeked;
+        }
+        int c;
+        switch (stack[depth]) {
+            case EMPTY_DOCUMENT -> {
+                stack[depth] = NONEMPTY_DOCUMENT;
+                return peeked = peekValue();
+            }
+            case NONEMPTY_DOCUMENT -> {
+                if (nextNonWhitespace() != -1) {
+                    throw syntaxError("Unexpected data after the document");
+                }
+                return peeked = Token.END_DOCUMENT;
+            }
+            case EMPTY_OBJECT, NONEMPTY_OBJECT -> {
+                c = nextNonWhitespace();
+                if (c == '}') {
+                    position++;
+                    return peeked = Token.END_OBJECT;
+                }
+                if (stack[depth] == NONEMPTY_OBJECT) {
+                    expect(c, ',');
+                    c = nextNonWhitespace();
+                }
+                expect(c, '"');
+                stack[depth] = DANGLING_NAME;
+                return peeked = Token.NAME;
+            }
+            case DANGLING_NAME -> {
+                expect(nextNonWhitespace(), ':');
+                stack[depth] = NONEMPTY_OBJECT;
+                return peeked = peekValue();
+            }
+            case EMPTY_ARRAY -> {
+                stack[depth] = NONEMPTY_ARRAY;
+                if (nextNonWhitespace() == ']') {
+                    position++;
+                    return peeked = Token.END_ARRAY;
+                }
+                return peeked = peekValue();
+            }
+            default -> {
+                c = nextNonWhitespace();
+                if (c == ']') {
+                    position++;
+                    return peeked = Token.END_ARRAY;
+                }
+                expect(c, ',');
+                return peeked = peekValue();
+            }
+        }
+    }
+    
+    public void beginObject() throws IOException {
+        consume(Token.BEGIN_OBJECT);
+        push(EMPTY_OBJECT);
+    }
+    
+    public void endObject() throws IOException {
+        consume(Token.END_OBJECT);
+        depth--;
+    }
+    
+    public void beginArray() throws IOException {
+        consume(Token.BEGIN_ARRAY);
+        push(EMPTY_ARRAY);
+    }
+    
+    public void endArray() throws IOException {
+        consume(Token.END_ARRAY);
+        depth--;
+    }
+    
+    /**
+     * True while the current object or array has more elements
+     */
+    public boolean hasNext() throws IOException {
+        Token token = peek();
+        return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+    }
+    
+    public String nextName() throws IOException {
+        consume(Token.NAME);
+        readString();
+        return new String(chars, 0, length);
+    }
+    
+    /**
+     * Reads a field name and returns its index in {@code names}, or -1 if
+     * it is not one of them, without allocating
+     */
+    public int nextName(Names names) throws IOException {
+        consume(Token.NAME);
+        readString();
+        return names.find(chars, length);
+    }
+    
+    /**
+     * Reads a string, or a number's literal text
+     */
+    public String nextString() throws IOException {
+        Token token = peek();
+        if (token == Token.NUMBER) {
+            peeked = null;
+            readNumber();
+            return new String(chars, 0, length);
+        }
+        consume(Token.STRING);
+        readString();
+        return new String(chars, 0, length);
+    }
+    
+    /**
+     * Reads a number, or a string holding one
+     *
+     * @throws NumberFormatException if a string is not a number
+     */
+    public double nextDouble() throws IOException {
+        Token token = peek();
+        if (token == Token.STRING) {
+            peeked = null;
+            readString();
+            return Double.parseDouble(new String(chars, 0, length).trim());
+        }
+        consume(Token.NUMBER);
+        return readNumber();
+    }
+    
+    /**
+     * Reads a boolean, or a string that is {@code true} ignoring case
+     * (anything else is false, as with {@link Boolean#parseBoolean})
+     */
+    public boolean nextBoolean() throws IOException {
+        Token token = peek();
+        if (token == Token.STRING) {
+            peeked = null;
+            readString();
+            return length == 4 && (chars[0] | 0x20) == 't' && (chars[1] | 0x20) == 'r'
+                && (chars[2] | 0x20) == 'u' && (chars[3] | 0x20) == 'e';
+        }
+        consume(Token.BOOLEAN);
+        int first = nextByte();
+        position++;
+        if (first == 't') {
+            readLiteral("rue");
+            return true;
+        }
+        readLiteral("alse");
+        return false;
+    }
+    
+    public void nextNull() throws IOException {
+        consume(Token.NULL);
+        position++;
+        readLiteral("ull");
+    }
+    
+    /**
+     * Skips the next value, including everything nested inside it
+     */
+    public void skipValue() throws IOException {
+        int nested = 0;
+        do {
+            switch (peek()) {
+                case BEGIN_OBJECT -> {
+                    beginObject();
+                    nested++;
+                }
+                case BEGIN_ARRAY -> {
+                    beginArray();
+                    nested++;
+                }
+                case END_OBJECT -> {
+                    endObject();
+                    nested--;
+                }
+                case END_ARRAY -> {
+                    endArray();
+                    nested--;
+                }
+                case NAME, STRING -> {
+                    peeked = null;
+                    readString();
+                }
+                case NUMBER -> {
+                    peeked = null;
+                    readNumber();
+                }
+                case BOOLEAN -> nextBoolean();
+                case NULL -> nextNull();
+                case END_DOCUMENT -> throw syntaxError("Unexpected end of document");
+            }
+        } while (nested > 0);
+    }
+    
+    /**
+     * Bytes consumed so far
+     */
+    public long getOffset() {
+        return offset + position;
+    }
+    
+    private Token peekValue() throws IOException {
+        int c = nextNonWhitespace();
+        switch (c) {
+            case '{' -> {
+                position++;
+                return Token.BEGIN_OBJECT;
+            }
+            case '[' -> {
+                position++;
+                return Token.BEGIN_ARRAY;
+            }
+            case '"' -> {
+                position++;
+                return Token.STRING;
+            }
+            case 't', 'f' -> {
+                return Token.BOOLEAN;
+            }
+            case 'n' -> {
+                return Token.NULL;
+            }
+            case -1 -> throw syntaxError("Unexpected end of document");
+            default -> {
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    return Token.NUMBER;
+                }
+                throw syntaxError("Unexpected character '" + (char) c + "'");
+            }
+        }
+    }
+    
+    private void consume(Token expected) throws IOException {
+        Token token = peek();
+        if (token != expected) {
+            throw syntaxError("Expected " + expected + " but was " + token);
+        }
+        peeked = null;
+    }
+    
+    private void push(byte scope) {
+        if (depth == MAX_DEPTH) {
+            throw syntaxError("Nesting deeper than " + MAX_DEPTH);
+        }
+        stack[++depth] = scope;
+    }
+    
+    private void expect(int c, char expected) {
+        if (c != expected) {
+            throw syntaxError(c == -1 ? "Unexpected end of document" : "Expected '" + expected + "' but was '"
+                + (char) c + "'");
+        }
+        position++;
+    }
+    
+    /**
+     * Reads string contents after the opening quote into {@link #chars}
+     */
+    private void readString() throws IOException {
+        length = 0;
+        while (true) {
+            if (position == limit && !fill()) {
+                throw syntaxError("Unterminated string");
+            }
+            int b = buffer[position++];
+            if (b == '"') {
+                return;
+            }
+            if (b == '\\') {
+                append(readEscape());
+            } else if (b >= 0x20) {
+                append((char) b);
+            } else if (b >= 0) {
+                throw syntaxError("Unescaped control character in string");
+            } else {
+                readMultiByte(b & 0xFF);
+            }
+        }
+    }
+    
+    private char readEscape() throws IOException {
+        int c = nextByte();
+        position++;
+        switch (c) {
+            case '"', '\\', '/' -> {
+                return (char) c;
+            }
+            case 'b' -> {
+                return '\b';
+            }
+            case 'f' -> {
+                return '\f';
+            }
+            case 'n' -> {
+                return '\n';
+            }
+            case 'r' -> {
+                return '\r';
+            }
+            case 't' -> {
+                return '\t';
+            }
+            case 'u' -> {
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(nextByte(), 16);
+                    if (digit < 0) {
+                        throw syntaxError("Invalid \\u escape");
+                    }
+                    position++;
+                    value = (value << 4) | digit;
+                }
+                return (char) value;
+            }
+            default -> throw syntaxError("Invalid escape");
+        }
+    }
+    
+    /**
+     * Decodes a UTF-8 sequence whose lead byte has been read; malformed
+     * sequences become U+FFFD, one per maximal invalid subpart as the
+     * Unicode standard recommends
+     * 
+     * Only well-formed sequences are accepted: the second byte's range
+     * depends on the lead so that overlong forms, encoded surrogates and
+     * code points above U+10FFFF are rejected along with leads that can
+     * never start a sequence (C0, C1 and F5 to FF).
+     */
+    private void readMultiByte(int lead) throws IOException {
+        int count;
+        int codePoint;
+        if (lead >= 0xC2 && lead <= 0xDF) {
+            count = 1;
+            codePoint = lead & 0x1F;
+        } else if (lead >= 0xE0 && lead <= 0xEF) {
+            count = 2;
+            codePoint = lead & 0x0F;
+        } else if (lead >= 0xF0 && lead <= 0xF4) {
+            count = 3;
+            codePoint = lead & 0x07;
+        } else {
+            append('\uFFFD');
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            int low = 0x80;
+            int high = 0xBF;
+            if (i == 0) {
+                switch (lead) {
+                    case 0xE0 -> low = 0xA0;
+                    case 0xED -> high = 0x9F;
+                    case 0xF0 -> low = 0x90;
+                    case 0xF4 -> high = 0x8F;
+                    default -> { }
+                }
+            }
+            int next = nextByte();
+            if (next < low || next > high) {
+                append('\uFFFD');
+                return;
+            }
+            position++;
+            codePoint = (codePoint << 6) | (next & 0x3F);
+        }
+        if (codePoint >= 0x10000) {
+            append(Character.highSurrogate(codePoint));
+            append(Character.lowSurrogate(codePoint));
+        } else {
+            append((char) codePoint);
+        }
+    }
+    
+    /**
+     * Reads a number's text into {@link #chars} and returns its value
+     */
+    private double readNumber() throws IOException {
+        length = 0;
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean negative = false;
+        boolean fraction = false;
+        boolean exact = true;
+        int c = nextByte();
+        if (c == '-') {
+            negative = true;
+            append('-');
+            position++;
+            c = nextByte();
+        }
+        while (true) {
+            if (c >= '0' && c <= '9') {
+                if (mantissa != 0 || c != '0') {
+                    digits++;
+                }
+                if (digits <= 15) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (fraction) {
+                        scale++;
+                    }
+                } else {
+                    exact = false;
+                }
+            } else if (c == '.' && !fraction) {
+                fraction = true;
+            } else if (c == 'e' || c == 'E' || c == '+' || (c == '-' && length > 0)) {
+                exact = false;
+            } else {
+                break;
+            }
+            append((char) c);
+            position++;
+            c = nextByte();
+        }
+        if (length == 0 || chars[length - 1] == '-' || chars[length - 1] == '.') {
+            throw syntaxError("Malformed number");
+        }
+        if (exact && digits <= 15 && scale < POWERS_OF_TEN.length) {
+            // Both operands are exact doubles, so one division rounds correctly
+            double value = mantissa / POWERS_OF_TEN[scale];
+            return negative ? -value : value;
+        }
+        try {
+            return Double.parseDouble(new String(chars, 0, length));
+        } catch (NumberFormatException e) {
+            throw syntaxError("Malformed number");
+        }
+    }
+    
+    private void readLiteral(String rest) throws IOException {
+        for (int i = 0; i < rest.length(); i++) {
+            if (nextByte() != rest.charAt(i)) {
+                throw syntaxError("Invalid literal");
+            }
+            position++;
+        }
+        int c = nextByte();
+        if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')) {
+            throw syntaxError("Invalid literal");
+        }
+    }
+    
+    private void append(char c) {
+        if (length == chars.length) {
+            if (length >= MAX_STRING_LENGTH) {
+                throw syntaxError("String longer than " + MAX_STRING_LENGTH + " characters");
+            }
+            chars = Arrays.copyOf(chars, length * 2);
+        }
+        chars[length++] = c;
+    }
+    
+    /**
+     * The next byte without consuming it, or -1 at the end of input
+     */
+    private int nextByte() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position] & 0xFF;
+    }
+    
+    private int nextNonWhitespace() throws IOException {
+        while (true) {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            int c = buffer[position];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return c & 0xFF;
+            }
+            position++;
+        }
+    }
+    
+    private boolean fill() throws IOException {
+        if (in == null) {
+            return false;
+        }
+        offset += limit;
+        position = 0;
+        limit = 0;
+        int read = in.read(buffer, 0, buffer.length);
+        if (read <= 0) {
+            return false;
+        }
+        limit = read;
+        return true;
+    }
+    
+    private IllegalArgumentException syntaxError(String message) {
+        return new IllegalArgumentException("Malformed JSON at byte " + (offset + position) + ": " + message);
+    }
+}
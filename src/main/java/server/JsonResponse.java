@@ -0,0 +1,76 @@
+package server;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Sends JSON responses encoded straight into pooled byte buffers
+ *
+ * The body is written as UTF-8 into an in-memory {@link Utf8Writer}
+ * borrowed from a shared pool, so its length is known for the headers,
+ * then copied once to the exchange, deflated on the way if a
+ * {@link Compression} is given and the body is large enough. Writers go
+ * back to the pool afterwards; one that grew past
+ * {@link #MAX_POOLED_CAPACITY} for an unusually large response is left for
+ * the garbage collector so the pool stays small.
+ */
+public final class JsonResponse {
+    public static final int INITIAL_CAPACITY = 4 * 1024;
+    public static final int MAX_POOLED_CAPACITY = 256 * 1024;
+    public static final int POOL_SIZE = 64;
+    
+    /**
+     * Writes a response body
+     */
+    @FunctionalInterface
+    public interface Body {
+        void writeTo(Utf8Writer json) throws IOException;
+    }
+    
+    private static final ArrayBlockingQueue<Utf8Writer> POOL = new ArrayBlockingQueue<>(POOL_SIZE);
+    
+    private JsonResponse() {
+    }
+    
+    public static void send(HttpExchange exchange, int statusCode, Body body) throws IOException {
+        send(exchange, statusCode, null, body);
+    }
+    
+    /**
+     * @param compression negotiates gzip or deflate for large bodies, or
+     *        null to always send them as is
+     */
+    public static void send(HttpExchange exchange, int statusCode, Compression compression, Body body)
+            throws IOException {
+        Utf8Writer json = acquire();
+        try {
+            body.writeTo(json);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            if (compression == null) {
+                exchange.sendResponseHeaders(statusCode, json.getBytesWritten());
+            }
+            try (OutputStream out = compression != null
+                    ? compression.begin(exchange, statusCode, json.getBytesWritten())
+                    : exchange.getResponseBody()) {
+                json.writeTo(out);
+            }
+        } finally {
+            release(json);
+        }
+    }
+    
+    static Utf8Writer acquire() {
+        Utf8Writer json = POOL.poll();
+        return json != null ? json : new Utf8Writer(INITIAL_CAPACITY);
+    }
+    
+    static void release(Utf8Writer json) {
+        if (json.getCapacity() <= MAX_POOLED_CAPACITY) {
+            json.reset(null);
+            POOL.offer(json);
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import data.Histogram;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Metrics in the Prometheus text exposition format
+ *
+ * Counters and histograms are updated lock-free by the threads doing the
+ * work; labelled children are created once and should be kept by callers
+ * on hot paths. Gauges, and counters whose values live elsewhere, are read
+ * from suppliers only when scraped. A scrape reads every cell without
+ * locking, so it never holds up a thread that is recording.
+ */
+public class Metrics {
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    
+    private final Map<String, Family> families = new LinkedHashMap<>();
+    
+    /**
+     * Counters sharing a name, one per combination of label values
+     */
+    public final class Counters extends Family {
+        private final ConcurrentHashMap<List<String>, LongAdder> children = new ConcurrentHashMap<>();
+        
+        Counters(String name, String help, String[] labelNames) {
+            super(name, help, "counter", labelNames);
+        }
+        
+        public LongAdder labels(String... values) {
+            return children.computeIfAbsent(checked(values), key -> new LongAdder());
+        }
+        
+        @Override
+        void write(Utf8Writer out) throws IOException {
+            for (Map.Entry<List<String>, LongAdder> child : children.entrySet()) {
+                sample(out, name, labelNames, child.getKey(), null, null);
+                out.write(child.getValue().sum()).write('\n');
+            }
+        }
+    }
+    
+    /**
+     * Histograms sharing a name and buckets, one per combination of label
+     * values
+     */
+    public final class Histograms extends Family {
+        private final double[] bounds;
+        private final String[] les;
+        private final ConcurrentHashMap<List<String>, Histogram> children = new ConcurrentHashMap<>();
+        
+        Histograms(String name, String help, double[] bounds, String[] labelNames) {
+            super(name, help, "histogram", labelNames);
+            this.bounds = bounds.clone();
+            this.les = new String[bounds.length + 1];
+            for (int i = 0; i < bounds.length; i++) {
+                les[i] = BigDecimal.valueOf(bounds[i]).stripTrailingZeros().toPlainString();
+            }
+            les[bounds.length] = "+Inf";
+        }
+        
+        public Histogram labels(String... values) {
+            return children.computeIfAbsent(checked(values), key -> new Histogram(bounds));
+        }
+        
+        @Override
+        void write(Utf8Writer out) throws IOException {
+            for (Map.Entry<List<String>, Histogram> child : children.entrySet()) {
+                List<String> values = child.getKey();
+                Histogram histogram = child.getValue();
+                long[] counts = histogram.getCumulativeCounts();
+                for (int i = 0; i < counts.length; i++) {
+                    sample(out, name + "_bucket", labelNames, values, "le", les[i]);
+                    out.write(counts[i]).write('\n');
+                }
+                sample(out, name + "_sum", labelNames, values, null, null);
+                value(out, histogram.getSumSeconds());
+                sample(out, name + "_count", labelNames, values, null, null);
+                out.write(counts[counts.length - 1]).write('\n');
+            }
+        }
+    }
+    
+    /**
+     * Values read from suppliers at scrape time
+     */
+    private final class Functions extends Family {
+        private final List<Map.Entry<List<String>, DoubleSupplier>> series = new CopyOnWriteArrayList<>();
+        
+        Functions(String name, String help, String type, String[] labelNames) {
+            super(name, help, type, labelNames);
+        }
+        
+        @Override
+        void write(Utf8Writer out) throws IOException {
+            for (Map.Entry<List<String>, DoubleSupplier> one : series) {
+                sample(out, name, labelNames, one.getKey(), null, null);
+                value(out, one.getValue().getAsDouble());
+            }
+        }
+    }
+    
+    abstract static class Family {
+        final String name;
+        final String help;
+        final String type;
+        final String[] labelNames;
+        
+        Family(String name, String help, String type, String[] labelNames) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+            this.labelNames = labelNames;
+        }
+        
+        List<String> checked(String[] values) {
+            if (values.length != labelNames.length) {
+                throw new IllegalArgumentException(name + " takes labels " + Arrays.toString(labelNames));
+            }
+            return List.of(values);
+        }
+        
+        abstract void write(Utf8Writer out) throws IOException;
+    }
+    
+    public synchronized Counters counter(String name, String help, String... labelNames) {
+        return register(name, Counters.class, () -> new Counters(name, help, labelNames));
+    }
+    
+    /**
+     * @param bounds bucket upper bounds in seconds
+     */
+    public synchronized Histograms histogram(String name, String help, double[] bounds, String... labelNames) {
+        return register(name, Histograms.class, () -> new Histograms(name, help, bounds, labelNames));
+    }
+    
+    /**
+     * A histogram kept elsewhere, such as by the worker pool, exported
+     * under the given name with its own buckets
+     */
+    public synchronized void histogram(String name, String help, Histogram histogram) {
+        Histograms family = histogram(name, help, histogram.getBounds());
+        if (family.children.putIfAbsent(List.of(), histogram) != null) {
+            throw new IllegalArgumentException(name + " is already registered");
+        }
+    }
+    
+    /**
+     * A value that can go up and down, read when scraped
+     */
+    public void gauge(String name, String help, DoubleSupplier value) {
+        function(name, help, "gauge", new String[0], new String[0], value);
+    }
+    
+    /**
+     * One labelled series of a gauge; series registered under the same name
+     * are reported together
+     */
+    public void gauge(String name, String help, String labelName, String labelValue, DoubleSupplier value) {
+        function(name, help, "gauge", new String[] {labelName}, new String[] {labelValue}, value);
+    }
+    
+    /**
+     * A count kept elsewhere, such as by the engine or the JVM, read when
+     * scraped
+     */
+    public void counter(String name, String help, DoubleSupplier value) {
+        function(name, help, "counter", new String[0], new String[0], value);
+    }
+    
+    public void counter(String name, String help, String labelName, String labelValue, DoubleSupplier value) {
+        function(name, help, "counter", new String[] {labelName}, new String[] {labelValue}, value);
+    }
+    
+    /**
+     * Registers garbage collection, memory, thread and allocation metrics
+     * for this JVM. Allocation is summed over live threads, so bytes
+     * allocated by threads that have since exited drop out of it.
+     */
+    public void registerJvmMetrics() {
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            counter("raig_jvm_gc_collections_total", "Garbage collections by collector",
+                "gc", gc.getName(), gc::getCollectionCount);
+            counter("raig_jvm_gc_collection_seconds_total", "Time spent in garbage collection by collector",
+                "gc", gc.getName(), () -> gc.getCollectionTime() / 1e3);
+        }
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        gauge("raig_jvm_memory_used_bytes", "Memory in use by area",
+            "area", "heap", () -> memory.getHeapMemoryUsage().getUsed());
+        gauge("raig_jvm_memory_used_bytes", "Memory in use by area",
+            "area", "nonheap", () -> memory.getNonHeapMemoryUsage().getUsed());
+        gauge("raig_jvm_memory_max_bytes", "Largest heap the JVM will grow to",
+            () -> memory.getHeapMemoryUsage().getMax());
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        gauge("raig_jvm_threads", "Live threads", threads::getThreadCount);
+        if (threads instanceof com.sun.management.ThreadMXBean allocation
+                && allocation.isThreadAllocatedMemorySupported() && allocation.isThreadAllocatedMemoryEnabled()) {
+            gauge("raig_jvm_allocated_bytes", "Bytes allocated by live threads since they started",
+                () -> sum(allocation.getThreadAllocatedBytes(threads.getAllThreadIds())));
+        }
+    }
+    
+    /**
+     * Wraps a handler to count its requests by status code and time them
+     *
+     * @param endpoint the label identifying the handler, usually its path
+     */
+    public HttpHandler timed(String endpoint, HttpHandler handler) {
+        Histogram duration = histogram("raig_http_request_duration_seconds",
+            "Time from dispatch until the handler returns", Histogram.DEFAULT_BOUNDS, "endpoint").labels(endpoint);
+        Counters requests = counter("raig_http_requests_total", "HTTP requests by endpoint and status",
+            "endpoint", "code");
+        // Status codes are few, so a small cache avoids building a key per request
+        ConcurrentHashMap<Integer, LongAdder> byCode = new ConcurrentHashMap<>();
+        return exchange -> {
+            long start = System.nanoTime();
+            try {
+                handler.handle(exchange);
+            } finally {
+                duration.record(System.nanoTime() - start);
+                int code = exchange.getResponseCode();
+                byCode.computeIfAbsent(code, c -> requests.labels(endpoint, c < 0 ? "none" : Integer.toString(c)))
+                    .increment();
+            }
+        };
+    }
+    
+    /**
+     * Writes every metric in registration order
+     */
+    public void write(Utf8Writer out) throws IOException {
+        List<Family> snapshot;
+        synchronized (this) {
+            snapshot = new ArrayList<>(families.values());
+        }
+        for (Family family : snapshot) {
+            out.write("# HELP ").write(family.name).write(' ').write(escapeHelp(family.help)).write('\n');
+            out.write("# TYPE ").write(family.name).write(' ').write(family.type).write('\n');
+            family.write(out);
+        }
+    }
+    
+    /**
+     * Answers a scrape, compressed if the scraper accepts it
+     */
+    public void send(HttpExchange exchange, Compression compression) throws IOException {
+        Utf8Writer text = JsonResponse.acquire();
+        try {
+            write(text);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            try (OutputStream out = compression.begin(exchange, 200, text.getBytesWritten())) {
+                text.writeTo(out);
+            }
+        } finally {
+            JsonResponse.release(text);
+        }
+    }
+    
+    private synchronized void function(String name, String help, String type, String[] labelNames,
+                                       String[] labelValues, DoubleSupplier value) {
+        Functions family = register(name, Functions.class, () -> new Functions(name, help, type, labelNames));
+        if (!family.type.equals(type)) {
+            throw new IllegalArgumentException(name + " is already a " + family.type);
+        }
+        family.series.add(Map.entry(family.checked(labelValues), value));
+    }
+    
+    private <F extends Family> F register(String name, Class<F> kind, Supplier<F> create) {
+        Family existing = families.get(name);
+        if (existing == null) {
+            F created = create.get();
+            families.put(name, created);
+            return created;
+        }
+        if (!kind.isInstance(existing)) {
+            throw new IllegalArgumentException(name + " is already registered as a " + existing.type);
+        }
+        return kind.cast(existing);
+    }
+    
+    private static void sample(Utf8Writer out, String name, String[] labelNames, List<String> labelValues,
+                               String extraName, String extraValue) throws IOException {
+        out.write(name);
+        if (labelNames.length > 0 || extraName != null) {
+            out.write('{');
+            for (int i = 0; i < labelNames.length; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                label(out, labelNames[i], labelValues.get(i));
+            }
+            if (extraName != null) {
+                if (labelNames.length > 0) {
+                    out.write(',');
+                }
+                label(out, extraName, extraValue);
+            }
+            out.write('}');
+        }
+        out.write(' ');
+    }
+    
+    private static void label(Utf8Writer out, String name, String value) throws IOException {
+        out.write(name).write("=\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '"') {
+                out.write('\\').write(c);
+            } else if (c == '\n') {
+                out.write("\\n");
+            } else {
+                out.write(c);
+            }
+        }
+        out.write('"');
+    }
+    
+    private static void value(Utf8Writer out, double value) throws IOException {
+        if (Double.isNaN(value)) {
+            out.write("NaN");
+        } else if (Double.isInfinite(value)) {
+            out.write(value > 0 ? "+Inf" : "-Inf");
+        } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            // Counts and byte totals read better without the ".0"
+            out.write((long) value);
+        } else {
+            out.write(value);
+        }
+        out.write('\n');
+    }
+    
+    private static long sum(long[] values) {
+        long total = 0;
+        for (long value : values) {
+            // -1 marks a thread that exited between listing and reading
+            if (value > 0) {
+                total += value;
+            }
+        }
+        return total;
+    }
+    
+    private static String escapeHelp(String help) {
+        return help.replace("\\", "\\\\").replace("\n", "\\n");
+    }
+}
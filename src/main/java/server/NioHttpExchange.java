@@ -0,0 +1,537 @@
+package server;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpPrincipal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One request and its response on a {@link NioHttpServer} connection
+ *
+ * Behaves as the JDK server's exchanges do: a response length of zero
+ * sends the body chunked, -1 sends none, and HEAD, 204 and 304 responses
+ * never carry one. Headers for a fixed-length response go out with the
+ * first body bytes; streamed responses send them straight away so a
+ * client sees the status before the first event.
+ */
+final class NioHttpExchange extends HttpExchange {
+    private static final int CHUNK_SIZE = 8 * 1024;
+    private static final DateTimeFormatter DATE_FORMAT =
+        DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+    private static volatile String cachedDate = "";
+    private static volatile long cachedDateSecond;
+    
+    private final NioHttpServer.Connection connection;
+    private final String method;
+    private final URI uri;
+    private final String protocol;
+    private final Headers requestHeaders;
+    private final Headers responseHeaders = new Headers();
+    private final HttpContext context;
+    private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+    private final boolean closeRequested;
+    
+    final RequestBody body;
+    private final ResponseBody response = new ResponseBody();
+    private InputStream in;
+    private OutputStream out;
+    private volatile int responseCode = -1;
+    
+    NioHttpExchange(NioHttpServer.Connection connection, String method, URI uri, String protocol, Headers requestHeaders,
+                    HttpContext context, boolean closeRequested, boolean emptyBody) {
+        this.connection = connection;
+        this.method = method;
+        this.uri = uri;
+        this.protocol = protocol;
+        this.requestHeaders = requestHeaders;
+        this.context = context;
+        this.closeRequested = closeRequested;
+        this.body = new RequestBody(connection);
+        if (emptyBody) {
+            body.finish();
+        }
+        this.in = body;
+        this.out = response;
+    }
+    
+    /**
+     * Runs the handler on the calling worker thread. A handler that fails
+     * before sending headers gets a 500; one that fails mid-response has
+     * its connection closed, since the client cannot be told otherwise.
+     */
+    void run(HttpHandler handler) {
+        try {
+            handler.handle(this);
+        } catch (Throwable e) {
+            if (!isResponseStarted()) {
+                respond(500, "<h1>500 Internal Server Error</h1>", true);
+            } else {
+                response.abort();
+            }
+        }
+    }
+    
+    /**
+     * Sends a small HTML error page, optionally closing the connection
+     */
+    void respond(int code, String html, boolean close) {
+        try {
+            byte[] bytes = html.getBytes(StandardCharsets.UTF_8);
+            responseHeaders.set("Content-Type", "text/html");
+            if (close) {
+                responseHeaders.set("Connection", "close");
+            }
+            sendResponseHeaders(code, bytes.length);
+            response.write(bytes, 0, bytes.length);
+            response.close();
+        } catch (IOException e) {
+            response.abort();
+        }
+    }
+    
+    boolean isResponseStarted() {
+        return responseCode != -1;
+    }
+    
+    @Override
+    public Headers getRequestHeaders() {
+        return requestHeaders;
+    }
+    
+    @Override
+    public Headers getResponseHeaders() {
+        return responseHeaders;
+    }
+    
+    @Override
+    public URI getRequestURI() {
+        return uri;
+    }
+    
+    @Override
+    public String getRequestMethod() {
+        return method;
+    }
+    
+    @Override
+    public HttpContext getHttpContext() {
+        return context;
+    }
+    
+    @Override
+    public void close() {
+        try {
+            in.close();
+        } catch (IOException ignored) {
+            // Discarding input cannot fail
+        }
+        if (!isResponseStarted()) {
+            // Like the JDK server, give up on the connection
+            response.abort();
+            return;
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            response.abort();
+        }
+    }
+    
+    @Override
+    public InputStream getRequestBody() {
+        return in;
+    }
+    
+    @Override
+    public OutputStream getResponseBody() {
+        return out;
+    }
+    
+    @Override
+    public void sendResponseHeaders(int rCode, long responseLength) throws IOException {
+        if (isResponseStarted()) {
+            throw new IOException("Headers already sent");
+        }
+        boolean head = "HEAD".equals(method);
+        boolean noBody = head || rCode == 204 || rCode == 304 || (rCode >= 100 && rCode < 200);
+        long length;
+        if (noBody) {
+            length = -1;
+            if (!head) {
+                responseHeaders.remove("Content-Length");
+            }
+        } else if (responseLength == 0) {
+            length = 0;
+            responseHeaders.set("Transfer-Encoding", "chunked");
+        } else {
+            length = Math.max(responseLength, 0);
+            responseHeaders.set("Content-Length", Long.toString(length));
+            if (length == 0) {
+                length = -1;
+            }
+        }
+        String connectionHeader = responseHeaders.getFirst("Connection");
+        boolean close = closeRequested || (connectionHeader != null && connectionHeader.equalsIgnoreCase("close"));
+        if (close) {
+            responseHeaders.set("Connection", "close");
+        }
+        responseHeaders.set("Date", date());
+        responseCode = rCode;
+        response.start(headerBytes(rCode), length, close);
+    }
+    
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return connection.getRemoteAddress();
+    }
+    
+    @Override
+    public int getResponseCode() {
+        return responseCode;
+    }
+    
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return connection.getLocalAddress();
+    }
+    
+    @Override
+    public String getProtocol() {
+        return protocol;
+    }
+    
+    @Override
+    public Object getAttribute(String name) {
+        return attributes.get(name);
+    }
+    
+    @Override
+    public void setAttribute(String name, Object value) {
+        if (value == null) {
+            attributes.remove(name);
+        } else {
+            attributes.put(name, value);
+        }
+    }
+    
+    @Override
+    public void setStreams(InputStream i, OutputStream o) {
+        if (i != null) {
+            in = i;
+        }
+        if (o != null) {
+            out = o;
+        }
+    }
+    
+    @Override
+    public HttpPrincipal getPrincipal() {
+        return null;
+    }
+    
+    private byte[] headerBytes(int rCode) {
+        StringBuilder head = new StringBuilder(256);
+        head.append("HTTP/1.1 ").append(rCode).append(' ').append(NioHttpServer.reason(rCode)).append("\r\n");
+        for (Map.Entry<String, List<String>> header : responseHeaders.entrySet()) {
+            for (String value : header.getValue()) {
+                head.append(header.getKey()).append(": ").append(value).append("\r\n");
+            }
+        }
+        head.append("\r\n");
+        return head.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+    
+    /**
+     * The Date header, formatted at most once a second
+     */
+    private static String date() {
+        long second = System.currentTimeMillis() / 1000;
+        if (second != cachedDateSecond) {
+            cachedDate = DATE_FORMAT.format(ZonedDateTime.now(ZoneOffset.UTC));
+            cachedDateSecond = second;
+        }
+        return cachedDate;
+    }
+    
+    /**
+     * Request body bytes handed over by the event loop
+     *
+     * Reading stops on the loop once {@link #HIGH_WATER} bytes are waiting
+     * and resumes when the handler has consumed them down to
+     * {@link #LOW_WATER}, so a slow handler holds back a fast client
+     * instead of buffering its whole upload.
+     */
+    static final class RequestBody extends InputStream {
+        static final int HIGH_WATER = 256 * 1024;
+        static final int LOW_WATER = 64 * 1024;
+        
+        private final NioHttpServer.Connection connection;
+        private final ArrayDeque<byte[]> chunks = new ArrayDeque<>();
+        private int offset;
+        private int queued;
+        private boolean finished;
+        private boolean aborted;
+        private boolean discarding;
+        private boolean paused;
+        
+        RequestBody(NioHttpServer.Connection connection) {
+            this.connection = connection;
+        }
+        
+        /**
+         * Called on the loop with the next body bytes
+         */
+        synchronized void offer(byte[] data, int start, int length) {
+            if (discarding || aborted || length == 0) {
+                return;
+            }
+            byte[] copy = new byte[length];
+            System.arraycopy(data, start, copy, 0, length);
+            chunks.add(copy);
+            queued += length;
+            notifyAll();
+        }
+        
+        /**
+         * Whether the loop should stop reading until the handler catches up
+         */
+        synchronized boolean isFull() {
+            paused = !discarding && queued >= HIGH_WATER;
+            return paused;
+        }
+        
+        synchronized void finish() {
+            finished = true;
+            notifyAll();
+        }
+        
+        /**
+         * The connection closed before the body was complete
+         */
+        synchronized void abort() {
+            if (!finished) {
+                aborted = true;
+            }
+            notifyAll();
+        }
+        
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+        
+        @Override
+        public synchronized int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (chunks.isEmpty()) {
+                if (discarding || finished) {
+                    return -1;
+                }
+                if (aborted) {
+                    throw new IOException("Connection closed before the request body was complete");
+                }
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while reading the request body");
+                }
+            }
+            int n = 0;
+            while (n < len && !chunks.isEmpty()) {
+                byte[] head = chunks.peek();
+                int count = Math.min(len - n, head.length - offset);
+                System.arraycopy(head, offset, b, off + n, count);
+                n += count;
+                offset += count;
+                if (offset == head.length) {
+                    chunks.poll();
+                    offset = 0;
+                }
+            }
+            queued -= n;
+            if (paused && queued <= LOW_WATER) {
+                paused = false;
+                connection.loop.execute(connection::resumeReading);
+            }
+            return n;
+        }
+        
+        @Override
+        public synchronized int available() {
+            return queued;
+        }
+        
+        /**
+         * Drops anything unread; the loop still consumes the rest of the body
+         * from the connection so the next pipelined request can be parsed
+         */
+        @Override
+        public synchronized void close() {
+            if (discarding) {
+                return;
+            }
+            discarding = true;
+            chunks.clear();
+            queued = 0;
+            if (paused) {
+                paused = false;
+                connection.loop.execute(connection::resumeReading);
+            }
+            notifyAll();
+        }
+    }
+    
+    /**
+     * The response, framed as the headers asked and queued to the loop in
+     * blocks of up to {@link #CHUNK_SIZE}
+     */
+    private final class ResponseBody extends OutputStream {
+        private static final byte[] CRLF = {'\r', '\n'};
+        private static final byte[] LAST_CHUNK = {'0', '\r', '\n', '\r', '\n'};
+        
+        private byte[] head;
+        private byte[] buffer;
+        private int count;
+        private long length;
+        private long written;
+        private boolean chunked;
+        private boolean close;
+        private boolean done;
+        
+        void start(byte[] headers, long length, boolean close) throws IOException {
+            this.length = length;
+            this.chunked = length == 0;
+            this.close = close;
+            this.head = headers;
+            this.buffer = new byte[CHUNK_SIZE];
+            if (length <= 0) {
+                // Streamed or bodiless: let the client see the status now
+                drain(false);
+            }
+        }
+        
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (done) {
+                throw new IOException("Response already closed");
+            }
+            if (buffer == null) {
+                throw new IOException("Response headers not sent");
+            }
+            if (len == 0) {
+                return;
+            }
+            if (length < 0) {
+                throw new IOException("Response has no body");
+            }
+            if (length > 0 && written + len > length) {
+                throw new IOException("Response longer than its Content-Length");
+            }
+            written += len;
+            while (len > 0) {
+                int n = Math.min(len, buffer.length - count);
+                System.arraycopy(b, off, buffer, count, n);
+                count += n;
+                off += n;
+                len -= n;
+                if (count == buffer.length) {
+                    drain(false);
+                }
+            }
+        }
+        
+        @Override
+        public void flush() throws IOException {
+            if (buffer != null && !done && count > 0) {
+                drain(false);
+            }
+        }
+        
+        @Override
+        public void close() throws IOException {
+            if (done || buffer == null) {
+                return;
+            }
+            done = true;
+            // A body cut short leaves the client waiting for the rest
+            boolean shortBody = length > 0 && written < length;
+            try {
+                drain(true);
+            } finally {
+                finish(close || shortBody);
+            }
+        }
+        
+        /**
+         * The handler failed or the exchange was abandoned
+         */
+        void abort() {
+            if (!done) {
+                done = true;
+                finish(true);
+            }
+        }
+        
+        /**
+         * Copies any unsent headers and the buffered body, framed as a chunk
+         * if need be, into one block for the loop
+         */
+        private void drain(boolean last) throws IOException {
+            byte[] size = chunked && count > 0
+                ? (Integer.toHexString(count) + "\r\n").getBytes(StandardCharsets.ISO_8859_1) : null;
+            int total = (head != null ? head.length : 0) + count
+                + (size != null ? size.length + CRLF.length : 0) + (chunked && last ? LAST_CHUNK.length : 0);
+            if (total == 0) {
+                return;
+            }
+            ByteBuffer block = ByteBuffer.allocate(total);
+            if (head != null) {
+                block.put(head);
+                head = null;
+            }
+            if (size != null) {
+                block.put(size);
+            }
+            block.put(buffer, 0, count);
+            if (size != null) {
+                block.put(CRLF);
+            }
+            if (chunked && last) {
+                block.put(LAST_CHUNK);
+            }
+            count = 0;
+            connection.send(block.flip());
+        }
+        
+        private void finish(boolean closeConnection) {
+            connection.loop.execute(() -> connection.responseComplete(closeConnection));
+        }
+    }
+}
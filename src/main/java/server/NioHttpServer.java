@@ -0,0 +1,1143 @@
+package server;
+
+import com.sun.net.httpserver.Authenticator;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An HTTP/1.1 server on non-blocking NIO selectors that runs the same
+ * {@link HttpHandler}s as the JDK's built-in server
+ *
+ * Connections are spread over N event-loop threads, each with its own
+ * selector. Where the platform supports {@code SO_REUSEPORT} every loop
+ * binds its own listening socket to the port and the kernel balances new
+ * connections across them; elsewhere the first loop accepts for all and
+ * hands connections out round-robin. Loops only move bytes and parse
+ * request heads: handlers run on the executor, reading the request body
+ * and writing the response through streams that the loop fills and
+ * drains, with backpressure in both directions.
+ *
+ * Each loop owns one direct buffer for reads and one for writes, shared by
+ * all of its connections, so an idle keep-alive connection holds no buffer
+ * at all. Requests pipelined on a connection are buffered and answered in
+ * order, one at a time. Handlers must not run on a loop thread, so an
+ * executor that runs tasks on the submitting thread, as a full
+ * {@link WorkerExecutor} queue does, has those requests answered with 503.
+ * Filters and authenticators are not supported.
+ *
+ * Keep-alive connections with nothing in flight close after the idle
+ * timeout. A request in progress has its own deadline: its head must
+ * arrive in full within the request timeout of its first byte, or it gets
+ * a 408, and its body must keep arriving, with no gap longer than the
+ * request timeout while the handler is ready for more, or the connection
+ * is closed. Clients that trickle a request cannot hold a connection.
+ */
+public class NioHttpServer extends HttpServer {
+    public static final int MAX_HEADER_BYTES = 16 * 1024;
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 30_000;
+    public static final long DEFAULT_REQUEST_TIMEOUT_MILLIS = 10_000;
+    
+    // Pipelined input buffered while a response is outstanding
+    static final int MAX_PIPELINED_BYTES = 64 * 1024;
+    // Response bytes queued before a handler's writes block
+    static final int MAX_PENDING_OUTPUT = 1024 * 1024;
+    
+    private static final int LOOP_BUFFER_SIZE = 64 * 1024;
+    private static final byte[] CONTINUE = "HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] EMPTY = new byte[0];
+    
+    private final int loopCount;
+    private final List<Context> contexts = new CopyOnWriteArrayList<>();
+    private final List<Loop> loops = new ArrayList<>();
+    private final AtomicInteger nextLoop = new AtomicInteger();
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicInteger open = new AtomicInteger();
+    private volatile long idleTimeoutMillis = DEFAULT_IDLE_TIMEOUT_MILLIS;
+    private volatile long requestTimeoutMillis = DEFAULT_REQUEST_TIMEOUT_MILLIS;
+    private InetSocketAddress address;
+    private int backlog;
+    private Executor executor;
+    private ExecutorService ownExecutor;
+    private boolean reusePort;
+    private volatile boolean started;
+    
+    /**
+     * @param loops event-loop threads, at least one
+     */
+    public NioHttpServer(int loops) {
+        if (loops < 1) {
+            throw new IllegalArgumentException("Need at least one event loop");
+        }
+        this.loopCount = loops;
+    }
+    
+    public static NioHttpServer create(InetSocketAddress address, int backlog, int loops) throws IOException {
+        NioHttpServer server = new NioHttpServer(loops);
+        server.bind(address, backlog);
+        return server;
+    }
+    
+    /**
+     * Whether the platform lets several sockets listen on one port
+     */
+    public static boolean supportsReusePort() {
+        try (ServerSocketChannel probe = ServerSocketChannel.open()) {
+            return probe.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+    
+    @Override
+    public synchronized void bind(InetSocketAddress address, int backlog) throws IOException {
+        if (this.address != null) {
+            throw new IllegalStateException("Already bound");
+        }
+        reusePort = loopCount > 1 && supportsReusePort();
+        for (int i = 0; i < loopCount; i++) {
+            loops.add(new Loop(i));
+        }
+        for (Loop loop : loops) {
+            if (loop.index == 0 || reusePort) {
+                ServerSocketChannel channel = ServerSocketChannel.open();
+                if (reusePort) {
+                    channel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+                }
+                channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+                // Later loops bind to the port the first one was given
+                channel.bind(loop.index == 0 ? address : this.address, backlog);
+                channel.configureBlocking(false);
+                if (loop.index == 0) {
+                    this.address = (InetSocketAddress) channel.getLocalAddress();
+                }
+                loop.listen(channel);
+            }
+        }
+        this.backlog = backlog;
+    }
+    
+    @Override
+    public synchronized void start() {
+        if (address == null) {
+            throw new IllegalStateException("Not bound");
+        }
+        if (started) {
+            throw new IllegalStateException("Already started");
+        }
+        if (executor == null) {
+            ownExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() * 2, runnable -> {
+                Thread thread = new Thread(runnable, "nio-http-handler");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor = ownExecutor;
+        }
+        started = true;
+        for (Loop loop : loops) {
+            loop.thread.start();
+        }
+    }
+    
+    @Override
+    public synchronized void setExecutor(Executor executor) {
+        if (started) {
+            throw new IllegalStateException("Already started");
+        }
+        this.executor = executor;
+    }
+    
+    @Override
+    public synchronized Executor getExecutor() {
+        return ownExecutor != null ? null : executor;
+    }
+    
+    /**
+     * Stops accepting, waits up to {@code delay} seconds for open exchanges
+     * to finish, then closes every connection
+     */
+    @Override
+    public void stop(int delay) {
+        for (Loop loop : loops) {
+            loop.execute(loop::stopListening);
+        }
+        long deadline = System.currentTimeMillis() + delay * 1000L;
+        while (System.currentTimeMillis() < deadline && loops.stream().anyMatch(Loop::hasActiveExchanges)) {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        for (Loop loop : loops) {
+            loop.shutdown();
+        }
+        for (Loop loop : loops) {
+            try {
+                loop.thread.join(1_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (ownExecutor != null) {
+            ownExecutor.shutdownNow();
+        }
+    }
+    
+    @Override
+    public HttpContext createContext(String path, HttpHandler handler) {
+        HttpContext context = createContext(path);
+        context.setHandler(handler);
+        return context;
+    }
+    
+    @Override
+    public HttpContext createContext(String path) {
+        if (path == null || !path.startsWith("/")) {
+            throw new IllegalArgumentException("Invalid context path: " + path);
+        }
+        for (Context context : contexts) {
+            if (context.path.equals(path)) {
+                throw new IllegalArgumentException("Context already exists: " + path);
+            }
+        }
+        Context context = new Context(path);
+        contexts.add(context);
+        return context;
+    }
+    
+    @Override
+    public void removeContext(String path) {
+        if (!contexts.removeIf(context -> context.path.equals(path))) {
+            throw new IllegalArgumentException("No context for " + path);
+        }
+    }
+    
+    @Override
+    public void removeContext(HttpContext context) {
+        if (!contexts.remove(context)) {
+            throw new IllegalArgumentException("Unknown context");
+        }
+    }
+    
+    @Override
+    public InetSocketAddress getAddress() {
+        return address;
+    }
+    
+    public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+    
+    /**
+     * How long a request head may take to arrive, and how long its body may
+     * stall; checked about once a second
+     */
+    public void setRequestTimeoutMillis(long requestTimeoutMillis) {
+        this.requestTimeoutMillis = requestTimeoutMillis;
+    }
+    
+    public int getLoopCount() {
+        return loopCount;
+    }
+    
+    /**
+     * Whether each loop has its own listening socket
+     */
+    public boolean isReusePort() {
+        return reusePort;
+    }
+    
+    public int getBacklog() {
+        return backlog;
+    }
+    
+    public long getAcceptedCount() {
+        return accepted.get();
+    }
+    
+    public long getRequestCount() {
+        return requests.get();
+    }
+    
+    public int getOpenConnections() {
+        return open.get();
+    }
+    
+    /**
+     * The context with the longest path that prefixes the request path
+     */
+    Context findContext(String path) {
+        Context best = null;
+        for (Context context : contexts) {
+            if (path.startsWith(context.path) && (best == null || context.path.length() > best.path.length())) {
+                best = context;
+            }
+        }
+        return best;
+    }
+    
+    final class Context extends HttpContext {
+        final String path;
+        private volatile HttpHandler handler;
+        private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+        
+        Context(String path) {
+            this.path = path;
+        }
+        
+        @Override
+        public HttpHandler getHandler() {
+            return handler;
+        }
+        
+        @Override
+        public void setHandler(HttpHandler handler) {
+            if (this.handler != null) {
+                throw new IllegalArgumentException("Handler already set");
+            }
+            this.handler = handler;
+        }
+        
+        @Override
+        public String getPath() {
+            return path;
+        }
+        
+        @Override
+        public HttpServer getServer() {
+            return NioHttpServer.this;
+        }
+        
+        @Override
+        public Map<String, Object> getAttributes() {
+            return attributes;
+        }
+        
+        @Override
+        public List<Filter> getFilters() {
+            return List.of();
+        }
+        
+        @Override
+        public Authenticator setAuthenticator(Authenticator auth) {
+            throw new UnsupportedOperationException("Authenticators are not supported");
+        }
+        
+        @Override
+        public Authenticator getAuthenticator() {
+            return null;
+        }
+    }
+    
+    /**
+     * One selector thread and the connections registered with it
+     */
+    final class Loop implements Runnable {
+        final int index;
+        final Thread thread;
+        private final Selector selector;
+        private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean awake = new AtomicBoolean();
+        private final Set<Connection> connections = new HashSet<>();
+        final ByteBuffer readBuffer = ByteBuffer.allocateDirect(LOOP_BUFFER_SIZE);
+        final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(LOOP_BUFFER_SIZE);
+        private ServerSocketChannel listener;
+        private volatile boolean running = true;
+        private volatile int activeExchanges;
+        
+        Loop(int index) throws IOException {
+            this.index = index;
+            this.selector = Selector.open();
+            this.thread = new Thread(this, "nio-http-loop-" + index);
+            this.thread.setDaemon(true);
+        }
+        
+        void listen(ServerSocketChannel channel) throws ClosedChannelException {
+            listener = channel;
+            channel.register(selector, SelectionKey.OP_ACCEPT);
+        }
+        
+        /**
+         * Runs a task on this loop's thread, waking its selector at most
+         * once however many tasks arrive before it wakes
+         */
+        void execute(Runnable task) {
+            tasks.add(task);
+            if (Thread.currentThread() != thread && awake.compareAndSet(false, true)) {
+                selector.wakeup();
+            }
+        }
+        
+        boolean hasActiveExchanges() {
+            return activeExchanges > 0;
+        }
+        
+        @Override
+        public void run() {
+            long lastSweep = System.currentTimeMillis();
+            while (running) {
+                try {
+                    awake.set(false);
+                    if (tasks.isEmpty()) {
+                        selector.select(1_000);
+                    } else {
+                        selector.selectNow();
+                    }
+                    awake.set(true);
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        handle(key);
+                    }
+                    Runnable task;
+                    while ((task = tasks.poll()) != null) {
+                        task.run();
+                    }
+                    long now = System.currentTimeMillis();
+                    if (now - lastSweep >= 1_000) {
+                        lastSweep = now;
+                        sweep(now);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    // Keep serving the other connections
+                }
+            }
+            for (Connection connection : new ArrayList<>(connections)) {
+                connection.close();
+            }
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+                // Shutting down
+            }
+        }
+        
+        void stopListening() {
+            if (listener != null) {
+                try {
+                    listener.close();
+                } catch (IOException ignored) {
+                    // Already closed
+                }
+                listener = null;
+            }
+        }
+        
+        void shutdown() {
+            running = false;
+            selector.wakeup();
+        }
+        
+        private void handle(SelectionKey key) {
+            if (!key.isValid()) {
+                return;
+            }
+            if (key.isAcceptable()) {
+                accept();
+                return;
+            }
+            Connection connection = (Connection) key.attachment();
+            try {
+                if (key.isWritable()) {
+                    connection.writeOut();
+                }
+                if (key.isValid() && key.isReadable()) {
+                    connection.readIn();
+                }
+            } catch (IOException | RuntimeException e) {
+                connection.close();
+            }
+        }
+        
+        private void accept() {
+            while (true) {
+                SocketChannel channel;
+                try {
+                    channel = listener.accept();
+                } catch (IOException e) {
+                    return;
+                }
+                if (channel == null) {
+                    return;
+                }
+                accepted.incrementAndGet();
+                Loop target = reusePort ? this : loops.get(Math.floorMod(nextLoop.getAndIncrement(), loops.size()));
+                if (target == this) {
+                    register(channel);
+                } else {
+                    target.execute(() -> target.register(channel));
+                }
+            }
+        }
+        
+        void register(SocketChannel channel) {
+            try {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                Connection connection = new Connection(this, channel);
+                connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                connections.add(connection);
+                open.incrementAndGet();
+            } catch (IOException e) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // Never registered
+                }
+            }
+        }
+        
+        void removed(Connection connection) {
+            if (connections.remove(connection)) {
+                open.decrementAndGet();
+            }
+        }
+        
+        void exchangeStarted() {
+            activeExchanges++;
+        }
+        
+        void exchangeEnded() {
+            activeExchanges--;
+        }
+        
+        /**
+         * Closes idle keep-alive connections and times out stalled requests
+         */
+        private void sweep(long now) {
+            long idleTimeout = idleTimeoutMillis;
+            long requestTimeout = requestTimeoutMillis;
+            List<Connection> expired = new ArrayList<>();
+            for (Connection connection : connections) {
+                if (connection.isIdle() ? now - connection.lastActive > idleTimeout
+                        : connection.isStalled(now, requestTimeout)) {
+                    expired.add(connection);
+                }
+            }
+            for (Connection connection : expired) {
+                connection.timeOut();
+            }
+        }
+    }
+    
+    /**
+     * One client connection; all fields are confined to its loop's thread
+     * unless noted
+     */
+    final class Connection {
+        private static final int HEADERS = 0;
+        private static final int BODY = 1;
+        private static final int RESPONDING = 2;
+        private static final int CLOSING = 3;
+        
+        final Loop loop;
+        final SocketChannel channel;
+        SelectionKey key;
+        private final InetSocketAddress remote;
+        private final InetSocketAddress local;
+        long lastActive = System.currentTimeMillis();
+        private long lastRead = lastActive;
+        // When the first byte of a still incomplete request head arrived, or 0
+        private long headStarted;
+        
+        // Unparsed input; released when empty so idle connections hold none
+        private byte[] in = EMPTY;
+        private int inStart;
+        private int inEnd;
+        
+        private int state = HEADERS;
+        private NioHttpExchange exchange;
+        private long bodyRemaining;
+        private ChunkedDecoder chunks;
+        private boolean responseDone;
+        private boolean exchangeActive;
+        private boolean readPaused;
+        
+        // Written by handler threads, drained by the loop
+        final ConcurrentLinkedQueue<ByteBuffer> outbound = new ConcurrentLinkedQueue<>();
+        final AtomicLong pending = new AtomicLong();
+        private final AtomicBoolean flushScheduled = new AtomicBoolean();
+        volatile boolean closed;
+        
+        Connection(Loop loop, SocketChannel channel) throws IOException {
+            this.loop = loop;
+            this.channel = channel;
+            this.remote = (InetSocketAddress) channel.getRemoteAddress();
+            this.local = (InetSocketAddress) channel.getLocalAddress();
+        }
+        
+        boolean isIdle() {
+            return state == HEADERS && inEnd == inStart && outbound.isEmpty();
+        }
+        
+        /**
+         * Whether the client has taken too long over a request head or body,
+         * or over reading the answer to a failed request
+         */
+        boolean isStalled(long now, long timeout) {
+            if (timeout <= 0) {
+                return false;
+            }
+            if (state == HEADERS) {
+                return headStarted != 0 && now - headStarted > timeout;
+            }
+            if (state == BODY) {
+                // A paused read is waiting on the handler, not the client
+                return !readPaused && now - lastRead > timeout;
+            }
+            return state == CLOSING && now - lastActive > timeout;
+        }
+        
+        void timeOut() {
+            if (state == HEADERS && headStarted != 0) {
+                fail(408, "Request Timeout");
+                // The client gets the same deadline again to read the answer
+                lastActive = System.currentTimeMillis();
+            } else {
+                close();
+            }
+        }
+        
+        void readIn() throws IOException {
+            ByteBuffer buffer = loop.readBuffer;
+            buffer.clear();
+            int n = channel.read(buffer);
+            if (n < 0) {
+                close();
+                return;
+            }
+            if (n == 0) {
+                return;
+            }
+            lastActive = System.currentTimeMillis();
+            lastRead = lastActive;
+            buffer.flip();
+            if (inEnd + n > in.length) {
+                int buffered = inEnd - inStart;
+                byte[] grown = buffered + n > in.length ? new byte[Math.max(buffered + n, Math.min(in.length * 2, 1 << 20))] : in;
+                System.arraycopy(in, inStart, grown, 0, buffered);
+                in = grown;
+                inStart = 0;
+                inEnd = buffered;
+            }
+            buffer.get(in, inEnd, n);
+            inEnd += n;
+            process();
+        }
+        
+        /**
+         * Advances through whatever input is buffered: request head, body,
+         * then the next pipelined request once the response is done
+         */
+        void process() throws IOException {
+            while (!closed) {
+                if (state == HEADERS) {
+                    if (!parseHead()) {
+                        break;
+                    }
+                } else if (state == BODY) {
+                    if (!feedBody()) {
+                        break;
+                    }
+                } else if (state == RESPONDING) {
+                    if (!responseDone) {
+                        // Hold pipelined input until this response is done
+                        setReading(inEnd - inStart < MAX_PIPELINED_BYTES);
+                        break;
+                    }
+                    exchange = null;
+                    responseDone = false;
+                    state = HEADERS;
+                } else {
+                    break;
+                }
+            }
+            if (inStart == inEnd) {
+                inStart = 0;
+                inEnd = 0;
+                if (in.length > 4096 || state == HEADERS) {
+                    in = EMPTY;
+                }
+            }
+            if (state != HEADERS || inStart == inEnd) {
+                headStarted = 0;
+            } else if (headStarted == 0) {
+                headStarted = System.currentTimeMillis();
+            }
+        }
+        
+        private boolean parseHead() throws IOException {
+            int end = indexOfHeadEnd();
+            if (end < 0) {
+                if (inEnd - inStart > MAX_HEADER_BYTES) {
+                    fail(431, "Request Header Fields Too Large");
+                }
+                return false;
+            }
+            if (end - inStart > MAX_HEADER_BYTES) {
+                fail(431, "Request Header Fields Too Large");
+                return false;
+            }
+            String head = new String(in, inStart, end - inStart, StandardCharsets.ISO_8859_1);
+            inStart = end + 4;
+            String[] lines = head.split("\r\n");
+            String[] requestLine = lines[0].split(" ");
+            if (requestLine.length != 3 || !requestLine[2].startsWith("HTTP/1.")) {
+                fail(400, "Bad Request");
+                return false;
+            }
+            Headers headers = new Headers();
+            for (int i = 1; i < lines.length; i++) {
+                int colon = lines[i].indexOf(':');
+                if (colon <= 0 || lines[i].charAt(0) == ' ' || lines[i].charAt(0) == '\t') {
+                    fail(400, "Bad Request");
+                    return false;
+                }
+                headers.add(lines[i].substring(0, colon).trim(), lines[i].substring(colon + 1).trim());
+            }
+            URI uri;
+            try {
+                uri = URI.create(requestLine[1]);
+            } catch (IllegalArgumentException e) {
+                fail(400, "Bad Request");
+                return false;
+            }
+            
+            String transferEncoding = headers.getFirst("Transfer-Encoding");
+            String contentLength = headers.getFirst("Content-Length");
+            chunks = null;
+            bodyRemaining = 0;
+            if (transferEncoding != null && transferEncoding.toLowerCase(Locale.ROOT).contains("chunked")) {
+                chunks = new ChunkedDecoder();
+            } else if (contentLength != null) {
+                try {
+                    bodyRemaining = Long.parseLong(contentLength.trim());
+                } catch (NumberFormatException e) {
+                    bodyRemaining = -1;
+                }
+                if (bodyRemaining < 0) {
+                    fail(400, "Bad Request");
+                    return false;
+                }
+            }
+            
+            boolean http10 = requestLine[2].equals("HTTP/1.0");
+            String connection = headers.getFirst("Connection");
+            boolean closeAfter = http10 || (connection != null && connection.toLowerCase(Locale.ROOT).contains("close"));
+            Context context = findContext(uri.getPath() != null ? uri.getPath() : "/");
+            exchange = new NioHttpExchange(this, requestLine[0], uri, requestLine[2], headers, context, closeAfter,
+                chunks == null && bodyRemaining == 0);
+            state = BODY;
+            requests.incrementAndGet();
+            exchangeActive = true;
+            loop.exchangeStarted();
+            
+            if (context == null || context.getHandler() == null) {
+                exchange.respond(404, "<h1>404 Not Found</h1>", false);
+            } else {
+                if (!http10 && "100-continue".equalsIgnoreCase(headers.getFirst("Expect"))) {
+                    enqueue(ByteBuffer.wrap(CONTINUE));
+                }
+                NioHttpExchange dispatched = exchange;
+                try {
+                    executor.execute(() -> {
+                        if (Thread.currentThread() == loop.thread) {
+                            // A caller-runs executor is overloaded; a handler
+                            // here would block the loop that feeds its body
+                            dispatched.respond(503, "<h1>503 Service Unavailable</h1>", true);
+                        } else {
+                            dispatched.run(context.getHandler());
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    exchange.respond(503, "<h1>503 Service Unavailable</h1>", true);
+                }
+            }
+            return true;
+        }
+        
+        /**
+         * Hands buffered body bytes to the exchange
+         *
+         * @return true once the body is complete
+         */
+        private boolean feedBody() throws IOException {
+            if (chunks != null) {
+                while (inStart < inEnd && !chunks.done) {
+                    int consumed = chunks.feed(in, inStart, inEnd, exchange.body);
+                    if (consumed < 0) {
+                        exchange.body.abort();
+                        fail(400, "Bad Request");
+                        return false;
+                    }
+                    inStart += consumed;
+                }
+                if (!chunks.done) {
+                    setReading(!exchange.body.isFull());
+                    return false;
+                }
+            } else if (bodyRemaining > 0) {
+                int n = (int) Math.min(bodyRemaining, inEnd - inStart);
+                if (n > 0) {
+                    exchange.body.offer(in, inStart, n);
+                    inStart += n;
+                    bodyRemaining -= n;
+                }
+                if (bodyRemaining > 0) {
+                    setReading(!exchange.body.isFull());
+                    return false;
+                }
+            }
+            exchange.body.finish();
+            state = RESPONDING;
+            return true;
+        }
+        
+        /**
+         * Called on the loop once the handler has closed the response
+         */
+        void responseComplete(boolean closeConnection) {
+            endExchange();
+            if (closed) {
+                return;
+            }
+            if (closeConnection) {
+                state = CLOSING;
+                if (outbound.isEmpty()) {
+                    close();
+                }
+                return;
+            }
+            responseDone = true;
+            try {
+                process();
+            } catch (IOException e) {
+                close();
+            }
+        }
+        
+        private void endExchange() {
+            if (exchangeActive) {
+                exchangeActive = false;
+                loop.exchangeEnded();
+            }
+        }
+        
+        /**
+         * The request body reader drained below its limit
+         */
+        void resumeReading() {
+            if (!closed) {
+                try {
+                    process();
+                } catch (IOException e) {
+                    close();
+                }
+                if (!closed && state == BODY) {
+                    setReading(!exchange.body.isFull());
+                }
+            }
+        }
+        
+        private void setReading(boolean reading) {
+            if (reading == readPaused && key.isValid()) {
+                readPaused = !reading;
+                int ops = key.interestOps();
+                key.interestOps(reading ? ops | SelectionKey.OP_READ : ops & ~SelectionKey.OP_READ);
+            }
+        }
+        
+        /**
+         * Queues response bytes, blocking the handler thread while too much
+         * is already waiting for the socket
+         */
+        void send(ByteBuffer bytes) throws IOException {
+            if (closed) {
+                throw new IOException("Connection closed");
+            }
+            enqueue(bytes);
+            if (pending.get() > MAX_PENDING_OUTPUT && Thread.currentThread() != loop.thread) {
+                synchronized (this) {
+                    while (pending.get() > MAX_PENDING_OUTPUT / 2 && !closed) {
+                        try {
+                            wait(1_000);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new IOException("Interrupted while writing", e);
+                        }
+                    }
+                }
+                if (closed) {
+                    throw new IOException("Connection closed");
+                }
+            }
+        }
+        
+        private void enqueue(ByteBuffer bytes) {
+            pending.addAndGet(bytes.remaining());
+            outbound.add(bytes);
+            if (flushScheduled.compareAndSet(false, true)) {
+                loop.execute(() -> {
+                    flushScheduled.set(false);
+                    try {
+                        writeOut();
+                    } catch (IOException e) {
+                        close();
+                    }
+                });
+            }
+        }
+        
+        /**
+         * Copies queued output into the loop's direct buffer and writes it,
+         * leaving whatever the socket did not take queued for OP_WRITE
+         */
+        void writeOut() throws IOException {
+            if (closed) {
+                return;
+            }
+            ByteBuffer direct = loop.writeBuffer;
+            while (!outbound.isEmpty()) {
+                direct.clear();
+                for (ByteBuffer queued : outbound) {
+                    if (!direct.hasRemaining()) {
+                        break;
+                    }
+                    ByteBuffer slice = queued.duplicate();
+                    if (slice.remaining() > direct.remaining()) {
+                        slice.limit(slice.position() + direct.remaining());
+                    }
+                    direct.put(slice);
+                }
+                direct.flip();
+                int staged = direct.remaining();
+                int written = channel.write(direct);
+                consume(written);
+                if (written < staged) {
+                    break;
+                }
+            }
+            if (key.isValid()) {
+                int ops = key.interestOps();
+                key.interestOps(outbound.isEmpty() ? ops & ~SelectionKey.OP_WRITE : ops | SelectionKey.OP_WRITE);
+            }
+            if (pending.get() <= MAX_PENDING_OUTPUT / 2) {
+                synchronized (this) {
+                    notifyAll();
+                }
+            }
+            if (outbound.isEmpty() && state == CLOSING) {
+                close();
+            }
+        }
+        
+        private void consume(int written) {
+            if (written > 0) {
+                lastActive = System.currentTimeMillis();
+            }
+            pending.addAndGet(-written);
+            while (written > 0) {
+                ByteBuffer head = outbound.peek();
+                int n = Math.min(written, head.remaining());
+                head.position(head.position() + n);
+                written -= n;
+                if (!head.hasRemaining()) {
+                    outbound.poll();
+                }
+            }
+        }
+        
+        /**
+         * Answers a malformed request and closes once the answer is out
+         */
+        private void fail(int code, String reason) {
+            if (exchange != null && !exchange.isResponseStarted()) {
+                exchange.body.abort();
+            }
+            String body = "<h1>" + code + " " + reason + "</h1>";
+            enqueue(ByteBuffer.wrap(("HTTP/1.1 " + code + " " + reason + "\r\nContent-Type: text/html\r\n"
+                + "Content-Length: " + body.length() + "\r\nConnection: close\r\n\r\n" + body)
+                .getBytes(StandardCharsets.ISO_8859_1)));
+            state = CLOSING;
+            inStart = inEnd;
+        }
+        
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (key != null) {
+                key.cancel();
+            }
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Already gone
+            }
+            if (exchange != null) {
+                exchange.body.abort();
+            }
+            endExchange();
+            outbound.clear();
+            pending.set(0);
+            synchronized (this) {
+                notifyAll();
+            }
+            loop.removed(this);
+            in = EMPTY;
+        }
+        
+        InetSocketAddress getRemoteAddress() {
+            return remote;
+        }
+        
+        InetSocketAddress getLocalAddress() {
+            return local;
+        }
+        
+        private int indexOfHeadEnd() {
+            for (int i = inStart; i + 3 < inEnd; i++) {
+                if (in[i] == '\r' && in[i + 1] == '\n' && in[i + 2] == '\r' && in[i + 3] == '\n') {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+    
+    /**
+     * Decodes a chunked request body incrementally
+     */
+    static final class ChunkedDecoder {
+        private static final int SIZE = 0;
+        private static final int DATA = 1;
+        private static final int DATA_END = 2;
+        private static final int TRAILER = 3;
+        
+        private int state = SIZE;
+        private long remaining;
+        private final StringBuilder line = new StringBuilder();
+        boolean done;
+        
+        /**
+         * Consumes input from {@code start} to {@code end}, passing data on
+         *
+         * @return bytes consumed, or -1 if the framing is invalid
+         */
+        int feed(byte[] in, int start, int end, NioHttpExchange.RequestBody body) {
+            int i = start;
+            while (i < end && !done) {
+                switch (state) {
+                    case DATA -> {
+                        int n = (int) Math.min(remaining, end - i);
+                        body.offer(in, i, n);
+                        i += n;
+                        remaining -= n;
+                        if (remaining == 0) {
+                            state = DATA_END;
+                        }
+                    }
+                    default -> {
+                        byte b = in[i++];
+                        if (b != '\n') {
+                            if (b != '\r') {
+                                line.append((char) b);
+                                if (line.length() > 1024) {
+                                    return -1;
+                                }
+                            }
+                            continue;
+                        }
+                        String text = line.toString().trim();
+                        line.setLength(0);
+                        if (state == SIZE) {
+                            int extension = text.indexOf(';');
+                            try {
+                                remaining = Long.parseLong(extension < 0 ? text : text.substring(0, extension).trim(), 16);
+                            } catch (NumberFormatException e) {
+                                return -1;
+                            }
+                            if (remaining < 0) {
+                                return -1;
+                            }
+                            state = remaining == 0 ? TRAILER : DATA;
+                        } else if (state == DATA_END) {
+                            if (!text.isEmpty()) {
+                                return -1;
+                            }
+                            state = SIZE;
+                        } else if (text.isEmpty()) {
+                            done = true;
+                        }
+                    }
+                }
+            }
+            return i - start;
+        }
+    }
+    
+    /**
+     * Reason phrases for the status line
+     */
+    static String reason(int code) {
+        return switch (code) {
+            case 100 -> "Continue";
+            case 200 -> "OK";
+            case 201 -> "Created";
+            case 202 -> "Accepted";
+            case 204 -> "No Content";
+            case 206 -> "Partial Content";
+            case 301 -> "Moved Permanently";
+            case 302 -> "Found";
+            case 304 -> "Not Modified";
+            case 400 -> "Bad Request";
+            case 401 -> "Unauthorized";
+            case 403 -> "Forbidden";
+            case 404 -> "Not Found";
+            case 405 -> "Method Not Allowed";
+            case 409 -> "Conflict";
+            case 413 -> "Payload Too Large";
+            case 415 -> "Unsupported Media Type";
+            case 429 -> "Too Many Requests";
+            case 500 -> "Internal Server Error";
+            case 503 -> "Service Unavailable";
+            default -> "";
+        };
+    }
+}
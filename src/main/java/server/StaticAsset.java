@@ -0,0 +1,157 @@
+package server;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A constant response encoded once, with a gzip variant and strong ETags
+ *
+ * The body is UTF-8 encoded and compressed when the asset is created, so
+ * serving it only copies bytes. Each variant has its own ETag, derived from
+ * a hash of the body, and a request whose {@code If-None-Match} already
+ * holds it gets a bodiless 304. The gzip variant is sent only to clients
+ * that accept it and only when it is actually smaller.
+ */
+public final class StaticAsset {
+    public static final String NO_CACHE = "no-cache";
+    
+    public final String contentType;
+    public final String cacheControl;
+    private final byte[] identity;
+    private final byte[] gzip;
+    private final String etag;
+    private final String gzipEtag;
+    
+    /**
+     * @param cacheControl the Cache-Control header; {@link #NO_CACHE} lets
+     *        browsers keep the asset but revalidate it on every use
+     */
+    public StaticAsset(String contentType, String body, String cacheControl) {
+        this.contentType = contentType;
+        this.cacheControl = cacheControl;
+        this.identity = body.getBytes(StandardCharsets.UTF_8);
+        byte[] compressed = compress(identity);
+        this.gzip = compressed.length < identity.length ? compressed : null;
+        String hash = hash(identity);
+        this.etag = "\"" + hash + "\"";
+        this.gzipEtag = "\"" + hash + "-gz\"";
+    }
+    
+    public String getEtag() {
+        return etag;
+    }
+    
+    public int getLength() {
+        return identity.length;
+    }
+    
+    /**
+     * Size of the gzip variant, or the plain size if compression did not help
+     */
+    public int getCompressedLength() {
+        return gzip != null ? gzip.length : identity.length;
+    }
+    
+    /**
+     * Answers a GET or HEAD with the best variant, or 304 if the client's
+     * copy is current
+     */
+    public void send(HttpExchange exchange) throws IOException {
+        Headers request = exchange.getRequestHeaders();
+        boolean gzipped = gzip != null && acceptsGzip(request.getFirst("Accept-Encoding"));
+        String tag = gzipped ? gzipEtag : etag;
+        
+        Headers response = exchange.getResponseHeaders();
+        response.set("ETag", tag);
+        response.set("Cache-Control", cacheControl);
+        if (gzip != null) {
+            response.set("Vary", "Accept-Encoding");
+        }
+        if (matches(request.getFirst("If-None-Match"))) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+        byte[] body = gzipped ? gzip : identity;
+        response.set("Content-Type", contentType);
+        if (gzipped) {
+            response.set("Content-Encoding", "gzip");
+        }
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            response.set("Content-Length", Integer.toString(body.length));
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+            return;
+        }
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+    
+    /**
+     * Whether an If-None-Match header names either variant. The comparison
+     * is weak, as RFC 9110 requires for If-None-Match, so a tag marked W/
+     * by a proxy still matches.
+     */
+    boolean matches(String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag) || tag.equals(gzipEtag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Whether an Accept-Encoding header allows gzip, honouring q=0 and the
+     * {@code *} wildcard
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        return Compression.quality(acceptEncoding, Compression.Encoding.GZIP) > 0;
+    }
+    
+    private static byte[] compress(byte[] data) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length / 3 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            out.write(data);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+    
+    private static String hash(byte[] data) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(data);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 16));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
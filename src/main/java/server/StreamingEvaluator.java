@@ -0,0 +1,352 @@
+package server;
+
+import core.EthicsContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Evaluates newline-delimited JSON decisions from a stream, writing one
+ * NDJSON result per input line in input order
+ *
+ * Lines are read one at a time and handed to a shared worker pool. At most
+ * {@code window} lines per stream are in flight; when the window is full,
+ * reading waits for the oldest line to finish, so memory per stream is
+ * bounded by the window and the line length limit however long the body
+ * is. The calling thread writes results in order, flushing whatever has
+ * finished each time it submits a line or waits for the window, and all
+ * of them before it blocks waiting for more input. A slow client therefore
+ * only ever holds up its own stream. A line that fails to parse or
+ * evaluate produces an error result and the stream carries on.
+ *
+ * @param <R> what evaluating one decision produces
+ */
+public class StreamingEvaluator<R> {
+    public static final int DEFAULT_WINDOW = 64;
+    public static final int MAX_LINE_BYTES = 1 << 20;
+    
+    /**
+     * Writes one result as a single JSON object with no trailing newline
+     */
+    @FunctionalInterface
+    public interface Encoder<R> {
+        void write(Utf8Writer json, long line, R result) throws IOException;
+    }
+    
+    private final Function<EthicsContext, R> evaluator;
+    private final Encoder<R> encoder;
+    private final ExecutorService workers;
+    private final int threads;
+    private final int window;
+    
+    private final LongAdder evaluated = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    
+    public StreamingEvaluator(Function<EthicsContext, R> evaluator, Encoder<R> encoder) {
+        this(evaluator, encoder, Runtime.getRuntime().availableProcessors(), DEFAULT_WINDOW);
+    }
+    
+    /**
+     * @param threads worker threads shared by all streams
+     * @param window lines each stream may have in flight at once
+     */
+    public StreamingEvaluator(Function<EthicsContext, R> evaluator, Encoder<R> encoder, int threads, int window) {
+        if (threads < 1 || window < 1) {
+            throw new IllegalArgumentException("Need at least one thread and a window of one");
+        }
+        this.evaluator = evaluator;
+        this.encoder = encoder;
+        this.threads = threads;
+        this.window = window;
+        AtomicInteger count = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "stream-evaluator-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Evaluates every line of {@code in}, writing results to {@code out}
+     * until the input ends. Blank lines are skipped but still counted, so
+     * the {@code line} in each result is the 1-based input line number.
+     *
+     * @return the number of results written
+     */
+    public long evaluate(InputStream in, OutputStream out) throws IOException {
+        Run run = new Run(out);
+        LineReader lines = new LineReader(in);
+        try {
+            while (true) {
+                if (lines.wouldBlock()) {
+                    // The client has paused; get what it sent so far back to it first
+                    run.finish();
+                }
+                byte[] line = lines.next();
+                if (line == null) {
+                    break;
+                }
+                if (!lines.blank) {
+                    run.add(lines.number, line, lines.overflowed);
+                }
+            }
+            return run.finish();
+        } finally {
+            run.cancel();
+        }
+    }
+    
+    public int getThreads() {
+        return threads;
+    }
+    
+    public int getWindow() {
+        return window;
+    }
+    
+    /**
+     * Lines evaluated successfully across all streams
+     */
+    public long getEvaluatedCount() {
+        return evaluated.sum();
+    }
+    
+    /**
+     * Lines that could not be parsed or evaluated
+     */
+    public long getFailedCount() {
+        return failed.sum();
+    }
+    
+    public void shutdown() {
+        workers.shutdown();
+    }
+    
+    private CompletableFuture<R> submit(byte[] line, boolean overflowed) {
+        if (overflowed) {
+            failed.increment();
+            return CompletableFuture.failedFuture(
+                new IllegalArgumentException("Line longer than " + MAX_LINE_BYTES + " bytes"));
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                R result = evaluator.apply(EvaluationRequest.read(new JsonReader(line)));
+                evaluated.increment();
+                return result;
+            } catch (IOException e) {
+                failed.increment();
+                throw new IllegalArgumentException(e.getMessage(), e);
+            } catch (RuntimeException e) {
+                failed.increment();
+                throw e;
+            }
+        }, workers);
+    }
+    
+    /**
+     * One stream's window of in-flight lines
+     *
+     * Only the stream's own thread touches the window and the response:
+     * between reads it writes every finished line at the head of the
+     * window and flushes. Workers just evaluate and signal, so a client
+     * that reads its results slowly blocks its own handler thread, never a
+     * worker shared with other streams.
+     */
+    private final class Run {
+        private final Utf8Writer json;
+        private final ArrayDeque<Pending<R>> inFlight = new ArrayDeque<>(window);
+        private long written;
+        
+        Run(OutputStream out) {
+            this.json = new Utf8Writer(out);
+        }
+        
+        /**
+         * Submits a line, first writing finished lines and waiting for room
+         * in the window
+         */
+        void add(long number, byte[] line, boolean overflowed) throws IOException {
+            drain();
+            while (inFlight.size() == window) {
+                awaitHead();
+                drain();
+            }
+            Pending<R> pending = new Pending<>(number, submit(line, overflowed));
+            inFlight.add(pending);
+            pending.future.whenComplete((result, error) -> signal());
+        }
+        
+        /**
+         * Writes every submitted line as it finishes
+         */
+        long finish() throws IOException {
+            drain();
+            while (!inFlight.isEmpty()) {
+                awaitHead();
+                drain();
+            }
+            return written;
+        }
+        
+        void cancel() {
+            for (Pending<R> pending : inFlight) {
+                pending.future.cancel(false);
+            }
+        }
+        
+        /**
+         * Writes finished lines at the head of the window, in order
+         */
+        private void drain() throws IOException {
+            int count = 0;
+            Pending<R> head;
+            while ((head = inFlight.peek()) != null && head.future.isDone()) {
+                write(head);
+                inFlight.poll();
+                count++;
+            }
+            if (count > 0) {
+                written += count;
+                json.flush();
+            }
+        }
+        
+        private void write(Pending<R> pending) throws IOException {
+            R result;
+            try {
+                result = pending.future.join();
+            } catch (CompletionException | CancellationException e) {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                json.write("{\"line\":").write(pending.line).write(",\"error\":")
+                    .writeJsonString(String.valueOf(cause.getMessage())).write("}\n");
+                return;
+            }
+            encoder.write(json, pending.line, result);
+            json.write('\n');
+        }
+        
+        private synchronized void signal() {
+            notifyAll();
+        }
+        
+        private synchronized void awaitHead() throws IOException {
+            CompletableFuture<R> head = inFlight.peek().future;
+            try {
+                while (!head.isDone()) {
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while evaluating a stream");
+            }
+        }
+    }
+    
+    private static final class Pending<R> {
+        final long line;
+        final CompletableFuture<R> future;
+        
+        Pending(long line, CompletableFuture<R> future) {
+            this.line = line;
+            this.future = future;
+        }
+    }
+    
+    /**
+     * Splits a byte stream on '\n' through one reusable buffer, copying out
+     * each line. A line over {@link #MAX_LINE_BYTES} is skipped to its end
+     * and returned empty with {@link #overflowed} set.
+     */
+    static final class LineReader {
+        private final InputStream in;
+        private final byte[] buffer = new byte[64 * 1024];
+        private int position;
+        private int limit;
+        private byte[] line = new byte[1024];
+        
+        long number;
+        boolean blank;
+        boolean overflowed;
+        
+        LineReader(InputStream in) {
+            this.in = in;
+        }
+        
+        /**
+         * Whether reading the next line may block: nothing is buffered and
+         * the stream reports nothing available
+         */
+        boolean wouldBlock() throws IOException {
+            return position == limit && in.available() == 0;
+        }
+        
+        /**
+         * @return the next line without its terminator, or null at the end
+         *         of the stream
+         */
+        byte[] next() throws IOException {
+            int length = 0;
+            boolean any = false;
+            overflowed = false;
+            while (true) {
+                if (position == limit) {
+                    limit = in.read(buffer, 0, buffer.length);
+                    position = 0;
+                    if (limit <= 0) {
+                        limit = 0;
+                        if (!any) {
+                            return null;
+                        }
+                        break;
+                    }
+                }
+                any = true;
+                int start = position;
+                while (position < limit && buffer[position] != '\n') {
+                    position++;
+                }
+                int chunk = position - start;
+                if (!overflowed && length + chunk > MAX_LINE_BYTES) {
+                    overflowed = true;
+                }
+                if (!overflowed) {
+                    if (length + chunk > line.length) {
+                        line = Arrays.copyOf(line, Math.max(line.length * 2, length + chunk));
+                    }
+                    System.arraycopy(buffer, start, line, length, chunk);
+                    length += chunk;
+                }
+                if (position < limit) {
+                    // Consume the newline
+                    position++;
+                    break;
+                }
+            }
+            number++;
+            if (overflowed) {
+                blank = false;
+                return new byte[0];
+            }
+            if (length > 0 && line[length - 1] == '\r') {
+                length--;
+            }
+            blank = true;
+            for (int i = 0; i < length && blank; i++) {
+                blank = line[i] == ' ' || line[i] == '\t';
+            }
+            return Arrays.copyOf(line, length);
+        }
+    }
+}
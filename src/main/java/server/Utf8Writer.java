@@ -0,0 +1,273 @@
+package server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Encodes text as UTF-8 into one reusable byte buffer, flushing it to the
+ * underlying stream whenever it fills
+ * 
+ * Unlike building a String and calling getBytes, memory stays at the buffer
+ * size however much is written. Values are escaped for JSON or CSV as they
+ * are copied, without intermediate strings. Not thread-safe.
+ * 
+ * A writer created without a stream keeps everything in memory instead,
+ * growing its buffer as needed, so a response can be measured before it is
+ * sent and then written out from the buffer in one call.
+ */
+public class Utf8Writer {
+    public static final int DEFAULT_CAPACITY = 16 * 1024;
+    
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+    
+    private byte[] buffer;
+    private OutputStream out;
+    private int position;
+    private long written;
+    
+    public Utf8Writer(OutputStream out) {
+        this(out, DEFAULT_CAPACITY);
+    }
+    
+    public Utf8Writer(OutputStream out, int capacity) {
+        if (capacity < 16) {
+            throw new IllegalArgumentException("Buffer too small: " + capacity);
+        }
+        this.buffer = new byte[capacity];
+        this.out = out;
+    }
+    
+    /**
+     * An in-memory writer whose buffer grows instead of flushing
+     */
+    public Utf8Writer(int capacity) {
+        this(null, capacity);
+    }
+    
+    /**
+     * Points the writer at a new stream, or at none to buffer in memory, so
+     * its buffer can be reused
+     */
+    public void reset(OutputStream out) {
+        this.out = out;
+        this.position = 0;
+        this.written = 0;
+    }
+    
+    public Utf8Writer write(char c) throws IOException {
+        if (c < 0x80) {
+            ensure(1);
+            buffer[position++] = (byte) c;
+        } else {
+            writeCodePoint(c);
+        }
+        return this;
+    }
+    
+    public Utf8Writer write(String s) throws IOException {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                ensure(1);
+                buffer[position++] = (byte) c;
+            } else {
+                i = writeNonAscii(s, i);
+            }
+        }
+        return this;
+    }
+    
+    public Utf8Writer write(long value) throws IOException {
+        ensure(20);
+        if (value == Long.MIN_VALUE) {
+            return write("-9223372036854775808");
+        }
+        if (value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+        int start = position;
+        do {
+            buffer[position++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        for (int i = start, j = position - 1; i < j; i++, j--) {
+            byte tmp = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = tmp;
+        }
+        return this;
+    }
+    
+    public Utf8Writer write(boolean value) throws IOException {
+        return write(value ? "true" : "false");
+    }
+    
+    /**
+     * Writes a double as {@link Double#toString} does; non-finite values,
+     * which JSON cannot represent, are written as null
+     */
+    public Utf8Writer write(double value) throws IOException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return write("null");
+        }
+        if (value == (long) value && Math.abs(value) < 1e7 && (value != 0 || 1 / value > 0)) {
+            // Whole numbers print as "42.0" without going through a String
+            return write((long) value).write(".0");
+        }
+        return write(Double.toString(value));
+    }
+    
+    /**
+     * Writes a quoted JSON string, or null
+     */
+    public Utf8Writer writeJsonString(String s) throws IOException {
+        if (s == null) {
+            return write("null");
+        }
+        write('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= 0x20 && c < 0x80 && c != '"' && c != '\\') {
+                ensure(1);
+                buffer[position++] = (byte) c;
+            } else if (c == '"' || c == '\\') {
+                ensure(2);
+                buffer[position++] = '\\';
+                buffer[position++] = (byte) c;
+            } else if (c == '\n') {
+                write("\\n");
+            } else if (c == '\r') {
+                write("\\r");
+            } else if (c == '\t') {
+                write("\\t");
+            } else if (c < 0x20) {
+                ensure(6);
+                buffer[position++] = '\\';
+                buffer[position++] = 'u';
+                buffer[position++] = '0';
+                buffer[position++] = '0';
+                buffer[position++] = HEX[c >>> 4];
+                buffer[position++] = HEX[c & 0xF];
+            } else {
+                i = writeNonAscii(s, i);
+            }
+        }
+        return write('"');
+    }
+    
+    /**
+     * Writes a CSV field, quoting it only if it contains a delimiter, quote
+     * or line break (RFC 4180)
+     */
+    public Utf8Writer writeCsvField(String s) throws IOException {
+        if (s == null) {
+            return this;
+        }
+        boolean quote = false;
+        for (int i = 0; i < s.length() && !quote; i++) {
+            char c = s.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            return write(s);
+        }
+        write('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"') {
+                write("\"\"");
+            } else if (c < 0x80) {
+                ensure(1);
+                buffer[position++] = (byte) c;
+            } else {
+                i = writeNonAscii(s, i);
+            }
+        }
+        return write('"');
+    }
+    
+    /**
+     * Sends buffered bytes to the stream and flushes it
+     */
+    public void flush() throws IOException {
+        if (out != null) {
+            drain();
+            out.flush();
+        }
+    }
+    
+    /**
+     * Writes everything buffered by an in-memory writer to the stream
+     */
+    public void writeTo(OutputStream target) throws IOException {
+        target.write(buffer, 0, position);
+    }
+    
+    /**
+     * Current buffer size, which only grows for in-memory writers
+     */
+    public int getCapacity() {
+        return buffer.length;
+    }
+    
+    /**
+     * Total bytes written, including those still buffered
+     */
+    public long getBytesWritten() {
+        return written + position;
+    }
+    
+    private void ensure(int bytes) throws IOException {
+        if (position + bytes > buffer.length) {
+            if (out == null) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + bytes));
+            } else {
+                drain();
+            }
+        }
+    }
+    
+    private void drain() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            written += position;
+            position = 0;
+        }
+    }
+    
+    /**
+     * Encodes the non-ASCII char at index i, consuming its low surrogate if any
+     * 
+     * @return the index of the last char consumed
+     */
+    private int writeNonAscii(String s, int i) throws IOException {
+        char c = s.charAt(i);
+        if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+            writeCodePoint(Character.toCodePoint(c, s.charAt(i + 1)));
+            return i + 1;
+        }
+        writeCodePoint(Character.isSurrogate(c) ? '?' : c);
+        return i;
+    }
+    
+    private void writeCodePoint(int cp) throws IOException {
+        ensure(4);
+        if (cp < 0x80) {
+            buffer[position++] = (byte) cp;
+        } else if (cp < 0x800) {
+            buffer[position++] = (byte) (0xC0 | (cp >>> 6));
+            buffer[position++] = (byte) (0x80 | (cp & 0x3F));
+        } else if (cp < 0x10000) {
+            buffer[position++] = (byte) (0xE0 | (cp >>> 12));
+            buffer[position++] = (byte) (0x80 | ((cp >>> 6) & 0x3F));
+            buffer[position++] = (byte) (0x80 | (cp & 0x3F));
+        } else {
+            buffer[position++] = (byte) (0xF0 | (cp >>> 18));
+            buffer[position++] = (byte) (0x80 | ((cp >>> 12) & 0x3F));
+            buffer[position++] = (byte) (0x80 | ((cp >>> 6) & 0x3F));
+            buffer[position++] = (byte) (0x80 | (cp & 0x3F));
+        }
+    }
+}
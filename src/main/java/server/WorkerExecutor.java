@@ -0,0 +1,178 @@
+package server;
+
+import data.Histogram;
+
+import java.lang.reflect.Method;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs HTTP exchanges on worker threads, recording how long each waits
+ *
+ * {@link Mode#DISPATCHER} keeps the JDK server's behaviour of handling
+ * every exchange on its single dispatcher thread, only adding the
+ * counters. The pooled modes hand exchanges to worker threads. In
+ * {@link Mode#FIXED} the pool's queue is bounded; once it is full the
+ * dispatcher runs the exchange itself, so it stops accepting new
+ * connections until the pool catches up instead of queueing without limit.
+ * {@link Mode#VIRTUAL} starts a virtual thread per exchange on JDK 21 and
+ * later and falls back to {@link Mode#FIXED} on older runtimes.
+ */
+public class WorkerExecutor implements Executor {
+    
+    public enum Mode {
+        DISPATCHER, FIXED, WORK_STEALING, VIRTUAL;
+        
+        /**
+         * Accepts names in any case, with {@code -} for {@code _}
+         */
+        public static Mode parse(String name) {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        }
+    }
+    
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+    
+    private final Mode mode;
+    private final ExecutorService delegate;
+    private final int threads;
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder overflowed = new LongAdder();
+    private final AtomicInteger active = new AtomicInteger();
+    private final Histogram queueWait = new Histogram();
+    
+    /**
+     * @param threads worker threads for the FIXED and WORK_STEALING modes
+     * @param queueCapacity exchanges FIXED queues before the dispatcher
+     *        runs them itself
+     */
+    public WorkerExecutor(Mode mode, int threads, int queueCapacity) {
+        if (threads < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Need at least one thread and one queue slot");
+        }
+        ExecutorService virtual = mode == Mode.VIRTUAL ? virtualThreadExecutor() : null;
+        if (mode == Mode.VIRTUAL && virtual == null) {
+            mode = Mode.FIXED;
+        }
+        this.mode = mode;
+        this.threads = mode == Mode.VIRTUAL || mode == Mode.DISPATCHER ? 0 : threads;
+        switch (mode) {
+            case FIXED -> {
+                ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), daemonThreads("http-worker"),
+                    (task, executor) -> {
+                        overflowed.increment();
+                        task.run();
+                    });
+                this.delegate = pool;
+            }
+            case WORK_STEALING -> this.delegate = Executors.newWorkStealingPool(threads);
+            case VIRTUAL -> this.delegate = virtual;
+            default -> this.delegate = null;
+        }
+    }
+    
+    /**
+     * The mode in effect, which is FIXED when VIRTUAL was requested but
+     * the runtime has no virtual threads
+     */
+    public Mode getMode() {
+        return mode;
+    }
+    
+    @Override
+    public void execute(Runnable exchange) {
+        submitted.increment();
+        long queuedAt = System.nanoTime();
+        Runnable task = () -> {
+            queueWait.record(System.nanoTime() - queuedAt);
+            active.incrementAndGet();
+            try {
+                exchange.run();
+            } finally {
+                active.decrementAndGet();
+                completed.increment();
+            }
+        };
+        if (delegate == null) {
+            // DISPATCHER: run inline, as the server does with no executor
+            task.run();
+        } else {
+            delegate.execute(task);
+        }
+    }
+    
+    public int getThreads() {
+        return threads;
+    }
+    
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+    
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+    
+    /**
+     * Exchanges accepted but not yet started by a worker
+     */
+    public long getQueueDepth() {
+        return Math.max(0, submitted.sum() - completed.sum() - active.get());
+    }
+    
+    public int getActiveCount() {
+        return active.get();
+    }
+    
+    /**
+     * Exchanges the dispatcher ran itself because the FIXED queue was full
+     */
+    public long getOverflowCount() {
+        return overflowed.sum();
+    }
+    
+    /**
+     * Time from hand-off to a worker starting the exchange
+     */
+    public Histogram getQueueWait() {
+        return queueWait;
+    }
+    
+    public void shutdown() {
+        if (delegate != null) {
+            delegate.shutdown();
+        }
+    }
+    
+    /**
+     * {@code Executors.newVirtualThreadPerTaskExecutor()}, looked up
+     * reflectively so the code still compiles for JDK 17
+     */
+    private static ExecutorService virtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+    
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,102 @@
+package communication;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import core.EthicsResult;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.ArrayList;
+
+/**
+ * Tests per-user notification mailboxes
+ */
+class FeedbackServiceTest {
+
+    @Test
+    @DisplayName("Each user sees only their own most recent notifications, oldest first")
+    void testMailboxRing() {
+        FeedbackService feedback = new FeedbackService(3, 1_000, 100);
+        EthicsResult blocked = new EthicsResult();
+        blocked.addViolation("Bias detected");
+        for (int i = 0; i < 5; i++) {
+            feedback.sendNotification("alice", i % 2 == 0 ? new EthicsResult() : blocked);
+        }
+        feedback.sendNotification("bob", blocked);
+
+        List<FeedbackService.Notification> alice = feedback.getNotifications("alice");
+        assertEquals(3, alice.size());
+        assertEquals(List.of("APPROVE", "BLOCK", "APPROVE"), alice.stream().map(n -> n.decisionType).toList());
+        assertTrue(alice.stream().allMatch(n -> n.userId.equals("alice")));
+        assertEquals(1, feedback.getNotifications("bob").size());
+        assertTrue(feedback.getNotifications("carol").isEmpty());
+        assertEquals(4, feedback.getNotificationCount());
+    }
+
+    @Test
+    @DisplayName("Global caps evict the oldest unread mailboxes")
+    void testEviction() {
+        FeedbackService feedback = new FeedbackService(10, 50, 8);
+        EthicsResult result = new EthicsResult();
+        for (int user = 0; user < 20; user++) {
+            for (int i = 0; i < 5; i++) {
+                feedback.sendNotification("user" + user, result);
+            }
+            // Reading user0 each round spares it from eviction
+            feedback.getNotifications("user0");
+        }
+
+        assertTrue(feedback.getMailboxCount() <= 8);
+        assertTrue(feedback.getNotificationCount() <= 50);
+        assertEquals(5, feedback.getNotifications("user0").size());
+        assertEquals(5, feedback.getNotifications("user19").size());
+        assertTrue(feedback.getNotifications("user1").isEmpty());
+        assertEquals(12, feedback.getEvictedMailboxCount());
+    }
+
+    @Test
+    @DisplayName("Concurrent senders keep counts consistent under the caps")
+    void testConcurrentStress() throws Exception {
+        int threads = 8;
+        int perThread = 25_000;
+        FeedbackService feedback = new FeedbackService(16, 20_000, 2_000);
+        EthicsResult result = new EthicsResult();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+
+        long start = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int seed = t;
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    String user = "user" + ((i * 31 + seed) % 5_000);
+                    feedback.sendNotification(user, result);
+                    if (i % 8 == 0) {
+                        feedback.getNotifications(user);
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+
+        long held = 0;
+        for (int user = 0; user < 5_000; user++) {
+            held += feedback.getNotifications("user" + user).size();
+        }
+        assertEquals(held, feedback.getNotificationCount());
+        assertTrue(feedback.getNotificationCount() <= 20_000);
+        assertTrue(feedback.getMailboxCount() <= 2_000);
+        System.out.printf("%,d notifications from %d threads: %,.0f/s, %,d mailboxes evicted%n",
+            threads * perThread, threads, threads * perThread / (elapsed / 1e9), feedback.getEvictedMailboxCount());
+    }
+}
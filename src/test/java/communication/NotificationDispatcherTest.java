@@ -0,0 +1,234 @@
+package communication;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.sun.net.httpserver.HttpServer;
+import core.EthicsResult;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.URI;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests asynchronous notification delivery
+ */
+class NotificationDispatcherTest {
+
+    private static final NotificationDispatcher.Retry FAST_RETRY = new NotificationDispatcher.Retry(4, 5, 20);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Batches reach a webhook after transient failures are retried")
+    void testWebhookWithRetries() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        AtomicInteger received = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/hook", exchange -> {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            // Every third request fails, as a flaky receiver would
+            int status = requests.incrementAndGet() % 3 == 1 ? 503 : 204;
+            if (status == 204) {
+                received.addAndGet((int) body.lines().count());
+            }
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+        });
+        server.start();
+        try {
+            URI uri = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/hook");
+            NotificationDispatcher dispatcher = new NotificationDispatcher(
+                List.of(new WebhookSink(uri)), 10_000, 50, FAST_RETRY, dir.resolve("dead.ndjson"));
+            FeedbackService feedback = new FeedbackService(dispatcher);
+            EthicsResult blocked = new EthicsResult();
+            blocked.addViolation("Bias detected: \"proxy\" feature");
+            for (int i = 0; i < 500; i++) {
+                feedback.sendNotification("user" + (i % 10), blocked);
+            }
+            dispatcher.close();
+
+            assertEquals(500, received.get());
+            assertEquals(500, dispatcher.getDeliveredCount());
+            assertTrue(dispatcher.getRetryCount() > 0);
+            assertTrue(requests.get() < 500, "batched into " + requests.get() + " requests");
+            assertEquals(0, dispatcher.getDeadLetterCount());
+            assertFalse(Files.exists(dir.resolve("dead.ndjson")));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    @DisplayName("Batches that keep failing go to the dead-letter file")
+    void testDeadLetter() throws IOException {
+        AtomicInteger attempts = new AtomicInteger();
+        NotificationSink broken = new NotificationSink() {
+            @Override
+            public String name() {
+                return "broken";
+            }
+
+            @Override
+            public void deliver(List<FeedbackService.Notification> batch) throws IOException {
+                attempts.incrementAndGet();
+                throw new IOException("connection refused");
+            }
+        };
+        Path deadLetters = dir.resolve("dead.ndjson");
+        NotificationDispatcher dispatcher = new NotificationDispatcher(
+            List.of(broken), 100, 10, FAST_RETRY, deadLetters);
+        FeedbackService feedback = new FeedbackService(dispatcher);
+        for (int i = 0; i < 25; i++) {
+            feedback.sendNotification("alice", new EthicsResult());
+        }
+        dispatcher.close();
+
+        assertEquals(25, dispatcher.getDeadLetterCount());
+        assertEquals(0, attempts.get() % FAST_RETRY.maxAttempts);
+        List<String> lines = Files.readAllLines(deadLetters);
+        assertEquals(25, lines.size());
+        assertTrue(lines.get(0).startsWith("{\"sink\":\"broken\",\"attempts\":4,\"error\":\"connection refused\""));
+        assertTrue(lines.get(0).contains("\"userId\":\"alice\""));
+    }
+
+    @Test
+    @DisplayName("Sending does not wait for a slow sink and drops when the queue is full")
+    void testSlowSinkDoesNotBlock() throws IOException {
+        CountDownLatch release = new CountDownLatch(1);
+        NotificationSink stalled = new NotificationSink() {
+            @Override
+            public String name() {
+                return "stalled";
+            }
+
+            @Override
+            public void deliver(List<FeedbackService.Notification> batch) {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        NotificationDispatcher dispatcher = new NotificationDispatcher(
+            List.of(stalled), 100, 10, FAST_RETRY, null);
+        FeedbackService feedback = new FeedbackService(dispatcher);
+        EthicsResult result = new EthicsResult();
+
+        for (int i = 0; i < 10_000; i++) {
+            feedback.sendNotification("user" + (i % 100), result);
+        }
+        release.countDown();
+        dispatcher.close();
+
+        // Sending would have waited for room rather than drop if it blocked on the sink
+        assertTrue(dispatcher.getDroppedCount() > 0);
+        assertEquals(10_000, dispatcher.getDroppedCount() + dispatcher.getDeliveredCount());
+        assertEquals(100, feedback.getNotifications("user7").size());
+    }
+
+    @Test
+    @DisplayName("A hanging sink does not hold up delivery to the others")
+    void testHangingSinkIsolated() throws IOException, InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        NotificationSink hanging = new NotificationSink() {
+            @Override
+            public String name() {
+                return "hanging";
+            }
+
+            @Override
+            public void deliver(List<FeedbackService.Notification> batch) {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        CountDownLatch received = new CountDownLatch(50);
+        NotificationSink working = new NotificationSink() {
+            @Override
+            public String name() {
+                return "working";
+            }
+
+            @Override
+            public void deliver(List<FeedbackService.Notification> batch) {
+                batch.forEach(notification -> received.countDown());
+            }
+        };
+        NotificationDispatcher dispatcher = new NotificationDispatcher(
+            List.of(hanging, working), 100, 10, FAST_RETRY, null);
+        FeedbackService feedback = new FeedbackService(dispatcher);
+        for (int i = 0; i < 50; i++) {
+            feedback.sendNotification("bob", new EthicsResult());
+        }
+
+        assertTrue(received.await(10, TimeUnit.SECONDS), "working sink got everything while the other hung");
+        assertEquals(1, release.getCount());
+        release.countDown();
+        dispatcher.close();
+
+        assertEquals(0, dispatcher.getDroppedCount());
+        assertEquals(100, dispatcher.getDeliveredCount());
+    }
+
+    @Test
+    @DisplayName("File and Unix socket sinks write newline-delimited JSON")
+    void testFileAndSocketSinks() throws Exception {
+        Path socketPath = dir.resolve("notify.sock");
+        ServerSocketChannel listener = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        listener.bind(UnixDomainSocketAddress.of(socketPath));
+        AtomicInteger socketLines = new AtomicInteger();
+        Thread reader = new Thread(() -> {
+            try (SocketChannel client = listener.accept();
+                 BufferedReader in = new BufferedReader(new InputStreamReader(
+                     Channels.newInputStream(client), StandardCharsets.UTF_8))) {
+                while (in.readLine() != null) {
+                    socketLines.incrementAndGet();
+                }
+            } catch (IOException ignored) {
+                // Closed by the test
+            }
+        });
+        reader.start();
+
+        Path file = dir.resolve("out/notifications.ndjson");
+        NotificationDispatcher dispatcher = new NotificationDispatcher(
+            List.of(new FileSink(file), SocketSink.parse(socketPath.toString())), 1_000, 16, FAST_RETRY, null);
+        FeedbackService feedback = new FeedbackService(dispatcher);
+        EthicsResult escalated = new EthicsResult();
+        escalated.escalate("Low confidence");
+        for (int i = 0; i < 40; i++) {
+            feedback.sendNotification("bob", escalated);
+        }
+        dispatcher.close();
+        reader.join(5_000);
+        listener.close();
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(40, lines.size());
+        assertTrue(lines.get(0).contains("\"message\":\"Decision escalated for human review: Low confidence\""));
+        assertEquals(40, socketLines.get());
+        assertEquals(80, dispatcher.getDeliveredCount());
+    }
+}
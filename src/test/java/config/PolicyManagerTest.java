@@ -0,0 +1,102 @@
+package config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Tests YAML policy loading, validation and hot reload
+ */
+class PolicyManagerTest {
+
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void tearDown() {
+        PolicyManager.reset();
+    }
+
+    @Test
+    @DisplayName("YAML thresholds override the defaults")
+    void testParseThresholds() {
+        EthicsPolicy policy = PolicyLoader.parse("""
+            ethics_engine:
+              thresholds:
+                max_bias: 0.2
+                min_confidence: 0.6
+              transparency:
+                require_explanation: false
+            """);
+
+        assertEquals(0.2, policy.maxBias);
+        assertEquals(0.6, policy.minConfidence);
+        assertFalse(policy.requireExplanation);
+        assertEquals(0.7, policy.escalationConfidenceThreshold, "Unset keys keep defaults");
+    }
+
+    @Test
+    @DisplayName("Unknown keys and out-of-range values are rejected")
+    void testInvalidPolicyRejected() {
+        assertThrows(IllegalArgumentException.class, () -> PolicyLoader.parse("""
+            ethics_engine:
+              thresholds:
+                max_bais: 0.2
+            """));
+        assertThrows(IllegalArgumentException.class, () -> PolicyLoader.parse("""
+            ethics_engine:
+              thresholds:
+                max_bias: 1.5
+            """));
+        assertThrows(IllegalArgumentException.class, () -> PolicyLoader.parse("ethics_engine: ["));
+    }
+
+    @Test
+    @DisplayName("Each load publishes a new snapshot; a bad file keeps the old one")
+    void testReloadKeepsPreviousOnError() throws Exception {
+        Path file = dir.resolve("ethics-policy.yaml");
+        Files.writeString(file, "ethics_engine:\n  thresholds:\n    max_bias: 0.25\n");
+        PolicySnapshot first = PolicyManager.loadFrom(file);
+        assertEquals(0.25, PolicyManager.getPolicy().maxBias);
+
+        Files.writeString(file, "ethics_engine:\n  thresholds:\n    max_bias: oops\n");
+        assertFalse(PolicyManager.reload(file));
+        assertNotNull(PolicyManager.getLastReloadError());
+        assertSame(first, PolicyManager.getSnapshot(), "Invalid file must not replace the active policy");
+
+        Files.writeString(file, "ethics_engine:\n  thresholds:\n    max_bias: 0.35\n");
+        assertTrue(PolicyManager.reload(file));
+        assertTrue(PolicyManager.getSnapshot().getVersion() > first.getVersion());
+        assertEquals(0.25, first.getPolicy().maxBias, "Old snapshots stay unchanged for in-flight evaluations");
+
+        PolicyManager.getPolicy().maxBias = 0.9;
+        assertEquals(0.35, PolicyManager.getPolicy().maxBias, "Callers get copies, not the snapshot's policy");
+        assertSame(first.getPolicy(), first.getPolicy(), "Evaluations share the snapshot's policy without copying");
+    }
+
+    @Test
+    @DisplayName("Watcher picks up edits to the policy file")
+    void testWatcherHotReload() throws Exception {
+        Path file = dir.resolve("ethics-policy.yaml");
+        Files.writeString(file, "ethics_engine:\n  thresholds:\n    max_bias: 0.25\n");
+
+        PolicyWatcher watcher = PolicyWatcher.start(file);
+        try {
+            assertEquals(0.25, PolicyManager.getPolicy().maxBias);
+
+            Files.writeString(file, "ethics_engine:\n  thresholds:\n    max_bias: 0.4\n");
+            long deadline = System.currentTimeMillis() + 15_000;
+            while (PolicyManager.getPolicy().maxBias != 0.4 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertEquals(0.4, PolicyManager.getPolicy().maxBias);
+        } finally {
+            watcher.close();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import core.EthicsContext;
+import core.EthicsEngine;
+import core.EthicsResult;
+import model.AIDecision;
+import model.UserData;
+
+/**
+ * Tests per-request policy selection
+ */
+class PolicyRegistryTest {
+
+    private PolicyRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new PolicyRegistry();
+        registry.publish("test", new PolicySet(EthicsPolicy.defaultPolicy())
+            .routePurpose("LOAN_APPROVAL", "strict")
+            .routeDomain("recommendations", "lenient"));
+    }
+
+    @Test
+    @DisplayName("Override wins over purpose, purpose over domain, domain over default")
+    void testSelectionOrder() {
+        assertEquals("lenient", registry.select("lenient", "LOAN_APPROVAL", "recommendations").getName());
+        assertEquals("strict", registry.select(null, "LOAN_APPROVAL", "recommendations").getName());
+        assertEquals("lenient", registry.select(null, "OTHER", "recommendations").getName());
+        assertEquals("default", registry.select(null, null, null).getName());
+        assertThrows(IllegalArgumentException.class, () -> registry.select("missing", null, null));
+    }
+
+    @Test
+    @DisplayName("Selection returns the same pre-built snapshot every time")
+    void testSnapshotsArePrebuilt() {
+        assertSame(registry.select(null, "LOAN_APPROVAL", null), registry.select("strict", null, null));
+    }
+
+    @Test
+    @DisplayName("Routes to unknown policies are rejected without replacing the active set")
+    void testInvalidRouteRejected() {
+        long version = registry.getVersion();
+        assertThrows(IllegalArgumentException.class, () -> registry.publish("bad",
+            new PolicySet(EthicsPolicy.defaultPolicy()).routeDomain("medical", "nope")));
+        assertEquals(version, registry.getVersion());
+    }
+
+    @Test
+    @DisplayName("Engine evaluates a loan decision under the strict policy when routed by purpose")
+    void testEngineUsesRoutedPolicy() {
+        EthicsEngine engine = new EthicsEngine(registry);
+
+        AIDecision decision = new AIDecision("Loan Approved", 0.92);
+        decision.setResponsibleEntity("CreditModel_v1");
+        decision.setExplanation("Applicant approved based on credit score of 720, stable employment history, "
+                + "income analysis and low risk factors.");
+        decision.setBiasScore(0.25);
+        decision.setPurpose("LOAN_APPROVAL");
+
+        EthicsResult result = engine.intercept(new EthicsContext(decision, new UserData("A", "a@b.com", false, true)));
+
+        assertEquals("strict", result.getPolicyName());
+        assertTrue(result.isBlocked(), "Bias 0.25 exceeds the strict threshold of 0.2");
+    }
+
+    @Test
+    @DisplayName("Without a declared purpose the engine routes by the purpose inferred from the label, then the domain")
+    void testEngineInfersPurpose() {
+        EthicsEngine engine = new EthicsEngine(registry);
+
+        AIDecision loan = new AIDecision("Loan approval", 0.92);
+        loan.setResponsibleEntity("CreditModel_v1");
+        loan.setExplanation("Applicant approved based on credit score of 720, stable employment history, "
+                + "income analysis and low risk factors.");
+        EthicsResult result = engine.intercept(new EthicsContext(loan, new UserData("A", "a@b.com", false, true)));
+        assertEquals("strict", result.getPolicyName());
+
+        AIDecision recommendation = new AIDecision("Show product", 0.92);
+        recommendation.setDomain("recommendations");
+        result = engine.intercept(new EthicsContext(recommendation, new UserData("A", "a@b.com", false, true)));
+        assertEquals("lenient", result.getPolicyName());
+    }
+
+    @Test
+    @DisplayName("YAML files can define policies and routes")
+    void testParseRouting() {
+        PolicySet set = PolicyLoader.parseSet("""
+            policies:
+              medical_strict:
+                thresholds:
+                  max_bias: 0.1
+            routing:
+              domains:
+                medical: medical_strict
+            """);
+        registry.publish("yaml", set);
+
+        assertEquals(0.1, registry.select(null, null, "medical").getPolicy().maxBias);
+    }
+}
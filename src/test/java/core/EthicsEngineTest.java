@@ -8,6 +8,9 @@ import static org.junit.jupiter.api.Assertions.*;
 import model.*;
 import config.EthicsPolicy;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Integration test suite validating the 12 scenarios from paper Section VI
  */
@@ -145,4 +148,30 @@ class EthicsEngineTest {
         assertTrue(engine.getBlockedCount() > 0, "Some decisions should be blocked");
         assertTrue(engine.getBlockRate() > 0, "Block rate should be > 0");
     }
+
+    @Test
+    @DisplayName("Pillar timer sees every pillar that ran, and only intercepted decisions")
+    void testPillarTimer() {
+        List<Pillar> timed = new ArrayList<>();
+        engine.setPillarTimer((pillar, nanos) -> {
+            assertTrue(nanos >= 0);
+            timed.add(pillar);
+        });
+        AIDecision decision = new AIDecision("Loan Approved", 0.92);
+        decision.setResponsibleEntity("CreditModel_v1");
+        decision.setBiasScore(0.15);
+        EthicsContext context = new EthicsContext(decision, new UserData("Alice", "alice@bank.com", false, true));
+        
+        engine.intercept(context);
+        assertEquals(List.of(Pillar.PRIVACY, Pillar.ACCOUNTABILITY, Pillar.FAIRNESS, Pillar.ROBUSTNESS,
+            Pillar.TRANSPARENCY, Pillar.HUMAN_OVERSIGHT, Pillar.WELL_BEING), timed);
+        
+        timed.clear();
+        engine.intercept(new EthicsContext(decision, new UserData("Bob", "bob@bank.com", true, false)));
+        assertEquals(List.of(Pillar.PRIVACY), timed, "Checks stop after a privacy block");
+        
+        timed.clear();
+        engine.evaluate(context, new EthicsPolicy());
+        assertTrue(timed.isEmpty(), "What-if evaluations are not timed");
+    }
 }
@@ -0,0 +1,170 @@
+package data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import config.EthicsPolicy;
+import config.PolicyRegistry;
+import core.EthicsDecision;
+import core.EthicsResult;
+import core.Pillar;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Tests the memory-mapped, append-only audit log
+ */
+class AuditLogTest {
+
+    private static final byte[] NO_VIOLATIONS = new byte[0];
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Records survive reopening and roll across segments")
+    void testRoundTripAcrossSegments() throws Exception {
+        try (AuditLog log = new AuditLog(dir, 4096, AuditLog.Durability.GROUP, 5)) {
+            for (int i = 0; i < 500; i++) {
+                byte[] codes = i % 2 == 0 ? NO_VIOLATIONS
+                        : new byte[] {Pillar.FAIRNESS.getCode(), Pillar.PRIVACY.getCode()};
+                log.append(i, 1_000L + i, 7, i % 2 == 0 ? EthicsDecision.APPROVE : EthicsDecision.BLOCK, codes);
+            }
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            assertTrue(files.count() > 1, "Small segments should have rolled");
+        }
+
+        List<AuditRecord> records = new ArrayList<>();
+        try (AuditLog log = new AuditLog(dir, 4096, AuditLog.Durability.NONE, 5)) {
+            log.scan(records::add);
+        }
+
+        assertEquals(500, records.size());
+        AuditRecord blocked = records.get(1);
+        assertEquals(1, blocked.decisionId);
+        assertEquals(1_001L, blocked.timestamp);
+        assertEquals(7, blocked.policyVersion);
+        assertEquals(EthicsDecision.BLOCK, blocked.outcome);
+        assertEquals(Pillar.PRIVACY, blocked.getViolation(1));
+    }
+
+    @Test
+    @DisplayName("Recovery truncates a torn trailing record and appends continue after it")
+    void testTornWriteRecovery() throws Exception {
+        try (AuditLog log = new AuditLog(dir, 64 * 1024, AuditLog.Durability.SYNC, 5)) {
+            for (int i = 0; i < 3; i++) {
+                log.append(i, i, 1, EthicsDecision.APPROVE, NO_VIOLATIONS);
+            }
+            assertEquals(3, log.getDurableCount(), "SYNC appends return only once durable");
+        }
+
+        // Simulate a crash halfway through writing a fourth record
+        Path segment;
+        try (Stream<Path> files = Files.list(dir)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            int end = 16 + 3 * (8 + 34);
+            channel.write(ByteBuffer.wrap(new byte[] {0, 0, 0, 34, 1, 2, 3, 4, 9, 9}), end);
+        }
+
+        List<AuditRecord> records = new ArrayList<>();
+        try (AuditLog log = new AuditLog(dir, 64 * 1024, AuditLog.Durability.GROUP, 5)) {
+            log.append(99, 99, 1, EthicsDecision.ESCALATE, NO_VIOLATIONS);
+            log.scan(records::add);
+        }
+
+        assertEquals(4, records.size());
+        assertEquals(99, records.get(3).decisionId, "New appends overwrite the torn record");
+    }
+
+    @Test
+    @DisplayName("A segment rolled just before a crash, its header still zeroed, reopens as empty")
+    void testZeroedHeaderRecovery() throws Exception {
+        try (AuditLog log = new AuditLog(dir, 4096, AuditLog.Durability.GROUP, 5)) {
+            log.append(1, 1, 1, EthicsDecision.APPROVE, NO_VIOLATIONS);
+        }
+        Files.write(dir.resolve("audit-0000000000000001.seg"), new byte[4096]);
+
+        List<AuditRecord> records = new ArrayList<>();
+        try (AuditLog log = new AuditLog(dir, 4096, AuditLog.Durability.GROUP, 5)) {
+            log.append(2, 2, 1, EthicsDecision.BLOCK, NO_VIOLATIONS);
+            log.scan(records::add);
+        }
+
+        assertEquals(2, records.size());
+        assertEquals(2, records.get(1).decisionId);
+    }
+
+    @Test
+    @DisplayName("A decision that cannot be audited is counted rather than failing the request")
+    void testFailuresContained() throws Exception {
+        AuditLog log = new AuditLog(dir, 4096, AuditLog.Durability.SYNC, 5);
+        log.close();
+
+        log.onDecision(null, new EthicsResult());
+        assertEquals(1, log.getFailedCount());
+    }
+
+    @Test
+    @DisplayName("Records carry the policy fingerprint, which is stable across processes")
+    void testPolicyFingerprint() throws Exception {
+        long fingerprint = new PolicyRegistry().getDefault().getFingerprint();
+        assertEquals(fingerprint, new PolicyRegistry().getDefault().getFingerprint(),
+            "A fresh registry, as after a restart, gives the same fingerprint for the same settings");
+        assertNotEquals(fingerprint, EthicsPolicy.strictPolicy().fingerprint());
+
+        try (AuditLog log = new AuditLog(dir, 4096, AuditLog.Durability.NONE, 5)) {
+            log.append(5, 50, 3, EthicsDecision.BLOCK, NO_VIOLATIONS);
+            log.append(6, 60, 4, fingerprint, EthicsDecision.APPROVE, NO_VIOLATIONS);
+        }
+        List<AuditRecord> records = new ArrayList<>();
+        try (AuditLog log = new AuditLog(dir, 4096, AuditLog.Durability.NONE, 5)) {
+            log.scan(records::add);
+        }
+
+        assertEquals(2, records.size());
+        assertEquals(5, records.get(0).decisionId);
+        assertEquals(3, records.get(0).policyVersion);
+        assertEquals(0, records.get(0).policyFingerprint);
+        assertEquals(EthicsDecision.BLOCK, records.get(0).outcome);
+        assertEquals(6, records.get(1).decisionId);
+        assertEquals(fingerprint, records.get(1).policyFingerprint);
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Throughput: group commit appends")
+    void testThroughput() throws Exception {
+        int count = 500_000;
+        byte[] codes = {Pillar.FAIRNESS.getCode()};
+        long start;
+        long elapsed;
+        try (AuditLog log = new AuditLog(dir, 16 * 1024 * 1024, AuditLog.Durability.GROUP, 10)) {
+            start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                log.append(i, i, 1, EthicsDecision.BLOCK, codes);
+            }
+            log.sync();
+            elapsed = System.nanoTime() - start;
+        }
+
+        double perSecond = count / (elapsed / 1_000_000_000.0);
+        System.out.println(String.format("%n=== AUDIT LOG THROUGHPUT ===%n%,d records in %.1f ms (%,.0f records/second)",
+                count, elapsed / 1_000_000.0, perSecond));
+        try (AuditLog log = new AuditLog(dir, 16 * 1024 * 1024, AuditLog.Durability.NONE, 10)) {
+            assertEquals(count, log.scan(record -> { }), "Every append is readable after sync");
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import static org.junit.jupiter.api.Assertions.*;
+
+import core.EthicsDecision;
+import core.Pillar;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tests the columnar history store
+ */
+class ColumnarHistoryTest {
+
+    private static final long BASE = 1_700_000_000_000L;
+
+    @Test
+    @DisplayName("Rows round-trip through the packed columns across chunk boundaries")
+    void testRoundTrip() {
+        ColumnarHistory history = new ColumnarHistory();
+        int rows = ColumnarHistory.CHUNK_SIZE + 100;
+        for (int i = 0; i < rows; i++) {
+            history.append(BASE + i, 1_000 + i, EthicsDecision.values()[i % 3], "Model" + (i % 5),
+                    i % 3 == 1 ? 1 << Pillar.FAIRNESS.ordinal() : 0, i % 3 == 1 ? 1 : 0, i % 20);
+        }
+        assertEquals(rows, history.getRowCount());
+
+        List<Long> ids = new ArrayList<>();
+        int[] warnings = new int[1];
+        history.scan(ColumnarHistory.RowFilter.ALL, (ordinal, ts, id, decision, entity, mask, v, w) -> {
+            assertEquals(BASE + ordinal, ts);
+            assertEquals(EthicsDecision.values()[(int) (ordinal % 3)], decision);
+            assertEquals("Model" + (ordinal % 5), entity);
+            ids.add(id);
+            warnings[0] = Math.max(warnings[0], w);
+            return true;
+        });
+        assertEquals(rows, ids.size());
+        assertEquals(1_000L + rows - 1, ids.get(rows - 1));
+        assertEquals(15, warnings[0], "Counters saturate at 15");
+    }
+
+    @Test
+    @DisplayName("Scans filter on decision, entity, violation and time without materializing rows")
+    void testFilteredCount() {
+        ColumnarHistory history = new ColumnarHistory();
+        for (int i = 0; i < 10_000; i++) {
+            boolean blocked = i % 4 == 0;
+            history.append(BASE + i * 10L, i, blocked ? EthicsDecision.BLOCK : EthicsDecision.APPROVE,
+                    i % 2 == 0 ? "ModelA" : "ModelB", blocked ? 1 << Pillar.PRIVACY.ordinal() : 0, blocked ? 1 : 0, 0);
+        }
+
+        assertEquals(2_500, history.count(new ColumnarHistory.RowFilter(
+                EthicsDecision.BLOCK, null, 0, Long.MIN_VALUE, Long.MAX_VALUE)));
+        assertEquals(2_500, history.count(new ColumnarHistory.RowFilter(
+                null, "ModelA", 1 << Pillar.PRIVACY.ordinal(), Long.MIN_VALUE, Long.MAX_VALUE)));
+        assertEquals(25, history.count(new ColumnarHistory.RowFilter(
+                EthicsDecision.BLOCK, null, 0, BASE, BASE + 1_000)));
+        assertEquals(0, history.count(new ColumnarHistory.RowFilter(
+                null, "ModelZ", 0, Long.MIN_VALUE, Long.MAX_VALUE)));
+    }
+
+    @Test
+    @DisplayName("Memory: columns use a fraction of the per-object history footprint")
+    void testMemoryPerRow() {
+        ColumnarHistory history = new ColumnarHistory();
+        for (int i = 0; i < ColumnarHistory.CHUNK_SIZE * 4; i++) {
+            history.append(BASE + i, i, EthicsDecision.APPROVE, "Model", 0, 0, 0);
+        }
+        double bytesPerRow = (double) history.estimateBytes() / history.getRowCount();
+        System.out.println(String.format("%n=== COLUMNAR HISTORY ===%n%.2f bytes per row", bytesPerRow));
+        assertTrue(bytesPerRow < 16, "Expected roughly 12 bytes per row");
+    }
+
+    @Test
+    @DisplayName("Memory: a distinct entity per row costs no per-entity bitmaps")
+    void testMemoryPerRowDistinctEntities() {
+        ColumnarHistory history = new ColumnarHistory();
+        int rows = ColumnarHistory.CHUNK_SIZE * 2;
+        for (int i = 0; i < rows; i++) {
+            history.append(BASE + i, i, EthicsDecision.APPROVE, i % 3 == 0 ? "Frequent" : "Entity" + i, 0, 0, 0);
+        }
+        double bytesPerRow = (double) history.estimateBytes() / history.getRowCount();
+        System.out.println(String.format("%n=== COLUMNAR HISTORY (distinct entities) ===%n%.2f bytes per row",
+                bytesPerRow));
+        assertTrue(bytesPerRow < 16, "Expected roughly 12 bytes per row, was " + bytesPerRow);
+
+        HistoryPage rare = history.query(new HistoryQuery().entity("Entity7"));
+        assertEquals(1, rare.getRows().size());
+        assertEquals(7, rare.getRows().get(0).ordinal);
+        long frequent = history.count(new ColumnarHistory.RowFilter(
+                null, "Frequent", 0, Long.MIN_VALUE, Long.MAX_VALUE));
+        assertEquals(frequent, countByQuery(history, "Frequent"), "Bitmap includes rows from before it was built");
+        assertEquals((rows + 2) / 3, frequent);
+    }
+
+    @Test
+    @DisplayName("A chunk whose entity dictionary fills up is sealed rather than collapsing entities")
+    void testEntityDictionaryFull() {
+        ColumnarHistory history = new ColumnarHistory();
+        int rows = ColumnarHistory.CHUNK_SIZE + 10;
+        for (int i = 0; i < rows; i++) {
+            history.append(BASE + i, i, EthicsDecision.APPROVE, "Entity" + i, 0, 0, 0);
+        }
+        Set<String> entities = new HashSet<>();
+        history.scan(ColumnarHistory.RowFilter.ALL, (ordinal, ts, id, decision, entity, mask, v, w) -> {
+            assertEquals("Entity" + id, entity);
+            entities.add(entity);
+            return true;
+        });
+        assertEquals(rows, entities.size());
+        assertEquals(2, history.snapshot().length, "Sealed one row early, as code 0 is reserved");
+
+        HistoryPage last = history.query(new HistoryQuery().entity("Entity" + (rows - 1)));
+        assertEquals(1, last.getRows().size());
+        assertEquals(rows - 1, last.getRows().get(0).decisionId);
+    }
+
+    @Test
+    @DisplayName("Indexed queries agree with full scans and page through every match")
+    void testIndexedQueryPagination() {
+        ColumnarHistory history = new ColumnarHistory();
+        int rows = ColumnarHistory.CHUNK_SIZE * 2 + 5_000;
+        for (int i = 0; i < rows; i++) {
+            boolean blocked = i % 7 == 0;
+            int mask = blocked ? 1 << Pillar.PRIVACY.ordinal() : 0;
+            if (i % 3 == 0) {
+                mask |= 1 << Pillar.FAIRNESS.ordinal();
+            }
+            history.append(BASE + i, i, blocked ? EthicsDecision.BLOCK : EthicsDecision.APPROVE,
+                    "Model" + (i % 4), mask, Integer.bitCount(mask), 0);
+        }
+        long expected = history.count(new ColumnarHistory.RowFilter(EthicsDecision.BLOCK, "Model1",
+                1 << Pillar.FAIRNESS.ordinal(), BASE + 1_000, BASE + rows - 1_000));
+
+        List<HistoryRow> all = new ArrayList<>();
+        long cursor = 0;
+        int pages = 0;
+        do {
+            HistoryPage page = history.query(new HistoryQuery()
+                    .state(EthicsDecision.BLOCK)
+                    .entity("Model1")
+                    .violation(Pillar.FAIRNESS)
+                    .between(BASE + 1_000, BASE + rows - 1_000)
+                    .after(cursor)
+                    .limit(500));
+            all.addAll(page.getRows());
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != HistoryPage.END);
+
+        assertEquals(expected, all.size());
+        assertTrue(pages > 1, "Expected several pages");
+        for (int i = 0; i < all.size(); i++) {
+            HistoryRow row = all.get(i);
+            assertEquals(EthicsDecision.BLOCK, row.decision);
+            assertEquals("Model1", row.responsibleEntity);
+            assertTrue(row.getViolatedPillars().contains(Pillar.FAIRNESS));
+            assertEquals(row.ordinal, row.decisionId);
+            if (i > 0) {
+                assertTrue(row.ordinal > all.get(i - 1).ordinal, "Rows come back in ordinal order");
+            }
+        }
+        assertTrue(history.query(new HistoryQuery().entity("ModelZ")).getRows().isEmpty());
+        assertTrue(history.query(new HistoryQuery().violation(Pillar.ROBUSTNESS)).getRows().isEmpty());
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Performance: selective indexed query over a million rows")
+    void testIndexedQueryLatency() {
+        ColumnarHistory history = new ColumnarHistory();
+        int rows = 1_000_000;
+        for (int i = 0; i < rows; i++) {
+            boolean rare = i % 1_000 == 0;
+            history.append(BASE + i, i, rare ? EthicsDecision.ESCALATE : EthicsDecision.APPROVE,
+                    "Model" + (i % 50), rare ? 1 << Pillar.ROBUSTNESS.ordinal() : 0, rare ? 1 : 0, 0);
+        }
+
+        Histogram stats = new Histogram();
+        int matches = 0;
+        for (int i = 0; i < 50; i++) {
+            long start = System.nanoTime();
+            HistoryPage page = history.query(new HistoryQuery()
+                    .state(EthicsDecision.ESCALATE)
+                    .violation(Pillar.ROBUSTNESS)
+                    .limit(HistoryQuery.MAX_LIMIT));
+            stats.record(System.nanoTime() - start);
+            matches = page.getRows().size();
+        }
+        System.out.println(String.format("%n=== INDEXED HISTORY QUERY ===%n%d rows, %d matches%n"
+                + "avg %.0f us, p99 <= %.0f us, max %.0f us", rows, matches,
+                stats.getMeanSeconds() * 1e6, stats.getPercentileSeconds(99) * 1e6, stats.getMaxSeconds() * 1e6));
+        assertEquals(rows / 1_000, matches);
+        assertEquals(50, stats.getCount());
+    }
+
+    private static long countByQuery(ColumnarHistory history, String entity) {
+        long total = 0;
+        long cursor = 0;
+        do {
+            HistoryPage page = history.query(new HistoryQuery().entity(entity).after(cursor).limit(HistoryQuery.MAX_LIMIT));
+            total += page.getRows().size();
+            cursor = page.getNextCursor();
+        } while (cursor != HistoryPage.END);
+        return total;
+    }
+}
@@ -0,0 +1,114 @@
+package data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import core.EthicsDecision;
+import core.EthicsResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the bounded ring-buffer decision history
+ */
+class DecisionHistoryTest {
+
+    @Test
+    @DisplayName("Oldest entries are evicted once capacity is reached")
+    void testEviction() {
+        DecisionHistory history = new DecisionHistory(4);
+        for (int i = 0; i < 6; i++) {
+            history.record(i < 2 ? blocked() : approved());
+        }
+
+        assertEquals(4, history.getTotalCount());
+        assertEquals(6, history.getRecordedCount());
+        assertEquals(4, history.getApprovedCount(), "Both blocked entries were evicted");
+        assertEquals(0, history.getBlockedCount());
+
+        List<DecisionHistory.HistoryEntry> entries = history.getEntries();
+        assertEquals(2, entries.get(0).sequence, "Entries are returned oldest first");
+        assertEquals(5, entries.get(3).sequence);
+    }
+
+    @Test
+    @DisplayName("Capacity is rounded up to a power of two")
+    void testCapacityRounding() {
+        assertEquals(1024, new DecisionHistory(1000).getCapacity());
+        assertThrows(IllegalArgumentException.class, () -> new DecisionHistory(0));
+    }
+
+    @Test
+    @DisplayName("Stress: concurrent producers keep counters consistent with retained entries")
+    void testConcurrentProducers() throws Exception {
+        int threads = 8;
+        int perThread = 5_000;
+        DecisionHistory history = new DecisionHistory(4096);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    int kind = (i + offset) % 3;
+                    history.record(kind == 0 ? approved() : kind == 1 ? blocked() : escalated());
+                }
+                return null;
+            }));
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        double seconds = (System.nanoTime() - begin) / 1_000_000_000.0;
+        executor.shutdown();
+
+        System.out.println(String.format("%n=== HISTORY RING STRESS ===%n%d producers, %,.0f records/second",
+                threads, threads * perThread / seconds));
+
+        assertEquals((long) threads * perThread, history.getRecordedCount());
+        assertEquals(history.getCapacity(), history.getTotalCount());
+
+        List<DecisionHistory.HistoryEntry> entries = history.getEntries();
+        assertEquals(history.getTotalCount(), entries.size());
+        int approved = 0, blocked = 0, escalated = 0;
+        for (DecisionHistory.HistoryEntry entry : entries) {
+            switch (entry.decision) {
+                case APPROVE -> approved++;
+                case BLOCK -> blocked++;
+                case ESCALATE -> escalated++;
+            }
+        }
+        assertEquals(approved, history.getApprovedCount());
+        assertEquals(blocked, history.getBlockedCount());
+        assertEquals(escalated, history.getEscalatedCount());
+    }
+
+    private static EthicsResult approved() {
+        return new EthicsResult();
+    }
+
+    private static EthicsResult blocked() {
+        EthicsResult result = new EthicsResult();
+        result.addViolation("FAIRNESS: test");
+        return result;
+    }
+
+    private static EthicsResult escalated() {
+        EthicsResult result = new EthicsResult();
+        result.escalate("test");
+        return result;
+    }
+}
@@ -0,0 +1,96 @@
+package data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import core.EthicsDecision;
+import core.EthicsResult;
+import core.Pillar;
+
+import java.util.List;
+
+/**
+ * Tests time-bucketed decision rollups
+ */
+class DecisionRollupsTest {
+
+    private static final long HOUR = 3_600_000L;
+    private static final long BASE = 1_700_000_000_000L / HOUR * HOUR;
+
+    @Test
+    @DisplayName("Hourly buckets count outcomes, violations and warnings per entity")
+    void testHourlyBuckets() {
+        DecisionRollups rollups = new DecisionRollups();
+        rollups.record(BASE + 10, "ModelA", blocked());
+        rollups.record(BASE + 20, "ModelA", approvedWithWarning());
+        rollups.record(BASE + HOUR + 5, "ModelA", blocked());
+        rollups.record(BASE + HOUR + 6, "ModelB", approvedWithWarning());
+
+        List<DecisionRollups.Bucket> buckets =
+                rollups.query("ModelA", DecisionRollups.Resolution.HOUR, BASE, BASE + 2 * HOUR);
+        assertEquals(2, buckets.size());
+        assertEquals(BASE, buckets.get(0).startMillis);
+        assertEquals(0.5, buckets.get(0).getBlockRate());
+        assertEquals(1, buckets.get(0).getViolationCount(Pillar.FAIRNESS));
+        assertEquals(1, buckets.get(0).getWarningCount(Pillar.ROBUSTNESS));
+        assertEquals(1, buckets.get(1).getCount(EthicsDecision.BLOCK));
+
+        DecisionRollups.Bucket all = rollups.total(DecisionRollups.ALL, DecisionRollups.Resolution.DAY,
+                BASE, BASE + 2 * HOUR);
+        assertEquals(4, all.getTotal());
+    }
+
+    @Test
+    @DisplayName("Buckets roll over once they fall out of the retained window")
+    void testRollOver() {
+        DecisionRollups rollups = new DecisionRollups();
+        long minute = DecisionRollups.Resolution.MINUTE.widthMillis;
+        int retained = DecisionRollups.Resolution.MINUTE.retainedBuckets;
+
+        rollups.record(BASE, "ModelA", blocked());
+        rollups.record(BASE + retained * minute, "ModelA", approvedWithWarning());
+
+        List<DecisionRollups.Bucket> old =
+                rollups.query("ModelA", DecisionRollups.Resolution.MINUTE, BASE, BASE + minute);
+        assertTrue(old.isEmpty(), "The first bucket has been overwritten by the newer lap");
+
+        DecisionRollups.Bucket latest = rollups.total("ModelA", DecisionRollups.Resolution.MINUTE,
+                BASE + retained * minute, BASE + (retained + 1) * minute);
+        assertEquals(1, latest.getCount(EthicsDecision.APPROVE));
+        assertEquals(0, latest.getCount(EthicsDecision.BLOCK));
+    }
+
+    @Test
+    @DisplayName("Entities beyond the limit share one overflow series")
+    void testEntityLimit() {
+        DecisionRollups rollups = new DecisionRollups(3);
+        for (int i = 0; i < 1_000; i++) {
+            rollups.record(BASE + i, "Model-" + i, blocked());
+        }
+
+        assertEquals(5, rollups.getEntities().size(), "Three entities plus ALL and OTHER");
+        assertTrue(rollups.getEntities().contains("Model-2"));
+        assertFalse(rollups.getEntities().contains("Model-3"));
+        assertEquals(997, rollups.total(DecisionRollups.OTHER, DecisionRollups.Resolution.HOUR,
+                BASE, BASE + HOUR).getTotal());
+        assertEquals(1_000, rollups.total(DecisionRollups.ALL, DecisionRollups.Resolution.HOUR,
+                BASE, BASE + HOUR).getTotal());
+
+        rollups.record(BASE + 5, "Model-0", blocked());
+        assertEquals(2, rollups.total("Model-0", DecisionRollups.Resolution.HOUR, BASE, BASE + HOUR).getTotal(),
+                "Tracked entities keep their own series");
+    }
+
+    private static EthicsResult blocked() {
+        EthicsResult result = new EthicsResult();
+        result.addViolation("FAIRNESS: Bias score 0.85 exceeds threshold 0.30");
+        return result;
+    }
+
+    private static EthicsResult approvedWithWarning() {
+        EthicsResult result = new EthicsResult();
+        result.addWarning("ROBUSTNESS: Extremely high confidence (>0.99) may indicate overfitting");
+        return result;
+    }
+}
@@ -0,0 +1,137 @@
+package data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import config.EthicsPolicy;
+import core.EthicsContext;
+import core.EthicsDecision;
+import core.EthicsEngine;
+import model.AIDecision;
+import model.UserData;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests decision capture and parallel replay against candidate policies
+ */
+class PolicyReplayTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Captured traffic replays to the same outcomes under the same policy")
+    void testReplayMatchesRecordedOutcomes() throws Exception {
+        Path file = dir.resolve("capture.bin");
+        EthicsEngine engine = new EthicsEngine();
+        try (DecisionRecordLog log = new DecisionRecordLog(file)) {
+            engine.addListener(log);
+            for (int i = 0; i < 10_000; i++) {
+                engine.intercept(sampleContext(i));
+            }
+        }
+
+        List<DecisionRecord> records = DecisionRecordLog.readAll(file);
+        assertEquals(10_000, records.size());
+
+        Map<String, EthicsPolicy> candidates = new LinkedHashMap<>();
+        candidates.put("default", EthicsPolicy.defaultPolicy());
+        candidates.put("strict", EthicsPolicy.strictPolicy());
+        ReplayReport report = new PolicyReplay().replay(records, candidates);
+
+        ReplayReport.CandidateResult same = report.getCandidate("default");
+        assertEquals(0, same.getFlipCount(), "Replaying under the recorded policy must not flip outcomes");
+        assertEquals(engine.getBlockedCount(), same.getRecordedCount(EthicsDecision.BLOCK));
+
+        ReplayReport.CandidateResult strict = report.getCandidate("strict");
+        assertTrue(strict.getDelta(EthicsDecision.BLOCK) > 0, "Strict thresholds block more decisions");
+        assertFalse(strict.getExamples().isEmpty());
+        long replayed = 0;
+        for (EthicsDecision decision : EthicsDecision.values()) {
+            replayed += strict.getReplayedCount(decision);
+        }
+        assertEquals(records.size(), replayed);
+    }
+
+    @Test
+    @DisplayName("A capture file replays in batches, and decisions blocked before the fairness check keep a fixed bias")
+    void testReplayFromFile() throws Exception {
+        Path file = dir.resolve("capture.bin");
+        EthicsEngine engine = new EthicsEngine();
+        int count = PolicyReplay.BATCH_SIZE + 1_000;
+        try (DecisionRecordLog log = new DecisionRecordLog(file)) {
+            engine.addListener(log);
+            for (int i = 0; i < count; i++) {
+                EthicsContext context = sampleContext(i);
+                if (i % 7 == 0) {
+                    // No bias and no consent: privacy blocks before fairness runs
+                    context = new EthicsContext(new AIDecision("Loan Approved", 0.9),
+                        new UserData("User" + i, "user" + i + "@bank.com", false, false));
+                }
+                engine.intercept(context);
+            }
+        }
+
+        List<DecisionRecord> records = DecisionRecordLog.readAll(file);
+        assertTrue(records.stream().allMatch(record -> record.biasScore >= 0), "Every record carries a bias score");
+        Map<String, EthicsPolicy> candidates = new LinkedHashMap<>();
+        candidates.put("default", EthicsPolicy.defaultPolicy());
+        candidates.put("strict", EthicsPolicy.strictPolicy());
+        ReplayReport fromFile = new PolicyReplay().replay(file, candidates);
+        ReplayReport fromList = new PolicyReplay().replay(records, candidates);
+
+        assertEquals(count, fromFile.getRecordCount());
+        assertEquals(0, fromFile.getCandidate("default").getFlipCount());
+        for (EthicsDecision decision : EthicsDecision.values()) {
+            assertEquals(fromList.getCandidate("strict").getReplayedCount(decision),
+                fromFile.getCandidate("strict").getReplayedCount(decision));
+        }
+    }
+
+    @Test
+    @DisplayName("A capture write failure is counted instead of failing the decision")
+    void testCaptureFailureCounted() throws Exception {
+        DecisionRecordLog log = new DecisionRecordLog(dir.resolve("capture.bin"));
+        log.close();
+        EthicsEngine engine = new EthicsEngine();
+        engine.addListener(log);
+        EthicsContext context = sampleContext(1);
+        // Longer than the write buffer, so the write reaches the closed file
+        context.decision.setExplanation("x".repeat(128 * 1024));
+
+        assertNotNull(engine.intercept(context));
+        assertEquals(1, log.getFailedCount());
+        assertNotNull(log.getLastError());
+    }
+
+    @Test
+    @DisplayName("A record cut short by a crash is skipped")
+    void testTornRecordIgnored() throws Exception {
+        Path file = dir.resolve("capture.bin");
+        EthicsEngine engine = new EthicsEngine();
+        try (DecisionRecordLog log = new DecisionRecordLog(file)) {
+            engine.addListener(log);
+            engine.intercept(sampleContext(1));
+            engine.intercept(sampleContext(2));
+        }
+        Files.write(file, new byte[] {0, 0, 1}, StandardOpenOption.APPEND);
+
+        assertEquals(2, DecisionRecordLog.readAll(file).size());
+    }
+
+    private static EthicsContext sampleContext(int i) {
+        AIDecision decision = new AIDecision(i % 3 == 0 ? "Loan Approved" : "Loan Rejected", 0.55 + (i % 45) / 100.0);
+        decision.setResponsibleEntity("CreditModel_v" + (i % 4));
+        decision.setExplanation("Decision based on credit score, income analysis and risk factors for applicant " + i);
+        decision.setBiasScore((i % 40) / 100.0);
+        return new EthicsContext(decision, new UserData("User" + i, "user" + i + "@bank.com", i % 5 == 0, i % 17 != 0));
+    }
+}
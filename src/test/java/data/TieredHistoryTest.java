@@ -0,0 +1,188 @@
+package data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import core.EthicsDecision;
+import core.Pillar;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Tests hot/cold tiering of decision history
+ */
+class TieredHistoryTest {
+    
+    private static final long BASE = 1_700_000_000_000L;
+    private static final long DAY = Duration.ofDays(1).toMillis();
+    
+    @TempDir
+    Path dir;
+    
+    private static List<HistoryRow> all(TieredHistory history, HistoryQuery query) {
+        List<HistoryRow> rows = new ArrayList<>();
+        long cursor = 0;
+        do {
+            HistoryPage page = history.query(query.after(cursor));
+            rows.addAll(page.getRows());
+            cursor = page.getNextCursor();
+        } while (cursor != HistoryPage.END);
+        return rows;
+    }
+    
+    private static void fill(TieredHistory history, int rows) {
+        for (int i = 0; i < rows; i++) {
+            boolean blocked = i % 10 == 0;
+            history.append(BASE + i * 1_000L, 5_000 + i, blocked ? EthicsDecision.BLOCK : EthicsDecision.APPROVE,
+                    "Model" + (i % 3), blocked ? 1 << Pillar.PRIVACY.ordinal() : 0, blocked ? 1 : 0, i % 4);
+        }
+    }
+    
+    @Test
+    @DisplayName("Queries return the same rows before and after compaction and across restarts")
+    void testQueriesSpanTiers() throws Exception {
+        int rows = ColumnarHistory.CHUNK_SIZE * 3 + 1_234;
+        TieredHistory.Retention retention = new TieredHistory.Retention(Duration.ofDays(1), 0, Duration.ofDays(3650));
+        List<HistoryRow> before;
+        try (TieredHistory history = new TieredHistory(dir, retention, 0)) {
+            fill(history, rows);
+            before = all(history, new HistoryQuery().state(EthicsDecision.BLOCK).entity("Model1").limit(777));
+            
+            assertEquals(3, history.compact(BASE + rows * 1_000L + DAY / 2), "Sealed chunks move to disk");
+            assertEquals(3, history.getSegmentCount());
+            assertEquals(1_234, history.getHotRowCount());
+            assertEquals(rows, history.getRowCount());
+            
+            List<HistoryRow> after = all(history,
+                    new HistoryQuery().state(EthicsDecision.BLOCK).entity("Model1").limit(777));
+            assertRowsEqual(before, after);
+            
+            long from = BASE + (ColumnarHistory.CHUNK_SIZE - 50) * 1_000L;
+            long to = from + 100 * 1_000L;
+            assertEquals(100, all(history, new HistoryQuery().between(from, to)).size(),
+                    "Time ranges straddle the cold/hot boundary");
+            
+            double ratio = (double) history.getColdBytes() / history.getColdRowCount();
+            System.out.println(String.format("%n=== TIERED HISTORY ===%n%.2f bytes per row on disk", ratio));
+            assertTrue(ratio < 6, "Cold rows should compress well below the 12-byte hot layout");
+        }
+        
+        try (TieredHistory reopened = new TieredHistory(dir, retention, 0)) {
+            assertEquals(rows, reopened.getRowCount(), "Close flushes the open chunk too");
+            assertRowsEqual(before, all(reopened,
+                    new HistoryQuery().state(EthicsDecision.BLOCK).entity("Model1").limit(777)));
+            long ordinal = reopened.append(BASE + rows * 1_000L, 1, EthicsDecision.APPROVE, "Model9", 0, 0, 0);
+            assertTrue(ordinal > before.get(before.size() - 1).ordinal, "Ordinals continue after restart");
+        }
+    }
+    
+    @Test
+    @DisplayName("Entity names longer than 64KB survive compaction and reopening")
+    void testLongEntityName() throws Exception {
+        String longName = "Ünïcode-Model-".repeat(10_000);
+        TieredHistory.Retention retention = new TieredHistory.Retention(Duration.ZERO, 0, Duration.ofDays(3650));
+        try (TieredHistory history = new TieredHistory(dir, retention, 0)) {
+            for (int i = 0; i < ColumnarHistory.CHUNK_SIZE + 1; i++) {
+                history.append(BASE + i, i, EthicsDecision.APPROVE, i == 7 ? longName : "Model", 0, 0, 0);
+            }
+            assertEquals(2, history.compact(BASE + DAY), "The idle open chunk moves too");
+            assertNull(history.getLastError());
+        }
+        try (TieredHistory reopened = new TieredHistory(dir, retention, 0)) {
+            List<HistoryRow> rows = all(reopened, new HistoryQuery().entity(longName));
+            assertEquals(1, rows.size());
+            assertEquals(7, rows.get(0).ordinal);
+            assertEquals(longName, rows.get(0).responsibleEntity);
+        }
+    }
+    
+    @Test
+    @DisplayName("An open chunk nothing has been appended to within the hot window moves to disk")
+    void testIdleOpenChunkCompacted() throws Exception {
+        TieredHistory.Retention retention = new TieredHistory.Retention(Duration.ofHours(1), 4, Duration.ofDays(3650));
+        try (TieredHistory history = new TieredHistory(dir, retention, 0)) {
+            fill(history, 100);
+            long lastRow = BASE + 99 * 1_000L;
+            assertEquals(0, history.compact(lastRow + Duration.ofMinutes(59).toMillis()));
+            assertEquals(1, history.compact(lastRow + Duration.ofMinutes(61).toMillis()));
+            assertEquals(0, history.getHotRowCount());
+            assertEquals(100, history.getColdRowCount());
+            
+            history.append(lastRow + DAY, 9_999, EthicsDecision.APPROVE, "Model0", 0, 0, 0);
+            assertEquals(101, all(history, new HistoryQuery()).size(), "Appends continue in a new chunk");
+        }
+    }
+    
+    @Test
+    @DisplayName("Segments past the retention period are deleted")
+    void testExpiry() throws Exception {
+        TieredHistory.Retention retention = new TieredHistory.Retention(Duration.ZERO, 0, Duration.ofDays(1));
+        try (TieredHistory history = new TieredHistory(dir, retention, 0)) {
+            fill(history, ColumnarHistory.CHUNK_SIZE * 2 + 10);
+            history.compact(BASE);
+            assertEquals(2, history.getSegmentCount());
+            
+            long endOfFirstChunk = BASE + (ColumnarHistory.CHUNK_SIZE - 1) * 1_000L;
+            history.compact(endOfFirstChunk + DAY + 1);
+            assertEquals(2, history.getSegmentCount(), "First expired, idle open chunk added");
+            assertEquals(ColumnarHistory.CHUNK_SIZE, history.query(new HistoryQuery().limit(1)).getRows().get(0).ordinal);
+        }
+    }
+    
+    @Test
+    @DisplayName("Concurrency: writers keep recording while chunks are compacted")
+    void testCompactionDoesNotBlockWriters() throws Exception {
+        TieredHistory.Retention retention = new TieredHistory.Retention(Duration.ofDays(1), 1, Duration.ofDays(3650));
+        int rows = ColumnarHistory.CHUNK_SIZE * 3;
+        try (TieredHistory history = new TieredHistory(dir, retention, 0)) {
+            AtomicBoolean done = new AtomicBoolean();
+            Thread compactor = new Thread(() -> {
+                while (!done.get()) {
+                    try {
+                        history.compact(BASE);
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            });
+            compactor.start();
+            long start = System.nanoTime();
+            fill(history, rows);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            done.set(true);
+            compactor.join();
+            
+            System.out.println(String.format("%n=== TIERED HISTORY WRITES ===%n%,.0f rows/second during compaction",
+                    rows / seconds));
+            assertTrue(history.getSegmentCount() > 0, "Compaction ran concurrently");
+            assertEquals(rows, history.getRowCount());
+            
+            List<HistoryRow> everything = all(history, new HistoryQuery().limit(HistoryQuery.MAX_LIMIT));
+            assertEquals(rows, everything.size(), "No row lost or duplicated between tiers");
+            for (int i = 0; i < everything.size(); i++) {
+                assertEquals(i, everything.get(i).ordinal);
+            }
+        }
+    }
+    
+    private static void assertRowsEqual(List<HistoryRow> expected, List<HistoryRow> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            HistoryRow e = expected.get(i);
+            HistoryRow a = actual.get(i);
+            assertEquals(e.ordinal, a.ordinal);
+            assertEquals(e.timestamp, a.timestamp);
+            assertEquals(e.decisionId, a.decisionId);
+            assertEquals(e.decision, a.decision);
+            assertEquals(e.responsibleEntity, a.responsibleEntity);
+            assertEquals(e.violationMask, a.violationMask);
+            assertEquals(e.warningCount, a.warningCount);
+        }
+    }
+}
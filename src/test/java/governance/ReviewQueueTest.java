@@ -0,0 +1,278 @@
+package governance;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import core.EthicsContext;
+import core.EthicsResult;
+import model.AIDecision;
+import model.UserData;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests the escalation review queue
+ */
+class ReviewQueueTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+    private static final long LEASE = 60_000;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Claims return the most urgent item for the reviewer's role only")
+    void testOrderingAndSharding() {
+        ReviewQueue queue = new ReviewQueue(LEASE, 86_400_000, 3_600_000);
+        queue.enqueue(1, Role.ETHICS_OFFICER, 1, NOW + 5_000, "ModelA", "low", NOW);
+        queue.enqueue(2, Role.ETHICS_OFFICER, 6, NOW + 9_000, "ModelA", "urgent, later", NOW);
+        queue.enqueue(3, Role.ETHICS_OFFICER, 6, NOW + 1_000, "ModelA", "urgent, sooner", NOW);
+        queue.enqueue(4, Role.AI_REVIEWER, 9, NOW + 1_000, "ModelB", "confidence", NOW);
+
+        assertEquals(3, queue.claim(Role.ETHICS_OFFICER, "ethics@system.com", NOW).decisionId);
+        assertEquals(2, queue.claim(Role.ETHICS_OFFICER, "ethics@system.com", NOW).decisionId);
+        assertEquals(1, queue.claim(Role.ETHICS_OFFICER, "ethics@system.com", NOW).decisionId);
+        assertNull(queue.claim(Role.ETHICS_OFFICER, "ethics@system.com", NOW));
+        assertEquals(1, queue.getPendingCount(Role.AI_REVIEWER));
+        assertEquals(3, queue.getLeasedCount(Role.ETHICS_OFFICER));
+
+        assertEquals(Role.AI_REVIEWER, ReviewQueue.requiredRole("Confidence below threshold requires human review"));
+        assertEquals(Role.LEGAL_REVIEWER, ReviewQueue.requiredRole("Missing purpose specification requires review"));
+        assertEquals(Role.ETHICS_OFFICER, ReviewQueue.requiredRole("High-impact decision requires human oversight"));
+    }
+
+    @Test
+    @DisplayName("Expired leases are requeued and only the lease holder can complete")
+    void testLeases() {
+        ReviewQueue queue = new ReviewQueue(LEASE, 86_400_000, 3_600_000);
+        queue.enqueue(7, Role.LEGAL_REVIEWER, 1, NOW + 10_000, null, "purpose", NOW);
+
+        ReviewItem item = queue.claim(Role.LEGAL_REVIEWER, "alice", NOW);
+        assertEquals("alice", item.getReviewer());
+        assertThrows(IllegalStateException.class, () -> queue.complete(7, "bob", true, NOW + 1));
+
+        assertTrue(queue.renew(7, "alice", NOW + LEASE - 1));
+        assertEquals(0, queue.requeueExpired(NOW + LEASE), "Renewed lease has not expired");
+        assertEquals(1, queue.requeueExpired(NOW + 2 * LEASE));
+        assertNull(item.getReviewer());
+        assertThrows(IllegalStateException.class, () -> queue.complete(7, "alice", true, NOW + 2 * LEASE));
+
+        ReviewItem reclaimed = queue.claim(Role.LEGAL_REVIEWER, "bob", NOW + 2 * LEASE);
+        assertSame(item, reclaimed);
+        assertEquals(2, reclaimed.getAttempts());
+        queue.complete(7, "bob", false, NOW + 2 * LEASE + 1);
+        assertEquals(0, queue.size());
+        assertNull(queue.get(7));
+    }
+
+    @Test
+    @DisplayName("Open items survive a restart and a torn journal tail is ignored")
+    void testPersistence() throws Exception {
+        Path journal = dir.resolve("reviews.journal");
+        try (ReviewQueue queue = new ReviewQueue(journal)) {
+            for (int i = 0; i < 100; i++) {
+                queue.enqueue(i, i % 2 == 0 ? Role.ETHICS_OFFICER : Role.AI_REVIEWER, i % 7, NOW + i, "Model", "r" + i, NOW);
+            }
+            for (int i = 0; i < 10; i++) {
+                ReviewItem item = queue.claim(Role.ETHICS_OFFICER, "ethics@system.com", NOW);
+                queue.complete(item.decisionId, "ethics@system.com", true, NOW);
+            }
+            queue.claim(Role.AI_REVIEWER, "ai-reviewer@system.com", NOW);
+        }
+        Files.write(journal, new byte[] {0, 0, 0, 40, 1, 2}, StandardOpenOption.APPEND);
+
+        try (ReviewQueue reopened = new ReviewQueue(journal)) {
+            assertEquals(90, reopened.size());
+            assertEquals(40, reopened.getPendingCount(Role.ETHICS_OFFICER));
+            assertEquals(50, reopened.getPendingCount(Role.AI_REVIEWER), "Leases are released on restart");
+            ReviewItem first = reopened.claim(Role.AI_REVIEWER, "ai-reviewer@system.com", NOW);
+            assertEquals(6, first.priority);
+            assertEquals("Model", first.responsibleEntity);
+        }
+    }
+
+    @Test
+    @DisplayName("Who completed each review, and when, survives compaction; long and non-ASCII text round-trips")
+    void testCompletionHistory() throws Exception {
+        Path journal = dir.resolve("history.journal");
+        String reason = "Reason ".repeat(20_000) + "\u00e9\u4e2d";
+        try (ReviewQueue queue = new ReviewQueue(journal)) {
+            queue.enqueue(1, Role.ETHICS_OFFICER, 1, NOW + 1, "Mod\u00e8le", reason, NOW);
+            queue.enqueue(2, Role.AI_REVIEWER, 1, NOW + 1, "Model", "r", NOW);
+            queue.claim(Role.ETHICS_OFFICER, "alice", NOW);
+            queue.complete(1, "alice", true, NOW + 5);
+        }
+        try (ReviewQueue queue = new ReviewQueue(journal)) {
+            queue.claim(Role.AI_REVIEWER, "b\u00f6b", NOW);
+            queue.complete(2, "b\u00f6b", false, NOW + 9);
+        }
+
+        try (ReviewQueue reopened = new ReviewQueue(journal)) {
+            assertEquals(0, reopened.size());
+            List<CompletedReview> history = new java.util.ArrayList<>();
+            assertEquals(2, reopened.scanCompleted(history::add));
+            assertEquals(1, history.get(0).decisionId);
+            assertEquals("alice", history.get(0).reviewer);
+            assertTrue(history.get(0).approved);
+            assertEquals(NOW + 5, history.get(0).completedAt);
+            assertEquals(Role.ETHICS_OFFICER, history.get(0).role);
+            assertEquals("b\u00f6b", history.get(1).reviewer);
+            assertFalse(history.get(1).approved);
+
+            reopened.enqueue(3, Role.ETHICS_OFFICER, 1, NOW + 1, "Mod\u00e8le", reason, NOW);
+        }
+        try (ReviewQueue reopened = new ReviewQueue(journal)) {
+            assertEquals(reason, reopened.get(3).reason, "Text over 64KB is not limited by modified UTF-8");
+            assertEquals("Mod\u00e8le", reopened.get(3).responsibleEntity);
+        }
+    }
+
+    @Test
+    @DisplayName("Concurrency: 20k items claimed and completed by many reviewers exactly once")
+    void testConcurrentReviewers() throws Exception {
+        ReviewQueue queue = new ReviewQueue(dir.resolve("load.journal"), LEASE, 86_400_000, 3_600_000);
+        int items = 20_000;
+        int threads = 8;
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch ready = new CountDownLatch(1);
+        Set<Long> completed = ConcurrentHashMap.newKeySet();
+        AtomicInteger duplicates = new AtomicInteger();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            pool.submit(() -> {
+                ready.await();
+                for (int i = thread; i < items; i += threads) {
+                    queue.enqueue(i, Role.values()[i % 3], i % 10, NOW + i, "Model", "reason", NOW);
+                }
+                String reviewer = "reviewer-" + thread;
+                for (int i = 0; i < items; i++) {
+                    ReviewItem item = queue.claim(Role.values()[(thread + i) % 3], reviewer, NOW);
+                    if (item == null) {
+                        if (queue.size() == 0) {
+                            break;
+                        }
+                        continue;
+                    }
+                    queue.complete(item.decisionId, reviewer, true, NOW);
+                    if (!completed.add(item.decisionId)) {
+                        duplicates.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+        ready.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(60, TimeUnit.SECONDS));
+        for (Role role : Role.values()) {
+            ReviewItem item;
+            while ((item = queue.claim(role, "cleanup", NOW)) != null) {
+                queue.complete(item.decisionId, "cleanup", true, NOW);
+                completed.add(item.decisionId);
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        queue.close();
+
+        System.out.println(String.format("%n=== REVIEW QUEUE ===%n%,d items enqueued, claimed and completed in %.0f ms "
+                + "(%,.0f items/second, journaled)", items, seconds * 1000, items / seconds));
+        assertEquals(0, duplicates.get());
+        assertEquals(items, completed.size());
+        assertEquals(0, queue.size());
+    }
+
+    private static EthicsContext context(String label, double confidence, String entity) {
+        AIDecision decision = new AIDecision(label, confidence);
+        decision.setResponsibleEntity(entity);
+        return new EthicsContext(decision, new UserData("User", "user@example.com", false, true));
+    }
+
+    private static EthicsResult escalation(long id, String reason, String... warnings) {
+        EthicsResult result = new EthicsResult();
+        result.setDecisionId(id);
+        for (String warning : warnings) {
+            result.addWarning(warning);
+        }
+        result.escalate(reason);
+        return result;
+    }
+
+    @Test
+    @DisplayName("Near-identical escalations share a group that can be decided in one action")
+    void testSimilarityGroups() throws Exception {
+        Path journal = dir.resolve("groups.journal");
+        String reason = "Confidence below threshold requires human review";
+        String warning = "ROBUSTNESS: Confidence 0.66 is borderline";
+        long groupId;
+        try (ReviewQueue queue = new ReviewQueue(journal)) {
+            ReviewItem first = queue.submit(context("Loan 1234", 0.66, "CreditAI"), escalation(1, reason, warning), NOW);
+            queue.submit(context("loan  98", 0.67, "CreditAI"), escalation(2, reason, warning), NOW);
+            queue.submit(context("LOAN_7", 0.69, "CreditAI"), escalation(3, reason, warning), NOW);
+            queue.submit(context("Loan 5", 0.66, "OtherAI"), escalation(4, reason, warning), NOW);
+            queue.submit(context("Loan 6", 0.61, "CreditAI"), escalation(5, reason, warning), NOW);
+            queue.submit(context("Loan 8", 0.66, "CreditAI"), escalation(6, reason), NOW);
+
+            groupId = first.getGroupId();
+            ReviewGroup group = queue.getGroup(Role.AI_REVIEWER, groupId);
+            assertEquals(3, group.size(), "Label class, entity, reason, pillars and confidence bucket all match");
+            assertEquals("loan #", group.signature.labelClass);
+            assertEquals(4, queue.getGroups(Role.AI_REVIEWER, 10).size());
+            assertEquals(groupId, queue.getGroups(Role.AI_REVIEWER, 1).get(0).id, "Largest group first");
+        }
+
+        try (ReviewQueue queue = new ReviewQueue(journal)) {
+            assertEquals(3, queue.getGroup(Role.AI_REVIEWER, groupId).size(), "Groups are rebuilt on restart");
+
+            ReviewItem leasedByOther;
+            do {
+                leasedByOther = queue.claim(Role.AI_REVIEWER, "bob", NOW);
+            } while (leasedByOther.getGroupId() != groupId);
+
+            List<ReviewItem> completed = queue.completeGroup(Role.AI_REVIEWER, groupId, "alice", true, NOW + 1);
+            assertEquals(2, completed.size(), "Members leased to another reviewer are skipped");
+            assertEquals(1, queue.getGroup(Role.AI_REVIEWER, groupId).size());
+
+            queue.complete(leasedByOther.decisionId, "bob", false, NOW + 2);
+            assertNull(queue.getGroup(Role.AI_REVIEWER, groupId), "Empty groups are retired");
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Performance: grouping 100k escalations is constant time per submission")
+    void testGroupingThroughput() {
+        ReviewQueue queue = new ReviewQueue(LEASE, 86_400_000, 3_600_000);
+        int items = 100_000;
+        EthicsContext[] contexts = new EthicsContext[50];
+        for (int i = 0; i < contexts.length; i++) {
+            contexts[i] = context("Loan " + i, 0.6 + (i % 5) * 0.02, "Model" + (i % 10));
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < items; i++) {
+            queue.submit(contexts[i % contexts.length],
+                    escalation(i, "Bias score at threshold - requires review", "FAIRNESS: near threshold"), NOW);
+        }
+        double micros = (System.nanoTime() - start) / 1_000.0 / items;
+        int groups = queue.getGroups(Role.AI_REVIEWER, Integer.MAX_VALUE).size();
+
+        System.out.println(String.format("%n=== REVIEW GROUPING ===%n%,d escalations in %d groups, %.2f us per submit",
+                items, groups, micros));
+        assertEquals(items, queue.size());
+        assertTrue(groups <= 50 && groups >= 10, "Label numbers are ignored; entity and confidence bucket split groups");
+    }
+}
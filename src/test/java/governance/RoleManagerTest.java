@@ -0,0 +1,192 @@
+package governance;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests role lookups and directory imports
+ */
+class RoleManagerTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Assigned roles are found and revoked roles are not")
+    void testAssignAndRevoke() {
+        RoleManager roles = new RoleManager();
+        assertTrue(roles.hasRole("admin@system.com", Role.ADMIN));
+        assertFalse(roles.hasRole("admin@system.com", Role.ETHICS_OFFICER));
+        assertFalse(roles.hasRole("nobody@system.com", Role.ADMIN));
+
+        for (int i = 0; i < 1_000; i++) {
+            roles.assignRole("user" + i + "@example.com", Role.AI_REVIEWER);
+        }
+        roles.assignRole("user7@example.com", Role.LEGAL_REVIEWER);
+        roles.assignRole("réviseur@example.com", Role.ETHICS_OFFICER);
+
+        assertEquals(1_004, roles.size());
+        assertEquals(EnumSet.of(Role.AI_REVIEWER, Role.LEGAL_REVIEWER), roles.getRoles("user7@example.com"));
+        assertTrue(roles.hasRole("réviseur@example.com", Role.ETHICS_OFFICER));
+        assertFalse(roles.hasRole("reviseur@example.com", Role.ETHICS_OFFICER));
+        assertTrue(roles.hasRole("ethics@system.com", Role.ETHICS_OFFICER));
+
+        roles.revokeRole("user7@example.com", Role.AI_REVIEWER);
+        assertEquals(EnumSet.of(Role.LEGAL_REVIEWER), roles.getRoles("user7@example.com"));
+        assertTrue(roles.getRoles("missing@example.com").isEmpty());
+    }
+
+    @Test
+    @DisplayName("CSV and LDIF imports replace the directory")
+    void testImports() throws IOException {
+        Path csv = dir.resolve("roles.csv");
+        Files.writeString(csv, String.join("\n",
+            "principal,roles",
+            "# reviewers",
+            "alice@example.com,ETHICS_OFFICER;ai-reviewer",
+            "bob@example.com,LEGAL_REVIEWER,ADMIN",
+            "",
+            "carol@example.com"));
+
+        RoleManager roles = new RoleManager();
+        assertEquals(3, roles.importFile(csv));
+        assertEquals(EnumSet.of(Role.ETHICS_OFFICER, Role.AI_REVIEWER), roles.getRoles("alice@example.com"));
+        assertEquals(EnumSet.of(Role.LEGAL_REVIEWER, Role.ADMIN), roles.getRoles("bob@example.com"));
+        assertTrue(roles.getRoles("carol@example.com").isEmpty());
+        assertFalse(roles.hasRole("admin@system.com", Role.ADMIN));
+
+        Path ldif = dir.resolve("roles.ldif");
+        Files.writeString(ldif, String.join("\n",
+            "# exported directory",
+            "dn: uid=dave,ou=people,dc=example,dc=com",
+            "uid: dave",
+            "memberOf: cn=ethics-officer,ou=groups,dc=example,dc=com",
+            "memberOf: cn=staff,ou=groups,dc=example,dc=com",
+            "",
+            "dn: cn=Erin,ou=people,dc=example,dc=com",
+            "mail: erin@exam",
+            " ple.com",
+            "raigRole: LEGAL_REVIEWER",
+            "",
+            "dn: cn=Frank,ou=people,dc=example,dc=com",
+            "uid:: ZnLDpG5r",
+            "raigRole: ADMIN",
+            ""));
+
+        assertEquals(3, roles.importFile(ldif));
+        assertEquals(EnumSet.of(Role.ETHICS_OFFICER), roles.getRoles("dave"));
+        assertEquals(EnumSet.of(Role.LEGAL_REVIEWER), roles.getRoles("erin@example.com"));
+        assertTrue(roles.hasRole("fränk", Role.ADMIN));
+        assertFalse(roles.hasRole("alice@example.com", Role.ETHICS_OFFICER));
+    }
+
+    @Test
+    @DisplayName("A bad import leaves the current directory in place")
+    void testFailedImport() throws IOException {
+        Path csv = dir.resolve("bad.csv");
+        Files.writeString(csv, "alice@example.com,ETHICS_OFFICER\nbob@example.com,JANITOR\n");
+
+        RoleManager roles = new RoleManager();
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class, () -> roles.importCsv(csv));
+        assertTrue(error.getMessage().contains(":2:"), error.getMessage());
+        assertTrue(roles.hasRole("admin@system.com", Role.ADMIN));
+        assertFalse(roles.hasRole("alice@example.com", Role.ETHICS_OFFICER));
+    }
+
+    @Test
+    @DisplayName("Lookups during a re-import see either the old or the new directory")
+    void testConcurrentReimport() throws Exception {
+        Path first = writeDirectory("first.csv", 50_000, "ETHICS_OFFICER");
+        Path second = writeDirectory("second.csv", 50_000, "AI_REVIEWER");
+        RoleManager roles = new RoleManager();
+        roles.importFile(first);
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger torn = new AtomicInteger();
+        Thread[] readers = new Thread[4];
+        for (int t = 0; t < readers.length; t++) {
+            int seed = t;
+            readers[t] = new Thread(() -> {
+                int i = seed;
+                while (running.get()) {
+                    String principal = "user" + (i % 50_000) + "@example.com";
+                    // One call, so both bits come from the same directory
+                    if (roles.getRoles(principal).size() != 1) {
+                        torn.incrementAndGet();
+                    }
+                    i += 7;
+                }
+            });
+            readers[t].start();
+        }
+        for (int round = 0; round < 6; round++) {
+            roles.importFile(round % 2 == 0 ? second : first);
+        }
+        running.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertEquals(0, torn.get());
+        assertTrue(roles.hasRole("user49999@example.com", Role.ETHICS_OFFICER));
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Two million principals import compactly and look up quickly")
+    void testLargeDirectory() throws IOException {
+        int principals = 2_000_000;
+        Path csv = writeDirectory("large.csv", principals, "AI_REVIEWER;ETHICS_OFFICER");
+        RoleManager roles = new RoleManager();
+
+        long start = System.nanoTime();
+        assertEquals(principals, roles.importFile(csv));
+        long importMillis = (System.nanoTime() - start) / 1_000_000;
+
+        String[] probes = new String[4096];
+        for (int i = 0; i < probes.length; i++) {
+            probes[i] = "user" + (i * 487 % principals) + "@example.com";
+        }
+        int found = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < 4_000_000; i++) {
+            if (roles.hasRole(probes[i & 4095], Role.ETHICS_OFFICER)) {
+                found++;
+            }
+        }
+        long lookupNanos = (System.nanoTime() - start) / 4_000_000;
+
+        assertEquals(4_000_000, found);
+        assertFalse(roles.hasRole("user" + principals + "@example.com", Role.ETHICS_OFFICER));
+        long bytesPerPrincipal = roles.estimateBytes() / principals;
+        System.out.printf("%,d principals: import %d ms, %d ns/lookup, %d bytes/principal%n",
+            principals, importMillis, lookupNanos, bytesPerPrincipal);
+        assertTrue(bytesPerPrincipal < 96, "bytes per principal: " + bytesPerPrincipal);
+    }
+
+    private Path writeDirectory(String name, int principals, String roles) throws IOException {
+        Path file = dir.resolve(name);
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < principals; i++) {
+                out.write("user");
+                out.write(Integer.toString(i));
+                out.write("@example.com,");
+                out.write(roles);
+                out.newLine();
+            }
+        }
+        return file;
+    }
+}
@@ -0,0 +1,283 @@
+package server;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import static org.junit.jupiter.api.Assertions.*;
+
+import core.EthicsContext;
+import core.EthicsDecision;
+import core.EthicsEngine;
+import core.EthicsResult;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Tests the binary protocol server and client over Unix domain sockets and
+ * loopback TCP
+ */
+class BinaryServerTest {
+
+    private final EthicsEngine engine = new EthicsEngine();
+    private final List<BinaryServer<?>> servers = new ArrayList<>();
+    private final List<BinaryClient> clients = new ArrayList<>();
+    private Path socketDir;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        for (BinaryClient client : clients) {
+            client.close();
+        }
+        servers.forEach(BinaryServer::close);
+        if (socketDir != null) {
+            Files.deleteIfExists(socketDir.resolve("raig.sock"));
+            Files.deleteIfExists(socketDir);
+        }
+    }
+
+    @Test
+    @DisplayName("Results over a Unix socket match evaluating the same decision directly")
+    void testUnixSocketRoundTrip() throws Exception {
+        BinaryClient client = connect(start(0), unixAddress());
+
+        BinaryProtocol.Request good = loanRequest();
+        BinaryProtocol.Result approved = client.evaluate(good);
+        EthicsResult direct = engine.intercept(BinaryProtocol.readRequest(encode(good), new String[0]));
+        assertEquals(direct.getFinalDecision(), approved.state);
+        assertEquals(direct.isApproved(), approved.approved);
+        assertTrue(approved.decisionId != 0);
+
+        BinaryProtocol.Request biased = loanRequest();
+        biased.biasScore = 0.65;
+        biased.explanation = null;
+        BinaryProtocol.Result blocked = client.evaluate(biased);
+        assertEquals(EthicsDecision.BLOCK, blocked.state);
+        assertFalse(blocked.approved);
+        assertTrue(blocked.violations.stream().anyMatch(v -> v.startsWith("FAIRNESS")), blocked.violations.toString());
+        assertTrue(blocked.violations.stream().anyMatch(v -> v.startsWith("TRANSPARENCY")), blocked.violations.toString());
+    }
+
+    @Test
+    @DisplayName("Multiplexed requests on one TCP connection complete out of order under their own IDs")
+    void testMultiplexing() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        BinaryServer<EthicsResult> server = new BinaryServer<>(context -> {
+            if (context.decision.getDecisionLabel().equals("slow")) {
+                await(release);
+            }
+            return engine.intercept(context);
+        }, (out, result) -> BinaryProtocol.writeResult(out, result, result.isApproved()), 4);
+        servers.add(server);
+        BinaryClient client = connect(server, new InetSocketAddress("127.0.0.1", 0));
+
+        BinaryProtocol.Request slow = loanRequest();
+        slow.label = "slow";
+        CompletableFuture<BinaryProtocol.Result> first = client.submit(slow);
+        List<CompletableFuture<BinaryProtocol.Result>> rest = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            BinaryProtocol.Request request = loanRequest();
+            request.confidence = i % 2 == 0 ? 0.95 : 0.2;
+            rest.add(client.submit(request));
+        }
+        for (int i = 0; i < rest.size(); i++) {
+            BinaryProtocol.Result result = rest.get(i).get(5, TimeUnit.SECONDS);
+            assertEquals(i % 2 == 0, result.approved, "Result " + i + " belongs to its own request");
+        }
+        assertFalse(first.isDone(), "Later requests are not held behind a slow one");
+        release.countDown();
+        assertTrue(first.get(5, TimeUnit.SECONDS).approved);
+        assertEquals(21, server.getRequestCount());
+    }
+
+    @Test
+    @DisplayName("Undefined string IDs get an error frame and malformed frames close the connection")
+    void testErrors() throws Exception {
+        BinaryServer<EthicsResult> server = start(0);
+        BinaryClient client = connect(server, unixAddress());
+
+        ByteBuffer frame = ByteBuffer.allocate(256);
+        int start = BinaryProtocol.beginFrame(frame, BinaryProtocol.EVALUATE, 7);
+        int[] ids = new int[BinaryProtocol.STRING_FIELDS];
+        Arrays.fill(ids, BinaryProtocol.NONE);
+        ids[0] = 42;
+        BinaryProtocol.writeRequest(frame, loanRequest(), ids);
+        BinaryProtocol.endFrame(frame, start);
+        try (SocketChannel raw = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            raw.connect(unixAddress());
+            raw.write(frame.flip());
+            ByteBuffer reply = readFrame(raw);
+            assertEquals(BinaryProtocol.ERROR, reply.get());
+            assertEquals(7, reply.getInt());
+            assertEquals("Undefined string 42", BinaryProtocol.readString(reply));
+
+            raw.write(ByteBuffer.allocate(4).putInt(BinaryProtocol.MAX_FRAME_BYTES + 1).flip());
+            assertEquals(-1, raw.read(ByteBuffer.allocate(1)), "Oversized frame closes the connection");
+        }
+        assertEquals(1, server.getErrorCount());
+        assertTrue(client.evaluate(loanRequest()).approved, "Other connections are unaffected");
+    }
+
+    @Test
+    @DisplayName("A result too large for one frame is answered with an error frame")
+    void testOversizedResult() throws Exception {
+        byte[] padding = new byte[BinaryProtocol.MAX_FRAME_BYTES];
+        // Inline mode writes into the connection's buffer, which has room for more than one frame
+        BinaryServer<EthicsResult> server = new BinaryServer<>(engine::intercept, (out, result) -> {
+            BinaryProtocol.writeResult(out, result, result.isApproved());
+            out.put(padding);
+        }, 0);
+        servers.add(server);
+        BinaryClient client = connect(server, unixAddress());
+
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+            () -> client.evaluate(loanRequest()));
+        assertEquals("Result larger than " + BinaryProtocol.MAX_FRAME_BYTES + " bytes", error.getMessage());
+        assertEquals(1, server.getErrorCount());
+    }
+
+    @Test
+    @DisplayName("Strings too long for their length field are cut at a character boundary")
+    void testStringTruncation() {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 17);
+        // Three bytes each, so the 65534-byte limit falls after the first byte of a character
+        String euros = "\u20ac".repeat(30_000);
+        BinaryProtocol.writeString(buffer, "a" + euros);
+        BinaryProtocol.writeString(buffer, "\u20ac\u20ac", 4);
+        buffer.flip();
+
+        String cut = BinaryProtocol.readString(buffer);
+        assertEquals("a" + euros.substring(0, 21_844), cut);
+        assertEquals("\u20ac", BinaryProtocol.readString(buffer));
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Benchmark: round-trip latency over Unix socket and loopback TCP")
+    void testLatency() throws Exception {
+        BinaryServer<EthicsResult> server = start(0);
+        BinaryClient unix = connect(server, unixAddress());
+        BinaryClient tcp = connect(server, new InetSocketAddress("127.0.0.1", 0));
+        BinaryProtocol.Request request = loanRequest();
+
+        long[] direct = measure(20_000, () -> engine.intercept(
+            BinaryProtocol.readRequest(encode(request), new String[0])));
+        long[] overUnix = measure(20_000, () -> unix.evaluate(request));
+        long[] overTcp = measure(20_000, () -> tcp.evaluate(request));
+
+        System.out.println("\n=== BINARY PROTOCOL ROUND TRIP (sequential, one connection) ===");
+        System.out.printf("in-process engine  p50 %6.1f us  p99 %6.1f us%n", direct[0] / 1e3, direct[1] / 1e3);
+        System.out.printf("unix socket        p50 %6.1f us  p99 %6.1f us%n", overUnix[0] / 1e3, overUnix[1] / 1e3);
+        System.out.printf("loopback tcp       p50 %6.1f us  p99 %6.1f us%n", overTcp[0] / 1e3, overTcp[1] / 1e3);
+        assertEquals(40_000 + 2 * 2_000, server.getRequestCount());
+    }
+
+    private BinaryServer<EthicsResult> start(int threads) {
+        Function<EthicsContext, EthicsResult> evaluate = engine::intercept;
+        BinaryServer<EthicsResult> server = new BinaryServer<>(evaluate,
+            (out, result) -> BinaryProtocol.writeResult(out, result, result.isApproved()), threads);
+        servers.add(server);
+        return server;
+    }
+
+    private BinaryClient connect(BinaryServer<?> server, SocketAddress address) throws IOException {
+        BinaryClient client = BinaryClient.connect(server.bind(address));
+        clients.add(client);
+        return client;
+    }
+
+    private UnixDomainSocketAddress unixAddress() throws IOException {
+        if (socketDir == null) {
+            // Socket paths are limited to about 100 bytes, so keep it short
+            socketDir = Files.createTempDirectory(Path.of("/tmp"), "raig");
+        }
+        return UnixDomainSocketAddress.of(socketDir.resolve("raig.sock"));
+    }
+
+    private static BinaryProtocol.Request loanRequest() {
+        BinaryProtocol.Request request = new BinaryProtocol.Request();
+        request.label = "Loan approval";
+        request.confidence = 0.92;
+        request.responsibleEntity = "LoanModel";
+        request.explanation = "Income and repayment history support the approval of this application";
+        request.biasScore = 0.05;
+        request.userName = "User";
+        request.userEmail = "user@example.com";
+        return request;
+    }
+
+    /**
+     * The request's EVALUATE payload with every string sent inline
+     */
+    private static ByteBuffer encode(BinaryProtocol.Request request) {
+        ByteBuffer payload = ByteBuffer.allocate(1024);
+        String[] strings = request.strings();
+        int[] ids = new int[strings.length];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = strings[i] == null ? BinaryProtocol.NONE : BinaryProtocol.INLINE;
+        }
+        BinaryProtocol.writeRequest(payload, request, ids);
+        return payload.flip();
+    }
+
+    private static ByteBuffer readFrame(SocketChannel channel) throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(4);
+        while (length.hasRemaining()) {
+            if (channel.read(length) < 0) {
+                throw new IOException("Closed");
+            }
+        }
+        ByteBuffer frame = ByteBuffer.allocate(length.flip().getInt());
+        while (frame.hasRemaining()) {
+            if (channel.read(frame) < 0) {
+                throw new IOException("Closed");
+            }
+        }
+        return frame.flip();
+    }
+
+    @FunctionalInterface
+    private interface Call {
+        void run() throws Exception;
+    }
+
+    /**
+     * p50 and p99 in nanoseconds after a warm-up of a tenth of the calls
+     */
+    private static long[] measure(int calls, Call call) throws Exception {
+        for (int i = 0; i < calls / 10; i++) {
+            call.run();
+        }
+        long[] times = new long[calls];
+        for (int i = 0; i < calls; i++) {
+            long start = System.nanoTime();
+            call.run();
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        return new long[] {times[calls / 2], times[calls * 99 / 100]};
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
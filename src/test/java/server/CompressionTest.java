@@ -0,0 +1,216 @@
+package server;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Tests response compression negotiation and compressed request bodies
+ */
+class CompressionTest {
+
+    @Test
+    @DisplayName("Negotiates by q-value with gzip winning ties and q=0 excluding an encoding")
+    void testNegotiate() {
+        assertEquals(Compression.Encoding.GZIP, Compression.negotiate("gzip, deflate, br"));
+        assertEquals(Compression.Encoding.DEFLATE, Compression.negotiate("gzip;q=0.5, deflate"));
+        assertEquals(Compression.Encoding.DEFLATE, Compression.negotiate("deflate, gzip;q=0"));
+        assertEquals(Compression.Encoding.GZIP, Compression.negotiate("*"));
+        assertEquals(Compression.Encoding.IDENTITY, Compression.negotiate("br, identity"));
+        assertEquals(Compression.Encoding.IDENTITY, Compression.negotiate("*;q=0"));
+        assertEquals(Compression.Encoding.IDENTITY, Compression.negotiate(null));
+    }
+
+    @Test
+    @DisplayName("Compresses large bodies for clients that accept it and decodes gzip request bodies")
+    void testOverHttp() throws Exception {
+        Compression compression = new Compression(256, Deflater.DEFAULT_COMPRESSION, 2);
+        String large = "{\"decision\":\"BLOCK\",\"entity\":\"LoanModel-v2\"}\n".repeat(500);
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/large", exchange -> {
+            try (OutputStream out = compression.begin(exchange, 200, large.length())) {
+                out.write(large.getBytes(StandardCharsets.UTF_8));
+            }
+        });
+        server.createContext("/small", exchange -> {
+            try (OutputStream out = compression.begin(exchange, 200, 2)) {
+                out.write("{}".getBytes(StandardCharsets.UTF_8));
+            }
+        });
+        server.createContext("/echo", exchange -> {
+            byte[] body;
+            try (InputStream in = Compression.requestBody(exchange)) {
+                body = in.readAllBytes();
+            }
+            try (OutputStream out = compression.begin(exchange, 200, body.length)) {
+                out.write(body);
+            }
+        });
+        server.start();
+        try {
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            String base = "http://127.0.0.1:" + server.getAddress().getPort();
+
+            // Several rounds so pooled deflaters are reused after reset
+            for (int round = 0; round < 5; round++) {
+                HttpResponse<byte[]> gzip = get(client, base + "/large", "gzip");
+                assertEquals("gzip", gzip.headers().firstValue("Content-Encoding").orElseThrow());
+                assertEquals(large, read(new GZIPInputStream(new ByteArrayInputStream(gzip.body()))));
+                assertTrue(gzip.body().length < large.length() / 20);
+
+                HttpResponse<byte[]> deflate = get(client, base + "/large", "deflate");
+                assertEquals("deflate", deflate.headers().firstValue("Content-Encoding").orElseThrow());
+                assertEquals(large, read(new InflaterInputStream(new ByteArrayInputStream(deflate.body()))));
+            }
+            HttpResponse<byte[]> plain = get(client, base + "/large", "identity");
+            assertTrue(plain.headers().firstValue("Content-Encoding").isEmpty());
+            assertEquals(large, new String(plain.body(), StandardCharsets.UTF_8));
+
+            HttpResponse<byte[]> small = get(client, base + "/small", "gzip");
+            assertTrue(small.headers().firstValue("Content-Encoding").isEmpty());
+            assertEquals("{}", new String(small.body(), StandardCharsets.UTF_8));
+
+            ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+            try (GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+                out.write(large.getBytes(StandardCharsets.UTF_8));
+            }
+            HttpResponse<byte[]> echo = client.send(HttpRequest.newBuilder(URI.create(base + "/echo"))
+                .header("Content-Encoding", "gzip")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(gzipped.toByteArray())).build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+            assertEquals(large, new String(echo.body(), StandardCharsets.UTF_8));
+
+            assertEquals(10, compression.getCompressedCount());
+            assertEquals(10L * large.length(), compression.getBytesIn());
+            assertTrue(compression.getBytesOut() < compression.getBytesIn() / 20);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    @DisplayName("A request body that does not decode is reported as malformed, not as a broken connection")
+    void testMalformedRequestBody() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        // Mapped the way the evaluate handlers map it
+        server.createContext("/decode", exchange -> {
+            int status;
+            try {
+                Compression.requestBody(exchange).readAllBytes();
+                status = 200;
+            } catch (Compression.MalformedBodyException e) {
+                status = 400;
+            }
+            // Otherwise the server closes the connection under the next request
+            Compression.drainRequestBody(exchange);
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+        });
+        server.start();
+        try {
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            URI uri = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/decode");
+            ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+            try (GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+                out.write("{\"decision\":\"BLOCK\"}\n".repeat(100).getBytes(StandardCharsets.UTF_8));
+            }
+            byte[] valid = gzipped.toByteArray();
+            byte[] truncated = Arrays.copyOf(valid, valid.length / 2);
+            byte[] garbage = "definitely not gzip".getBytes(StandardCharsets.UTF_8);
+
+            assertEquals(200, post(client, uri, "gzip", valid));
+            assertEquals(400, post(client, uri, "gzip", garbage));
+            assertEquals(400, post(client, uri, "gzip", truncated));
+            assertEquals(400, post(client, uri, "deflate", garbage));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    @DisplayName("Flushing a compressed stream makes everything written so far decodable")
+    void testSyncFlush() throws IOException {
+        Compression compression = new Compression(0, Deflater.BEST_SPEED, 1);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OutputStream out = compression.open(bytes, Compression.Encoding.DEFLATE);
+        out.write("{\"line\":1}\n".getBytes(StandardCharsets.UTF_8));
+        out.flush();
+
+        InflaterInputStream partial = new InflaterInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        byte[] first = new byte[11];
+        assertEquals(11, partial.readNBytes(first, 0, 11));
+        assertEquals("{\"line\":1}\n", new String(first, StandardCharsets.UTF_8));
+        out.close();
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Benchmark: bytes saved and CPU cost per level on history-like NDJSON")
+    void testBenchmark() throws IOException {
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; ndjson.length() < 4 << 20; i++) {
+            ndjson.append("{\"decisionId\":").append(1_000_000 + i * 7L).append(",\"timestamp\":")
+                .append(1_760_000_000_000L + i * 37L).append(",\"state\":\"").append(i % 5 == 0 ? "BLOCK" : "APPROVE")
+                .append("\",\"entity\":\"LoanModel-v").append(i % 4).append("\",\"confidence\":0.")
+                .append(50 + i % 50).append(",\"violations\":[").append(i % 5 == 0 ? "\"FAIRNESS\"" : "")
+                .append("]}\n");
+        }
+        byte[] data = ndjson.toString().getBytes(StandardCharsets.UTF_8);
+
+        System.out.println("\n=== RESPONSE COMPRESSION (" + data.length / 1024 + " KB NDJSON) ===");
+        for (int level : new int[] {Deflater.BEST_SPEED, Deflater.DEFAULT_COMPRESSION, Deflater.BEST_COMPRESSION}) {
+            Compression compression = new Compression(0, level, 1);
+            for (int i = 0; i < 3; i++) {
+                try (OutputStream out = compression.open(OutputStream.nullOutputStream(), Compression.Encoding.GZIP)) {
+                    for (int offset = 0; offset < data.length; offset += 16 * 1024) {
+                        out.write(data, offset, Math.min(16 * 1024, data.length - offset));
+                    }
+                }
+            }
+            double ratio = (double) compression.getBytesOut() / compression.getBytesIn();
+            double mbPerSecond = compression.getBytesIn() / (double) compression.getCompressionMicros();
+            System.out.printf("level %2d: %4.1f%% of original, %,5.0f MB/s, %,6.1f ms CPU per MB saved%n",
+                level, ratio * 100, mbPerSecond, compression.getCompressionMicros() / 1e3
+                    / ((compression.getBytesIn() - compression.getBytesOut()) / 1e6));
+            assertTrue(ratio < 0.25, "ratio " + ratio);
+        }
+    }
+
+    private static HttpResponse<byte[]> get(HttpClient client, String uri, String acceptEncoding) throws Exception {
+        return client.send(HttpRequest.newBuilder(URI.create(uri)).header("Accept-Encoding", acceptEncoding).build(),
+            HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private static int post(HttpClient client, URI uri, String contentEncoding, byte[] body) throws Exception {
+        return client.send(HttpRequest.newBuilder(uri).header("Content-Encoding", contentEncoding)
+            .POST(HttpRequest.BodyPublishers.ofByteArray(body)).build(),
+            HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private static String read(InputStream in) throws IOException {
+        try (in) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package server;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import communication.FeedbackService;
+import core.EthicsContext;
+import core.EthicsDecision;
+import core.EthicsResult;
+import model.AIDecision;
+import model.UserData;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tests Server-Sent Events fan-out
+ */
+class EventBroadcasterTest {
+
+    @Test
+    @DisplayName("Subscribers receive only events matching their user, state and type filters")
+    void testFilters() throws Exception {
+        EventBroadcaster events = new EventBroadcaster();
+        EventBroadcaster.Subscriber blocks = events.subscribe(
+            EventBroadcaster.Filter.parse(Map.of("state", "block", "type", "decision")));
+        EventBroadcaster.Subscriber alice = events.subscribe(
+            new EventBroadcaster.Filter(Set.of("alice@example.com"), EnumSet.noneOf(EthicsDecision.class),
+                EnumSet.noneOf(EventBroadcaster.Type.class)));
+        EventBroadcaster.Subscriber everything = events.subscribe(EventBroadcaster.Filter.ALL);
+
+        events.onDecision(context("alice@example.com"), blocked());
+        events.onDecision(context("bob@example.com"), new EthicsResult());
+        events.onDecision(context("bob@example.com"), blocked());
+
+        assertEquals(2, drain(blocks).split("event: decision").length - 1);
+        String aliceFrames = drain(alice);
+        assertTrue(aliceFrames.contains("\"user\":\"alice@example.com\""));
+        assertFalse(aliceFrames.contains("bob@example.com"));
+        assertEquals(3, drain(everything).split("\n\n").length);
+
+        FeedbackService feedback = new FeedbackService();
+        feedback.addListener(events);
+        feedback.sendNotification("alice@example.com", blocked());
+        assertEquals("", drain(blocks));
+        assertTrue(drain(alice).contains("event: notification\ndata: {"));
+        assertThrows(IllegalArgumentException.class,
+            () -> EventBroadcaster.Filter.parse(Map.of("state", "MAYBE")));
+    }
+
+    @Test
+    @DisplayName("A subscriber that falls behind is dropped without blocking publishers")
+    void testSlowSubscriberDropped() throws Exception {
+        EventBroadcaster events = new EventBroadcaster(64, 1_000);
+        EventBroadcaster.Subscriber fast = events.subscribe(EventBroadcaster.Filter.ALL);
+        for (int i = 0; i < 500; i++) {
+            // Never read, so each one fills up and is dropped
+            events.subscribe(EventBroadcaster.Filter.ALL);
+        }
+        EthicsContext context = context("carol@example.com");
+        EthicsResult result = new EthicsResult();
+
+        int received = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < 16_000; i++) {
+            events.onDecision(context, result);
+            if (i % 32 == 31) {
+                received += drain(fast).split("\n\n").length;
+            }
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(500, events.getDroppedSubscriberCount());
+        assertEquals(1, events.getSubscriberCount());
+        assertFalse(fast.isDropped());
+        assertEquals(16_000, received);
+        System.out.printf("16,000 events to 501 subscribers (500 dropped) in %d ms%n", elapsedMillis);
+    }
+
+    @Test
+    @DisplayName("The stream writes SSE frames and reports when the subscriber is dropped")
+    void testStream() throws Exception {
+        EventBroadcaster events = new EventBroadcaster(4, 10);
+        EventBroadcaster.Subscriber subscriber = events.subscribe(EventBroadcaster.Filter.ALL);
+        for (int i = 0; i < 5; i++) {
+            events.onDecision(context("dave@example.com"), blocked());
+        }
+        assertTrue(subscriber.isDropped());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        events.stream(subscriber, out);
+        assertEquals("event: dropped\ndata: {\"reason\":\"subscriber too slow\"}\n\n",
+            out.toString(StandardCharsets.UTF_8));
+
+        EventBroadcaster.Subscriber live = events.subscribe(EventBroadcaster.Filter.ALL);
+        ByteArrayOutputStream liveOut = new ByteArrayOutputStream();
+        Thread writer = events.start(live, liveOut, () -> { });
+        events.onDecision(context("dave@example.com"), blocked());
+        Thread.sleep(100);
+        live.close();
+        writer.join(5_000);
+
+        String frames = liveOut.toString(StandardCharsets.UTF_8);
+        assertTrue(frames.startsWith("id: 6\nevent: decision\ndata: {\"decisionId\":0,\"decision\":\"BLOCK\""), frames);
+        assertTrue(frames.endsWith("}\n\n"));
+        assertEquals(0, events.getSubscriberCount());
+    }
+
+    private static String drain(EventBroadcaster.Subscriber subscriber) throws InterruptedException {
+        StringBuilder frames = new StringBuilder();
+        byte[] frame;
+        while ((frame = subscriber.poll(0)) != null) {
+            frames.append(new String(frame, StandardCharsets.UTF_8));
+        }
+        return frames.toString();
+    }
+
+    private static EthicsContext context(String email) {
+        return new EthicsContext(new AIDecision("Loan approval", 0.9), new UserData("User", email, false, true));
+    }
+
+    private static EthicsResult blocked() {
+        EthicsResult result = new EthicsResult();
+        result.addViolation("Bias detected");
+        return result;
+    }
+}
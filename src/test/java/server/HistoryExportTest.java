@@ -0,0 +1,91 @@
+package server;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import core.EthicsDecision;
+import core.Pillar;
+import data.ColumnarHistory;
+import data.HistoryQuery;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Tests streaming history export
+ */
+class HistoryExportTest {
+
+    private static final long BASE = 1_700_000_000_000L;
+
+    @Test
+    @DisplayName("CSV and NDJSON exports contain every filtered row across pages")
+    void testFormats() throws Exception {
+        ColumnarHistory history = new ColumnarHistory();
+        for (int i = 0; i < 2_500; i++) {
+            boolean blocked = i % 2 == 0;
+            history.append(BASE + i, i, blocked ? EthicsDecision.BLOCK : EthicsDecision.APPROVE,
+                    i % 5 == 0 ? "Model, \"Q\"" : "Model",
+                    blocked ? (1 << Pillar.PRIVACY.ordinal()) | (1 << Pillar.FAIRNESS.ordinal()) : 0,
+                    blocked ? 2 : 0, 1);
+        }
+
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        long rows = HistoryExport.write(history::query, new HistoryQuery().state(EthicsDecision.BLOCK),
+                HistoryExport.Format.CSV, new Utf8Writer(csv));
+        String[] lines = csv.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(1_250, rows);
+        assertEquals(1_251, lines.length);
+        assertTrue(lines[0].startsWith("ordinal,decision_id,timestamp"));
+        assertEquals("0,0," + BASE + ",BLOCK,\"Model, \"\"Q\"\"\",2,1,FAIRNESS;PRIVACY", lines[1]);
+
+        ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+        HistoryExport.write(history::query, new HistoryQuery().between(BASE + 10, BASE + 12),
+                HistoryExport.Format.NDJSON, new Utf8Writer(ndjson));
+        assertEquals("{\"ordinal\":10,\"decisionId\":10,\"timestamp\":" + (BASE + 10) + ",\"decision\":\"BLOCK\","
+                + "\"entity\":\"Model, \\\"Q\\\"\",\"violations\":2,\"warnings\":1,"
+                + "\"violatedPillars\":[\"FAIRNESS\",\"PRIVACY\"]}\n"
+                + "{\"ordinal\":11,\"decisionId\":11,\"timestamp\":" + (BASE + 11) + ",\"decision\":\"APPROVE\","
+                + "\"entity\":\"Model\",\"violations\":0,\"warnings\":1,\"violatedPillars\":[]}\n",
+                ndjson.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Memory: a large export streams through the fixed buffer instead of accumulating")
+    void testStreamsInBoundedChunks() throws Exception {
+        ColumnarHistory history = new ColumnarHistory();
+        int rows = 50_000;
+        for (int i = 0; i < rows; i++) {
+            history.append(BASE + i, i, EthicsDecision.APPROVE, "Model" + (i % 10), 0, 0, 0);
+        }
+
+        int capacity = 8 * 1024;
+        long[] stats = new long[3];
+        OutputStream sink = new OutputStream() {
+            @Override
+            public void write(int b) {
+                stats[0]++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                stats[0] += len;
+                stats[1]++;
+                stats[2] = Math.max(stats[2], len);
+            }
+        };
+        long start = System.nanoTime();
+        Utf8Writer writer = new Utf8Writer(sink, capacity);
+        assertEquals(rows, HistoryExport.write(history::query, new HistoryQuery(),
+                HistoryExport.Format.NDJSON, writer));
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.println(String.format("%n=== HISTORY EXPORT ===%n%,d rows, %,d bytes in %,d writes: %.1f MB/s",
+                rows, stats[0], stats[1], stats[0] / seconds / 1_000_000));
+        assertEquals(writer.getBytesWritten(), stats[0]);
+        assertTrue(stats[2] <= capacity, "No write larger than the reused buffer");
+        assertTrue(stats[1] > stats[0] / capacity / 2, "Output is flushed as it is produced");
+    }
+}
@@ -0,0 +1,248 @@
+package server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * A single-threaded keep-alive HTTP load generator
+ *
+ * Opens every connection first, then has each send its requests one after
+ * another, reconnecting if the server closes a connection between
+ * responses. Runs from a test or, to keep client and server sockets in
+ * separate processes, from the command line:
+ * {@code java -cp target/test-classes server.HttpLoadClient host port connections requests}
+ */
+final class HttpLoadClient {
+    private static final int MAX_PENDING_CONNECTS = 256;
+
+    static final class Result {
+        final int connections;
+        final long requests;
+        final long errors;
+        final long reconnects;
+        final long elapsedNanos;
+        final long[] latencies;
+
+        Result(int connections, long requests, long errors, long reconnects, long elapsedNanos, long[] latencies) {
+            this.connections = connections;
+            this.requests = requests;
+            this.errors = errors;
+            this.reconnects = reconnects;
+            this.elapsedNanos = elapsedNanos;
+            this.latencies = latencies;
+        }
+
+        double perSecond() {
+            return requests * 1e9 / elapsedNanos;
+        }
+
+        double percentileMillis(double p) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            return latencies[Math.min(latencies.length - 1, (int) (latencies.length * p))] / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%,d connections, %,d requests in %.2fs: %,.0f req/s, p50 %.2fms, p99 %.2fms, "
+                    + "%d errors, %d reconnects", connections, requests, elapsedNanos / 1e9, perSecond(),
+                percentileMillis(0.50), percentileMillis(0.99), errors, reconnects);
+        }
+    }
+
+    private final InetSocketAddress address;
+    private final byte[] request;
+    private final Selector selector;
+    private long reconnects;
+    private long errors;
+
+    HttpLoadClient(InetSocketAddress address, String path) throws IOException {
+        this.address = address;
+        this.request = ("GET " + path + " HTTP/1.1\r\nHost: " + address.getHostString() + "\r\n\r\n")
+            .getBytes(StandardCharsets.ISO_8859_1);
+        this.selector = Selector.open();
+    }
+
+    /**
+     * Connects {@code connections} clients, then times {@code requestsEach}
+     * sequential requests on every one
+     */
+    Result run(int connections, int requestsEach, long timeoutMillis) throws IOException {
+        Client[] clients = new Client[connections];
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        int opened = 0;
+        int connected = 0;
+        while (connected < connections) {
+            while (opened < connections && opened - connected < MAX_PENDING_CONNECTS) {
+                clients[opened] = new Client(requestsEach);
+                clients[opened].open();
+                opened++;
+            }
+            selector.select(100);
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                Client client = (Client) key.attachment();
+                if (client.finishConnect()) {
+                    connected++;
+                }
+            }
+            if (System.currentTimeMillis() > deadline) {
+                throw new IOException("Connected only " + connected + " of " + connections);
+            }
+        }
+
+        long[] latencies = new long[connections * requestsEach];
+        int[] completed = new int[1];
+        long start = System.nanoTime();
+        for (Client client : clients) {
+            client.send();
+        }
+        int finished = 0;
+        while (finished < connections) {
+            selector.select(100);
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                Client client = (Client) key.attachment();
+                if (client.ready(key, latencies, completed)) {
+                    finished++;
+                }
+            }
+            if (System.currentTimeMillis() > deadline) {
+                throw new IOException("Timed out with " + (connections - finished) + " clients unfinished");
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        for (Client client : clients) {
+            client.close();
+        }
+        selector.close();
+        long[] measured = Arrays.copyOf(latencies, completed[0]);
+        Arrays.sort(measured);
+        return new Result(connections, completed[0], errors, reconnects, elapsed, measured);
+    }
+
+    private final class Client {
+        private SocketChannel channel;
+        private SelectionKey key;
+        private final ByteBuffer in = ByteBuffer.allocate(4096);
+        private int remaining;
+        private long sentAt;
+
+        Client(int requests) {
+            this.remaining = requests;
+        }
+
+        void open() throws IOException {
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.connect(address);
+            key = channel.register(selector, SelectionKey.OP_CONNECT, this);
+        }
+
+        boolean finishConnect() throws IOException {
+            if (!channel.finishConnect()) {
+                return false;
+            }
+            key.interestOps(0);
+            return true;
+        }
+
+        void send() throws IOException {
+            ByteBuffer out = ByteBuffer.wrap(request);
+            sentAt = System.nanoTime();
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            key.interestOps(SelectionKey.OP_READ);
+        }
+
+        /**
+         * @return true when this client has sent and received everything
+         */
+        boolean ready(SelectionKey ready, long[] latencies, int[] completed) throws IOException {
+            if (ready.isConnectable()) {
+                channel.finishConnect();
+                send();
+                return false;
+            }
+            int n;
+            try {
+                n = channel.read(in);
+            } catch (IOException e) {
+                n = -1;
+            }
+            if (n < 0) {
+                // Closed between responses, or mid-response as a failure
+                if (in.position() > 0) {
+                    errors++;
+                }
+                in.clear();
+                reconnects++;
+                channel.close();
+                open();
+                return false;
+            }
+            int length = responseLength();
+            if (length < 0 || in.position() < length) {
+                return false;
+            }
+            latencies[completed[0]++] = System.nanoTime() - sentAt;
+            in.flip();
+            in.position(length);
+            in.compact();
+            if (--remaining == 0) {
+                key.interestOps(0);
+                return true;
+            }
+            send();
+            return false;
+        }
+
+        /**
+         * Bytes in the buffered response, or -1 if its head is incomplete
+         */
+        private int responseLength() {
+            byte[] data = in.array();
+            int end = in.position();
+            for (int i = 0; i + 3 < end; i++) {
+                if (data[i] == '\r' && data[i + 1] == '\n' && data[i + 2] == '\r' && data[i + 3] == '\n') {
+                    String head = new String(data, 0, i, StandardCharsets.ISO_8859_1).toLowerCase();
+                    int at = head.indexOf("content-length:");
+                    int body = 0;
+                    if (at >= 0) {
+                        int eol = head.indexOf('\r', at);
+                        body = Integer.parseInt(head.substring(at + 15, eol < 0 ? head.length() : eol).trim());
+                    }
+                    return i + 4 + body;
+                }
+            }
+            return -1;
+        }
+
+        void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        InetSocketAddress address = new InetSocketAddress(args[0], Integer.parseInt(args[1]));
+        int connections = Integer.parseInt(args[2]);
+        int requests = Integer.parseInt(args[3]);
+        String path = args.length > 4 ? args[4] : "/api/pillars";
+        System.out.println(new HttpLoadClient(address, path).run(connections, requests, 600_000));
+    }
+}
@@ -0,0 +1,188 @@
+package server;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import static org.junit.jupiter.api.Assertions.*;
+
+import core.EthicsContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tests the streaming JSON reader and request binding
+ */
+class JsonReaderTest {
+
+    private static final String REQUEST = "{\"decisionLabel\": \"Loan approval\", \"confidence\": 0.92, "
+        + "\"responsibleEntity\": \"LoanModel-v2\", "
+        + "\"explanation\": \"Approved: income, 5-year history, and a \\\"good\\\" score {A}\", "
+        + "\"biasScore\": 0.15, \"negativeSocialImpact\": false, \"purpose\": \"LOAN_APPROVAL\", "
+        + "\"userName\": \"Alice\", \"userEmail\": \"alice@bank.com\", \"hasSensitiveData\": \"false\", "
+        + "\"hasConsent\": \"true\", \"metadata\": {\"tags\": [1, 2, {\"x\": null}], \"ok\": true}}";
+
+    @Test
+    @DisplayName("Binds every field, keeping commas, colons, quotes and braces inside strings")
+    void testBindRequest() throws IOException {
+        EthicsContext context = EvaluationRequest.read(new JsonReader(REQUEST.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals("Loan approval", context.decision.getDecisionLabel());
+        assertEquals(0.92, context.decision.getConfidence());
+        assertEquals("LoanModel-v2", context.decision.getResponsibleEntity());
+        assertEquals("Approved: income, 5-year history, and a \"good\" score {A}", context.decision.getExplanation());
+        assertEquals(0.15, context.decision.getBiasScore());
+        assertEquals("LOAN_APPROVAL", context.decision.getPurpose());
+        assertNull(context.decision.getDomain());
+        assertEquals("alice@bank.com", context.userData.getEmail());
+        assertFalse(context.userData.containsSensitiveData());
+        assertTrue(context.userData.isConsentGiven());
+        assertNull(context.policyOverride);
+
+        EthicsContext defaults = EvaluationRequest.read(new JsonReader("{\"domain\": null}".getBytes()));
+        assertEquals("Unknown", defaults.decision.getDecisionLabel());
+        assertEquals(0.5, defaults.decision.getConfidence());
+        assertEquals(-1.0, defaults.decision.getBiasScore());
+        assertTrue(defaults.userData.isConsentGiven());
+    }
+
+    @Test
+    @DisplayName("Decodes escapes, multi-byte UTF-8 and numbers across small stream reads")
+    void testTokens() throws IOException {
+        String json = "[\"caf\\u00e9 \\ud83d\\ude00 ✓ 😀\\n\\t\\/\", -12.5e2, 0.000123, 12345678901234567890, "
+            + "1e-3, true, false, null, {}, []]";
+        JsonReader reader = new JsonReader(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), 3);
+        reader.beginArray();
+        assertEquals("café 😀 ✓ 😀\n\t/", reader.nextString());
+        assertEquals(-1250.0, reader.nextDouble());
+        assertEquals(0.000123, reader.nextDouble());
+        assertEquals("12345678901234567890", reader.nextString());
+        assertEquals(0.001, reader.nextDouble());
+        assertTrue(reader.nextBoolean());
+        assertFalse(reader.nextBoolean());
+        reader.nextNull();
+        reader.skipValue();
+        reader.beginArray();
+        assertFalse(reader.hasNext());
+        reader.endArray();
+        reader.endArray();
+        assertEquals(JsonReader.Token.END_DOCUMENT, reader.peek());
+        assertEquals(json.getBytes(StandardCharsets.UTF_8).length, reader.getOffset());
+
+        // Fast-path conversions must match the JDK exactly
+        for (String number : new String[] {"0.1", "0.3", "123.456", "9.999999999999", "-0.0", "0.68", "1"}) {
+            assertEquals(Double.parseDouble(number), new JsonReader(number.getBytes()).nextDouble(), number);
+        }
+    }
+
+    @Test
+    @DisplayName("Invalid UTF-8 becomes one U+FFFD per maximal invalid subpart")
+    void testInvalidUtf8() throws IOException {
+        Object[][] cases = {
+            {new int[] {0xF8, 0x88, 0x80, 0x80, 0x80}, "\uFFFD".repeat(5)},
+            {new int[] {0xFF}, "\uFFFD"},
+            {new int[] {0xF5, 0x80, 0x80, 0x80}, "\uFFFD".repeat(4)},
+            {new int[] {0xC0, 0xAF}, "\uFFFD".repeat(2)},
+            {new int[] {0xE0, 0x80, 0xAF}, "\uFFFD".repeat(3)},
+            {new int[] {0xF0, 0x80, 0x80, 0xAF}, "\uFFFD".repeat(4)},
+            {new int[] {0xED, 0xA0, 0x80}, "\uFFFD".repeat(3)},
+            {new int[] {0xF4, 0x90, 0x80, 0x80}, "\uFFFD".repeat(4)},
+            {new int[] {0x80}, "\uFFFD"},
+            {new int[] {0xF0, 0x9F, 0x98}, "\uFFFD"},
+            {new int[] {0xE2, 0x82, 0xAC}, "\u20AC"},
+            {new int[] {0xED, 0x9F, 0xBF}, "\uD7FF"},
+            {new int[] {0xF4, 0x8F, 0xBF, 0xBF}, new String(Character.toChars(0x10FFFF))}
+        };
+        for (Object[] c : cases) {
+            int[] sequence = (int[]) c[0];
+            byte[] json = new byte[sequence.length + 4];
+            json[0] = '"';
+            json[1] = 'a';
+            for (int i = 0; i < sequence.length; i++) {
+                json[i + 2] = (byte) sequence[i];
+            }
+            json[json.length - 2] = 'z';
+            json[json.length - 1] = '"';
+            assertEquals("a" + c[1] + "z", new JsonReader(json).nextString(), Arrays.toString(sequence));
+        }
+    }
+
+    @Test
+    @DisplayName("Malformed input is rejected with the byte offset")
+    void testMalformed() {
+        String[] bad = {
+            "{\"a\": 1,}", "{\"a\" 1}", "{\"a\": tru}", "[1 2]", "{\"a\": \"unterminated}",
+            "{\"a\": 1} extra", "{\"a\": -}", "{\"a\": \"\\q\"}", "", "[".repeat(JsonReader.MAX_DEPTH + 1)
+        };
+        for (String json : bad) {
+            IllegalArgumentException error = assertThrows(IllegalArgumentException.class, () -> {
+                JsonReader reader = new JsonReader(json.getBytes(StandardCharsets.UTF_8));
+                reader.skipValue();
+                reader.peek();
+            }, json);
+            assertTrue(error.getMessage().startsWith("Malformed JSON at byte "), error.getMessage());
+        }
+        assertThrows(IllegalArgumentException.class,
+            () -> EvaluationRequest.read(new JsonReader("{\"confidence\": \"high\"}".getBytes())));
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Benchmark: bytes per second and allocation per request against the old split parser")
+    void testBenchmark() throws IOException {
+        byte[] body = REQUEST.getBytes(StandardCharsets.UTF_8);
+        int iterations = 200_000;
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+
+        for (int i = 0; i < 20_000; i++) {
+            EvaluationRequest.read(new JsonReader(new ByteArrayInputStream(body), 1024));
+            legacyParse(new String(body, StandardCharsets.UTF_8));
+        }
+
+        long allocated = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            EvaluationRequest.read(new JsonReader(new ByteArrayInputStream(body), 1024));
+        }
+        long streamingNanos = System.nanoTime() - start;
+        long streamingBytes = (threads.getThreadAllocatedBytes(thread) - allocated) / iterations;
+
+        allocated = threads.getThreadAllocatedBytes(thread);
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            legacyParse(new String(body, StandardCharsets.UTF_8));
+        }
+        long legacyNanos = System.nanoTime() - start;
+        long legacyBytes = (threads.getThreadAllocatedBytes(thread) - allocated) / iterations;
+
+        System.out.println("\n=== REQUEST PARSING (" + body.length + "-byte body) ===");
+        System.out.printf("streaming: %,6.0f MB/s, %,6d bytes allocated/request%n",
+            (double) body.length * iterations / streamingNanos * 1e3, streamingBytes);
+        System.out.printf("split:     %,6.0f MB/s, %,6d bytes allocated/request%n",
+            (double) body.length * iterations / legacyNanos * 1e3, legacyBytes);
+
+        assertTrue(streamingBytes < legacyBytes, streamingBytes + " vs " + legacyBytes);
+    }
+
+    /**
+     * The regex-and-split parser this reader replaced, kept for comparison
+     */
+    private static Map<String, String> legacyParse(String json) {
+        Map<String, String> map = new HashMap<>();
+        json = json.trim().replaceAll("[{}]", "");
+        for (String pair : json.split(",")) {
+            String[] keyValue = pair.split(":", 2);
+            if (keyValue.length == 2) {
+                map.put(keyValue[0].trim().replaceAll("\"", ""), keyValue[1].trim().replaceAll("\"", ""));
+            }
+        }
+        return map;
+    }
+}
@@ -0,0 +1,115 @@
+package server;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Tests pooled response buffers and compares them with string building
+ */
+class JsonResponseTest {
+
+    private static final List<String> VIOLATIONS = List.of(
+        "ACCOUNTABILITY: Decision must have a responsible entity assigned",
+        "TRANSPARENCY: Explanation quality 0.00 below minimum 0.50");
+    private static final String EXPLANATION = "Approved: income \"verified\", 5-year history\nscore 742";
+
+    @Test
+    @DisplayName("Writers are reused after release and oversized ones are discarded")
+    void testPooling() throws IOException {
+        Utf8Writer first = JsonResponse.acquire();
+        first.write("{\"a\": 1}");
+        JsonResponse.release(first);
+
+        Utf8Writer again = JsonResponse.acquire();
+        assertSame(first, again);
+        assertEquals(0, again.getBytesWritten());
+
+        again.write("x".repeat(JsonResponse.MAX_POOLED_CAPACITY + 1));
+        JsonResponse.release(again);
+        assertNotSame(again, JsonResponse.acquire());
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Benchmark: garbage per response for pooled UTF-8 encoding against StringBuilder and getBytes")
+    void testBenchmark() throws IOException {
+        OutputStream sink = OutputStream.nullOutputStream();
+        int iterations = 200_000;
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+
+        for (int i = 0; i < 20_000; i++) {
+            writePooled(sink);
+            sink.write(buildString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        long allocated = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            writePooled(sink);
+        }
+        long pooledNanos = System.nanoTime() - start;
+        long pooledBytes = (threads.getThreadAllocatedBytes(thread) - allocated) / iterations;
+
+        allocated = threads.getThreadAllocatedBytes(thread);
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink.write(buildString().getBytes(StandardCharsets.UTF_8));
+        }
+        long stringNanos = System.nanoTime() - start;
+        long stringBytes = (threads.getThreadAllocatedBytes(thread) - allocated) / iterations;
+
+        System.out.println("\n=== RESPONSE ENCODING ===");
+        System.out.printf("pooled writer: %,6d ns, %,6d bytes allocated/response%n", pooledNanos / iterations, pooledBytes);
+        System.out.printf("string+bytes:  %,6d ns, %,6d bytes allocated/response%n", stringNanos / iterations, stringBytes);
+
+        assertTrue(pooledBytes < stringBytes / 4, pooledBytes + " vs " + stringBytes);
+    }
+
+    private static void writePooled(OutputStream sink) throws IOException {
+        Utf8Writer json = JsonResponse.acquire();
+        try {
+            json.write("{\n  \"approved\": ").write(false).write(",\n  \"decisionState\": \"BLOCK\",\n");
+            json.write("  \"violations\": [");
+            for (int i = 0; i < VIOLATIONS.size(); i++) {
+                if (i > 0) json.write(", ");
+                json.writeJsonString(VIOLATIONS.get(i));
+            }
+            json.write("],\n  \"decision\": {\n    \"confidence\": ").write(0.92);
+            json.write(",\n    \"explanation\": ").writeJsonString(EXPLANATION).write("\n  }\n}");
+            json.writeTo(sink);
+        } finally {
+            JsonResponse.release(json);
+        }
+    }
+
+    /**
+     * How responses were built before: escape by chained replaces, append,
+     * then encode the whole String
+     */
+    private static String buildString() {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n  \"approved\": ").append(false).append(",\n  \"decisionState\": \"BLOCK\",\n");
+        json.append("  \"violations\": [");
+        for (int i = 0; i < VIOLATIONS.size(); i++) {
+            json.append("\"").append(replaceEscape(VIOLATIONS.get(i))).append("\"");
+            if (i < VIOLATIONS.size() - 1) json.append(", ");
+        }
+        json.append("],\n  \"decision\": {\n    \"confidence\": ").append(0.92);
+        json.append(",\n    \"explanation\": \"").append(replaceEscape(EXPLANATION)).append("\"\n  }\n}");
+        return json.toString();
+    }
+
+    private static String replaceEscape(String str) {
+        return str.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n").replace("\r", "\\r");
+    }
+}
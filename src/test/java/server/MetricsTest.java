@@ -0,0 +1,217 @@
+package server;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.sun.net.httpserver.HttpServer;
+import data.Histogram;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests lock-free histograms and the Prometheus text exposition
+ */
+class MetricsTest {
+
+    @Test
+    @DisplayName("Samples land in the first bucket whose bound they do not exceed")
+    void testHistogramBuckets() {
+        Histogram histogram = new Histogram(new double[] {0.001, 0.01, 0.1});
+        histogram.record(500_000);
+        histogram.record(1_000_000);
+        histogram.record(1_000_001);
+        histogram.record(50_000_000);
+        histogram.record(2_000_000_000);
+
+        assertArrayEquals(new long[] {2, 3, 4, 5}, histogram.getCumulativeCounts());
+        assertEquals(5, histogram.getCount());
+        assertEquals(2.052500001, histogram.getSumSeconds(), 1e-9);
+        assertEquals(0.4105000002, histogram.getMeanSeconds(), 1e-9);
+        assertEquals(2.0, histogram.getMaxSeconds(), 1e-9);
+        assertEquals(0.01, histogram.getPercentileSeconds(50), 1e-9);
+        assertEquals(0.1, histogram.getPercentileSeconds(80), 1e-9);
+        assertEquals(2.0, histogram.getPercentileSeconds(99), 1e-9, "overflow bucket reports the max");
+        assertEquals(0.0, new Histogram().getPercentileSeconds(99));
+        assertThrows(IllegalArgumentException.class, () -> new Histogram(new double[] {0.1, 0.1}));
+    }
+
+    @Test
+    @DisplayName("Writes HELP, TYPE and samples in the text exposition format")
+    void testExposition() throws IOException {
+        Metrics metrics = new Metrics();
+        metrics.counter("raig_decisions_total", "Decisions by final state", "state").labels("BLOCK").add(3);
+        metrics.gauge("raig_queue_items", "Items \\ waiting", "queue", "say \"hi\"\n", () -> 2);
+        metrics.gauge("raig_queue_items", "Items \\ waiting", "queue", "other", () -> 0.5);
+        metrics.counter("raig_requests_total", "Requests", () -> 7);
+        Histogram latency = metrics.histogram("raig_latency_seconds", "Latency",
+            new double[] {0.00025, 1}, "endpoint").labels("/api");
+        latency.record(100_000);
+        latency.record(3_000_000_000L);
+
+        String text = write(metrics);
+        assertEquals(String.join("\n",
+            "# HELP raig_decisions_total Decisions by final state",
+            "# TYPE raig_decisions_total counter",
+            "raig_decisions_total{state=\"BLOCK\"} 3",
+            "# HELP raig_queue_items Items \\\\ waiting",
+            "# TYPE raig_queue_items gauge",
+            "raig_queue_items{queue=\"say \\\"hi\\\"\\n\"} 2",
+            "raig_queue_items{queue=\"other\"} 0.5",
+            "# HELP raig_requests_total Requests",
+            "# TYPE raig_requests_total counter",
+            "raig_requests_total 7",
+            "# HELP raig_latency_seconds Latency",
+            "# TYPE raig_latency_seconds histogram",
+            "raig_latency_seconds_bucket{endpoint=\"/api\",le=\"0.00025\"} 1",
+            "raig_latency_seconds_bucket{endpoint=\"/api\",le=\"1\"} 1",
+            "raig_latency_seconds_bucket{endpoint=\"/api\",le=\"+Inf\"} 2",
+            "raig_latency_seconds_sum{endpoint=\"/api\"} 3.0001",
+            "raig_latency_seconds_count{endpoint=\"/api\"} 2",
+            ""), text);
+
+        assertThrows(IllegalArgumentException.class, () -> metrics.gauge("raig_requests_total", "Requests", () -> 1),
+            "A name keeps its type");
+        assertThrows(IllegalArgumentException.class,
+            () -> metrics.counter("raig_decisions_total", "Decisions", "state").labels("BLOCK", "extra"));
+
+        // A histogram owned elsewhere is exported with its own buckets
+        Histogram wait = new Histogram(new double[] {0.001});
+        wait.record(2_000_000);
+        metrics.histogram("raig_wait_seconds", "Wait", wait);
+        assertTrue(write(metrics).endsWith(String.join("\n",
+            "# TYPE raig_wait_seconds histogram",
+            "raig_wait_seconds_bucket{le=\"0.001\"} 0",
+            "raig_wait_seconds_bucket{le=\"+Inf\"} 1",
+            "raig_wait_seconds_sum 0.002",
+            "raig_wait_seconds_count 1",
+            "")));
+        assertThrows(IllegalArgumentException.class, () -> metrics.histogram("raig_wait_seconds", "Wait", wait));
+    }
+
+    @Test
+    @DisplayName("Timed handlers count requests by status and a scrape returns them over HTTP")
+    void testTimedOverHttp() throws Exception {
+        Metrics metrics = new Metrics();
+        Compression compression = new Compression(-1, 0, 1);
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/ok", metrics.timed("/ok", exchange -> {
+            exchange.sendResponseHeaders(exchange.getRequestURI().getQuery() == null ? 200 : 404, -1);
+            exchange.close();
+        }));
+        server.createContext("/metrics", exchange -> metrics.send(exchange, compression));
+        server.start();
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+            String base = "http://127.0.0.1:" + server.getAddress().getPort();
+            for (int i = 0; i < 5; i++) {
+                client.send(HttpRequest.newBuilder(URI.create(base + (i < 3 ? "/ok" : "/ok?missing"))).build(),
+                    HttpResponse.BodyHandlers.discarding());
+            }
+            HttpResponse<String> scrape = client.send(HttpRequest.newBuilder(URI.create(base + "/metrics")).build(),
+                HttpResponse.BodyHandlers.ofString());
+
+            assertEquals(200, scrape.statusCode());
+            assertEquals(Metrics.CONTENT_TYPE, scrape.headers().firstValue("Content-Type").orElse(""));
+            assertTrue(scrape.body().contains("raig_http_requests_total{endpoint=\"/ok\",code=\"200\"} 3\n"),
+                scrape.body());
+            assertTrue(scrape.body().contains("raig_http_requests_total{endpoint=\"/ok\",code=\"404\"} 2\n"),
+                scrape.body());
+            assertTrue(scrape.body().contains("raig_http_request_duration_seconds_count{endpoint=\"/ok\"} 5\n"),
+                scrape.body());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Benchmark: recording under contention, with and without a scraper running")
+    void testRecordWhileScraping() throws Exception {
+        int threads = 4;
+        int records = 2_000_000;
+        Metrics metrics = new Metrics();
+        Histogram histogram = metrics.histogram("raig_bench_seconds", "Benchmark",
+            Histogram.DEFAULT_BOUNDS).labels();
+
+        double quiet = recordNanos(histogram, threads, records);
+        AtomicBoolean scraping = new AtomicBoolean(true);
+        AtomicLong scrapes = new AtomicLong();
+        List<Long> seen = new ArrayList<>();
+        Thread scraper = new Thread(() -> {
+            Utf8Writer out = new Utf8Writer(new ByteArrayOutputStream(), 8192);
+            while (scraping.get()) {
+                try {
+                    metrics.write(out);
+                    out.flush();
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+                seen.add(histogram.getCount());
+                scrapes.incrementAndGet();
+            }
+        });
+        scraper.start();
+        double busy = recordNanos(histogram, threads, records);
+        scraping.set(false);
+        scraper.join();
+
+        System.out.println("\n=== HISTOGRAM RECORD COST (" + threads + " threads) ===");
+        System.out.printf("no scraper         %6.1f ns/record%n", quiet);
+        System.out.printf("scraping (%5d)    %6.1f ns/record%n", scrapes.get(), busy);
+        assertEquals(2L * threads * records, histogram.getCount(), "No sample is lost to a concurrent scrape");
+        for (int i = 1; i < seen.size(); i++) {
+            assertTrue(seen.get(i) >= seen.get(i - 1), "Counts never go backwards between scrapes");
+        }
+    }
+
+    /**
+     * Average wall-clock nanoseconds per record across all threads
+     */
+    private static double recordNanos(Histogram histogram, int threads, int records) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long offset = t * 1_000L;
+            Thread writer = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < records; i++) {
+                    histogram.record(offset + (i & 0xFFFF) * 100L);
+                }
+            });
+            writer.start();
+            writers.add(writer);
+        }
+        long began = System.nanoTime();
+        start.countDown();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        return (double) (System.nanoTime() - began) / ((long) threads * records);
+    }
+
+    private static String write(Metrics metrics) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Utf8Writer out = new Utf8Writer(bytes, 1024);
+        metrics.write(out);
+        out.flush();
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,291 @@
+package server;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the NIO HTTP transport, and compares it with the JDK server under
+ * many concurrent keep-alive connections
+ */
+class NioHttpServerTest {
+
+    private NioHttpServer server;
+    private String base;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = NioHttpServer.create(new InetSocketAddress("127.0.0.1", 0), 128, 2);
+        server.createContext("/ping", exchange -> reply(exchange, 200, "pong"));
+        server.createContext("/echo", exchange -> {
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            reply(exchange, 200, exchange.getRequestMethod() + " " + exchange.getRequestURI().getQuery()
+                + " " + new String(body, StandardCharsets.UTF_8));
+        });
+        server.createContext("/fail", exchange -> {
+            throw new IllegalStateException("boom");
+        });
+        server.start();
+        base = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    @DisplayName("Handlers see method, query and body and answer over keep-alive")
+    void testRequests() throws Exception {
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        HttpResponse<String> get = client.send(HttpRequest.newBuilder(URI.create(base + "/ping")).build(),
+            HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, get.statusCode());
+        assertEquals("pong", get.body());
+        assertTrue(get.headers().firstValue("Date").isPresent());
+
+        String payload = "x".repeat(300_000);
+        HttpResponse<String> post = client.send(HttpRequest.newBuilder(URI.create(base + "/echo?a=1"))
+            .POST(HttpRequest.BodyPublishers.ofString(payload)).build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, post.statusCode());
+        assertEquals("POST a=1 " + payload, post.body());
+
+        assertEquals(404, client.send(HttpRequest.newBuilder(URI.create(base + "/missing")).build(),
+            HttpResponse.BodyHandlers.ofString()).statusCode());
+        assertEquals(500, client.send(HttpRequest.newBuilder(URI.create(base + "/fail")).build(),
+            HttpResponse.BodyHandlers.ofString()).statusCode());
+        assertEquals(4, server.getRequestCount());
+        assertTrue(server.getAcceptedCount() <= 2, "Keep-alive reuses the connection until the 500 closes it");
+    }
+
+    @Test
+    @DisplayName("Pipelined requests are answered in order on one connection")
+    void testPipelining() throws Exception {
+        try (Socket socket = new Socket("127.0.0.1", server.getAddress().getPort())) {
+            socket.setSoTimeout(5_000);
+            String requests = "GET /echo?n=1 HTTP/1.1\r\nHost: x\r\n\r\n"
+                + "POST /echo?n=2 HTTP/1.1\r\nHost: x\r\nContent-Length: 5\r\n\r\nhello"
+                + "GET /ping HTTP/1.1\r\nHost: x\r\n\r\n";
+            socket.getOutputStream().write(requests.getBytes(StandardCharsets.US_ASCII));
+            InputStream in = socket.getInputStream();
+            assertEquals("GET n=1 ", readResponse(in));
+            assertEquals("POST n=2 hello", readResponse(in));
+            assertEquals("pong", readResponse(in));
+        }
+        assertEquals(1, server.getAcceptedCount());
+    }
+
+    @Test
+    @DisplayName("Chunked request bodies are decoded and Connection: close is honoured")
+    void testChunkedRequest() throws Exception {
+        try (Socket socket = new Socket("127.0.0.1", server.getAddress().getPort())) {
+            socket.setSoTimeout(5_000);
+            OutputStream out = socket.getOutputStream();
+            out.write(("POST /echo HTTP/1.1\r\nHost: x\r\nTransfer-Encoding: chunked\r\nConnection: close\r\n\r\n"
+                + "5\r\nhello\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            Thread.sleep(50);
+            out.write("7;ext=1\r\n, world\r\n0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            InputStream in = socket.getInputStream();
+            assertEquals("POST null hello, world", readResponse(in));
+            assertEquals(-1, in.read(), "Server closes after the response");
+        }
+    }
+
+    @Test
+    @DisplayName("Streamed responses reach the client as they are flushed")
+    void testStreamingFlush() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        server.createContext("/stream", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream out = exchange.getResponseBody();
+            out.write("first\n".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            out.write("second\n".getBytes(StandardCharsets.UTF_8));
+            out.close();
+        });
+        try (Socket socket = new Socket("127.0.0.1", server.getAddress().getPort())) {
+            socket.setSoTimeout(5_000);
+            socket.getOutputStream().write("GET /stream HTTP/1.1\r\nHost: x\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            InputStream in = socket.getInputStream();
+            String head = readHead(in);
+            assertTrue(head.toLowerCase().contains("transfer-encoding: chunked"), head);
+            assertEquals("first\n", readChunk(in), "First chunk arrives before the handler finishes");
+            release.countDown();
+            assertEquals("second\n", readChunk(in));
+            assertEquals("", readChunk(in));
+        }
+    }
+
+    @Test
+    @DisplayName("Oversized and malformed request heads are rejected")
+    void testBadRequests() throws Exception {
+        try (Socket socket = new Socket("127.0.0.1", server.getAddress().getPort())) {
+            socket.setSoTimeout(5_000);
+            socket.getOutputStream().write("NONSENSE\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            assertTrue(readHead(socket.getInputStream()).startsWith("HTTP/1.1 400"));
+        }
+        try (Socket socket = new Socket("127.0.0.1", server.getAddress().getPort())) {
+            socket.setSoTimeout(5_000);
+            String huge = "GET /ping HTTP/1.1\r\nX-Big: " + "a".repeat(NioHttpServer.MAX_HEADER_BYTES) + "\r\n\r\n";
+            socket.getOutputStream().write(huge.getBytes(StandardCharsets.US_ASCII));
+            assertTrue(readHead(socket.getInputStream()).startsWith("HTTP/1.1 431"));
+        }
+    }
+
+    @Test
+    @DisplayName("Requests whose head or body stalls are timed out")
+    void testSlowRequestsTimeOut() throws Exception {
+        server.setRequestTimeoutMillis(300);
+        try (Socket socket = new Socket("127.0.0.1", server.getAddress().getPort())) {
+            socket.setSoTimeout(5_000);
+            socket.getOutputStream().write("GET /pi".getBytes(StandardCharsets.US_ASCII));
+            InputStream in = socket.getInputStream();
+            assertTrue(readHead(in).startsWith("HTTP/1.1 408"));
+            in.readAllBytes();
+            assertEquals(-1, in.read(), "Half a request line closes the connection");
+        }
+        try (Socket socket = new Socket("127.0.0.1", server.getAddress().getPort())) {
+            socket.setSoTimeout(5_000);
+            socket.getOutputStream().write(("POST /echo HTTP/1.1\r\nHost: x\r\nContent-Length: 10\r\n\r\nabc")
+                .getBytes(StandardCharsets.US_ASCII));
+            InputStream in = socket.getInputStream();
+            // The echo handler is blocked reading the body, so nothing is answered before the close
+            assertEquals(-1, in.read(), "A stalled body closes the connection");
+        }
+        try (Socket socket = new Socket("127.0.0.1", server.getAddress().getPort())) {
+            socket.setSoTimeout(5_000);
+            Thread.sleep(1_500);
+            socket.getOutputStream().write("GET /ping HTTP/1.1\r\nHost: x\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            assertEquals("pong", readResponse(socket.getInputStream()), "Idle keep-alive is not a stalled request");
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Benchmark: NIO transport vs JDK server under concurrent keep-alive connections")
+    void testLoadComparison() throws Exception {
+        // Client and server share this process's descriptors; a 10k run
+        // needs HttpLoadClient in its own JVM where the limit is low
+        int connections = Integer.getInteger("load.connections", 1_000);
+        int requests = Integer.getInteger("load.requests", 10);
+        HttpHandler ping = exchange -> reply(exchange, 200, "pong");
+
+        HttpServer jdk = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        WorkerExecutor workers = new WorkerExecutor(WorkerExecutor.Mode.FIXED,
+            Runtime.getRuntime().availableProcessors() * 2, WorkerExecutor.DEFAULT_QUEUE_CAPACITY);
+        jdk.setExecutor(workers);
+        jdk.createContext("/ping", ping);
+        jdk.start();
+        HttpLoadClient.Result jdkResult;
+        try {
+            jdkResult = new HttpLoadClient(jdk.getAddress(), "/ping").run(connections, requests, 120_000);
+        } finally {
+            jdk.stop(0);
+            workers.shutdown();
+        }
+
+        NioHttpServer nio = NioHttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024,
+            Math.max(1, Runtime.getRuntime().availableProcessors()));
+        nio.createContext("/ping", ping);
+        nio.start();
+        HttpLoadClient.Result nioResult;
+        try {
+            nioResult = new HttpLoadClient(nio.getAddress(), "/ping").run(connections, requests, 120_000);
+            assertEquals(connections, nio.getAcceptedCount());
+        } finally {
+            nio.stop(0);
+        }
+
+        System.out.println("JDK server: " + jdkResult);
+        System.out.println("NIO server (" + nio.getLoopCount() + " loops, reuseport " + nio.isReusePort() + "): "
+            + nioResult);
+        assertEquals((long) connections * requests, jdkResult.requests);
+        assertEquals((long) connections * requests, nioResult.requests);
+        assertEquals(0, nioResult.errors);
+        assertEquals(0, nioResult.reconnects, "Idle keep-alive connections are never dropped");
+    }
+
+    private static void reply(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Reads one fixed-length response and returns its body
+     */
+    private static String readResponse(InputStream in) throws IOException {
+        String head = readHead(in);
+        assertTrue(head.startsWith("HTTP/1.1 200"), head);
+        int at = head.toLowerCase().indexOf("content-length: ");
+        int length = Integer.parseInt(head.substring(at + 16, head.indexOf('\r', at)));
+        return new String(in.readNBytes(length), StandardCharsets.UTF_8);
+    }
+
+    private static String readHead(InputStream in) throws IOException {
+        ByteArrayOutputStream head = new ByteArrayOutputStream();
+        int matched = 0;
+        while (matched < 4) {
+            int b = in.read();
+            if (b < 0) {
+                throw new IOException("Connection closed in the response head");
+            }
+            head.write(b);
+            matched = (b == '\r' && (matched == 0 || matched == 2)) || (b == '\n' && (matched == 1 || matched == 3))
+                ? matched + 1 : b == '\r' ? 1 : 0;
+        }
+        return head.toString(StandardCharsets.ISO_8859_1);
+    }
+
+    private static String readChunk(InputStream in) throws IOException {
+        String size = readLine(in);
+        int length = Integer.parseInt(size, 16);
+        String data = new String(in.readNBytes(length), StandardCharsets.UTF_8);
+        readLine(in);
+        return data;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                throw new IOException("Connection closed mid-line");
+            }
+            if (b != '\r') {
+                line.append((char) b);
+            }
+        }
+        return line.toString();
+    }
+}
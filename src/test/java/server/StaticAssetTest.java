@@ -0,0 +1,100 @@
+package server;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Tests precompressed static responses, ETags and conditional requests
+ */
+class StaticAssetTest {
+
+    private static final String PAGE = "<html><body>" + "<p>Responsible AI governance</p>".repeat(200) + "</body></html>";
+
+    @Test
+    @DisplayName("Serves gzip only when accepted and answers a matching If-None-Match with 304")
+    void testNegotiationAndConditionalGet() throws Exception {
+        StaticAsset asset = new StaticAsset("text/html; charset=UTF-8", PAGE, StaticAsset.NO_CACHE);
+        assertTrue(asset.getCompressedLength() < asset.getLength() / 10);
+
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", asset::send);
+        server.start();
+        try {
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            URI uri = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/");
+
+            HttpResponse<byte[]> plain = client.send(HttpRequest.newBuilder(uri).build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+            assertEquals(200, plain.statusCode());
+            assertEquals(PAGE, new String(plain.body(), StandardCharsets.UTF_8));
+            assertTrue(plain.headers().firstValue("Content-Encoding").isEmpty());
+            assertEquals(asset.getEtag(), plain.headers().firstValue("ETag").orElseThrow());
+            assertEquals("no-cache", plain.headers().firstValue("Cache-Control").orElseThrow());
+            assertEquals("Accept-Encoding", plain.headers().firstValue("Vary").orElseThrow());
+
+            HttpResponse<byte[]> gzip = client.send(HttpRequest.newBuilder(uri)
+                .header("Accept-Encoding", "br;q=1.0, gzip;q=0.8").build(), HttpResponse.BodyHandlers.ofByteArray());
+            assertEquals("gzip", gzip.headers().firstValue("Content-Encoding").orElseThrow());
+            assertEquals(asset.getCompressedLength(), gzip.body().length);
+            assertEquals(PAGE, gunzip(gzip.body()));
+            String gzipTag = gzip.headers().firstValue("ETag").orElseThrow();
+            assertNotEquals(asset.getEtag(), gzipTag);
+
+            HttpResponse<byte[]> notModified = client.send(HttpRequest.newBuilder(uri)
+                .header("Accept-Encoding", "gzip").header("If-None-Match", "\"other\", W/" + gzipTag).build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+            assertEquals(304, notModified.statusCode());
+            assertEquals(0, notModified.body().length);
+            assertEquals(gzipTag, notModified.headers().firstValue("ETag").orElseThrow());
+
+            HttpResponse<byte[]> stale = client.send(HttpRequest.newBuilder(uri)
+                .header("If-None-Match", "\"stale\"").build(), HttpResponse.BodyHandlers.ofByteArray());
+            assertEquals(200, stale.statusCode());
+
+            HttpResponse<byte[]> head = client.send(HttpRequest.newBuilder(uri)
+                .method("HEAD", HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.ofByteArray());
+            assertEquals(200, head.statusCode());
+            assertEquals(0, head.body().length);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    @DisplayName("Accept-Encoding honours q=0 and wildcards; tiny bodies are never compressed")
+    void testAcceptEncoding() {
+        assertTrue(StaticAsset.acceptsGzip("gzip, deflate, br"));
+        assertTrue(StaticAsset.acceptsGzip("*"));
+        assertTrue(StaticAsset.acceptsGzip("X-GZIP"));
+        assertFalse(StaticAsset.acceptsGzip(null));
+        assertFalse(StaticAsset.acceptsGzip("identity"));
+        assertFalse(StaticAsset.acceptsGzip("gzip;q=0, *"));
+        assertFalse(StaticAsset.acceptsGzip("*;q=0"));
+        assertFalse(StaticAsset.acceptsGzip("gzip; q=0.000"));
+
+        StaticAsset tiny = new StaticAsset("application/json", "{}", "max-age=60");
+        assertEquals(tiny.getLength(), tiny.getCompressedLength());
+        assertTrue(tiny.matches("*"));
+        assertTrue(tiny.matches(tiny.getEtag()));
+        assertFalse(tiny.matches("\"nope\""));
+    }
+
+    private static String gunzip(byte[] data) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
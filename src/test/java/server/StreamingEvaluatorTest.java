@@ -0,0 +1,258 @@
+package server;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import core.EthicsContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests ordered, bounded-parallel NDJSON evaluation
+ */
+class StreamingEvaluatorTest {
+
+    private static final StreamingEvaluator.Encoder<String> LABEL =
+        (json, line, label) -> json.write("{\"line\":").write(line).write(",\"label\":").writeJsonString(label).write('}');
+
+    @Test
+    @DisplayName("Results come back in input order with per-line errors, skipping blank lines")
+    void testOrderAndErrors() throws IOException {
+        StreamingEvaluator<String> evaluator = new StreamingEvaluator<>(context -> {
+            // Finish out of order
+            sleepMicros(ThreadLocalRandom.current().nextInt(2_000));
+            return context.decision.getDecisionLabel();
+        }, LABEL, 4, 8);
+        StringBuilder body = new StringBuilder();
+        for (int i = 1; i <= 200; i++) {
+            body.append(i == 50 ? "{\"decisionLabel\": broken}" : i == 60 ? "  " : "{\"decisionLabel\": \"d" + i + "\"}");
+            body.append(i % 2 == 0 ? "\r\n" : "\n");
+        }
+        body.append("{\"decisionLabel\": \"last\"}");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long written = evaluator.evaluate(new ByteArrayInputStream(body.toString().getBytes(StandardCharsets.UTF_8)), out);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+
+        assertEquals(200, written);
+        assertEquals(200, lines.length);
+        int index = 0;
+        for (int i = 1; i <= 201; i++) {
+            if (i == 60) {
+                continue;
+            }
+            String line = lines[index++];
+            if (i == 50) {
+                assertTrue(line.startsWith("{\"line\":50,\"error\":\"Malformed JSON"), line);
+            } else {
+                assertEquals("{\"line\":" + i + ",\"label\":\"" + (i == 201 ? "last" : "d" + i) + "\"}", line);
+            }
+        }
+        assertEquals(199, evaluator.getEvaluatedCount());
+        assertEquals(1, evaluator.getFailedCount());
+        evaluator.shutdown();
+    }
+
+    @Test
+    @DisplayName("In-flight lines stay within the window, even with idle workers, over a long generated body")
+    void testBoundedWindow() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger started = new AtomicInteger();
+        StreamingEvaluator<String> blocked = new StreamingEvaluator<>(context -> {
+            started.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "x";
+        }, LABEL, 8, 3);
+        byte[] ten = "{}\n".repeat(10).getBytes(StandardCharsets.UTF_8);
+        AtomicLong results = new AtomicLong();
+        Thread reader = new Thread(() -> {
+            try {
+                results.set(blocked.evaluate(new ByteArrayInputStream(ten), OutputStream.nullOutputStream()));
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        reader.start();
+        Thread.sleep(200);
+        assertEquals(3, started.get());
+        release.countDown();
+        reader.join(10_000);
+        assertEquals(10, results.get());
+        blocked.shutdown();
+
+        StreamingEvaluator<String> evaluator = new StreamingEvaluator<>(context -> "x", LABEL, 4, 16);
+        int count = 10_000;
+        byte[] line = "{\"decisionLabel\": \"loan\", \"confidence\": 0.9}\n".getBytes(StandardCharsets.UTF_8);
+        InputStream body = new InputStream() {
+            long position;
+
+            @Override
+            public int read() {
+                return position < (long) count * line.length ? line[(int) (position++ % line.length)] : -1;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                int n = 0;
+                while (n < len && position < (long) count * line.length) {
+                    b[off + n++] = line[(int) (position++ % line.length)];
+                }
+                return n == 0 ? -1 : n;
+            }
+        };
+        AtomicLong bytes = new AtomicLong();
+        OutputStream out = new OutputStream() {
+            @Override
+            public void write(int b) {
+                bytes.incrementAndGet();
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                bytes.addAndGet(len);
+            }
+        };
+
+        long start = System.nanoTime();
+        assertEquals(count, evaluator.evaluate(body, out));
+        long nanos = System.nanoTime() - start;
+        assertEquals(count * "{\"line\":N,\"label\":\"x\"}\n".length(), bytes.get() - digitsUpTo(count) + count);
+        System.out.printf("%nStreamed %,d decisions in %d ms (%,.0f/s)%n", count, nanos / 1_000_000,
+            count * 1e9 / nanos);
+        evaluator.shutdown();
+    }
+
+    @Test
+    @DisplayName("Oversized lines fail alone and results flush while the body is still arriving")
+    void testIncrementalFlush() throws Exception {
+        StreamingEvaluator<String> evaluator = new StreamingEvaluator<>(
+            (EthicsContext context) -> context.decision.getDecisionLabel(), LABEL, 2, 4);
+        PipedOutputStream client = new PipedOutputStream();
+        PipedInputStream body = new PipedInputStream(client, 64 * 1024);
+        PipedInputStream responses = new PipedInputStream(64 * 1024);
+        PipedOutputStream out = new PipedOutputStream(responses);
+        Thread server = new Thread(() -> {
+            try {
+                evaluator.evaluate(body, out);
+                out.close();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        server.start();
+
+        client.write("{\"decisionLabel\": \"first\"}\n".getBytes(StandardCharsets.UTF_8));
+        client.flush();
+        // The first result arrives before the request body is complete
+        assertEquals("{\"line\":1,\"label\":\"first\"}", readLine(responses));
+
+        byte[] huge = new byte[StreamingEvaluator.MAX_LINE_BYTES + 10];
+        java.util.Arrays.fill(huge, (byte) 'x');
+        Thread writer = new Thread(() -> {
+            try {
+                client.write(huge);
+                client.write("\n{\"decisionLabel\": \"after\"}\n".getBytes(StandardCharsets.UTF_8));
+                client.close();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        writer.start();
+        assertEquals("{\"line\":2,\"error\":\"Line longer than " + StreamingEvaluator.MAX_LINE_BYTES + " bytes\"}",
+            readLine(responses));
+        assertEquals("{\"line\":3,\"label\":\"after\"}", readLine(responses));
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        server.join(TimeUnit.SECONDS.toMillis(10));
+        assertFalse(server.isAlive());
+        evaluator.shutdown();
+    }
+
+    @Test
+    @DisplayName("A client that stops reading results only holds up its own stream")
+    void testSlowReaderDoesNotStallWorkers() throws Exception {
+        StreamingEvaluator<String> evaluator = new StreamingEvaluator<>(
+            (EthicsContext context) -> context.decision.getDecisionLabel(), LABEL, 1, 4);
+        CountDownLatch release = new CountDownLatch(1);
+        OutputStream stuck = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[] {(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+            }
+        };
+        String lines = "{\"decisionLabel\": \"slow\"}\n".repeat(20);
+        Thread slow = new Thread(() -> {
+            try {
+                evaluator.evaluate(new ByteArrayInputStream(lines.getBytes(StandardCharsets.UTF_8)), stuck);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        slow.start();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long results = evaluator.evaluate(new ByteArrayInputStream(
+            "{\"decisionLabel\": \"fast\"}\n".repeat(100).getBytes(StandardCharsets.UTF_8)), out);
+        assertEquals(100, results, "The shared worker is free while the slow stream blocks in its write");
+        assertTrue(slow.isAlive());
+
+        release.countDown();
+        slow.join(TimeUnit.SECONDS.toMillis(10));
+        assertFalse(slow.isAlive());
+        evaluator.shutdown();
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1 && b != '\n') {
+            line.write(b);
+        }
+        return line.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Total digits in the numbers 1..n
+     */
+    private static long digitsUpTo(int n) {
+        long digits = 0;
+        for (int i = 1; i <= n; i++) {
+            digits += Integer.toString(i).length();
+        }
+        return digits;
+    }
+
+    private static void sleepMicros(long micros) {
+        try {
+            TimeUnit.MICROSECONDS.sleep(micros);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
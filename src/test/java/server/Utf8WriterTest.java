@@ -0,0 +1,67 @@
+package server;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Tests the buffered UTF-8 writer
+ */
+class Utf8WriterTest {
+
+    @Test
+    @DisplayName("Encodes ASCII, multi-byte and surrogate pairs like String.getBytes across buffer refills")
+    void testEncoding() throws Exception {
+        String text = "ascii, café, 数据, 🙂 and more; ".repeat(50);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Utf8Writer writer = new Utf8Writer(bytes, 16);
+        writer.write(text).write(-42L).write(' ').write(Long.MIN_VALUE).write('é');
+        writer.flush();
+
+        String expected = text + "-42 " + Long.MIN_VALUE + "é";
+        assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), bytes.toByteArray());
+        assertEquals(bytes.size(), writer.getBytesWritten());
+    }
+
+    @Test
+    @DisplayName("Escapes JSON strings and quotes CSV fields only when needed")
+    void testEscaping() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Utf8Writer writer = new Utf8Writer(bytes);
+        writer.writeJsonString("say \"hi\"\\\n\t\u0001ü").write('|').writeJsonString(null).write('|');
+        writer.writeCsvField("plain").write('|').writeCsvField("a,b \"c\"").write('|').writeCsvField("x\ny");
+        writer.flush();
+
+        assertEquals("\"say \\\"hi\\\"\\\\\\n\\t\\u0001ü\"|null|plain|\"a,b \"\"c\"\"\"|\"x\ny\"",
+                bytes.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("In-memory writers grow instead of flushing and print doubles like Double.toString")
+    void testInMemory() throws Exception {
+        Utf8Writer writer = new Utf8Writer(16);
+        String text = "naïve 🙂 ".repeat(40);
+        writer.write(text);
+        for (double value : new double[] {0.92, 42, -3, 0, -0.0, 1e7, 1e-5, 0.1 + 0.2}) {
+            writer.write(' ').write(value);
+        }
+        writer.write(' ').write(Double.NaN).write(' ').write(true);
+
+        StringBuilder expected = new StringBuilder(text);
+        for (double value : new double[] {0.92, 42, -3, 0, -0.0, 1e7, 1e-5, 0.1 + 0.2}) {
+            expected.append(' ').append(value);
+        }
+        expected.append(" null true");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        writer.writeTo(bytes);
+        assertEquals(expected.toString(), bytes.toString(StandardCharsets.UTF_8));
+        assertEquals(bytes.size(), writer.getBytesWritten());
+        assertTrue(writer.getCapacity() >= bytes.size());
+
+        writer.reset(null);
+        assertEquals(0, writer.getBytesWritten());
+    }
+}
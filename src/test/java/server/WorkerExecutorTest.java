@@ -0,0 +1,155 @@
+package server;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.sun.net.httpserver.HttpServer;
+import core.EthicsContext;
+import core.EthicsEngine;
+import core.EthicsResult;
+import model.AIDecision;
+import model.UserData;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the HTTP worker executor modes
+ */
+class WorkerExecutorTest {
+
+    @Test
+    @DisplayName("A full fixed-pool queue makes the submitting thread run the exchange")
+    void testOverflowRunsOnCaller() throws Exception {
+        WorkerExecutor workers = new WorkerExecutor(WorkerExecutor.Mode.FIXED, 1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        workers.execute(() -> {
+            started.countDown();
+            awaitQuietly(release);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        workers.execute(() -> awaitQuietly(release));
+        assertEquals(1, workers.getQueueDepth());
+        assertEquals(1, workers.getActiveCount());
+
+        Thread[] ranOn = new Thread[1];
+        workers.execute(() -> ranOn[0] = Thread.currentThread());
+        assertSame(Thread.currentThread(), ranOn[0]);
+        assertEquals(1, workers.getOverflowCount());
+
+        release.countDown();
+        workers.shutdown();
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (workers.getCompletedCount() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(3, workers.getCompletedCount());
+        assertEquals(0, workers.getQueueDepth());
+        assertEquals(3, workers.getQueueWait().getCount());
+    }
+
+    @Test
+    @DisplayName("Modes parse leniently and virtual threads fall back before JDK 21")
+    void testModes() {
+        assertEquals(WorkerExecutor.Mode.WORK_STEALING, WorkerExecutor.Mode.parse(" work-stealing "));
+        WorkerExecutor virtual = new WorkerExecutor(WorkerExecutor.Mode.VIRTUAL, 4, 16);
+        WorkerExecutor.Mode expected = Runtime.version().feature() >= 21
+            ? WorkerExecutor.Mode.VIRTUAL : WorkerExecutor.Mode.FIXED;
+        assertEquals(expected, virtual.getMode());
+        virtual.shutdown();
+
+        WorkerExecutor dispatcher = new WorkerExecutor(WorkerExecutor.Mode.DISPATCHER, 1, 1);
+        Thread[] ranOn = new Thread[1];
+        dispatcher.execute(() -> ranOn[0] = Thread.currentThread());
+        assertSame(Thread.currentThread(), ranOn[0]);
+        assertEquals(1, dispatcher.getCompletedCount());
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Throughput comparison: pooled modes outrun the single dispatcher thread")
+    void testThroughputByMode() throws Exception {
+        EthicsEngine engine = new EthicsEngine();
+        Map<WorkerExecutor.Mode, Double> throughput = new EnumMap<>(WorkerExecutor.Mode.class);
+        for (WorkerExecutor.Mode mode : WorkerExecutor.Mode.values()) {
+            throughput.put(mode, measure(engine, mode, 600));
+        }
+        System.out.println("\n=== HTTP EXECUTOR THROUGHPUT (1 ms simulated I/O per request) ===");
+        throughput.forEach((mode, rate) -> System.out.printf("%-14s %,8.0f req/s%n", mode, rate));
+
+        assertTrue(throughput.get(WorkerExecutor.Mode.FIXED) > 2 * throughput.get(WorkerExecutor.Mode.DISPATCHER),
+            throughput.toString());
+    }
+
+    private static double measure(EthicsEngine engine, WorkerExecutor.Mode mode, int requests) throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 256);
+        server.createContext("/evaluate", exchange -> {
+            AIDecision decision = new AIDecision("Loan approval", 0.92);
+            decision.setResponsibleEntity("LoanModel");
+            decision.setExplanation("Income and repayment history support the approval of this application");
+            EthicsResult result = engine.intercept(
+                new EthicsContext(decision, new UserData("User", "user@example.com", false, true)));
+            try {
+                // Stands in for a database or downstream call
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = result.getFinalDecision().name().getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        WorkerExecutor workers = new WorkerExecutor(mode, 16, 1024);
+        server.setExecutor(workers);
+        server.start();
+
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        URI uri = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/evaluate");
+        ExecutorService clients = Executors.newFixedThreadPool(16);
+        try {
+            long start = System.nanoTime();
+            List<Future<Integer>> responses = new ArrayList<>();
+            for (int i = 0; i < requests; i++) {
+                responses.add(clients.submit(() -> client.send(HttpRequest.newBuilder(uri).build(),
+                    HttpResponse.BodyHandlers.discarding()).statusCode()));
+            }
+            for (Future<Integer> response : responses) {
+                assertEquals(200, response.get());
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            assertEquals(requests, workers.getSubmittedCount());
+            return requests / seconds;
+        } finally {
+            clients.shutdown();
+            server.stop(0);
+            workers.shutdown();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}